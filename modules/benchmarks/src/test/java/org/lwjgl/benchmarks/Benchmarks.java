@@ -0,0 +1,25 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+
+/** Setup shared by the LWJGL benchmarks. */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Selects the {@link MemoryUtil} memory accessor.
+     *
+     * <p>Must be called before {@code MemoryUtil} is initialized. JMH runs each parameter combination in a new JVM, so this works as long as benchmarks are
+     * forked.</p>
+     */
+    static void init(String accessor) {
+        Configuration.MEMORY_ACCESSOR.set(accessor);
+    }
+
+}
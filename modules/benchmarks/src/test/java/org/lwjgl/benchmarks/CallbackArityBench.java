@@ -0,0 +1,102 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.JNI.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.dyncall.DynCallback.*;
+
+/**
+ * Measures the upcall latency of a {@link Callback} by arity, with arguments decoded via {@code DCArgs} or passed in a packed argument block.
+ *
+ * <p>The {@code packed} mode requires a native library built from the current sources, it fails with {@link UnsupportedOperationException} otherwise.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallbackArityBench {
+
+    @Param({"dcargs", "packed"})
+    public String mode;
+
+    @Param({"0", "1", "2", "3", "5"})
+    public int arity;
+
+    private long callback;
+
+    private int sum;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init("unsafe");
+
+        StringBuilder signature = new StringBuilder("(");
+        for (int i = 0; i < arity; i++) {
+            signature.append('i');
+        }
+        signature.append(")v");
+
+        boolean packed = "packed".equals(mode);
+
+        callback = new CallbackI.V() {
+            @Override
+            public String getSignature() {
+                return signature.toString();
+            }
+
+            @Override
+            public boolean usePackedArguments() {
+                return packed;
+            }
+
+            @Override
+            public void callback(long args) {
+                int s = 0;
+                for (int i = 0; i < arity; i++) {
+                    s += packed ? memGetInt(args + i * 8) : dcbArgInt(args);
+                }
+                sum = s;
+            }
+        }.address();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Callback.free(callback);
+    }
+
+    @Benchmark
+    public int upcall() {
+        switch (arity) {
+            case 0:
+                invokeV(callback);
+                break;
+            case 1:
+                invokeV(callback, 1);
+                break;
+            case 2:
+                invokeV(callback, 1, 2);
+                break;
+            case 3:
+                invokeV(callback, 1, 2, 3);
+                break;
+            case 5:
+                invokeV(callback, 1, 2, 3, 4, 5);
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+        return sum;
+    }
+
+}
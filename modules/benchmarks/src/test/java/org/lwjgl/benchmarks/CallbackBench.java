@@ -0,0 +1,58 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.JNI.*;
+import static org.lwjgl.system.dyncall.DynCallback.*;
+
+/** Measures the overhead of a native to Java upcall through a {@link Callback}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallbackBench {
+
+    @Param({"unsafe", "jni"})
+    public String accessor;
+
+    private long callback;
+
+    private int value;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init(accessor);
+
+        callback = new CallbackI.I() {
+            @Override
+            public String getSignature() {
+                return "(i)i";
+            }
+
+            @Override
+            public int callback(long args) {
+                return dcbArgInt(args) + 1;
+            }
+        }.address();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Callback.free(callback);
+    }
+
+    @Benchmark
+    public int upcall() {
+        return value = invokeI(callback, value);
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.dyncall.DynCallback.*;
+
+/** Measures the cost of creating and freeing a {@link Callback}, with and without trampoline pooling. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallbackCreateBench {
+
+    @Param({"0", "16"})
+    public int poolSize;
+
+    private final CallbackI.I instance = new CallbackI.I() {
+        @Override
+        public String getSignature() {
+            return "(i)i";
+        }
+
+        @Override
+        public int callback(long args) {
+            return dcbArgInt(args);
+        }
+    };
+
+    @Setup
+    public void setup() {
+        Benchmarks.init("unsafe");
+
+        Configuration.CALLBACK_POOL_SIZE.set(poolSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Configuration.CALLBACK_POOL_SIZE.set(null);
+        Callback.trimPool();
+    }
+
+    @Benchmark
+    public long createFree() {
+        long callback = instance.address();
+        Callback.free(callback);
+        return callback;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.JNI.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Compares calling a native function directly, against replaying the same calls from a {@link CommandList}.
+ *
+ * <p>The called function is {@code free(NULL)}, a no-op, so that the JNI transition cost dominates. The native command list executor requires a build of
+ * the LWJGL shared library that includes it, the {@code dyncall} fallback is measured otherwise (see {@link CommandList#isNative}).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandListBench {
+
+    @Param({"1", "16", "256"})
+    public int calls;
+
+    private long function;
+
+    private CommandList commands;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init("unsafe");
+
+        function = getAllocator().getFree();
+
+        commands = new CommandList();
+        for (int i = 0; i < calls; i++) {
+            commands.invoke(function, 1).argPointer(NULL);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        commands.free();
+    }
+
+    @Benchmark
+    public void direct() {
+        for (int i = 0; i < calls; i++) {
+            invokePV(function, NULL);
+        }
+    }
+
+    @Benchmark
+    public void replay() {
+        commands.execute();
+    }
+
+    @Benchmark
+    public void recordAndReplay() {
+        commands.reset();
+        for (int i = 0; i < calls; i++) {
+            commands.invoke(function, 1).argPointer(NULL);
+        }
+        commands.execute();
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+import org.lwjgl.util.lmdb.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+
+/**
+ * Compares point reads that begin and abort a read-only transaction per read, against reads that use the transactions and cursors of an
+ * {@link LMDBReadPool}.
+ *
+ * <p>The environment is populated with {@code entries} integer keys. Each read looks up a random key.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LMDBReadBench {
+
+    @Param({"0", "2097152"}) // 0, MDB_NOTLS
+    public int flags;
+
+    private static final int ENTRIES = 1 << 16;
+
+    private Path dir;
+    private long env;
+    private int  dbi;
+
+    private LMDBReadPool pool;
+
+    @State(Scope.Thread)
+    public static class Lookup {
+
+        long key;
+        long data;
+
+        int next;
+
+        @Setup
+        public void setup() {
+            key = nmemAllocChecked(MDBVal.SIZEOF * 2 + 4);
+            data = key + MDBVal.SIZEOF;
+
+            memPutAddress(key + MDBVal.MV_DATA, data + MDBVal.SIZEOF);
+            MDBVal.nmv_size(key, 4);
+
+            next = ThreadLocalRandom.current().nextInt() | 1;
+        }
+
+        @TearDown
+        public void tearDown() {
+            nmemFree(key);
+        }
+
+        void next() {
+            // xorshift
+            next ^= next << 13;
+            next ^= next >>> 17;
+            next ^= next << 5;
+            memPutInt(data + MDBVal.SIZEOF, next & (ENTRIES - 1));
+        }
+
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        Benchmarks.init("unsafe");
+
+        dir = Files.createTempDirectory("lwjgl-lmdb");
+
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(mdb_env_create(pp));
+            env = pp.get(0);
+
+            check(mdb_env_set_mapsize(env, 64 << 20));
+            check(mdb_env_open(env, dir.toString(), MDB_NOSYNC | flags, 0664));
+
+            check(mdb_txn_begin(env, NULL, 0, pp));
+            long txn = pp.get(0);
+
+            IntBuffer ip = stack.mallocInt(1);
+            check(mdb_dbi_open(txn, (CharSequence)null, MDB_INTEGERKEY, ip));
+            dbi = ip.get(0);
+
+            MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4));
+            MDBVal dv = MDBVal.callocStack(stack).mv_data(stack.malloc(16));
+            for (int i = 0; i < ENTRIES; i++) {
+                memPutInt(memGetAddress(kv.address() + MDBVal.MV_DATA), i);
+                check(mdb_put(txn, dbi, kv, dv, MDB_APPEND));
+            }
+            check(mdb_txn_commit(txn));
+        }
+
+        pool = new LMDBReadPool(env, 64);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.free();
+        mdb_env_close(env);
+
+        Files.deleteIfExists(dir.resolve("data.mdb"));
+        Files.deleteIfExists(dir.resolve("lock.mdb"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int beginAbort(Lookup lookup) {
+        lookup.next();
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(nmdb_txn_begin(env, NULL, MDB_RDONLY, memAddress(pp)));
+            long txn = pp.get(0);
+            try {
+                return nmdb_get(txn, dbi, lookup.key, lookup.data);
+            } finally {
+                nmdb_txn_abort(txn);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int pooled(Lookup lookup) {
+        lookup.next();
+        try (LMDBReadPool.Reader reader = pool.acquire()) {
+            return nmdb_get(reader.txn(), dbi, lookup.key, lookup.data);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int pooledCursor(Lookup lookup) {
+        lookup.next();
+        try (LMDBReadPool.Reader reader = pool.acquire()) {
+            return nmdb_cursor_get(reader.cursor(dbi), lookup.key, lookup.data, MDB_SET_KEY);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/** Measures {@code memCopy} and {@code memSet} with the small sizes that are typical of struct and string copies. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemCopyBench {
+
+    @Param({"unsafe", "jni"})
+    public String accessor;
+
+    @Param({"4", "8", "16", "32", "64", "128", "256"})
+    public int size;
+
+    private long src;
+    private long dst;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init(accessor);
+
+        src = nmemCalloc(1, 256);
+        dst = nmemCalloc(1, 256);
+    }
+
+    @TearDown
+    public void tearDown() {
+        nmemFree(dst);
+        nmemFree(src);
+    }
+
+    @Benchmark
+    public void copy() {
+        memCopy(src, dst, size);
+    }
+
+    @Benchmark
+    public void set() {
+        memSet(dst, 0, size);
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Measures each {@code memCopy} and {@code memSet} strategy of the Unsafe-based memory accessor, by size and alignment.
+ *
+ * <p>The strategy is forced with the {@link Configuration#MEMCOPY_JAVA_THRESHOLD}, {@link Configuration#MEMCOPY_NATIVE_THRESHOLD} and
+ * {@link Configuration#MEMSET_NATIVE_THRESHOLD} options. The crossover points of the results are the best values for these options on the current
+ * machine. {@code memSet} has no Unsafe strategy, the {@code unsafe} results of {@code set} use the Java loop.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemCopyMatrixBench {
+
+    @Param({"default", "java", "unsafe", "native"})
+    public String strategy;
+
+    @Param({"1", "7", "8", "15", "16", "31", "32", "63", "64", "128", "192", "256", "384", "512", "1024"})
+    public int size;
+
+    /** The offset of src and dst from an 8-byte aligned address. */
+    @Param({"0", "1", "4"})
+    public int misalignment;
+
+    private long src;
+    private long dst;
+
+    private long srcBase;
+    private long dstBase;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init("unsafe");
+
+        switch (strategy) {
+            case "default":
+                break;
+            case "java":
+                Configuration.MEMCOPY_JAVA_THRESHOLD.set(Integer.MAX_VALUE);
+                Configuration.MEMCOPY_NATIVE_THRESHOLD.set(Integer.MAX_VALUE);
+                Configuration.MEMSET_NATIVE_THRESHOLD.set(Integer.MAX_VALUE);
+                break;
+            case "unsafe":
+                Configuration.MEMCOPY_JAVA_THRESHOLD.set(0);
+                Configuration.MEMCOPY_NATIVE_THRESHOLD.set(Integer.MAX_VALUE);
+                Configuration.MEMSET_NATIVE_THRESHOLD.set(Integer.MAX_VALUE);
+                break;
+            case "native":
+                Configuration.MEMCOPY_JAVA_THRESHOLD.set(0);
+                Configuration.MEMCOPY_NATIVE_THRESHOLD.set(0);
+                Configuration.MEMSET_NATIVE_THRESHOLD.set(0);
+                break;
+            default:
+                throw new IllegalArgumentException(strategy);
+        }
+
+        srcBase = nmemAlignedAlloc(64, 1024 + 64);
+        dstBase = nmemAlignedAlloc(64, 1024 + 64);
+        memSet(srcBase, 0, 1024 + 64);
+        memSet(dstBase, 0, 1024 + 64);
+
+        src = srcBase + misalignment;
+        dst = dstBase + misalignment;
+    }
+
+    @TearDown
+    public void tearDown() {
+        nmemAlignedFree(dstBase);
+        nmemAlignedFree(srcBase);
+    }
+
+    @Benchmark
+    public void copy() {
+        memCopy(src, dst, size);
+    }
+
+    @Benchmark
+    public void set() {
+        memSet(dst, 0, size);
+    }
+
+}
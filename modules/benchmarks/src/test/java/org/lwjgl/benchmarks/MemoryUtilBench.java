@@ -0,0 +1,63 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/** Compares explicit memory management with {@link MemoryStack} allocations. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryUtilBench {
+
+    @Param({"unsafe", "jni"})
+    public String accessor;
+
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init(accessor);
+    }
+
+    @Benchmark
+    public long memAlloc() {
+        long address = nmemAlloc(size);
+        nmemFree(address);
+        return address;
+    }
+
+    @Benchmark
+    public long memCalloc() {
+        long address = nmemCalloc(1, size);
+        nmemFree(address);
+        return address;
+    }
+
+    @Benchmark
+    public long stackMalloc() {
+        try (MemoryStack stack = stackPush()) {
+            return stack.nmalloc(size);
+        }
+    }
+
+    @Benchmark
+    public long stackCalloc() {
+        try (MemoryStack stack = stackPush()) {
+            return stack.ncalloc(1, size, 1);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.*;
+import org.lwjgl.system.jni.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Measures the scaling of the parallel bulk operations of custom buffers.
+ *
+ * <p>The operations run in a {@link ForkJoinPool} with {@code parallelism} worker threads. {@code parallelism=0} runs the sequential equivalent in the
+ * benchmark thread.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBufferBench {
+
+    @Param({"unsafe"})
+    public String accessor;
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"1048576"})
+    public int capacity;
+
+    private ForkJoinPool pool;
+
+    private JNINativeMethod.Buffer structs;
+    private JNINativeMethod.Buffer copy;
+
+    private PointerBuffer pointers;
+
+    private JNINativeMethod value;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init(accessor);
+
+        if (parallelism != 0) {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        structs = JNINativeMethod.calloc(capacity);
+        copy = JNINativeMethod.calloc(capacity);
+        pointers = PointerBuffer.allocateDirect(capacity);
+        value = JNINativeMethod.calloc().fnPtr(1L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        value.free();
+        copy.free();
+        structs.free();
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void run(Runnable parallel, Runnable sequential) {
+        if (pool == null) {
+            sequential.run();
+        } else {
+            pool.submit(parallel).join();
+        }
+    }
+
+    @Benchmark
+    public void fill() {
+        run(
+            () -> pointers.parallelFill((byte)0),
+            () -> memSet(pointers.address(), 0, (long)pointers.remaining() * pointers.sizeof())
+        );
+    }
+
+    @Benchmark
+    public void fillStruct() {
+        run(
+            () -> structs.parallelFill(value),
+            () -> {
+                for (int i = 0; i < capacity; i++) {
+                    structs.put(i, value);
+                }
+            }
+        );
+    }
+
+    @Benchmark
+    public void transform() {
+        run(
+            () -> structs.parallelForEachAddress(address -> JNINativeMethod.nfnPtr(address, JNINativeMethod.nfnPtr(address) * 3L + 1L)),
+            () -> structs.forEachAddress(address -> JNINativeMethod.nfnPtr(address, JNINativeMethod.nfnPtr(address) * 3L + 1L))
+        );
+    }
+
+    @Benchmark
+    public void copy() {
+        run(
+            () -> copy.clear().parallelPut(structs),
+            () -> copy.clear().put(structs)
+        );
+    }
+
+    @Benchmark
+    public long stream() {
+        return pool == null
+            ? structs.stream().mapToLong(JNINativeMethod::fnPtr).sum()
+            : pool.submit(() -> structs.parallelStream().mapToLong(JNINativeMethod::fnPtr).sum()).join();
+    }
+
+}
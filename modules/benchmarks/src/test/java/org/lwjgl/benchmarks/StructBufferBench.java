@@ -0,0 +1,75 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.jni.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Measures the cost of {@code StructBuffer.get(index)} instance creation, compared to flyweight iteration and direct access to the struct members. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructBufferBench {
+
+    @Param({"unsafe", "jni"})
+    public String accessor;
+
+    @Param({"256"})
+    public int capacity;
+
+    private JNINativeMethod.Buffer buffer;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init(accessor);
+
+        buffer = JNINativeMethod.calloc(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buffer.get(i).fnPtr(i + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.free();
+    }
+
+    @Benchmark
+    public long get() {
+        long sum = 0L;
+        for (int i = 0; i < capacity; i++) {
+            sum += buffer.get(i).fnPtr();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long flyweight() {
+        JNINativeMethod flyweight = buffer.flyweight();
+
+        long sum = 0L;
+        for (int i = 0; i < capacity; i++) {
+            sum += buffer.flyweight(flyweight, i).fnPtr();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long address() {
+        long address = buffer.address();
+
+        long sum = 0L;
+        for (int i = 0; i < capacity; i++) {
+            sum += JNINativeMethod.nfnPtr(address + i * JNINativeMethod.SIZEOF);
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.windows.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Compares copying a struct member of each struct in a buffer to a Java array, per element and with the bulk gather/scatter accessors. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructBulkBench {
+
+    @Param({"16", "1024", "100000"})
+    public int capacity;
+
+    private RECT.Buffer buffer;
+
+    private int[] array;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init("unsafe");
+
+        buffer = RECT.calloc(capacity);
+        array = new int[capacity];
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.free();
+    }
+
+    @Benchmark
+    public int[] getLoop() {
+        for (int i = 0; i < capacity; i++) {
+            array[i] = buffer.get(i).right();
+        }
+        return array;
+    }
+
+    @Benchmark
+    public int[] gather() {
+        buffer.gatherRight(array);
+        return array;
+    }
+
+    @Benchmark
+    public RECT.Buffer putLoop() {
+        for (int i = 0; i < capacity; i++) {
+            buffer.get(i).right(array[i]);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public RECT.Buffer scatter() {
+        return buffer.scatterRight(array);
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.benchmarks;
+
+import org.lwjgl.system.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/** Measures UTF-8 encoding and decoding of ASCII strings, with and without a {@link TextCache}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBench {
+
+    @Param({"unsafe", "jni"})
+    public String accessor;
+
+    @Param({"8", "64", "512"})
+    public int length;
+
+    private String text;
+
+    private ByteBuffer target;
+    private ByteBuffer encoded;
+
+    private TextCache cache;
+
+    @Setup
+    public void setup() {
+        Benchmarks.init(accessor);
+
+        char[] chars = new char[length];
+        Random random = new Random(0);
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char)('a' + random.nextInt(26));
+        }
+        text = new String(chars);
+
+        target = memAlloc(length + 1);
+        encoded = memUTF8(text, true);
+
+        cache = new TextCache(256);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.free();
+        memFree(encoded);
+        memFree(target);
+    }
+
+    @Benchmark
+    public int encode() {
+        return memUTF8(text, true, target);
+    }
+
+    @Benchmark
+    public long encodeStack() {
+        try (MemoryStack stack = stackPush()) {
+            return memAddress(stack.UTF8(text));
+        }
+    }
+
+    @Benchmark
+    public long encodeCached() {
+        return cache.nUTF8(text);
+    }
+
+    @Benchmark
+    public String decode() {
+        return memUTF8(encoded, length);
+    }
+
+    @Benchmark
+    public String decodeNT() {
+        return memUTF8(memAddress(encoded));
+    }
+
+    @Benchmark
+    public String decodeNTCached() {
+        return cache.decodeUTF8(memAddress(encoded));
+    }
+
+}
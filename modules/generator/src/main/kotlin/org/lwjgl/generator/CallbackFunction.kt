@@ -5,6 +5,19 @@
 package org.lwjgl.generator
 
 import java.io.*
+import java.nio.file.*
+
+// Defined once, by the native callback handlers. Callback.PACKED_ARGUMENTS_MAX is checked against the native value at runtime.
+private val CALLBACK_PACKED_ARGUMENTS_MAX by lazy {
+    val source = Paths.get("modules/lwjgl/core/src/main/c/org_lwjgl_system_Callback.c")
+    val define = "#define LWJGL_CALLBACK_MAX_ARGS (\\d+)".toRegex()
+    Files.readAllLines(source)
+        .asSequence()
+        .mapNotNull { define.matchEntire(it.trim()) }
+        .firstOrNull()
+        ?.groupValues?.get(1)?.toInt()
+        ?: throw IllegalStateException("LWJGL_CALLBACK_MAX_ARGS is not defined in $source")
+}
 
 class CallbackFunction(
     module: Module,
@@ -22,6 +35,14 @@ class CallbackFunction(
         stdcall = true
     }
 
+    private var packedArguments = Module.CALLBACK_PACKED_ARGUMENTS
+    /** Arguments are decoded by the native callback handler to a packed argument block, instead of a dcbArg* call per argument. */
+    fun usePackedArguments() {
+        packedArguments = true
+    }
+
+    private val usePackedArguments get() = packedArguments && signature.size <= CALLBACK_PACKED_ARGUMENTS_MAX
+
     internal fun nativeType(name: String, separator: String = ", ", prefix: String = "", postfix: String = "") =
         "${returns.name}${if (returns is PointerType && !returns.includesPointer) "*" else ""} (*$name) (${signature.asSequence()
             .joinToString(separator, prefix = prefix, postfix = postfix) { param ->
@@ -70,6 +91,19 @@ class CallbackFunction(
         else
             (mapping as PrimitiveMapping).javaMethodName.upperCaseFirst
 
+    private val NativeType.packedGetter
+        get() = if (this is PointerType || mapping === PrimitiveMapping.POINTER)
+            "Long"
+        else when (mapping) {
+            PrimitiveMapping.BOOLEAN  -> "Byte"
+            PrimitiveMapping.BOOLEAN4 -> "Int"
+            else                      -> (mapping as PrimitiveMapping).javaMethodName.upperCaseFirst
+        }
+
+    private fun Parameter.packedArg(index: Int) = "memGet${nativeType.packedGetter}(args${if (index == 0) "" else " + ${index * 8}"})${
+        if (nativeType.mapping === PrimitiveMapping.BOOLEAN || nativeType.mapping === PrimitiveMapping.BOOLEAN4) " != 0" else ""
+    }"
+
     private fun PrintWriter.generateDocumentation(isClass: Boolean) {
         val documentation = if (module === Module.VULKAN)
             super.documentation
@@ -182,7 +216,7 @@ import static org.lwjgl.system.MemoryUtil.*;
 
         print("""import org.lwjgl.system.*;
 
-import static org.lwjgl.system.dyncall.DynCallback.*;
+import static org.lwjgl.system.${if (usePackedArguments) "MemoryUtil" else "dyncall.DynCallback"}.*;
 
 """)
         generateDocumentation(false)
@@ -196,15 +230,21 @@ ${access.modifier}interface ${className}I extends CallbackI.${returns.mapping.jn
 
     @Override
     default String getSignature() { return SIGNATURE; }
-
+${if (usePackedArguments) """
+    @Override
+    default boolean usePackedArguments() { return true; }
+""" else ""}
     @Override
     default ${returns.nativeMethodType} callback(long args) {
         """)
         if (returns.mapping != TypeMapping.VOID)
             print("return ")
         print("""invoke(
-${signature.asSequence().map {
-            "$t$t${t}dcbArg${it.nativeType.argType}(args)${if (it.nativeType.mapping === PrimitiveMapping.BOOLEAN4) " != 0" else ""}"
+${signature.asSequence().mapIndexed { i, it ->
+            if (usePackedArguments)
+                "$t$t$t${it.packedArg(i)}"
+            else
+                "$t$t${t}dcbArg${it.nativeType.argType}(args)${if (it.nativeType.mapping === PrimitiveMapping.BOOLEAN4) " != 0" else ""}"
         }.joinToString(",\n")}
         );
     }
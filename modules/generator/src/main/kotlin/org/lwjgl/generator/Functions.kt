@@ -35,6 +35,7 @@ internal const val MAP_LENGTH = "length"
 const val FUNCTION_ADDRESS = "__functionAddress"
 
 internal const val JNIENV = "__env"
+internal const val START = "__start"
 
 /** Special parameter that generates an explicit function address parameter. */
 val EXPLICIT_FUNCTION_ADDRESS = opaque_p.IN(FUNCTION_ADDRESS, "the function address")
@@ -157,6 +158,10 @@ class Func(
                     || (has<Macro>() && get<Macro>().expression != null)
                  )
 
+    /** Returns true if the native call of this function is reported to {@code FunctionStats}. */
+    internal val isInstrumented
+        get() = Module.FUNCTION_INSTRUMENTATION && !isNativeOnly && (!has<Macro>() || get<Macro>().expression == null)
+
     private val hasUnsafeMethod by lazy(LazyThreadSafetyMode.NONE) {
         hasFunctionAddressParam
         && !(hasExplicitFunctionAddress && hasNativeCode)
@@ -749,9 +754,15 @@ class Func(
         }
 
         // Native method call
+        val returnsValue = !returns.isVoid && !returns.isStructValue
+        if (isInstrumented && !returnsValue)
+            println("$t${t}long $START = FunctionStats.begin();")
         print("$t$t")
-        if (!returns.isVoid && !returns.isStructValue)
+        if (returnsValue) {
             print("return ")
+            if (isInstrumented)
+                print("FunctionStats.end(${nativeClass.getFunctionID(this@Func)}, FunctionStats.begin(), ")
+        }
         print(if (hasCustomJNI)
             "n$nativeName("
         else
@@ -771,7 +782,12 @@ class Func(
             print(", ")
             print(RESULT)
         }
-        println(");")
+        print(")")
+        if (isInstrumented && returnsValue)
+            print(")")
+        println(";")
+        if (isInstrumented && !returnsValue)
+            println("$t${t}FunctionStats.end(${nativeClass.getFunctionID(this@Func)}, $START);")
 
         println("$t}")
     }
@@ -976,10 +992,17 @@ class Func(
         val returnsObject = returns.nativeType is ObjectType
         val returnType = if (returnsObject) (returns.nativeType as ObjectType).className else returnsNativeMethodType
 
-        if (hasFinally)
-            print(t)
-        print("$t$t")
-        if (!(returns.isVoid || returns.isStructValue)) {
+        val returnsValue = !(returns.isVoid || returns.isStructValue)
+        val macroExpression = if (has<Macro>()) get<Macro>().expression else null
+
+        // The unsafe method is instrumented instead
+        val instrumented = isInstrumented && !hasUnsafeMethod && macroExpression == null
+        val indent = if (hasFinally) "$t$t$t" else "$t$t"
+
+        if (instrumented && !returnsValue)
+            println("${indent}long $START = FunctionStats.begin();")
+        print(indent)
+        if (returnsValue) {
             if (returnLater || returns.nativeType.isPointerData) {
                 print("$returnType $RESULT = ")
                 if (returnsObject)
@@ -989,9 +1012,10 @@ class Func(
                 if (returnsObject)
                     print("$returnType.createSafe(")
             }
+            if (instrumented)
+                print("FunctionStats.end(${nativeClass.getFunctionID(this@Func)}, FunctionStats.begin(), ")
         }
 
-        val macroExpression = if (has<Macro>()) get<Macro>().expression else null
         if (hasUnsafeMethod) {
             print("n$name(")
         } else {
@@ -1013,6 +1037,8 @@ class Func(
                 print("$RESULT.$ADDRESS")
             }
             print(")")
+            if (instrumented && returnsValue)
+                print(")")
         }
 
         if (returnsObject) {
@@ -1027,6 +1053,8 @@ class Func(
         if (returns.nativeType.mapping == PrimitiveMapping.BOOLEAN4)
             print(" != 0")
         println(";")
+        if (instrumented && !returnsValue)
+            println("${indent}FunctionStats.end(${nativeClass.getFunctionID(this@Func)}, $START);")
     }
 
     /** Alternative methods are generated by applying one or more transformations. */
@@ -78,6 +78,8 @@ enum class Module(
 
     companion object {
         internal val CHECKS = !System.getProperty("binding.DISABLE_CHECKS", "false").toBoolean()
+        internal val CALLBACK_PACKED_ARGUMENTS = System.getProperty("binding.CALLBACK_PACKED_ARGUMENTS", "false").toBoolean()
+        internal val FUNCTION_INSTRUMENTATION = System.getProperty("binding.FUNCTION_INSTRUMENTATION", "false").toBoolean()
     }
 
     val enabled
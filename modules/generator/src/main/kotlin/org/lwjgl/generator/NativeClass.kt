@@ -189,6 +189,18 @@ class NativeClass(
         ArrayList<Func>(_functions.values)
     }
 
+    // Function name -> offset from FunctionIDs.BASE
+    private val instrumentedFunctions by lazy(LazyThreadSafetyMode.NONE) {
+        genFunctions.asSequence()
+            .filter(Func::isInstrumented)
+            .map { it.name }
+            .distinct()
+            .withIndex()
+            .associate { it.value to it.index }
+    }
+
+    internal fun getFunctionID(func: Func) = "FunctionIDs.BASE + ${instrumentedFunctions[func.name]!!}"
+
     private val customMethods = ArrayList<String>()
 
     internal val hasBody
@@ -452,7 +464,7 @@ class NativeClass(
                 }
             }
 
-            if ((hasFunctions || binding != null) && module !== Module.CORE) {
+            if ((hasFunctions || binding != null) && (module !== Module.CORE || (instrumentedFunctions.isNotEmpty() && packageName != "org.lwjgl.system"))) {
                 println("import org.lwjgl.system.*;\n")
             }
 
@@ -556,6 +568,16 @@ class NativeClass(
 
         printCustomMethods(static = false)
 
+        if (instrumentedFunctions.isNotEmpty()) {
+            println("""
+    private static final class FunctionIDs {
+        static final int BASE = FunctionStats.register(
+            "$className",
+${instrumentedFunctions.keys.joinToString(",\n") { "$t$t$t\"$it\"" }}
+        );
+    }""")
+        }
+
         print("\n}")
     }
 
@@ -705,12 +705,12 @@ $indentation}"""
             print("""
     /** Returns a new {@link $className} instance allocated with {@link MemoryUtil#memAlloc memAlloc}. The instance must be explicitly freed. */
     public static $className malloc() {
-        return create(nmemAllocChecked(SIZEOF));
+        return __track(create(nmemAllocChecked(SIZEOF)), 1, SIZEOF);
     }
 
     /** Returns a new {@link $className} instance allocated with {@link MemoryUtil#memCalloc memCalloc}. The instance must be explicitly freed. */
     public static $className calloc() {
-        return create(nmemCallocChecked(1, SIZEOF));
+        return __track(create(nmemCallocChecked(1, SIZEOF)), 1, SIZEOF);
     }
 
     /** Returns a new {@link $className} instance allocated with {@link BufferUtils}. */
@@ -740,7 +740,7 @@ $indentation}"""
      * @param $BUFFER_CAPACITY_PARAM the buffer capacity
      */
     public static $className.Buffer malloc(int $BUFFER_CAPACITY_PARAM) {
-        return create(__malloc($BUFFER_CAPACITY_PARAM, SIZEOF), $BUFFER_CAPACITY_PARAM);
+        return __track(create(__malloc($BUFFER_CAPACITY_PARAM, SIZEOF), $BUFFER_CAPACITY_PARAM), $BUFFER_CAPACITY_PARAM, SIZEOF);
     }
 
     /**
@@ -749,7 +749,7 @@ $indentation}"""
      * @param $BUFFER_CAPACITY_PARAM the buffer capacity
      */
     public static $className.Buffer calloc(int $BUFFER_CAPACITY_PARAM) {
-        return create(nmemCallocChecked($BUFFER_CAPACITY_PARAM, SIZEOF), $BUFFER_CAPACITY_PARAM);
+        return __track(create(nmemCallocChecked($BUFFER_CAPACITY_PARAM, SIZEOF), $BUFFER_CAPACITY_PARAM), $BUFFER_CAPACITY_PARAM, SIZEOF);
     }
 
     /**
@@ -850,6 +850,46 @@ $indentation}"""
     public static $className.Buffer callocStack(int $BUFFER_CAPACITY_PARAM, MemoryStack stack) {
         return create(stack.ncalloc(ALIGNOF, $BUFFER_CAPACITY_PARAM, SIZEOF), $BUFFER_CAPACITY_PARAM);
     }
+
+    // -----------------------------------
+
+    /**
+     * Returns a new {@link $className} instance allocated from the specified {@link Arena}.
+     *
+     * @param arena the arena from which to allocate
+     */
+    public static $className malloc(Arena arena) {
+        return create(arena.nmalloc(ALIGNOF, SIZEOF));
+    }
+
+    /**
+     * Returns a new {@link $className} instance allocated from the specified {@link Arena} and initializes all its bits to zero.
+     *
+     * @param arena the arena from which to allocate
+     */
+    public static $className calloc(Arena arena) {
+        return create(arena.ncalloc(ALIGNOF, 1, SIZEOF));
+    }
+
+    /**
+     * Returns a new {@link $className.Buffer} instance allocated from the specified {@link Arena}.
+     *
+     * @param $BUFFER_CAPACITY_PARAM the buffer capacity
+     * @param arena the arena from which to allocate
+     */
+    public static $className.Buffer malloc(int $BUFFER_CAPACITY_PARAM, Arena arena) {
+        return create(arena.nmalloc(ALIGNOF, $BUFFER_CAPACITY_PARAM * SIZEOF), $BUFFER_CAPACITY_PARAM);
+    }
+
+    /**
+     * Returns a new {@link $className.Buffer} instance allocated from the specified {@link Arena} and initializes all its bits to zero.
+     *
+     * @param $BUFFER_CAPACITY_PARAM the buffer capacity
+     * @param arena the arena from which to allocate
+     */
+    public static $className.Buffer calloc(int $BUFFER_CAPACITY_PARAM, Arena arena) {
+        return create(arena.ncalloc(ALIGNOF, $BUFFER_CAPACITY_PARAM, SIZEOF), $BUFFER_CAPACITY_PARAM);
+    }
 """)
         }
 
@@ -972,6 +1012,12 @@ ${validations.joinToString("\n")}
                 println()
                 generateSetters(AccessMode.FLYWEIGHT, settableMembers)
             }
+
+            val mutableMembers = if (hasMutableMembers()) settableMembers.toSet() else emptySet()
+            if (members.hasBulkMembers()) {
+                println()
+                generateBulkAccessors(members, mutableMembers)
+            }
         }
 
         print("""
@@ -1844,6 +1890,68 @@ $indent */""")
         }
     }
 
+    /** Primitive, non-pointer members that can be copied to or from a packed Java array, with the {@code StructBuffer} gather/scatter methods. */
+    private val StructMember.isBulkMember
+        get() = this !is StructMemberArray && !nativeType.isPointer && nativeType.mapping.let {
+            it is PrimitiveMapping && it !is CharMapping && it !== PrimitiveMapping.BOOLEAN && it !== PrimitiveMapping.BOOLEAN4
+        }
+
+    private fun Sequence<StructMember>.hasBulkMembers(): Boolean = any {
+        if (it.isNestedStruct) (it.nativeType as StructType).definition.className === ANONYMOUS && it.nestedMembers.hasBulkMembers() else it.isBulkMember
+    }
+
+    private fun PrintWriter.generateBulkAccessors(
+        members: Sequence<StructMember>,
+        mutableMembers: Set<StructMember>,
+        parentStruct: Struct? = null,
+        parentGetter: String = "",
+        parentMember: String = "",
+        parentField: String = ""
+    ) {
+        members.forEach {
+            val getter = it.field(parentGetter)
+            val member = it.fieldName(parentMember)
+            val field = getFieldOffset(it, parentStruct, parentField)
+
+            if (it.isNestedStruct) {
+                val nestedStruct = (it.nativeType as StructType).definition
+                if (nestedStruct.className === ANONYMOUS)
+                    generateBulkAccessors(
+                        it.nestedMembers,
+                        // The nested members are settable if the parent member is
+                        if (mutableMembers.contains(it)) it.nestedMembers.toSet() else emptySet(),
+                        nestedStruct,
+                        if (it.name === ANONYMOUS) parentGetter else getter,
+                        if (it.name === ANONYMOUS) parentMember else member,
+                        if (it.name === ANONYMOUS) parentField else field
+                    )
+            } else if (it.isBulkMember) {
+                val indent = AccessMode.FLYWEIGHT.indent
+                val overrides = extends != null && extends.members.any { parentMember -> parentMember.name == it.name }
+
+                val javaType = it.nativeType.javaMethodType
+                val bufferType = (it.nativeType.mapping as PrimitiveMapping).toPointer.javaMethodName
+                val name = getter.removeSuffix("$").upperCaseFirst
+
+                println("$indent/** Copies the {@code $member} field of each remaining struct to the specified array. */")
+                if (overrides) println("$indent@Override")
+                println("${indent}public $className.Buffer gather$name($javaType[] dst) { gather($field, dst); return this; }")
+                println("$indent/** Copies the {@code $member} field of each remaining struct to the specified buffer. */")
+                if (overrides) println("$indent@Override")
+                println("${indent}public $className.Buffer gather$name($bufferType dst) { gather($field, dst); return this; }")
+
+                if (mutableMembers.contains(it)) {
+                    println("$indent/** Copies the elements of the specified array to the {@code $member} field of each remaining struct. */")
+                    if (overrides) println("$indent@Override")
+                    println("${indent}public $className.Buffer scatter$name($javaType[] src) { scatter($field, src); return this; }")
+                    println("$indent/** Copies the elements of the specified buffer to the {@code $member} field of each remaining struct. */")
+                    if (overrides) println("$indent@Override")
+                    println("${indent}public $className.Buffer scatter$name($bufferType src) { scatter($field, src); return this; }")
+                }
+            }
+        }
+    }
+
     private fun getBufferMethod(member: StructMember, javaType: String) = if (member.nativeType.isPointer)
         "Address"
     else
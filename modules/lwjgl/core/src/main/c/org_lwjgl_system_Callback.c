@@ -87,11 +87,120 @@ DEFINE_CB_HANDLER(F, jfloat,   'f', Float)
 DEFINE_CB_HANDLER(D, jdouble,  'd', Double)
 DEFINE_CB_HANDLER(P, intptr_t, 'p', Long)
 
+// Packed argument mode: the userdata is a pointer to a LWJGLPackedCallback. The arguments are decoded here, in a single pass driven by the
+// dyncall signature, to a block of 8-byte slots. The Java callback receives the block address and reads the arguments with plain memory accesses.
+
+// Reported to Java on initialization, must match Callback.PACKED_ARGUMENTS_MAX.
+#define LWJGL_CALLBACK_MAX_ARGS 32
+
+typedef struct LWJGLPackedCallback {
+    jobject reference;
+    char signature[1];
+} LWJGLPackedCallback;
+
+// Returns JNI_FALSE if the signature contains an unknown type or too many arguments. The remaining arguments cannot be located in that case.
+static jboolean decodeArgs(const char* signature, DCArgs *args, jlong *block) {
+    const char* c = signature;
+    jlong *end = block + LWJGL_CALLBACK_MAX_ARGS;
+    while ( *c++ != '(' ) {}
+
+    for ( ; *c != ')'; c++, block++ ) {
+        if ( block == end )
+            return JNI_FALSE;
+
+        switch ( *c ) {
+            case 'B': *(jboolean*)block = (jboolean)dcbArgBool(args); break;
+            case 'c': *(jbyte*)block = (jbyte)dcbArgChar(args); break;
+            case 's': *(jshort*)block = (jshort)dcbArgShort(args); break;
+            case 'i': *(jint*)block = (jint)dcbArgInt(args); break;
+            case 'l': *block = (jlong)dcbArgLongLong(args); break;
+            case 'f': *(jfloat*)block = (jfloat)dcbArgFloat(args); break;
+            case 'd': *(jdouble*)block = (jdouble)dcbArgDouble(args); break;
+            case 'p': *block = (jlong)(intptr_t)dcbArgPointer(args); break;
+            default: return JNI_FALSE;
+        }
+    }
+
+    return JNI_TRUE;
+}
+
+noinline static void invalidSignature(JNIEnv* env, jboolean async) {
+    (*env)->ThrowNew(env, (*env)->FindClass(env, "java/lang/IllegalStateException"), "Invalid packed callback signature");
+    if ( async )
+        asyncCallbackException(env);
+}
+
+static char cbHandlerPackedV(DCCallback *cb, DCArgs *args, DCValue *result, void *userdata) {
+    jlong block[LWJGL_CALLBACK_MAX_ARGS];
+    LWJGLPackedCallback* callback = (LWJGLPackedCallback*)userdata;
+
+    jboolean async;
+    JNIEnv* env = getEnv(&async);
+
+    UNUSED_PARAM(cb)
+    UNUSED_PARAM(result)
+
+    if ( !decodeArgs(callback->signature, args, block) ) {
+        invalidSignature(env, async);
+        return 'v';
+    }
+
+    (*env)->CallVoidMethod(env,
+        callback->reference,
+        javaCallbackV,
+        (jlong)(intptr_t)block
+    );
+
+    if ( (*env)->ExceptionCheck(env) && async )
+        asyncCallbackException(env);
+
+    return 'v';
+}
+
+#define DEFINE_CB_HANDLER_PACKED(Name, Type, TypeSig, JavaType) \
+    static char cbHandlerPacked##Name(DCCallback *cb, DCArgs *args, DCValue *result, void *userdata) { \
+        jlong block[LWJGL_CALLBACK_MAX_ARGS]; \
+        LWJGLPackedCallback* callback = (LWJGLPackedCallback*)userdata; \
+\
+        jboolean async; \
+        JNIEnv* env = getEnv(&async); \
+\
+        UNUSED_PARAM(cb) \
+\
+        if ( !decodeArgs(callback->signature, args, block) ) { \
+            invalidSignature(env, async); \
+            *(Type*)result = (Type)0; \
+            return TypeSig; \
+        } \
+\
+        *(Type*)result = (Type)(*env)->Call##JavaType##Method(env, \
+            callback->reference, \
+            javaCallback##Name, \
+            (jlong)(intptr_t)block \
+        ); \
+\
+        if ( (*env)->ExceptionCheck(env) && async ) \
+            asyncCallbackException(env); \
+\
+        return TypeSig; \
+    }
+
+DEFINE_CB_HANDLER_PACKED(Z, jboolean, 'B', Boolean)
+DEFINE_CB_HANDLER_PACKED(B, jbyte,    'c', Byte)
+DEFINE_CB_HANDLER_PACKED(S, jshort,   's', Short)
+DEFINE_CB_HANDLER_PACKED(I, jint,     'i', Int)
+DEFINE_CB_HANDLER_PACKED(J, jlong,    'l', Long)
+DEFINE_CB_HANDLER_PACKED(F, jfloat,   'f', Float)
+DEFINE_CB_HANDLER_PACKED(D, jdouble,  'd', Double)
+DEFINE_CB_HANDLER_PACKED(P, intptr_t, 'p', Long)
+
 EXTERN_C_ENTER
 
+// The first 9 entries are the DCArgs handlers, the next 9 the packed argument handlers, the last one the maximum number of packed arguments.
 #define SETUP_CALLBACK(Index, Type) \
     javaCallback##Type = (*env)->FromReflectedMethod(env, (*env)->GetObjectArrayElement(env, methods, Index)); \
-    callbacks[Index] = (uintptr_t)&cbHandler##Type;
+    callbacks[Index] = (uintptr_t)&cbHandler##Type; \
+    callbacks[9 + Index] = (uintptr_t)&cbHandlerPacked##Type;
 
 JNIEXPORT void JNICALL Java_org_lwjgl_system_Callback_getNativeCallbacks(JNIEnv *env, jclass clazz, jobjectArray methods, jlong callbacksAddress) {
     uintptr_t* callbacks = (uintptr_t *)(intptr_t)callbacksAddress;
@@ -107,6 +216,8 @@ JNIEXPORT void JNICALL Java_org_lwjgl_system_Callback_getNativeCallbacks(JNIEnv
     SETUP_CALLBACK(6, F)
     SETUP_CALLBACK(7, D)
     SETUP_CALLBACK(8, P)
+
+    callbacks[18] = LWJGL_CALLBACK_MAX_ARGS;
 }
 
 EXTERN_C_EXIT
@@ -0,0 +1,82 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+#ifdef LWJGL_WINDOWS
+    __pragma(warning(disable : 4710))
+#endif
+#include "common_tools.h"
+#include "dyncall.h"
+#include "dyncall_signature.h"
+
+/*
+Command layout, see CommandList.java:
+
+    [0, 8)          function address
+    [8, 12)         command size in bytes
+    [12, 14)        argument count
+    [14]            dyncall calling convention mode
+    [16, 16 + a)    argument signature, one character per argument, padded to 8 bytes
+    [16 + a, size)  arguments, one 8-byte slot per argument
+*/
+
+EXTERN_C_ENTER
+
+// nexecute(JJJ)V
+JNIEXPORT void JNICALL Java_org_lwjgl_system_CommandList_nexecute(JNIEnv *env, jclass clazz, jlong vmAddress, jlong commandsAddress, jlong endAddress) {
+    DCCallVM *vm = (DCCallVM *)(intptr_t)vmAddress;
+    const jbyte *command = (const jbyte *)(intptr_t)commandsAddress;
+    const jbyte *end = (const jbyte *)(intptr_t)endAddress;
+    jint mode = -1;
+    UNUSED_PARAMS(env, clazz)
+
+    while (command < end) {
+        void *function = (void *)(intptr_t)*(const jlong *)command;
+        jint size = *(const jint *)(command + 8);
+        jint argc = (jint)*(const jshort *)(command + 12);
+        const char *signature = (const char *)(command + 16);
+        const jbyte *arg = command + 16 + ((argc + 7) & ~7);
+        jint i;
+
+        if (mode != (jint)command[14]) {
+            mode = (jint)command[14];
+            dcMode(vm, (DCint)mode);
+        }
+        dcReset(vm);
+
+        for (i = 0; i < argc; i++, arg += 8) {
+            switch (signature[i]) {
+                case DC_SIGCHAR_BOOL:
+                    dcArgBool(vm, (DCbool)*(const jboolean *)arg);
+                    break;
+                case DC_SIGCHAR_CHAR:
+                    dcArgChar(vm, (DCchar)*(const jbyte *)arg);
+                    break;
+                case DC_SIGCHAR_SHORT:
+                    dcArgShort(vm, (DCshort)*(const jshort *)arg);
+                    break;
+                case DC_SIGCHAR_INT:
+                    dcArgInt(vm, (DCint)*(const jint *)arg);
+                    break;
+                case DC_SIGCHAR_LONGLONG:
+                    dcArgLongLong(vm, (DClonglong)*(const jlong *)arg);
+                    break;
+                case DC_SIGCHAR_FLOAT:
+                    dcArgFloat(vm, (DCfloat)*(const jfloat *)arg);
+                    break;
+                case DC_SIGCHAR_DOUBLE:
+                    dcArgDouble(vm, (DCdouble)*(const jdouble *)arg);
+                    break;
+                default: // DC_SIGCHAR_POINTER
+                    dcArgPointer(vm, (DCpointer)(intptr_t)*(const jlong *)arg);
+                    break;
+            }
+        }
+
+        dcCallVoid(vm, function);
+
+        command += size;
+    }
+}
+
+EXTERN_C_EXIT
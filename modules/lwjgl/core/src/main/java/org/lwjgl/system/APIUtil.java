@@ -137,6 +137,61 @@ public final class APIUtil {
         return a;
     }
 
+    /**
+     * A {@link FunctionProvider} that counts the function addresses requested from another provider. Used to report the cost of creating a capabilities
+     * instance in debug mode.
+     */
+    public static class APIFunctionCounter implements FunctionProvider {
+
+        private final FunctionProvider provider;
+
+        private final long start = System.nanoTime();
+
+        private int requested;
+        private int resolved;
+
+        public APIFunctionCounter(FunctionProvider provider) {
+            this.provider = provider;
+        }
+
+        private long count(long address) {
+            requested++;
+            if (address != NULL) {
+                resolved++;
+            }
+            return address;
+        }
+
+        @Override
+        public long getFunctionAddress(CharSequence functionName) {
+            return count(provider.getFunctionAddress(functionName));
+        }
+
+        @Override
+        public long getFunctionAddress(ByteBuffer functionName) {
+            return count(provider.getFunctionAddress(functionName));
+        }
+
+        /** Returns the number of requested function addresses. */
+        public int getRequestedCount() {
+            return requested;
+        }
+
+        /** Returns the number of requested function addresses that were not {@code NULL}. */
+        public int getResolvedCount() {
+            return resolved;
+        }
+
+        /** Logs the function address counts and the time elapsed since this instance was created. */
+        public void log(String api) {
+            apiLog(String.format(
+                "[%s] Capabilities created in %.3f ms, %d function addresses requested, %d resolved.",
+                api, (System.nanoTime() - start) / 1e6, requested, resolved
+            ));
+        }
+
+    }
+
     private static void requiredFunctionMissing(String functionName) {
         if (!Configuration.DISABLE_FUNCTION_CHECKS.get(false)) {
             throw new NullPointerException("A required function is missing: " + functionName);
@@ -0,0 +1,452 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.lwjgl.*;
+
+import javax.annotation.*;
+import java.lang.ref.*;
+import java.nio.*;
+import java.util.*;
+
+import static org.lwjgl.system.Checks.*;
+import static org.lwjgl.system.MathUtil.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.Pointer.*;
+
+/**
+ * An off-heap region allocator.
+ *
+ * <p>An arena allocates memory by bumping a pointer inside large chunks of memory, and releases everything it has allocated at once, with {@link #reset}.
+ * Unlike {@link MemoryStack}, allocations are not scoped: memory allocated from an arena stays valid until the next reset, which makes it suitable for
+ * data that lives for a frame or a request. Unlike {@link MemoryUtil#memAlloc memAlloc}, individual allocations are never freed.</p>
+ *
+ * <p>The chunks of an arena are allocated with {@link MemoryUtil#nmemAlloc nmemAlloc} when needed and are reused after a reset. They are only released
+ * when the arena is {@link #free freed}.</p>
+ *
+ * <p>Allocations from an arena are synchronized. Multiple threads may fill an arena concurrently, each thread should use its {@link #local sub-arena} for
+ * unsynchronized allocation. A sub-arena allocates slabs of memory from its parent arena and is reset along with its parent. The arena must not be reset,
+ * or freed, while other threads are allocating from it or from its sub-arenas. A sub-arena does not keep its parent arena reachable.</p>
+ *
+ * <p>Generated struct classes have {@code malloc} and {@code calloc} overloads that allocate from an arena.</p>
+ */
+public class Arena implements NativeResource {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private static final int DEFAULT_SLAB_SIZE  = 64 * 1024;
+
+    // Weak, the sub-arenas are thread-local values and would otherwise keep the root arena and its ThreadLocal key reachable while the thread lives
+    @Nullable
+    private final WeakReference<Arena> parent;
+
+    // Root arena: the chunk size. Sub-arena: the slab size.
+    private final int blockSize;
+
+    // Root arena: the allocated chunks, the chunks after the current chunk are free for reuse.
+    private long[] chunks;
+    private int[]  chunkSizes;
+    private int    chunkCount;
+    private int    chunkIndex;
+
+    private long capacity;
+
+    // The current chunk or slab
+    private long block;
+    private long pointer;
+    private long limit;
+
+    // Incremented when the root arena is reset
+    private volatile int epoch;
+
+    private long used;
+    private long highWaterMark;
+
+    @Nullable
+    private ThreadLocal<Arena> locals;
+
+    private Arena(@Nullable Arena parent, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + blockSize);
+        }
+
+        this.parent = parent == null ? null : new WeakReference<>(parent);
+        this.blockSize = blockSize;
+
+        if (parent == null) {
+            this.chunks = new long[4];
+            this.chunkSizes = new int[4];
+            this.chunkIndex = -1;
+
+            this.locals = new ThreadLocal<>();
+        } else {
+            this.chunks = new long[0];
+            this.chunkSizes = new int[0];
+            this.epoch = parent.epoch;
+
+            this.locals = null;
+        }
+    }
+
+    /** Creates a new {@code Arena} with the default chunk size (1MB). */
+    public static Arena create() {
+        return create(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new {@code Arena}.
+     *
+     * <p>No memory is allocated until the first allocation from the arena.</p>
+     *
+     * @param chunkSize the size of the memory chunks allocated by the arena. Larger allocations get a dedicated chunk.
+     */
+    public static Arena create(int chunkSize) {
+        return new Arena(null, chunkSize);
+    }
+
+    /**
+     * Returns the sub-arena of the current thread, with the default slab size (64KB).
+     *
+     * @see #local(int)
+     */
+    public Arena local() {
+        return local(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Returns the sub-arena of the current thread.
+     *
+     * <p>The sub-arena is created on the first call in each thread. Allocations from a sub-arena are not synchronized, it must only be used by the thread
+     * that retrieved it. When called on a sub-arena, returns the sub-arena of its parent for the current thread.</p>
+     *
+     * @param slabSize the size of the memory blocks the sub-arena allocates from this arena. Ignored if the sub-arena already exists.
+     */
+    public Arena local(int slabSize) {
+        if (parent != null) {
+            return root().local(slabSize);
+        }
+
+        ThreadLocal<Arena> locals = Objects.requireNonNull(this.locals);
+
+        Arena local = locals.get();
+        if (local == null) {
+            locals.set(local = new Arena(this, slabSize));
+        }
+        return local;
+    }
+
+    /** Returns true if this is a sub-arena. */
+    public boolean isLocal() {
+        return parent != null;
+    }
+
+    private Arena root() {
+        Arena root = Objects.requireNonNull(parent).get();
+        if (root == null) {
+            throw new IllegalStateException("The parent arena is no longer reachable.");
+        }
+        return root;
+    }
+
+    /**
+     * Returns the number of times the arena has been reset.
+     *
+     * <p>This value can be used to detect memory that was allocated from the arena before the last reset.</p>
+     */
+    public int getEpoch() {
+        return parent == null ? epoch : root().epoch;
+    }
+
+    /**
+     * Returns the number of bytes allocated since the last reset, including alignment padding.
+     *
+     * <p>For the root arena, the slabs of its sub-arenas are included.</p>
+     */
+    public long getUsed() {
+        if (parent == null) {
+            synchronized (this) {
+                return used;
+            }
+        }
+        return epoch == root().epoch ? used : 0L;
+    }
+
+    /** Returns the maximum value of {@link #getUsed} since the arena was created, or since the last call to {@link #resetHighWaterMark}. */
+    public long getHighWaterMark() {
+        if (parent == null) {
+            synchronized (this) {
+                return highWaterMark;
+            }
+        }
+        return highWaterMark;
+    }
+
+    /** Sets the high-water mark to the current {@link #getUsed} value. */
+    public void resetHighWaterMark() {
+        if (parent == null) {
+            synchronized (this) {
+                highWaterMark = used;
+            }
+        } else {
+            highWaterMark = getUsed();
+        }
+    }
+
+    /** Returns the number of bytes reserved by the arena. For a sub-arena, the size of its current slab. */
+    public long getCapacity() {
+        if (parent == null) {
+            synchronized (this) {
+                return capacity;
+            }
+        }
+        return epoch == root().epoch ? limit - block : 0L;
+    }
+
+    /**
+     * Releases all memory allocated from the arena and its sub-arenas. The arena chunks are retained and reused by subsequent allocations.
+     *
+     * <p>Must be called on the root arena, when no other thread is allocating from it.</p>
+     */
+    public void reset() {
+        if (parent != null) {
+            throw new IllegalStateException("A sub-arena is reset along with its parent arena.");
+        }
+
+        synchronized (this) {
+            chunkIndex = -1;
+            block = pointer = limit = NULL;
+
+            used = 0L;
+            epoch++;
+        }
+    }
+
+    /**
+     * Frees the memory chunks of the arena. Must be called on the root arena, memory allocated from the arena or its sub-arenas becomes invalid.
+     *
+     * <p>The sub-arenas are discarded, subsequent calls to {@link #local} create new ones.</p>
+     */
+    @Override
+    public void free() {
+        if (parent != null) {
+            throw new IllegalStateException("A sub-arena is freed along with its parent arena.");
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < chunkCount; i++) {
+                nmemFree(chunks[i]);
+            }
+            chunkCount = 0;
+            capacity = 0L;
+
+            // The values of other threads cannot be removed, they become stale entries when the ThreadLocal is collected
+            Objects.requireNonNull(locals).remove();
+            locals = new ThreadLocal<>();
+
+            reset();
+        }
+    }
+
+    // -------------------------------------------------
+
+    /**
+     * Allocates a block of {@code size} bytes of memory from the arena. The content of the newly allocated block of memory is not initialized, remaining
+     * with indeterminate values.
+     *
+     * @param alignment the required alignment, a power-of-two value
+     * @param size      the allocation size
+     *
+     * @return the memory address of the allocation
+     */
+    public long nmalloc(int alignment, int size) {
+        if (CHECKS) {
+            if (!mathIsPoT(alignment)) {
+                throw new IllegalArgumentException("Alignment must be a power-of-two value.");
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("Invalid allocation size: " + size);
+            }
+        }
+
+        if (parent == null) {
+            synchronized (this) {
+                return bump(this, alignment, size);
+            }
+        }
+
+        Arena root  = root();
+        int   epoch = root.epoch;
+        if (this.epoch != epoch) {
+            // The parent arena was reset, the current slab is no longer valid
+            block = pointer = limit = NULL;
+            used = 0L;
+            this.epoch = epoch;
+        }
+        return bump(root, alignment, size);
+    }
+
+    /**
+     * Calls {@link #nmalloc(int, int)} with {@code alignment} equal to 1.
+     *
+     * @param size the allocation size
+     *
+     * @return the memory address of the allocation
+     */
+    public long nmalloc(int size) {
+        return nmalloc(1, size);
+    }
+
+    /**
+     * Allocates a block of memory from the arena, for an array of {@code num} elements, each of them {@code size} bytes long, and initializes all its bits
+     * to zero.
+     *
+     * @param alignment the required element alignment
+     * @param num       the number of elements to allocate
+     * @param size      the size of each element
+     *
+     * @return the memory address of the allocation
+     */
+    public long ncalloc(int alignment, int num, int size) {
+        int  bytes   = Math.multiplyExact(num, size);
+        long address = nmalloc(alignment, bytes);
+        memSet(address, 0, bytes);
+        return address;
+    }
+
+    private long bump(Arena root, int alignment, int size) {
+        long address = (pointer + alignment - 1) & -(long)alignment;
+        if (limit - address < size || block == NULL) {
+            address = nextBlock(root, alignment, size);
+        }
+
+        used += address + size - pointer;
+        if (highWaterMark < used) {
+            highWaterMark = used;
+        }
+        pointer = address + size;
+
+        return address;
+    }
+
+    private long nextBlock(Arena root, int alignment, int allocationSize) {
+        // Reserve space for aligning the allocation in the new block
+        long minSize = (long)allocationSize + alignment - 1;
+        if (Integer.MAX_VALUE < minSize) {
+            throw new OutOfMemoryError("Arena allocation too large: " + allocationSize);
+        }
+
+        int size = (int)Math.max(blockSize, minSize);
+
+        if (root == this) {
+            block = nextChunk(size);
+            size = chunkSizes[chunkIndex];
+        } else {
+            block = root.nmalloc(8, size);
+        }
+
+        // The unused tail of the previous block is not included in the used bytes
+        pointer = block;
+        limit = block + size;
+
+        return (block + alignment - 1) & -(long)alignment;
+    }
+
+    private long nextChunk(int size) {
+        // Reuse a free chunk that fits, retained from before the last reset
+        for (int i = chunkIndex + 1; i < chunkCount; i++) {
+            if (size <= chunkSizes[i]) {
+                swapChunks(++chunkIndex, i);
+                return chunks[chunkIndex];
+            }
+        }
+
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            chunkSizes = Arrays.copyOf(chunkSizes, chunkCount * 2);
+        }
+
+        long chunk = nmemAllocChecked(size);
+
+        chunks[chunkCount] = chunk;
+        chunkSizes[chunkCount] = size;
+        swapChunks(++chunkIndex, chunkCount++);
+
+        capacity += size;
+
+        return chunk;
+    }
+
+    private void swapChunks(int i, int j) {
+        long chunk = chunks[i];
+        int  size  = chunkSizes[i];
+
+        chunks[i] = chunks[j];
+        chunkSizes[i] = chunkSizes[j];
+
+        chunks[j] = chunk;
+        chunkSizes[j] = size;
+    }
+
+    // -------------------------------------------------
+
+    /**
+     * Allocates an aligned {@link ByteBuffer} from the arena.
+     *
+     * @param alignment the required buffer alignment
+     * @param size      the number of elements in the buffer
+     *
+     * @return the allocated buffer
+     */
+    public ByteBuffer malloc(int alignment, int size) { return memByteBuffer(nmalloc(alignment, size), size); }
+    /** Calloc version of {@link #malloc(int, int)}. */
+    public ByteBuffer calloc(int alignment, int size) { return memByteBuffer(ncalloc(alignment, size, 1), size); }
+
+    /**
+     * Allocates a {@link ByteBuffer} from the arena.
+     *
+     * @param size the number of elements in the buffer
+     *
+     * @return the allocated buffer
+     */
+    public ByteBuffer malloc(int size) { return malloc(1, size); }
+    /** Calloc version of {@link #malloc(int)}. */
+    public ByteBuffer calloc(int size) { return calloc(1, size); }
+
+    /** Short version of {@link #malloc(int)}. */
+    public ShortBuffer mallocShort(int size) { return memShortBuffer(nmalloc(2, size << 1), size); }
+    /** Short version of {@link #calloc(int)}. */
+    public ShortBuffer callocShort(int size) { return memShortBuffer(ncalloc(2, size, 2), size); }
+
+    /** Int version of {@link #malloc(int)}. */
+    public IntBuffer mallocInt(int size) { return memIntBuffer(nmalloc(4, size << 2), size); }
+    /** Int version of {@link #calloc(int)}. */
+    public IntBuffer callocInt(int size) { return memIntBuffer(ncalloc(4, size, 4), size); }
+
+    /** Long version of {@link #malloc(int)}. */
+    public LongBuffer mallocLong(int size) { return memLongBuffer(nmalloc(8, size << 3), size); }
+    /** Long version of {@link #calloc(int)}. */
+    public LongBuffer callocLong(int size) { return memLongBuffer(ncalloc(8, size, 8), size); }
+
+    /** Float version of {@link #malloc(int)}. */
+    public FloatBuffer mallocFloat(int size) { return memFloatBuffer(nmalloc(4, size << 2), size); }
+    /** Float version of {@link #calloc(int)}. */
+    public FloatBuffer callocFloat(int size) { return memFloatBuffer(ncalloc(4, size, 4), size); }
+
+    /** Double version of {@link #malloc(int)}. */
+    public DoubleBuffer mallocDouble(int size) { return memDoubleBuffer(nmalloc(8, size << 3), size); }
+    /** Double version of {@link #calloc(int)}. */
+    public DoubleBuffer callocDouble(int size) { return memDoubleBuffer(ncalloc(8, size, 8), size); }
+
+    /** Pointer version of {@link #malloc(int)}. */
+    public PointerBuffer mallocPointer(int size) { return memPointerBuffer(nmalloc(POINTER_SIZE, size << POINTER_SHIFT), size); }
+    /** Pointer version of {@link #calloc(int)}. */
+    public PointerBuffer callocPointer(int size) { return memPointerBuffer(ncalloc(POINTER_SIZE, size, POINTER_SIZE), size); }
+
+    @Override
+    public String toString() {
+        return (parent == null ? "Arena" : "Arena.Local") + "[used=" + getUsed() + ", highWaterMark=" + getHighWaterMark() + ", capacity=" + getCapacity() +
+               "]";
+    }
+
+}
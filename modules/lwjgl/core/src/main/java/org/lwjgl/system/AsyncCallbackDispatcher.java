@@ -0,0 +1,432 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import javax.annotation.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import static org.lwjgl.system.APIUtil.*;
+import static org.lwjgl.system.Checks.*;
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.dyncall.DynCallback.*;
+
+/**
+ * Dispatches callback invocations asynchronously, on an {@link Executor}.
+ *
+ * <p>Native libraries that invoke callbacks from their own threads are stalled while the Java callback runs. The function pointers created by this class
+ * only copy the callback arguments to a bounded, lock-free, multi-producer queue and return immediately. The queued invocations are delivered to the Java
+ * callbacks, in order, by a single task that runs on the executor.</p>
+ *
+ * <p>Only callbacks without a return value are supported. The Java callbacks must use packed arguments (see {@link CallbackI#usePackedArguments}), the
+ * address passed to {@link CallbackI.V#callback} points to a copy of the arguments that is valid until the callback returns. Pointer arguments are copied
+ * as values, the memory they point to must remain valid until the invocation is dispatched.</p>
+ *
+ * <p>When the queue is full, invocations are handled according to the {@link Overflow} policy of the dispatcher. With {@link Overflow#CALLER_RUNS}, such
+ * invocations are not ordered with the queued ones. With {@link Overflow#BLOCK}, the dispatch task may be queued on the executor behind the waiting
+ * thread. If the task has not started, the waiting thread delivers the queued invocations itself, immediately if it has run the task before, after 100ms
+ * otherwise. If the executor rejects the dispatch task, the queued invocations are dispatched on the native thread that rejected it. The number of
+ * dispatched, dropped and failed invocations is available for monitoring.</p>
+ */
+public class AsyncCallbackDispatcher implements NativeResource {
+
+    /** The policies applied to invocations that do not fit in the queue. */
+    public enum Overflow {
+        /** The invocation is discarded and counted as dropped. */
+        DROP,
+        /**
+         * The native thread waits until space is available in the queue. If the native thread is running a callback dispatched by the same dispatcher, the
+         * queue cannot drain while it waits, the callback is invoked synchronously instead.
+         */
+        BLOCK,
+        /** The callback is invoked synchronously, on the native thread. */
+        CALLER_RUNS
+    }
+
+    // The states of the consumer side of the queue
+    private static final int
+        IDLE      = 0,
+        SCHEDULED = 1,
+        RUNNING   = 2,
+        CLOSED    = 3;
+
+    // How long a blocked producer waits for a scheduled dispatch task to start, before delivering the queued invocations itself
+    private static final long BLOCK_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    // How long free() waits for a scheduled dispatch task to start
+    private static final long FREE_TIMEOUT = TimeUnit.SECONDS.toNanos(1L);
+
+    private final Executor executor;
+    private final Overflow overflow;
+
+    private final int  mask;
+    private final int  slotSize;
+    private final long slots;
+
+    private final CallbackI.V[]   targets;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private final Runnable      drain = () -> {
+        executorThread = Thread.currentThread();
+        drain();
+    };
+
+    // The last executor thread that ran the dispatch task
+    @Nullable
+    private volatile Thread executorThread;
+
+    // The thread that delivers the queued invocations, while the state is RUNNING
+    @Nullable
+    private volatile Thread consumer;
+
+    private volatile boolean closed;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped    = new LongAdder();
+    private final LongAdder failed     = new LongAdder();
+
+    /**
+     * Creates a new {@code AsyncCallbackDispatcher}.
+     *
+     * @param executor the executor that runs the Java callbacks
+     * @param capacity the maximum number of queued invocations, rounded up to a power of two
+     * @param maxArgs  the maximum number of arguments of the callbacks created by this dispatcher
+     * @param overflow the policy applied when the queue is full
+     */
+    public AsyncCallbackDispatcher(Executor executor, int capacity, int maxArgs, Overflow overflow) {
+        if (capacity <= 0 || (1 << 30) < capacity) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        if (maxArgs < 0 || Callback.PACKED_ARGUMENTS_MAX < maxArgs) {
+            throw new IllegalArgumentException("Invalid maximum argument count: " + maxArgs);
+        }
+
+        this.executor = executor;
+        this.overflow = overflow;
+
+        int size = MathUtil.mathRoundPoT(capacity);
+
+        this.mask = size - 1;
+        this.slotSize = Math.max(maxArgs, 1) * 8;
+        this.slots = nmemAllocChecked((long)size * slotSize);
+
+        this.targets = new CallbackI.V[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Creates a native function that queues its invocations for the specified callback.
+     *
+     * <p>The function must be freed with {@link Callback#free} before this dispatcher is freed.</p>
+     *
+     * @param callback the Java callback. It must have no return value and use packed arguments.
+     *
+     * @return the function pointer
+     */
+    public long create(CallbackI.V callback) {
+        if (!callback.usePackedArguments()) {
+            throw new IllegalArgumentException("The callback does not use packed arguments.");
+        }
+        return new Trampoline(callback).address();
+    }
+
+    /** Returns the number of invocations that were delivered to the Java callbacks, including failed invocations. */
+    public long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    /** Returns the number of invocations that were dropped because the queue was full, or because the dispatcher was freed. */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /** Returns the number of invocations that threw an exception. */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /** Returns the approximate number of queued invocations. */
+    public int getPendingCount() {
+        return (int)Math.max(tail.get() - head, 0L);
+    }
+
+    private void enqueue(CallbackI.V target, long args, byte[] types) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+
+        long pos;
+        long blocked = 0L;
+        while ((pos = claim()) == -1L) {
+            switch (overflow) {
+                case DROP:
+                    dropped.increment();
+                    return;
+                case BLOCK:
+                    Thread thread = Thread.currentThread();
+                    if (consumer == thread) {
+                        // Called from a dispatched callback, the queue cannot drain until it returns
+                        invokeNow(target, args, types);
+                        return;
+                    }
+                    if (blocked == 0L) {
+                        blocked = System.nanoTime();
+                    }
+                    // The dispatch task has not started, it may be queued on the executor behind this thread
+                    if ((thread == executorThread || BLOCK_TIMEOUT <= System.nanoTime() - blocked) && state.compareAndSet(SCHEDULED, RUNNING)) {
+                        consume();
+                        break;
+                    }
+                    LockSupport.parkNanos(10_000L);
+                    if (closed) {
+                        dropped.increment();
+                        return;
+                    }
+                    break;
+                case CALLER_RUNS:
+                    invokeNow(target, args, types);
+                    return;
+            }
+        }
+
+        int index = (int)pos & mask;
+        copyArgs(args, types, slots + (long)index * slotSize);
+        targets[index] = target;
+        sequences.lazySet(index, pos + 1);
+
+        if (state.compareAndSet(IDLE, SCHEDULED)) {
+            try {
+                executor.execute(drain);
+            } catch (RejectedExecutionException e) {
+                // The invocation is already queued and the exception cannot propagate to native code, deliver the queue on this thread
+                if (DEBUG) {
+                    DEBUG_STREAM.println("[LWJGL] The executor rejected the callback dispatch task, dispatching on the calling thread.");
+                }
+                drain();
+            }
+        }
+    }
+
+    /** Claims the next slot, returns -1 if the queue is full. */
+    private long claim() {
+        long pos = tail.get();
+        while (true) {
+            long delta = sequences.get((int)pos & mask) - pos;
+            if (delta == 0L) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    return pos;
+                }
+                pos = tail.get();
+            } else if (delta < 0L) {
+                return -1L;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private void invokeNow(CallbackI.V target, long args, byte[] types) {
+        try (MemoryStack stack = stackPush()) {
+            long block = stack.nmalloc(8, Math.max(types.length, 1) * 8);
+            copyArgs(args, types, block);
+            dispatch(target, block);
+        }
+    }
+
+    private void drain() {
+        // Does nothing if another thread took over the scheduled task
+        if (state.compareAndSet(SCHEDULED, RUNNING)) {
+            consume();
+        }
+    }
+
+    /** Delivers the queued invocations. Must be called after a transition to {@code RUNNING}. */
+    private void consume() {
+        Thread thread = Thread.currentThread();
+        do {
+            consumer = thread;
+            deliver();
+            consumer = null;
+            state.set(IDLE);
+            // Re-check, a producer may have enqueued after the last poll but before the state was cleared
+        } while (isPending() && state.compareAndSet(IDLE, RUNNING));
+    }
+
+    private boolean isPending() {
+        return sequences.get((int)head & mask) == head + 1;
+    }
+
+    private void deliver() {
+        while (true) {
+            long pos   = head;
+            int  index = (int)pos & mask;
+            if (sequences.get(index) != pos + 1) {
+                break;
+            }
+
+            CallbackI.V target = targets[index];
+            targets[index] = null;
+
+            dispatch(target, slots + (long)index * slotSize);
+
+            head = pos + 1;
+            sequences.lazySet(index, pos + mask + 1);
+        }
+    }
+
+    private void dispatch(CallbackI.V target, long args) {
+        // Counted before the invocation, so that the count is visible to code that synchronizes with the callback
+        dispatched.increment();
+        try {
+            target.callback(args);
+        } catch (Throwable t) {
+            failed.increment();
+            if (DEBUG) {
+                DEBUG_STREAM.println("[LWJGL] Exception in asynchronously dispatched callback:");
+                t.printStackTrace(DEBUG_STREAM);
+            }
+        }
+    }
+
+    /**
+     * Frees the queue memory.
+     *
+     * <p>Invocations that arrive after this method is called are dropped. The functions created by this dispatcher must be freed before this method is
+     * called, or their invocations must be guaranteed to have stopped. This method waits for a running dispatch task to finish. A dispatch task that has not
+     * started is cancelled if the executor is shut down, or if it does not start within a second. Invocations that are still queued afterwards are
+     * delivered on the calling thread.</p>
+     *
+     * @throws IllegalStateException if called from a callback dispatched by this dispatcher
+     */
+    @Override
+    public void free() {
+        if (consumer == Thread.currentThread()) {
+            throw new IllegalStateException("The dispatcher cannot be freed from a dispatched callback.");
+        }
+
+        closed = true;
+
+        long deadline = System.nanoTime() + FREE_TIMEOUT;
+        while (true) {
+            int current = state.get();
+            if (current == IDLE || (current == SCHEDULED && (isShutdown(executor) || deadline - System.nanoTime() <= 0L))) {
+                // The dispatch task does nothing if it runs after this transition
+                if (state.compareAndSet(current, CLOSED)) {
+                    break;
+                }
+            } else {
+                LockSupport.parkNanos(100_000L);
+            }
+        }
+
+        deliver();
+        nmemFree(slots);
+    }
+
+    private static boolean isShutdown(Executor executor) {
+        return executor instanceof ExecutorService && ((ExecutorService)executor).isShutdown();
+    }
+
+    // Signature type codes. The packed layout is one 8-byte slot per argument.
+    private static byte[] getTypes(String signature) {
+        Callback.checkPackedSignature(signature);
+
+        int from = signature.indexOf('(') + 1;
+        int to   = signature.indexOf(')');
+
+        byte[] types = new byte[to - from];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = (byte)signature.charAt(from + i);
+        }
+        return types;
+    }
+
+    private static void copyArgs(long args, byte[] types, long block) {
+        if (Callback.isPackedSupported()) {
+            memCopy(args, block, types.length * 8);
+            return;
+        }
+
+        for (int i = 0; i < types.length; i++) {
+            long slot = block + i * 8;
+            switch (types[i]) {
+                case 'B':
+                    memPutByte(slot, (byte)(dcbArgBool(args) ? 1 : 0));
+                    break;
+                case 'c':
+                    memPutByte(slot, dcbArgChar(args));
+                    break;
+                case 's':
+                    memPutShort(slot, dcbArgShort(args));
+                    break;
+                case 'i':
+                    memPutInt(slot, dcbArgInt(args));
+                    break;
+                case 'l':
+                    memPutLong(slot, dcbArgLongLong(args));
+                    break;
+                case 'f':
+                    memPutFloat(slot, dcbArgFloat(args));
+                    break;
+                case 'd':
+                    memPutDouble(slot, dcbArgDouble(args));
+                    break;
+                case 'p':
+                    memPutLong(slot, dcbArgPointer(args));
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    /** The native entry point of a queued callback. Receives packed arguments if supported by the native library, a {@code DCArgs} iterator otherwise. */
+    private class Trampoline implements CallbackI.V {
+
+        private final CallbackI.V target;
+        private final String      signature;
+        private final byte[]      types;
+
+        Trampoline(CallbackI.V target) {
+            this.target = target;
+            this.signature = target.getSignature();
+            this.types = getTypes(signature);
+
+            if (slotSize < types.length * 8) {
+                throw new IllegalArgumentException("Too many callback arguments: " + signature);
+            }
+            if (signature.charAt(signature.length() - 1) != 'v') {
+                throw new IllegalArgumentException("Only callbacks without a return value can be dispatched asynchronously: " + signature);
+            }
+        }
+
+        @Override
+        public String getSignature() {
+            return signature;
+        }
+
+        @Override
+        public boolean usePackedArguments() {
+            return Callback.isPackedSupported();
+        }
+
+        @Override
+        public void callback(long args) {
+            enqueue(target, args, types);
+        }
+
+    }
+
+}
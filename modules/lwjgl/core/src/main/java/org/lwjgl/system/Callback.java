@@ -8,6 +8,9 @@ import org.lwjgl.*;
 
 import javax.annotation.*;
 import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import static org.lwjgl.system.Checks.*;
 import static org.lwjgl.system.MemoryStack.*;
@@ -24,6 +27,31 @@ public abstract class Callback implements Pointer, NativeResource {
 
     private static final boolean DEBUG_ALLOCATOR = Configuration.DEBUG_MEMORY_ALLOCATOR.get(false);
 
+    /**
+     * The maximum number of arguments of a callback that uses packed arguments.
+     *
+     * <p>Must match {@code LWJGL_CALLBACK_MAX_ARGS} in the native library, which is verified on initialization.</p>
+     */
+    public static final int PACKED_ARGUMENTS_MAX = 32;
+
+    // The return types of the native callback handlers, in the order of the handler addresses
+    private static final String HANDLER_TYPES = "vBcsilfdp";
+
+    // The packed argument handlers. Zero if the native library does not support them.
+    private static final long[] PACKED = new long[HANDLER_TYPES.length()];
+
+    // The native functions that use packed arguments. Their user data is a block allocated by createPacked, not a global reference.
+    private static final Set<Long> PACKED_FUNCTIONS = ConcurrentHashMap.newKeySet();
+
+    // Pools of freed native functions by signature, for the DCArgs and packed argument handlers
+    private static final Map<String, TrampolinePool>
+        POOLS        = new ConcurrentHashMap<>(),
+        PACKED_POOLS = new ConcurrentHashMap<>();
+
+    private static final LongAdder
+        POOL_HITS   = new LongAdder(),
+        POOL_MISSES = new LongAdder();
+
     private static final long
         VOID,
         BOOLEAN,
@@ -52,7 +80,8 @@ public abstract class Callback implements Pointer, NativeResource {
                 CallbackI.P.class.getDeclaredMethod("callback", params)
             };
 
-            PointerBuffer callbacks = stack.mallocPointer(methods.length);
+            // DCArgs handlers, followed by the packed argument handlers and the maximum number of packed arguments
+            PointerBuffer callbacks = stack.callocPointer(methods.length * 2 + 1);
 
             getNativeCallbacks(methods, memAddress(callbacks));
 
@@ -65,6 +94,17 @@ public abstract class Callback implements Pointer, NativeResource {
             FLOAT = callbacks.get();
             DOUBLE = callbacks.get();
             PTR = callbacks.get();
+
+            for (int i = 0; i < PACKED.length; i++) {
+                PACKED[i] = callbacks.get();
+            }
+
+            long packedArgumentsMax = callbacks.get();
+            if (PACKED[0] != NULL && packedArgumentsMax != PACKED_ARGUMENTS_MAX) {
+                throw new IllegalStateException(
+                    "The maximum number of packed callback arguments of the native library (" + packedArgumentsMax + ") does not match " + PACKED_ARGUMENTS_MAX
+                );
+            }
         } catch (Exception e) {
             throw new IllegalStateException("Failed to initialize native callbacks.", e);
         }
@@ -122,6 +162,25 @@ public abstract class Callback implements Pointer, NativeResource {
      * @return the dynamically generated native function
      */
     static long create(String signature, Object instance) {
+        long handle = instance instanceof CallbackI && 0 < Configuration.CALLBACK_POOL_SIZE.get(0)
+            ? createPooled(signature, (CallbackI)instance)
+            : createNew(signature, instance);
+
+        if (DEBUG_ALLOCATOR) {
+            MemoryManage.DebugAllocator.track(handle, 2 * POINTER_SIZE);
+        }
+        if (LeakDetector.ENABLED) {
+            LeakDetector.track(null, handle, 0L, LeakDetector.Type.CALLBACK);
+        }
+
+        return handle;
+    }
+
+    private static long createNew(String signature, Object instance) {
+        if (instance instanceof CallbackI && ((CallbackI)instance).usePackedArguments()) {
+            return createPacked(signature, instance);
+        }
+
         long funcptr = Callback.getNativeFunction(signature.charAt(signature.length() - 1));
 
         long handle = dcbNewCallback(signature, funcptr, NewGlobalRef(instance));
@@ -129,13 +188,130 @@ public abstract class Callback implements Pointer, NativeResource {
             throw new IllegalStateException("Failed to create the DCCallback object");
         }
 
-        if (DEBUG_ALLOCATOR) {
-            MemoryManage.DebugAllocator.track(handle, 2 * POINTER_SIZE);
+        return handle;
+    }
+
+    /**
+     * Creates a native function that decodes its arguments to a packed argument block before calling the specified instance.
+     *
+     * <p>The user data of the {@code DCCallback} object points to a block that contains the instance global reference, followed by the null-terminated
+     * signature that drives the argument decoding. The native function is recorded in {@link #PACKED_FUNCTIONS}, so that the global reference can be
+     * found.</p>
+     */
+    private static long createPacked(String signature, Object instance) {
+        checkPackedSignature(signature);
+
+        long funcptr = PACKED[HANDLER_TYPES.indexOf(signature.charAt(signature.length() - 1))];
+        if (funcptr == NULL) {
+            throw new UnsupportedOperationException("The LWJGL native library does not support packed callback arguments.");
         }
 
+        long userdata = nmemAllocChecked(POINTER_SIZE + signature.length() + 1);
+        memASCII(signature, true, memByteBuffer(userdata + POINTER_SIZE, signature.length() + 1));
+        memPutAddress(userdata, NewGlobalRef(instance));
+
+        long handle = dcbNewCallback(signature, funcptr, userdata);
+        if (handle == NULL) {
+            DeleteGlobalRef(memGetAddress(userdata));
+            nmemFree(userdata);
+            throw new IllegalStateException("Failed to create the DCCallback object");
+        }
+        PACKED_FUNCTIONS.add(handle);
+
         return handle;
     }
 
+    /**
+     * Returns a pooled native function with the same signature and argument handling, or creates a new one. The native function delegates to a
+     * {@link Trampoline} instance, which is retargeted to the specified instance.
+     */
+    private static long createPooled(String signature, CallbackI instance) {
+        boolean packed = instance.usePackedArguments();
+
+        Map<String, TrampolinePool> pools = packed ? PACKED_POOLS : POOLS;
+
+        TrampolinePool pool = pools.get(signature);
+        if (pool == null) {
+            pool = pools.computeIfAbsent(signature, key -> new TrampolinePool(key, packed));
+        }
+
+        Trampoline trampoline = pool.checkout();
+        if (trampoline == null) {
+            POOL_MISSES.increment();
+            trampoline = Trampoline.create(pool);
+            trampoline.address = createNew(signature, trampoline);
+        } else {
+            POOL_HITS.increment();
+        }
+        trampoline.target = instance;
+
+        return trampoline.address;
+    }
+
+    /** Returns the number of callback functions that reused a pooled native function. */
+    public static long getPoolHitCount() {
+        return POOL_HITS.sum();
+    }
+
+    /** Returns the number of callback functions that created a new native function while pooling was enabled. */
+    public static long getPoolMissCount() {
+        return POOL_MISSES.sum();
+    }
+
+    /** Returns the number of freed native functions that are currently pooled. */
+    public static int getPoolSize() {
+        int size = 0;
+        for (TrampolinePool pool : POOLS.values()) {
+            size += pool.size();
+        }
+        for (TrampolinePool pool : PACKED_POOLS.values()) {
+            size += pool.size();
+        }
+        return size;
+    }
+
+    /** Frees the native functions that are currently pooled. */
+    public static void trimPool() {
+        for (TrampolinePool pool : POOLS.values()) {
+            pool.trim();
+        }
+        for (TrampolinePool pool : PACKED_POOLS.values()) {
+            pool.trim();
+        }
+    }
+
+    /**
+     * Checks that the specified signature can be decoded to a packed argument block. The native handlers fail on unknown argument types, but cannot
+     * recover the arguments that follow.
+     *
+     * @throws IllegalArgumentException if the signature has an unsupported argument type or more than {@link #PACKED_ARGUMENTS_MAX} arguments
+     */
+    static void checkPackedSignature(String signature) {
+        int from = signature.indexOf('(') + 1;
+        int to   = signature.indexOf(')');
+        if (from == 0 || to < from) {
+            throw new IllegalArgumentException("Invalid callback signature: " + signature);
+        }
+        if (PACKED_ARGUMENTS_MAX < to - from) {
+            throw new IllegalArgumentException("Too many callback arguments for packed mode: " + signature);
+        }
+        for (int i = from; i < to; i++) {
+            if (HANDLER_TYPES.indexOf(signature.charAt(i)) < 1) {
+                throw new IllegalArgumentException("Unsupported callback argument type '" + signature.charAt(i) + "' for packed mode: " + signature);
+            }
+        }
+    }
+
+    /** Returns true if the native library supports callbacks with packed arguments. */
+    static boolean isPackedSupported() {
+        return PACKED[0] != NULL;
+    }
+
+    private static long getGlobalRef(long functionPointer) {
+        long userdata = dcbGetUserData(functionPointer);
+        return PACKED_FUNCTIONS.isEmpty() || !PACKED_FUNCTIONS.contains(functionPointer) ? userdata : memGetAddress(userdata);
+    }
+
     private static long getNativeFunction(char type) {
         switch (type) {
             case 'v':
@@ -169,8 +345,10 @@ public abstract class Callback implements Pointer, NativeResource {
      *
      * @return the {@code CallbackI} instance
      */
+    @SuppressWarnings("unchecked")
     public static <T extends CallbackI> T get(long functionPointer) {
-        return memGlobalRefToObject(dcbGetUserData(functionPointer));
+        Object instance = memGlobalRefToObject(getGlobalRef(functionPointer));
+        return (T)(instance instanceof Trampoline ? ((Trampoline)instance).target : instance);
     }
 
     /** Like {@link #get}, but returns {@code null} if {@code functionPointer} is {@code NULL}. */
@@ -185,12 +363,34 @@ public abstract class Callback implements Pointer, NativeResource {
      * @param functionPointer the function pointer
      */
     public static void free(long functionPointer) {
-        DeleteGlobalRef(dcbGetUserData(functionPointer));
-        dcbFreeCallback(functionPointer);
-
         if (DEBUG_ALLOCATOR) {
             MemoryManage.DebugAllocator.untrack(functionPointer);
         }
+        if (LeakDetector.ENABLED) {
+            LeakDetector.untrack(functionPointer);
+        }
+
+        if (!(POOLS.isEmpty() && PACKED_POOLS.isEmpty())) {
+            Object instance = memGlobalRefToObject(getGlobalRef(functionPointer));
+            if (instance instanceof Trampoline && ((Trampoline)instance).checkin()) {
+                return;
+            }
+        }
+
+        freeNative(functionPointer);
+    }
+
+    private static void freeNative(long functionPointer) {
+        long userdata = dcbGetUserData(functionPointer);
+
+        if (PACKED_FUNCTIONS.remove(functionPointer)) {
+            DeleteGlobalRef(memGetAddress(userdata));
+            dcbFreeCallback(functionPointer);
+            nmemFree(userdata);
+        } else {
+            DeleteGlobalRef(userdata);
+            dcbFreeCallback(functionPointer);
+        }
     }
 
     public boolean equals(Object o) {
@@ -215,4 +415,188 @@ public abstract class Callback implements Pointer, NativeResource {
         return String.format("%s pointer [0x%X]", getClass().getSimpleName(), address);
     }
 
+    /** A stack of freed native functions with the same signature and argument handling. */
+    private static final class TrampolinePool {
+
+        final String  signature;
+        final boolean packed;
+
+        private Trampoline[] trampolines = new Trampoline[4];
+        private int          count;
+
+        TrampolinePool(String signature, boolean packed) {
+            this.signature = signature;
+            this.packed = packed;
+        }
+
+        @Nullable
+        synchronized Trampoline checkout() {
+            if (count == 0) {
+                return null;
+            }
+
+            Trampoline trampoline = trampolines[--count];
+            trampolines[count] = null;
+            return trampoline;
+        }
+
+        synchronized boolean checkin(Trampoline trampoline) {
+            int capacity = Configuration.CALLBACK_POOL_SIZE.get(0);
+            if (capacity <= count) {
+                return false;
+            }
+            if (count == trampolines.length) {
+                trampolines = Arrays.copyOf(trampolines, Math.min(count * 2, capacity));
+            }
+            trampolines[count++] = trampoline;
+            return true;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized void trim() {
+            while (0 < count) {
+                Trampoline trampoline = trampolines[--count];
+                trampolines[count] = null;
+                freeNative(trampoline.address);
+            }
+        }
+
+    }
+
+    /**
+     * The instance of a pooled native function. Delegates to the current target, which is replaced when the native function is reused.
+     *
+     * <p>The {@code DCCallback} object cannot be reinitialized in place, because {@code dyncall} maps its code as executable and read-only.</p>
+     */
+    private abstract static class Trampoline implements CallbackI {
+
+        final TrampolinePool pool;
+
+        long address;
+
+        @Nullable
+        volatile CallbackI target;
+
+        Trampoline(TrampolinePool pool) {
+            this.pool = pool;
+        }
+
+        static Trampoline create(TrampolinePool pool) {
+            switch (pool.signature.charAt(pool.signature.length() - 1)) {
+                case 'v':
+                    return new TrampolineV(pool);
+                case 'B':
+                    return new TrampolineZ(pool);
+                case 'c':
+                    return new TrampolineB(pool);
+                case 's':
+                    return new TrampolineS(pool);
+                case 'i':
+                    return new TrampolineI(pool);
+                case 'l':
+                    return new TrampolineJ(pool);
+                case 'p':
+                    return new TrampolineP(pool);
+                case 'f':
+                    return new TrampolineF(pool);
+                case 'd':
+                    return new TrampolineD(pool);
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+
+        boolean checkin() {
+            CallbackI target = this.target;
+            this.target = null;
+            if (pool.checkin(this)) {
+                return true;
+            }
+            this.target = target;
+            return false;
+        }
+
+        @Override
+        public long address() {
+            return address;
+        }
+
+        @Override
+        public String getSignature() {
+            return pool.signature;
+        }
+
+        @Override
+        public boolean usePackedArguments() {
+            return pool.packed;
+        }
+
+    }
+
+    private static final class TrampolineV extends Trampoline implements CallbackI.V {
+        TrampolineV(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public void callback(long args) { ((CallbackI.V)target).callback(args); }
+    }
+
+    private static final class TrampolineZ extends Trampoline implements CallbackI.Z {
+        TrampolineZ(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public boolean callback(long args) { return ((CallbackI.Z)target).callback(args); }
+    }
+
+    private static final class TrampolineB extends Trampoline implements CallbackI.B {
+        TrampolineB(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public byte callback(long args) { return ((CallbackI.B)target).callback(args); }
+    }
+
+    private static final class TrampolineS extends Trampoline implements CallbackI.S {
+        TrampolineS(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public short callback(long args) { return ((CallbackI.S)target).callback(args); }
+    }
+
+    private static final class TrampolineI extends Trampoline implements CallbackI.I {
+        TrampolineI(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public int callback(long args) { return ((CallbackI.I)target).callback(args); }
+    }
+
+    private static final class TrampolineJ extends Trampoline implements CallbackI.J {
+        TrampolineJ(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public long callback(long args) { return ((CallbackI.J)target).callback(args); }
+    }
+
+    private static final class TrampolineP extends Trampoline implements CallbackI.P {
+        TrampolineP(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public long callback(long args) { return ((CallbackI.P)target).callback(args); }
+    }
+
+    private static final class TrampolineF extends Trampoline implements CallbackI.F {
+        TrampolineF(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public float callback(long args) { return ((CallbackI.F)target).callback(args); }
+    }
+
+    private static final class TrampolineD extends Trampoline implements CallbackI.D {
+        TrampolineD(TrampolinePool pool) { super(pool); }
+
+        @Override
+        public double callback(long args) { return ((CallbackI.D)target).callback(args); }
+    }
+
 }
\ No newline at end of file
@@ -34,12 +34,24 @@ public interface CallbackI extends Pointer {
         return Callback.create(getSignature(), this);
     }
 
+    /**
+     * Returns true if this callback function receives its arguments in a packed argument block, instead of a {@code DCArgs} iterator. [INTERNAL API]
+     *
+     * <p>In packed mode, the native code decodes all arguments before calling into Java. Each argument is stored in an 8-byte slot, in declaration order.
+     * Pointer arguments are stored as 64-bit values.</p>
+     *
+     * @return true if packed arguments are used
+     */
+    default boolean usePackedArguments() {
+        return false;
+    }
+
     /** A {@code Callback} with no return value. */
     interface V extends CallbackI {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          */
         void callback(long args);
     }
@@ -49,7 +61,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -61,7 +73,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -73,7 +85,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -85,7 +97,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -97,7 +109,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -109,7 +121,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -121,7 +133,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -133,7 +145,7 @@ public interface CallbackI extends Pointer {
         /**
          * Will be called by native code.
          *
-         * @param args pointer to a {@code DCArgs} iterator
+         * @param args pointer to a {@code DCArgs} iterator, or to a packed argument block if {@link #usePackedArguments} returns true
          *
          * @return the value to store to the result {@code DCValue}
          */
@@ -0,0 +1,365 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import static org.lwjgl.system.APIUtil.*;
+import static org.lwjgl.system.Checks.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.dyncall.DynCall.*;
+
+/**
+ * An off-heap list of native function calls, that is recorded once and executed in a single JNI transition.
+ *
+ * <p><b>Experimental:</b> command lists have not been shown to be faster than direct calls. This class may change or be removed, bindings do not expose
+ * recording overloads.</p>
+ *
+ * <p>Every JNI call has a fixed transition cost. Workloads that issue many small native calls, such as state changes and uniform updates in OpenGL, can
+ * record the calls to a command list and execute the whole list with one native call. Each command stores the function address, the argument signature
+ * and the argument values. The list is executed by a native loop that replays the commands with {@code dyncall}. A list can be executed any number of
+ * times, until it is {@link #reset}.</p>
+ *
+ * <p>Replaying a command is not free: each command is a {@code dyncall} call, which may cost more than the JNI transition it saves on JVMs with fast
+ * native calls. Measure the target workload before adopting command lists, e.g. with {@code CommandListBench}.</p>
+ *
+ * <p>Only functions without a return value can be recorded. Pointer arguments are recorded as addresses, the memory they point to must be valid when the
+ * list is executed. Calls are recorded with {@link #invoke} or {@link #call}, followed by the argument values.</p>
+ *
+ * <p>A command list is thread-affine, it can only be recorded and executed in the thread that created it. If the native library does not support command
+ * lists (see {@link #isNative}), {@link #execute} falls back to issuing the recorded calls one at a time via the {@code dyncall} API. The fallback is
+ * functional, but slower than calling the functions directly.</p>
+ *
+ * <p>The memory block of a command list must be explicitly freed with {@link #free}.</p>
+ */
+public class CommandList implements NativeResource {
+
+    /** The maximum number of arguments of a recorded function. */
+    public static final int MAX_ARGS = 32;
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    // function address (8) + command size (4) + argument count (2) + calling convention (1) + padding (1)
+    private static final int HEADER_SIZE = 16;
+
+    private static final int MODE_CALL = Platform.get() == Platform.WINDOWS && Pointer.BITS32 ? DC_CALL_C_X86_WIN32_STD : DC_CALL_C_DEFAULT;
+
+    private static final boolean NATIVE;
+
+    static {
+        Library.initialize();
+
+        boolean supported;
+        try {
+            nexecute(NULL, NULL, NULL);
+            supported = true;
+        } catch (UnsatisfiedLinkError e) {
+            apiLog("[WARNING] The native library does not support command lists, CommandList will use the slower dyncall fallback.");
+            supported = false;
+        }
+        NATIVE = supported;
+    }
+
+    private final Thread owner;
+
+    private final long vm;
+
+    private long address;
+    private int  capacity;
+    private int  size;
+
+    private int count;
+
+    // The command being recorded
+    private int command;
+    private int commandArgs;
+    private int commandArgIndex;
+
+    /** Creates a new {@code CommandList} with the default initial capacity. */
+    public CommandList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code CommandList}.
+     *
+     * @param initialCapacity the initial capacity of the list, in bytes. A command takes 16 bytes, plus 8 bytes per argument and its signature padded to 8
+     *                        bytes.
+     */
+    public CommandList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+
+        this.owner = Thread.currentThread();
+        this.vm = dcNewCallVM(MAX_ARGS * 16);
+        if (vm == NULL) {
+            throw new OutOfMemoryError();
+        }
+
+        this.address = nmemAllocChecked(initialCapacity);
+        this.capacity = initialCapacity;
+    }
+
+    private static native void nexecute(long vm, long commands, long end);
+
+    /**
+     * Returns true if command lists are executed by the native loop, false if the {@code dyncall} fallback is used.
+     *
+     * <p>The fallback is used when the LWJGL shared library was built without the command list executor. A warning is printed in that case.</p>
+     */
+    public static boolean isNative() {
+        return NATIVE;
+    }
+
+    /** Returns the number of recorded commands. */
+    public int getCommandCount() {
+        return count;
+    }
+
+    /** Returns the number of bytes used by the recorded commands. */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Records a call to a function with the default calling convention.
+     *
+     * <p>The call arguments must be recorded next, with exactly {@code argc} invocations of the {@code arg*} methods.</p>
+     *
+     * @param function the function address
+     * @param argc     the number of function arguments
+     *
+     * @return this list
+     */
+    public CommandList invoke(long function, int argc) {
+        return record(function, argc, DC_CALL_C_DEFAULT);
+    }
+
+    /**
+     * Records a call to a function with the {@code __stdcall} calling convention on Windows x86, the default calling convention on other platforms.
+     *
+     * @param function the function address
+     * @param argc     the number of function arguments
+     *
+     * @return this list
+     *
+     * @see #invoke
+     */
+    public CommandList call(long function, int argc) {
+        return record(function, argc, MODE_CALL);
+    }
+
+    private CommandList record(long function, int argc, int mode) {
+        checkThread();
+        if (CHECKS) {
+            check(function);
+            checkComplete();
+        }
+        if (argc < 0 || MAX_ARGS < argc) {
+            throw new IllegalArgumentException("Invalid argument count: " + argc);
+        }
+
+        int commandSize = HEADER_SIZE + getSignatureSize(argc) + (argc << 3);
+        ensureCapacity(size + commandSize);
+
+        long header = address + size;
+        memPutLong(header, function);
+        memPutInt(header + 8, commandSize);
+        memPutShort(header + 12, (short)argc);
+        memPutByte(header + 14, (byte)mode);
+
+        command = size;
+        commandArgs = argc;
+        commandArgIndex = 0;
+
+        size += commandSize;
+        count++;
+
+        return this;
+    }
+
+    private static int getSignatureSize(int argc) {
+        return (argc + 7) & ~7;
+    }
+
+    private long nextArg(char type) {
+        if (CHECKS && commandArgs <= commandArgIndex) {
+            throw new IllegalStateException("Too many arguments, the command expects " + commandArgs + ".");
+        }
+
+        long header = address + command;
+        memPutByte(header + HEADER_SIZE + commandArgIndex, (byte)type);
+        return header + HEADER_SIZE + getSignatureSize(commandArgs) + (commandArgIndex++ << 3);
+    }
+
+    /** Records a {@code bool} argument of the current command. */
+    public CommandList argBool(boolean value) {
+        memPutByte(nextArg('B'), value ? (byte)1 : (byte)0);
+        return this;
+    }
+
+    /** Records a {@code char} argument of the current command. */
+    public CommandList argByte(byte value) {
+        memPutByte(nextArg('c'), value);
+        return this;
+    }
+
+    /** Records a {@code short} argument of the current command. */
+    public CommandList argShort(short value) {
+        memPutShort(nextArg('s'), value);
+        return this;
+    }
+
+    /** Records an {@code int} argument of the current command. */
+    public CommandList argInt(int value) {
+        memPutInt(nextArg('i'), value);
+        return this;
+    }
+
+    /** Records a {@code long long} argument of the current command. */
+    public CommandList argLong(long value) {
+        memPutLong(nextArg('l'), value);
+        return this;
+    }
+
+    /** Records a {@code float} argument of the current command. */
+    public CommandList argFloat(float value) {
+        memPutFloat(nextArg('f'), value);
+        return this;
+    }
+
+    /** Records a {@code double} argument of the current command. */
+    public CommandList argDouble(double value) {
+        memPutDouble(nextArg('d'), value);
+        return this;
+    }
+
+    /** Records a pointer argument of the current command. */
+    public CommandList argPointer(long value) {
+        memPutLong(nextArg('p'), value);
+        return this;
+    }
+
+    /** Executes the recorded commands, in order. */
+    public void execute() {
+        checkThread();
+        if (CHECKS) {
+            checkComplete();
+        }
+        if (size == 0) {
+            return;
+        }
+
+        if (NATIVE) {
+            nexecute(vm, address, address + size);
+        } else {
+            executeDynCall();
+        }
+    }
+
+    /** The {@code dyncall} fallback of the native loop, see {@code org_lwjgl_system_CommandList.c}. */
+    private void executeDynCall() {
+        int mode = -1;
+        for (long header = address, end = address + size; header < end; ) {
+            int argc = memGetShort(header + 12);
+            if (mode != memGetByte(header + 14)) {
+                mode = memGetByte(header + 14);
+                dcMode(vm, mode);
+            }
+            dcReset(vm);
+
+            long signature = header + HEADER_SIZE;
+            long arg       = signature + getSignatureSize(argc);
+            for (int i = 0; i < argc; i++, arg += 8) {
+                switch (memGetByte(signature + i)) {
+                    case 'B':
+                        dcArgBool(vm, memGetByte(arg) != 0);
+                        break;
+                    case 'c':
+                        dcArgChar(vm, memGetByte(arg));
+                        break;
+                    case 's':
+                        dcArgShort(vm, memGetShort(arg));
+                        break;
+                    case 'i':
+                        dcArgInt(vm, memGetInt(arg));
+                        break;
+                    case 'l':
+                        dcArgLongLong(vm, memGetLong(arg));
+                        break;
+                    case 'f':
+                        dcArgFloat(vm, memGetFloat(arg));
+                        break;
+                    case 'd':
+                        dcArgDouble(vm, memGetDouble(arg));
+                        break;
+                    default:
+                        dcArgPointer(vm, memGetLong(arg));
+                        break;
+                }
+            }
+
+            dcCallVoid(vm, memGetLong(header));
+
+            header += memGetInt(header + 8);
+        }
+    }
+
+    /** Removes all recorded commands. The memory block is not freed. */
+    public void reset() {
+        checkThread();
+
+        size = 0;
+        count = 0;
+
+        command = 0;
+        commandArgs = 0;
+        commandArgIndex = 0;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (capacity < minCapacity) {
+            // Grow by 50%, like ArrayList
+            int newCapacity = capacity + (capacity >> 1);
+            if (newCapacity - minCapacity < 0) {
+                newCapacity = minCapacity;
+            }
+            if (newCapacity < 0) {
+                newCapacity = Integer.MAX_VALUE;
+            }
+
+            long newAddress = nmemRealloc(address, newCapacity);
+            if (newAddress == NULL) {
+                throw new OutOfMemoryError();
+            }
+            address = newAddress;
+            capacity = newCapacity;
+        }
+    }
+
+    private void checkThread() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("The command list is owned by thread: " + owner.getName());
+        }
+    }
+
+    private void checkComplete() {
+        if (commandArgIndex < commandArgs) {
+            throw new IllegalStateException("The last command expects " + commandArgs + " arguments, " + commandArgIndex + " were recorded.");
+        }
+    }
+
+    /** Frees the memory of this list. */
+    @Override
+    public void free() {
+        dcFree(vm);
+        nmemFree(address);
+    }
+
+    @Override
+    public String toString() {
+        return "CommandList[commands=" + count + ", size=" + size + ", capacity=" + capacity + "]";
+    }
+
+}
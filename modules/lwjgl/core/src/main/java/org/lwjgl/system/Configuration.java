@@ -99,6 +99,7 @@ public class Configuration<T> {
      * created. It never calls {@code rpmalloc_finalize}. The user is responsible for calling {@code rpmalloc_thread_initialize} and
      * {@code rpmalloc_thread_finalize} when appropriate.</p></div></li>
      * <li><em>system</em> - The default system memory allocator</li>
+     * <li><em>cached</em> - Caches small blocks per thread, on top of the default allocator. See {@link #MEMORY_ALLOCATOR_CACHE_SIZE}.</li>
      * <li><em>&lt;classpath&gt;</em> - A class that implements the {@link MemoryAllocator MemoryAllocator} interface. It will be instantiated using reflection.</li>
      * </ul>
      *
@@ -111,6 +112,89 @@ public class Configuration<T> {
      */
     public static final Configuration<Object> MEMORY_ALLOCATOR = new Configuration<>("org.lwjgl.system.allocator", StateInit.STRING);
 
+    /**
+     * Sets the maximum size, in kilobytes, of the per-thread cache used by the <em>cached</em> {@link #MEMORY_ALLOCATOR}.
+     *
+     * <p>Allocations up to 2KB are rounded up to a power-of-two size class and freed blocks are reused by subsequent allocations of the same class, without
+     * calling the default allocator. Each size class gets an equal share of the cache. Blocks that do not fit in the cache of the freeing thread are moved to
+     * a bounded global cache, or returned to the default allocator.</p>
+     *
+     * <p>The cache is only used by the {@link MemoryUtil} explicit memory management API. Memory allocated with {@link MemoryUtil#memAlloc memAlloc} must be
+     * freed with {@link MemoryUtil#memFree memFree}, it must not be freed by native code, nor with {@link MemoryUtil#getAllocator getAllocator}, which returns
+     * the default allocator. Native libraries that use the LWJGL allocator are set up with the default allocator.</p>
+     *
+     * <p>If this option is not set, it defaults to 256.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.allocatorCacheSize</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Integer> MEMORY_ALLOCATOR_CACHE_SIZE = new Configuration<>("org.lwjgl.system.allocatorCacheSize", StateInit.INT);
+
+    /**
+     * Sets the implementation used by {@link MemoryUtil} to access off-heap memory. Supported values:
+     *
+     * <ul>
+     * <li><em>unsafe</em> - Uses {@code sun.misc.Unsafe}. This is the default, if {@code sun.misc.Unsafe} is available.</li>
+     * <li><em>jni</em> - Uses JNI functions. Much slower, mainly useful for testing and benchmarking.</li>
+     * </ul>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.memoryAccessor</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<String> MEMORY_ACCESSOR = new Configuration<>("org.lwjgl.system.memoryAccessor", StateInit.STRING);
+
+    /**
+     * Sets the size, in bytes, from which {@link MemoryUtil#memSet} calls the native {@code memset} function. Smaller sizes are handled with a Java loop.
+     *
+     * <p>This option is only used by the Unsafe-based memory accessor. If this option is not set, it defaults to 192.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.memSetNativeThreshold</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Integer> MEMSET_NATIVE_THRESHOLD = new Configuration<>("org.lwjgl.system.memSetNativeThreshold", StateInit.INT);
+
+    /**
+     * Sets the size, in bytes, from which {@link MemoryUtil#memCopy} stops using a Java loop. Sizes between this value and
+     * {@link #MEMCOPY_NATIVE_THRESHOLD} are handled with {@code Unsafe.copyMemory}.
+     *
+     * <p>This option is only used by the Unsafe-based memory accessor. If this option is not set, it defaults to 64.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.memCopyJavaThreshold</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Integer> MEMCOPY_JAVA_THRESHOLD = new Configuration<>("org.lwjgl.system.memCopyJavaThreshold", StateInit.INT);
+
+    /**
+     * Sets the size, in bytes, from which {@link MemoryUtil#memCopy} calls the native {@code memcpy} function.
+     *
+     * <p>This option is only used by the Unsafe-based memory accessor. If this option is not set, it defaults to 384.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.memCopyNativeThreshold</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Integer> MEMCOPY_NATIVE_THRESHOLD = new Configuration<>("org.lwjgl.system.memCopyNativeThreshold", StateInit.INT);
+
+    /**
+     * Sets the maximum number of freed {@link Callback} functions that are kept, per signature, for reuse.
+     *
+     * <p>Creating a callback function allocates executable memory and a JNI global reference, freeing it releases both. When pooling is enabled, callback
+     * functions call their instance through an intermediate object and freed functions are reused by the next callback with the same signature. This
+     * makes creating and freeing callbacks cheaper, at the cost of an extra virtual call per invocation. A function pointer that is used after being freed
+     * may then invoke an unrelated callback, instead of crashing.</p>
+     *
+     * <p>If this option is not set, it defaults to 0 (pooling disabled).</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.callbackPoolSize</b><br>
+     * &nbsp; &nbsp;Usage: Dynamic</p>
+     */
+    public static final Configuration<Integer> CALLBACK_POOL_SIZE = new Configuration<>("org.lwjgl.system.callbackPoolSize", StateInit.INT);
+
     /**
      * Sets the stack size, in kilobytes, that will be used in the default {@link MemoryStack} constructor. This value is also used for the LWJGL-managed,
      * thread-local, {@link MemoryStack} instances.
@@ -123,6 +207,19 @@ public class Configuration<T> {
      */
     public static final Configuration<Integer> STACK_SIZE = new Configuration<>("org.lwjgl.system.stackSize", StateInit.INT);
 
+    /**
+     * Set to true to enable growable {@link MemoryStack} instances. This value is used in the default {@link MemoryStack} factory methods and for the
+     * LWJGL-managed, thread-local, {@link MemoryStack} instances.
+     *
+     * <p>A growable stack does not fail when an allocation exceeds {@link #STACK_SIZE}. Instead, it chains additional off-heap chunks, which are returned to
+     * a per-stack free list when the frame that caused the spill is popped. Allocations that fit in the initial stack buffer are not affected.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.system.stackGrowable</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Boolean> STACK_GROWABLE = new Configuration<>("org.lwjgl.system.stackGrowable", StateInit.BOOLEAN);
+
     /**
      * Set to true to disable LWJGL's basic checks. These are trivial checks that LWJGL performs to avoid JVM crashes, very useful during development.
      * Their performance impact is usually minimal, but they may be disabled for release builds.
@@ -192,6 +289,71 @@ public class Configuration<T> {
      */
     public static final Configuration<Boolean> DEBUG_MEMORY_ALLOCATOR = new Configuration<>("org.lwjgl.util.DebugAllocator", StateInit.BOOLEAN);
 
+    /**
+     * Set to true to enable the sampling allocator for the {@link MemoryUtil} explicit memory management API
+     * ({@link MemoryUtil#memAlloc memAlloc}/{@link MemoryUtil#memFree memFree}/etc). It is a low overhead alternative to {@link #DEBUG_MEMORY_ALLOCATOR},
+     * suitable for production use.
+     *
+     * <p>Allocations are counted per thread and per size class. Live memory is estimated by sampling on average one allocation every
+     * {@link #SAMPLING_MEMORY_ALLOCATOR_INTERVAL} bytes; a stacktrace is generated only for sampled allocations. The statistics are available via
+     * {@link MemoryUtil#memSamplingAllocator}, a JMX MBean and the {@code memReport} methods.</p>
+     *
+     * <p>This option is ignored if {@link #DEBUG_MEMORY_ALLOCATOR} is enabled.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.SamplingAllocator</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Boolean> SAMPLING_MEMORY_ALLOCATOR = new Configuration<>("org.lwjgl.util.SamplingAllocator", StateInit.BOOLEAN);
+
+    /**
+     * Sets the mean number of bytes allocated between two samples of the {@link #SAMPLING_MEMORY_ALLOCATOR}.
+     *
+     * <p>If this option is not set, it defaults to 524288 (512KB).</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.SamplingAllocatorInterval</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Integer> SAMPLING_MEMORY_ALLOCATOR_INTERVAL = new Configuration<>(
+        "org.lwjgl.util.SamplingAllocatorInterval",
+        StateInit.INT
+    );
+
+    /**
+     * Set to true to enable the {@link LeakDetector}. Memory allocated with the {@link MemoryUtil} buffer methods ({@code memAlloc}/{@code memCalloc}/etc)
+     * and with the {@code malloc}/{@code calloc} methods of structs is tracked, a leak is reported when the returned object becomes unreachable before the
+     * memory is freed. Unlike {@link #DEBUG_MEMORY_ALLOCATOR}, the overhead is low enough for production use.
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.LeakDetector</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Boolean> LEAK_DETECTOR = new Configuration<>("org.lwjgl.util.LeakDetector", StateInit.BOOLEAN);
+
+    /**
+     * Sets the sampling interval of the {@link LeakDetector}: one in this many tracked allocations records its allocation site. Set to 1 to record the site
+     * of every allocation, or 0 to disable sampling.
+     *
+     * <p>If this option is not set, it defaults to 64.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.LeakDetectorSampling</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Integer> LEAK_DETECTOR_SAMPLING = new Configuration<>("org.lwjgl.util.LeakDetectorSampling", StateInit.INT);
+
+    /**
+     * Set to true to have the {@link LeakDetector} free leaked memory, after reporting the leak.
+     *
+     * <p>This is only safe if the leaked memory is not accessed through any other reference, e.g. an address retrieved from the leaked object.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.LeakDetectorReclaim</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Boolean> LEAK_DETECTOR_RECLAIM = new Configuration<>("org.lwjgl.util.LeakDetectorReclaim", StateInit.BOOLEAN);
+
     /**
      * Set to true to enable LWJGL's debug mode for the {@link MemoryStack}. When using the stack, each frame should be popped in the same method that pushed
      * it. If this symmetry is broken, this mode will report it immediately.
@@ -218,6 +380,30 @@ public class Configuration<T> {
      */
     public static final Configuration<Boolean> DEBUG_FUNCTIONS = new Configuration<>("org.lwjgl.util.DebugFunctions", StateInit.BOOLEAN);
 
+    /**
+     * Set to true to record the call count and latency histogram of native functions, see {@link FunctionStats}.
+     *
+     * <p>This option has an effect only on bindings generated with the {@code binding.FUNCTION_INSTRUMENTATION} build option. Such bindings can be used
+     * with this option disabled, the instrumentation is then optimized away by the JIT compiler.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.FunctionStats</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Boolean> FUNCTION_STATS = new Configuration<>("org.lwjgl.util.FunctionStats", StateInit.BOOLEAN);
+
+    /**
+     * Set to true to emit a Java Flight Recorder event for every recorded native function call. The {@code org.lwjgl.FunctionCall} event is disabled by
+     * default and must be enabled in the recording settings.
+     *
+     * <p>This option requires {@link #FUNCTION_STATS} to be enabled and a JVM with the {@code jdk.jfr} API. It is ignored otherwise.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.util.FunctionStatsJFR</b><br>
+     * &nbsp; &nbsp;Usage: Static</p>
+     */
+    public static final Configuration<Boolean> FUNCTION_STATS_JFR = new Configuration<>("org.lwjgl.util.FunctionStatsJFR", StateInit.BOOLEAN);
+
     // -- ASSIMP
 
     /** Similar to {@link #LIBRARY_NAME} for the AssImp library (<b>org.lwjgl.assimp.libname</b>). */
@@ -309,6 +495,22 @@ public class Configuration<T> {
      */
     public static final Configuration<Object> OPENGL_MAXVERSION = new Configuration<>("org.lwjgl.opengl.maxVersion", StateInit.STRING);
 
+    /**
+     * When enabled, {@code GL.createCapabilities} resolves only the addresses of functions that belong to an OpenGL version or extension supported by the
+     * current context.
+     *
+     * <p>By default, the addresses of all known functions are resolved, which is a noticeable cost when many contexts are created. In this mode, the
+     * addresses of functions of unsupported extensions are {@code NULL}, even if the driver exports them. Calling such a function aborts the process.</p>
+     *
+     * <p style="font-family: monospace">
+     * Property: <b>org.lwjgl.opengl.supportedFunctionsOnly</b><br>
+     * &nbsp; &nbsp;Usage: Dynamic</p>
+     */
+    public static final Configuration<Boolean> OPENGL_SUPPORTED_FUNCTIONS_ONLY = new Configuration<>(
+        "org.lwjgl.opengl.supportedFunctionsOnly",
+        StateInit.BOOLEAN
+    );
+
     // -- OPENGL ES
 
     /** Similar to {@link #EGL_EXPLICIT_INIT} for the OpenGL ES library (<b>org.lwjgl.opengles.explicitInit</b>). */
@@ -6,6 +6,7 @@ package org.lwjgl.system;
 
 import javax.annotation.*;
 import java.nio.*;
+import java.util.concurrent.*;
 
 import static org.lwjgl.system.Checks.*;
 import static org.lwjgl.system.MemoryUtil.*;
@@ -362,6 +363,92 @@ public abstract class CustomBuffer<SELF extends CustomBuffer<SELF>> implements P
         return self();
     }
 
+    /**
+     * Receives a contiguous range of buffer elements.
+     *
+     * @see #parallelForEachRange
+     */
+    @FunctionalInterface
+    public interface RangeConsumer {
+
+        /**
+         * Performs this operation on a range of elements.
+         *
+         * @param address the address of the first element in the range
+         * @param count   the number of elements in the range
+         */
+        void accept(long address, int count);
+
+    }
+
+    /**
+     * Performs the given action on the elements remaining in this buffer, in parallel.
+     *
+     * <p>The elements are split into contiguous ranges of at least {@link #PARALLEL_MIN_SPLIT_SIZE} bytes. If the element size allows it, ranges start at
+     * cache line boundaries (page boundaries for large ranges), so that concurrent tasks do not write to the same cache lines. The ranges are processed by
+     * {@link ForkJoinTask}s, in the {@link ForkJoinPool} of the calling thread or the {@link ForkJoinPool#commonPool common pool}. This method returns after
+     * all ranges have been processed. The buffer position is not modified.</p>
+     *
+     * @param action the action to be performed for each range
+     */
+    public void parallelForEachRange(RangeConsumer action) {
+        if (position < limit) {
+            new RangeTask(address, sizeof(), position, limit, action).invoke();
+        }
+    }
+
+    /**
+     * Sets each byte of the elements remaining in this buffer to the specified value, in parallel.
+     *
+     * @param value the value to set
+     *
+     * @return This buffer
+     *
+     * @see #parallelForEachRange
+     */
+    public SELF parallelFill(byte value) {
+        int sizeof = sizeof();
+        parallelForEachRange((address, count) -> memSet(address, value, (long)count * sizeof));
+        return self();
+    }
+
+    /**
+     * Relative bulk <i>put</i> method, in parallel.
+     *
+     * <p>Has the same effect as {@link #put(CustomBuffer) put}, but the elements are copied in parallel.</p>
+     *
+     * @param src the source buffer from which elements are to be read; must not be this buffer, nor share memory with the elements to be written
+     *
+     * @return This buffer
+     *
+     * @throws java.nio.BufferOverflowException If there is insufficient space in this buffer for the remaining elements in the source buffer
+     * @throws IllegalArgumentException         If the source buffer is this buffer, or if the source and destination memory ranges overlap
+     * @see #parallelForEachRange
+     */
+    public SELF parallelPut(SELF src) {
+        if (src == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = src.remaining();
+        if (n > remaining()) {
+            throw new BufferOverflowException();
+        }
+
+        if (n != 0) {
+            int  sizeof = sizeof();
+            long bytes  = (long)n * sizeof;
+            long offset = src.address() - this.address();
+            // The ranges are copied concurrently, in any order
+            if (-bytes < offset && offset < bytes) {
+                throw new IllegalArgumentException("The source and destination ranges overlap");
+            }
+            new RangeTask(address, sizeof, position, position + n, (address, count) -> memCopy(address + offset, address, (long)count * sizeof)).invoke();
+            position += n;
+        }
+
+        return self();
+    }
+
     /**
      * Returns a string summarizing the state of this buffer.
      *
@@ -373,6 +460,65 @@ public abstract class CustomBuffer<SELF extends CustomBuffer<SELF>> implements P
 
     // -----------------------------
 
+    /** The minimum size, in bytes, of the element ranges created by the parallel bulk operations and spliterators of custom buffers. */
+    public static final int PARALLEL_MIN_SPLIT_SIZE = 16 * 1024;
+
+    /**
+     * Returns the index at which the elements in {@code [lo, hi)} should be split, or -1 if the range is too small to split.
+     *
+     * <p>The split index is close to the middle of the range. It is moved to the next cache line boundary (page boundary for large ranges), if an element
+     * starts there.</p>
+     */
+    static int getSplitIndex(long address, int sizeof, int lo, int hi) {
+        long bytes = (long)(hi - lo) * sizeof;
+        if (bytes < PARALLEL_MIN_SPLIT_SIZE * 2L) {
+            return -1;
+        }
+
+        int mid = (lo + hi) >>> 1;
+
+        long alignment = PAGE_SIZE * 16L <= bytes ? PAGE_SIZE : CACHE_LINE_SIZE;
+        long offset    = ((address + (long)mid * sizeof + alignment - 1) & -alignment) - address;
+
+        long index = (offset + sizeof - 1) / sizeof;
+        return index < hi && ((address + index * sizeof) & (alignment - 1)) == 0L ? (int)index : mid;
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long address;
+        private final int  sizeof;
+
+        private final int lo;
+        private final int hi;
+
+        private final RangeConsumer action;
+
+        RangeTask(long address, int sizeof, int lo, int hi, RangeConsumer action) {
+            this.address = address;
+            this.sizeof = sizeof;
+            this.lo = lo;
+            this.hi = hi;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            int split = getSplitIndex(address, sizeof, lo, hi);
+            if (split == -1) {
+                action.accept(address + (long)lo * sizeof, hi - lo);
+            } else {
+                invokeAll(
+                    new RangeTask(address, sizeof, lo, split, action),
+                    new RangeTask(address, sizeof, split, hi, action)
+                );
+            }
+        }
+
+    }
+
     protected abstract SELF self();
 
     protected abstract SELF newBufferInstance(long address, @Nullable ByteBuffer container, int mark, int position, int limit, int capacity);
@@ -0,0 +1,164 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import java.nio.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * An off-heap, growable list of {@code float} values.
+ *
+ * <p>The list contents can be passed to native functions without copying, using {@link #address()} or the {@link #buffer() FloatBuffer} view.</p>
+ *
+ * @see PrimitiveList
+ */
+public class FloatList extends PrimitiveList {
+
+    /** Creates a new {@code FloatList} with the default initial capacity. */
+    public FloatList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code FloatList}.
+     *
+     * @param initialCapacity the initial capacity of the list
+     */
+    public FloatList(int initialCapacity) {
+        super(2, initialCapacity);
+    }
+
+    /**
+     * Appends the specified value to the end of this list.
+     *
+     * @param value the value to append
+     */
+    public void add(float value) {
+        memPutFloat(nextAddress(), value);
+    }
+
+    /**
+     * Inserts the specified value at the specified index, shifting the subsequent elements.
+     *
+     * @param index the index at which the value will be inserted
+     * @param value the value to insert
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or greater than the list size
+     */
+    public void add(int index, float value) {
+        memPutFloat(insertAddress(index), value);
+    }
+
+    /**
+     * Appends the elements of the specified array to the end of this list.
+     *
+     * @param values the values to append
+     */
+    public void addAll(float... values) {
+        int offset = size;
+        setSize(offset + values.length);
+        for (int i = 0; i < values.length; i++) {
+            memPutFloat(address + ((long)(offset + i) << 2), values[i]);
+        }
+    }
+
+    /**
+     * Appends the remaining elements of the specified buffer to the end of this list.
+     *
+     * <p>The current {@code position} and {@code limit} of the specified {@code buffer} are not affected by this operation.</p>
+     *
+     * @param values the values to append
+     */
+    public void addAll(FloatBuffer values) {
+        int offset = size;
+        setSize(offset + values.remaining());
+        memCopy(memAddress(values), address + ((long)offset << 2), Integer.toUnsignedLong(values.remaining()) << 2);
+    }
+
+    /**
+     * Returns the element at the specified index.
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public float get(int index) {
+        return memGetFloat(address + ((long)checkIndex(index) << 2));
+    }
+
+    /**
+     * Replaces the element at the specified index.
+     *
+     * @return the previous element at the specified index
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public float set(int index, float value) {
+        long element = address + ((long)checkIndex(index) << 2);
+
+        float previous = memGetFloat(element);
+        memPutFloat(element, value);
+        return previous;
+    }
+
+    /**
+     * Removes the element at the specified index, shifting the subsequent elements.
+     *
+     * @return the removed element
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public float remove(int index) {
+        float value = get(index);
+        removeElement(index);
+        return value;
+    }
+
+    /**
+     * Removes the last element of this list.
+     *
+     * @return the removed element
+     *
+     * @throws IndexOutOfBoundsException If the list is empty
+     */
+    public float removeLast() {
+        float value = get(size - 1);
+        size--;
+        return value;
+    }
+
+    /** Returns the index of the first occurrence of the specified value in this list, or -1 if the list does not contain it. */
+    public int indexOf(float value) {
+        for (int i = 0; i < size; i++) {
+            if (Float.floatToIntBits(memGetFloat(address + ((long)i << 2))) == Float.floatToIntBits(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns true if this list contains the specified value. */
+    public boolean contains(float value) {
+        return indexOf(value) != -1;
+    }
+
+    /**
+     * Returns a {@link FloatBuffer} view of the elements of this list.
+     *
+     * <p>The buffer capacity is equal to the list size. The view is invalidated by any operation that increases the capacity of this list.</p>
+     */
+    public FloatBuffer buffer() {
+        return memFloatBuffer(address, size);
+    }
+
+    /** Returns a new array with the elements of this list. */
+    public float[] toArray() {
+        float[] array = new float[size];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = memGetFloat(address + ((long)i << 2));
+        }
+        return array;
+    }
+
+}
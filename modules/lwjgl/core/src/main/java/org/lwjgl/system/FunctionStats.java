@@ -0,0 +1,433 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import javax.annotation.*;
+import java.lang.invoke.*;
+import java.util.*;
+
+import static java.lang.invoke.MethodType.*;
+import static org.lwjgl.system.APIUtil.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.libc.LibCStdlib.*;
+
+/**
+ * Records the call count and latency of native functions.
+ *
+ * <p>Bindings generated with the {@code binding.FUNCTION_INSTRUMENTATION} build option report every native function call to this class. Recording is
+ * enabled with the {@link Configuration#FUNCTION_STATS} option. When it is disabled, {@link #begin} and {@link #end} are no-ops that the JIT compiler
+ * eliminates.</p>
+ *
+ * <p>Each function has a latency histogram of {@link #BUCKETS} power-of-two buckets: bucket {@code i} counts calls that took {@code [2<sup>i</sup>,
+ * 2<sup>i+1</sup>)} nanoseconds, the last bucket also counts any slower calls. The counters are stored off-heap, in stripes selected by thread, and are
+ * updated atomically. Threads that call the same function rarely contend on the same counters. The counter memory of a binding class is allocated when
+ * one of its functions is first called and is never freed.</p>
+ *
+ * <p>With the {@link Configuration#FUNCTION_STATS_JFR} option, an {@code org.lwjgl.FunctionCall} Flight Recorder event is also emitted per call.</p>
+ */
+public final class FunctionStats {
+
+    /** True if native function calls are recorded. */
+    public static final boolean ENABLED;
+
+    /** The number of buckets in a latency histogram. */
+    public static final int BUCKETS = 31;
+
+    // Total latency + histogram buckets, 256 bytes per function per stripe
+    private static final int SLOTS_SHIFT = 8;
+
+    private static final int STRIPES;
+
+    @Nullable
+    private static final sun.misc.Unsafe UNSAFE;
+
+    @Nullable
+    private static final JFREvents JFR;
+
+    private static volatile ClassStats[] classes = new ClassStats[0];
+
+    static {
+        sun.misc.Unsafe unsafe = null;
+        if (Configuration.FUNCTION_STATS.get(false)) {
+            try {
+                unsafe = MemoryAccess.getUnsafeInstance();
+            } catch (Throwable t) {
+                DEBUG_STREAM.println("[LWJGL] Native function statistics are not supported, sun.misc.Unsafe is not available.");
+            }
+        }
+        UNSAFE = unsafe;
+        ENABLED = unsafe != null;
+
+        STRIPES = Math.min(MathUtil.mathRoundPoT(Runtime.getRuntime().availableProcessors()), 16);
+
+        JFREvents jfr = null;
+        if (ENABLED && Configuration.FUNCTION_STATS_JFR.get(false)) {
+            try {
+                jfr = new JFREvents();
+            } catch (Throwable t) {
+                apiLog("Flight Recorder events are not supported: " + t);
+            }
+        }
+        JFR = jfr;
+    }
+
+    private FunctionStats() {
+    }
+
+    /**
+     * Registers the functions of a binding class. [INTERNAL USE ONLY]
+     *
+     * @param className the binding class name
+     * @param functions the function names
+     *
+     * @return the identifier of the first function. Subsequent functions have consecutive identifiers.
+     */
+    public static synchronized int register(String className, String... functions) {
+        ClassStats[] classes = FunctionStats.classes;
+        if (0x7FFF <= classes.length || 0xFFFF < functions.length) {
+            throw new IllegalStateException("Too many instrumented functions: " + className);
+        }
+
+        ClassStats[] copy = Arrays.copyOf(classes, classes.length + 1);
+        copy[classes.length] = new ClassStats(className, functions);
+        FunctionStats.classes = copy;
+
+        return classes.length << 16;
+    }
+
+    /**
+     * Returns the start timestamp of a native function call. [INTERNAL USE ONLY]
+     *
+     * @return the current value of {@link System#nanoTime}, or zero if recording is disabled
+     */
+    public static long begin() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a native function call. [INTERNAL USE ONLY]
+     *
+     * @param function the function identifier
+     * @param start    the value returned by {@link #begin} before the call
+     */
+    public static void end(int function, long start) {
+        if (ENABLED) {
+            record(function, start);
+        }
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static boolean end(int function, long start, boolean result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static byte end(int function, long start, byte result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static short end(int function, long start, short result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static char end(int function, long start, char result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static int end(int function, long start, int result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static long end(int function, long start, long result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static float end(int function, long start, float result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    public static double end(int function, long start, double result) {
+        end(function, start);
+        return result;
+    }
+
+    /** Records a native function call and returns its result. [INTERNAL USE ONLY] */
+    @Nullable
+    public static <T> T end(int function, long start, @Nullable T result) {
+        end(function, start);
+        return result;
+    }
+
+    private static void record(int function, long start) {
+        long nanos = System.nanoTime() - start;
+
+        ClassStats stats = classes[function >>> 16];
+        long counters = stats.getCounters() +
+                        ((long)(((function & 0xFFFF) * STRIPES) + ((int)Thread.currentThread().getId() & (STRIPES - 1))) << SLOTS_SHIFT);
+
+        sun.misc.Unsafe unsafe = UNSAFE;
+        //noinspection ConstantConditions
+        unsafe.getAndAddLong(null, counters, nanos);
+        unsafe.getAndAddLong(null, counters + ((getBucket(nanos) + 1) << 3), 1L);
+
+        if (JFR != null) {
+            JFR.emit(stats, function & 0xFFFF, nanos);
+        }
+    }
+
+    private static int getBucket(long nanos) {
+        return Math.min(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1L)), BUCKETS - 1);
+    }
+
+    /**
+     * Returns the statistics of the native functions that have been called at least once, in descending order of total latency.
+     *
+     * <p>The counters are read without synchronization, the statistics of functions called concurrently with this method may be inconsistent.</p>
+     */
+    public static List<Entry> getSnapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (ClassStats stats : classes) {
+            long counters = stats.counters;
+            if (counters == NULL) {
+                continue;
+            }
+            for (int i = 0; i < stats.functions.length; i++) {
+                long   totalNanos = 0L;
+                long[] histogram  = new long[BUCKETS];
+                for (int s = 0; s < STRIPES; s++) {
+                    long stripe = counters + ((long)(i * STRIPES + s) << SLOTS_SHIFT);
+
+                    totalNanos += memGetLong(stripe);
+                    for (int b = 0; b < BUCKETS; b++) {
+                        histogram[b] += memGetLong(stripe + ((b + 1) << 3));
+                    }
+                }
+
+                Entry entry = new Entry(stats.className, stats.functions[i], totalNanos, histogram);
+                if (entry.callCount != 0L) {
+                    entries.add(entry);
+                }
+            }
+        }
+
+        entries.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return entries;
+    }
+
+    /** Resets the statistics of all native functions. Calls concurrent with this method may be partially recorded. */
+    public static void reset() {
+        for (ClassStats stats : classes) {
+            long counters = stats.counters;
+            if (counters != NULL) {
+                memSet(counters, 0, (long)stats.functions.length * STRIPES << SLOTS_SHIFT);
+            }
+        }
+    }
+
+    /** The statistics of a native function. */
+    public static final class Entry {
+
+        private final String className;
+        private final String functionName;
+
+        private final long   callCount;
+        private final long   totalNanos;
+        private final long[] histogram;
+
+        Entry(String className, String functionName, long totalNanos, long[] histogram) {
+            this.className = className;
+            this.functionName = functionName;
+
+            long callCount = 0L;
+            for (long count : histogram) {
+                callCount += count;
+            }
+            this.callCount = callCount;
+            this.totalNanos = totalNanos;
+            this.histogram = histogram;
+        }
+
+        /** Returns the simple name of the binding class. */
+        public String getClassName() {
+            return className;
+        }
+
+        /** Returns the native function name. */
+        public String getFunctionName() {
+            return functionName;
+        }
+
+        /** Returns the number of calls. */
+        public long getCallCount() {
+            return callCount;
+        }
+
+        /** Returns the total latency, in nanoseconds. */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** Returns the mean latency, in nanoseconds. */
+        public double getMeanNanos() {
+            return callCount == 0L ? 0.0 : (double)totalNanos / callCount;
+        }
+
+        /** Returns a copy of the latency histogram. */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Returns an upper bound of the specified latency percentile, in nanoseconds.
+         *
+         * @param percentile the percentile, in {@code [0.0, 100.0]}
+         *
+         * @return the exclusive upper bound of the histogram bucket that contains the percentile, or {@link Long#MAX_VALUE} if it is the last bucket
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0.0 || 100.0 < percentile) {
+                throw new IllegalArgumentException("Invalid percentile: " + percentile);
+            }
+
+            long rank = Math.max((long)Math.ceil(callCount * percentile / 100.0), 1L);
+            long sum  = 0L;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                sum += histogram[i];
+                if (rank <= sum) {
+                    return 2L << i;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%s.%s: %d calls, %d ns total, %.1f ns mean, p50 < %d ns, p99 < %d ns",
+                className, functionName, callCount, totalNanos, getMeanNanos(), getPercentile(50.0), getPercentile(99.0)
+            );
+        }
+
+    }
+
+    private static final class ClassStats {
+
+        final String   className;
+        final String[] functions;
+        final String[] names;
+
+        volatile long counters;
+
+        ClassStats(String className, String[] functions) {
+            this.className = className;
+            this.functions = functions;
+
+            this.names = new String[functions.length];
+            for (int i = 0; i < functions.length; i++) {
+                names[i] = className + "." + functions[i];
+            }
+        }
+
+        long getCounters() {
+            long counters = this.counters;
+            if (counters == NULL) {
+                counters = allocate();
+            }
+            return counters;
+        }
+
+        // Allocated with the C library, the configured allocator may call instrumented functions
+        private synchronized long allocate() {
+            if (counters == NULL) {
+                long address = ncalloc((long)functions.length * STRIPES, 1L << SLOTS_SHIFT);
+                if (address == NULL) {
+                    throw new OutOfMemoryError();
+                }
+                counters = address;
+            }
+            return counters;
+        }
+
+    }
+
+    /** Emits Flight Recorder events via reflection, the {@code jdk.jfr} API is not available in all Java 8 runtimes. */
+    private static final class JFREvents {
+
+        private final MethodHandle isEnabled;
+        private final MethodHandle newEvent;
+        private final MethodHandle set;
+        private final MethodHandle commit;
+
+        JFREvents() throws Throwable {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            Class<?> AnnotationElement = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> ValueDescriptor   = Class.forName("jdk.jfr.ValueDescriptor");
+            Class<?> EventFactory      = Class.forName("jdk.jfr.EventFactory");
+            Class<?> EventType         = Class.forName("jdk.jfr.EventType");
+            Class<?> Event             = Class.forName("jdk.jfr.Event");
+
+            MethodHandle annotation = lookup.findConstructor(AnnotationElement, methodType(void.class, Class.class, Object.class));
+            MethodHandle descriptor = lookup.findConstructor(ValueDescriptor, methodType(void.class, Class.class, String.class, List.class));
+
+            List<Object> eventAnnotations = Arrays.asList(
+                annotation.invoke(Class.forName("jdk.jfr.Name"), "org.lwjgl.FunctionCall"),
+                annotation.invoke(Class.forName("jdk.jfr.Label"), "LWJGL Function Call"),
+                annotation.invoke(Class.forName("jdk.jfr.Category"), new String[] {"LWJGL"}),
+                annotation.invoke(Class.forName("jdk.jfr.Enabled"), false)
+            );
+            List<Object> fields = Arrays.asList(
+                descriptor.invoke(String.class, "function", Collections.singletonList(
+                    annotation.invoke(Class.forName("jdk.jfr.Label"), "Function")
+                )),
+                descriptor.invoke(long.class, "latency", Arrays.asList(
+                    annotation.invoke(Class.forName("jdk.jfr.Label"), "Latency"),
+                    annotation.invoke(Class.forName("jdk.jfr.Timespan"), "NANOSECONDS")
+                ))
+            );
+
+            Object factory = lookup
+                .findStatic(EventFactory, "create", methodType(EventFactory, List.class, List.class))
+                .invoke(eventAnnotations, fields);
+            Object type = lookup.findVirtual(EventFactory, "getEventType", methodType(EventType)).invoke(factory);
+
+            this.isEnabled = lookup.findVirtual(EventType, "isEnabled", methodType(boolean.class)).bindTo(type);
+            this.newEvent = lookup.findVirtual(EventFactory, "newEvent", methodType(Event)).bindTo(factory)
+                .asType(methodType(Object.class));
+            this.set = lookup.findVirtual(Event, "set", methodType(void.class, int.class, Object.class))
+                .asType(methodType(void.class, Object.class, int.class, Object.class));
+            this.commit = lookup.findVirtual(Event, "commit", methodType(void.class))
+                .asType(methodType(void.class, Object.class));
+        }
+
+        void emit(ClassStats stats, int function, long nanos) {
+            try {
+                if ((boolean)isEnabled.invokeExact()) {
+                    Object event = (Object)newEvent.invokeExact();
+                    set.invokeExact(event, 0, (Object)stats.names[function]);
+                    set.invokeExact(event, 1, (Object)nanos);
+                    commit.invokeExact(event);
+                }
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import javax.annotation.*;
+import javax.management.*;
+import java.lang.management.*;
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.lwjgl.system.APIUtil.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.StackWalkUtil.*;
+
+/**
+ * Detects native memory leaks with low overhead, by tracking the reachability of the Java objects that own native memory.
+ *
+ * <p>When the {@link Configuration#LEAK_DETECTOR} option is enabled, the following allocations are tracked:</p>
+ * <ul>
+ * <li>buffers returned by the {@link MemoryUtil} explicit memory management API ({@code memAlloc}/{@code memCalloc}/{@code memRealloc}/
+ * {@code memAlignedAlloc}, etc)</li>
+ * <li>struct instances and struct buffers returned by the {@code malloc}/{@code calloc} methods of struct classes</li>
+ * <li>callback functions</li>
+ * </ul>
+ *
+ * <p>Each tracked allocation is associated with a phantom reference to the object that owns it. If the owner becomes unreachable before the memory is
+ * freed, the allocation is counted as a leak by a background daemon thread. The allocation site is recorded for one in
+ * {@link Configuration#LEAK_DETECTOR_SAMPLING} allocations, the site of a sampled leak is logged the first time a leak is detected from it. If
+ * {@link Configuration#LEAK_DETECTOR_RECLAIM} is enabled, the leaked memory is also freed.</p>
+ *
+ * <p>The native function of a callback holds a strong reference to its Java instance, so it cannot become unreachable. Callback functions are only counted
+ * while they are alive, a steadily increasing count indicates a leak.</p>
+ *
+ * <p>The owner of an allocation is the object returned by the allocation method. Memory that is accessed only through a view of that object (a slice,
+ * duplicate, or a struct instance created at the same address) is reported as a leak when the original object is collected.</p>
+ *
+ * <p>Tracked memory stops being tracked when it is freed or reallocated through the explicit memory management API, through the {@link MemoryAllocator}
+ * returned by {@link MemoryUtil#getAllocator}, or through the buffer overloads of the {@code LibCStdlib} and {@code JEmalloc} deallocation functions.
+ * Memory freed in any other way, e.g. by native code or with the unsafe {@code n}-prefixed functions, is reported as a leak when its owner is collected,
+ * and would be freed again if {@link Configuration#LEAK_DETECTOR_RECLAIM} is enabled.</p>
+ *
+ * <p>The statistics are available via {@link #getMetrics} and a JMX MBean, registered as {@code org.lwjgl:type=LeakDetector}.</p>
+ */
+public final class LeakDetector {
+
+    /** True if the {@link Configuration#LEAK_DETECTOR} option is enabled. */
+    public static final boolean ENABLED = Configuration.LEAK_DETECTOR.get(false);
+
+    private static final int SAMPLING = Configuration.LEAK_DETECTOR_SAMPLING.get(64);
+
+    private static final boolean RECLAIM = Configuration.LEAK_DETECTOR_RECLAIM.get(false);
+
+    /** The site of leaks that were not sampled. */
+    static final String UNKNOWN_SITE = "<not sampled>";
+
+    /** The type of a tracked allocation. */
+    enum Type {
+        MEMORY,
+        ALIGNED_MEMORY,
+        CALLBACK
+    }
+
+    private static final ConcurrentMap<Long, Tracker> TRACKED = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, AtomicLong> LEAK_SITES = new ConcurrentHashMap<>();
+
+    // Running totals of TRACKED, updated with each insertion and removal
+    private static final LongAdder TRACKED_COUNT  = new LongAdder();
+    private static final LongAdder TRACKED_BYTES  = new LongAdder();
+    private static final LongAdder LIVE_CALLBACKS = new LongAdder();
+
+    private static final AtomicLong LEAK_COUNT      = new AtomicLong();
+    private static final AtomicLong LEAKED_BYTES    = new AtomicLong();
+    private static final AtomicLong RECLAIMED_BYTES = new AtomicLong();
+
+    private static final Metrics METRICS = new Metrics();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(METRICS, new ObjectName("org.lwjgl:type=LeakDetector"));
+            } catch (Throwable t) {
+                if (Checks.DEBUG) {
+                    t.printStackTrace(DEBUG_STREAM);
+                }
+                apiLog("Warning: Failed to register the LeakDetector MBean.");
+            }
+        }
+    }
+
+    private LeakDetector() {
+    }
+
+    /** The statistics collected by the leak detector. All counters are cumulative, except for the tracked and live counts. */
+    public interface LeakDetectorMXBean {
+
+        /** Returns the number of memory allocations currently tracked. */
+        long getTrackedCount();
+        /** Returns the number of bytes currently tracked. */
+        long getTrackedBytes();
+        /** Returns the number of callback functions that have not been freed. */
+        long getLiveCallbackCount();
+
+        /** Returns the number of leaks detected. */
+        long getLeakCount();
+        /** Returns the number of bytes leaked. */
+        long getLeakedBytes();
+        /** Returns the number of leaked bytes that were freed by the leak detector. */
+        long getReclaimedBytes();
+
+        /** Returns the number of leaks detected, per allocation site. Leaks of allocations that were not sampled are counted under {@code <not sampled>}. */
+        Map<String, Long> getLeakSites();
+
+    }
+
+    /** Returns the statistics of the leak detector. The statistics are empty if the {@link Configuration#LEAK_DETECTOR} option is not enabled. */
+    public static LeakDetectorMXBean getMetrics() {
+        return METRICS;
+    }
+
+    private static final class Metrics implements LeakDetectorMXBean {
+
+        @Override public long getTrackedCount()      { return TRACKED_COUNT.sum(); }
+        @Override public long getTrackedBytes()      { return TRACKED_BYTES.sum(); }
+        @Override public long getLiveCallbackCount() { return LIVE_CALLBACKS.sum(); }
+
+        @Override public long getLeakCount()      { return LEAK_COUNT.get(); }
+        @Override public long getLeakedBytes()    { return LEAKED_BYTES.get(); }
+        @Override public long getReclaimedBytes() { return RECLAIMED_BYTES.get(); }
+
+        @Override
+        public Map<String, Long> getLeakSites() {
+            Map<String, Long> sites = new HashMap<>();
+            LEAK_SITES.forEach((site, count) -> sites.put(site, count.get()));
+            return sites;
+        }
+
+    }
+
+    /** The leak detector thread is only started if an allocation with an owner is tracked. */
+    private static final class Reaper {
+
+        static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+        static {
+            Thread thread = new Thread(Reaper::run, "LWJGL Leak Detector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private Reaper() {
+        }
+
+        private static void run() {
+            while (true) {
+                try {
+                    ((Tracker)QUEUE.remove()).leak();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable t) {
+                    t.printStackTrace(DEBUG_STREAM);
+                }
+            }
+        }
+
+    }
+
+    private static final class Tracker extends PhantomReference<Object> {
+
+        final long address;
+        final long size;
+        final Type type;
+
+        @Nullable
+        final Object[] stackTrace;
+
+        Tracker(@Nullable Object owner, long address, long size, Type type, @Nullable Object[] stackTrace) {
+            super(owner, owner == null ? null : Reaper.QUEUE);
+
+            this.address = address;
+            this.size = size;
+            this.type = type;
+            this.stackTrace = stackTrace;
+        }
+
+        void added() {
+            if (type == Type.CALLBACK) {
+                LIVE_CALLBACKS.increment();
+            } else {
+                TRACKED_COUNT.increment();
+                TRACKED_BYTES.add(size);
+            }
+        }
+
+        void removed() {
+            if (type == Type.CALLBACK) {
+                LIVE_CALLBACKS.decrement();
+            } else {
+                TRACKED_COUNT.decrement();
+                TRACKED_BYTES.add(-size);
+            }
+        }
+
+        void leak() {
+            // The memory may have been freed, or reallocated at the same address, before the owner was collected.
+            if (!TRACKED.remove(address, this)) {
+                return;
+            }
+            removed();
+
+            LEAK_COUNT.incrementAndGet();
+            LEAKED_BYTES.addAndGet(size);
+
+            String site = UNKNOWN_SITE;
+            StackTraceElement[] elements = null;
+            if (stackTrace != null) {
+                elements = stackWalkArray(stackTrace);
+                site = getSite(elements);
+            }
+
+            AtomicLong count = LEAK_SITES.get(site);
+            if (count == null) {
+                AtomicLong existing = LEAK_SITES.putIfAbsent(site, count = new AtomicLong());
+                if (existing != null) {
+                    count = existing;
+                } else if (elements != null) {
+                    StringBuilder message = new StringBuilder(256)
+                        .append("[LWJGL] ")
+                        .append(size)
+                        .append(" bytes leaked, allocated at:");
+                    for (StackTraceElement element : elements) {
+                        message.append("\n\tat ").append(element);
+                    }
+                    DEBUG_STREAM.println(message);
+                }
+            }
+            count.incrementAndGet();
+
+            if (RECLAIM) {
+                if (type == Type.ALIGNED_MEMORY) {
+                    nmemAlignedFree(address);
+                } else {
+                    nmemFree(address);
+                }
+                RECLAIMED_BYTES.addAndGet(size);
+            }
+        }
+
+    }
+
+    /** Returns the first stack frame outside of LWJGL. */
+    private static String getSite(StackTraceElement[] elements) {
+        for (StackTraceElement element : elements) {
+            if (!element.getClassName().startsWith("org.lwjgl.")) {
+                return element.toString();
+            }
+        }
+        return elements.length == 0 ? UNKNOWN_SITE : elements[0].toString();
+    }
+
+    private static boolean sample() {
+        return 0 < SAMPLING && (SAMPLING == 1 || ThreadLocalRandom.current().nextInt(SAMPLING) == 0);
+    }
+
+    /**
+     * Tracks a memory allocation.
+     *
+     * @param owner   the object that owns the memory, or null if it cannot become unreachable while the memory is in use
+     * @param address the memory address
+     * @param size    the allocation size, in bytes
+     * @param type    the allocation type
+     */
+    static void track(@Nullable Object owner, long address, long size, Type type) {
+        track(owner, address, size, type, sample());
+    }
+
+    static void track(@Nullable Object owner, long address, long size, Type type, boolean sample) {
+        if (address == NULL) {
+            return;
+        }
+
+        Tracker tracker = new Tracker(owner, address, size, type, sample ? stackWalkGetTrace() : null);
+        tracker.added();
+
+        tracker = TRACKED.put(address, tracker);
+        if (tracker != null) {
+            // The memory was freed without being untracked
+            tracker.removed();
+            tracker.clear();
+        }
+    }
+
+    /**
+     * Stops tracking a memory allocation that is about to be reallocated.
+     *
+     * @param address the memory address
+     *
+     * @return the tracking state, to be passed to {@link #endRealloc}
+     */
+    @Nullable
+    static Object beginRealloc(long address) {
+        if (address == NULL) {
+            return null;
+        }
+
+        Tracker tracker = TRACKED.remove(address);
+        if (tracker != null) {
+            tracker.removed();
+        }
+        return tracker;
+    }
+
+    /**
+     * Completes a reallocation started with {@link #beginRealloc}.
+     *
+     * @param state   the tracking state
+     * @param success false if the reallocation failed and the original memory is still valid
+     */
+    static void endRealloc(@Nullable Object state, boolean success) {
+        if (state == null) {
+            return;
+        }
+
+        Tracker tracker = (Tracker)state;
+        if (success) {
+            tracker.clear();
+        } else if (TRACKED.putIfAbsent(tracker.address, tracker) == null) {
+            tracker.added();
+        }
+    }
+
+    /**
+     * Stops tracking a memory allocation. Must be called before the memory is freed, or reallocated.
+     *
+     * <p>Used by bindings of deallocation functions, so that memory allocated with the explicit memory management API can be freed with them. Callers
+     * should check {@link #ENABLED} first.</p>
+     *
+     * @param address the memory address
+     */
+    public static void untrack(long address) {
+        if (address == NULL) {
+            return;
+        }
+
+        Tracker tracker = TRACKED.remove(address);
+        if (tracker != null) {
+            tracker.removed();
+            tracker.clear();
+        }
+    }
+
+    /**
+     * Moves the tracking of a memory allocation to the result of a reallocation. Must be called after the memory has been reallocated.
+     *
+     * <p>Used by bindings of reallocation functions, so that memory allocated with the explicit memory management API can be reallocated with them. If
+     * {@code address} is tracked, it stops being tracked and {@code result} is tracked instead. Nothing changes if the reallocation failed. Callers should
+     * check {@link #ENABLED} first.</p>
+     *
+     * @param address the memory address that was reallocated
+     * @param result  the address returned by the reallocation function
+     * @param size    the new allocation size, in bytes
+     */
+    public static void realloc(long address, long result, long size) {
+        if (address == NULL || (result == NULL && size != 0L)) {
+            return;
+        }
+
+        Tracker tracker = TRACKED.remove(address);
+        if (tracker != null) {
+            tracker.removed();
+            tracker.clear();
+            track(null, result, size, tracker.type);
+        }
+    }
+
+    /** Wraps the allocator of the explicit memory management API, so that all deallocations through it are untracked. */
+    static final class Allocator implements MemoryAllocator {
+
+        private final MemoryAllocator allocator;
+
+        Allocator(MemoryAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        @Override public long getMalloc()       { return allocator.getMalloc(); }
+        @Override public long getCalloc()       { return allocator.getCalloc(); }
+        @Override public long getRealloc()      { return allocator.getRealloc(); }
+        @Override public long getFree()         { return allocator.getFree(); }
+        @Override public long getAlignedAlloc() { return allocator.getAlignedAlloc(); }
+        @Override public long getAlignedFree()  { return allocator.getAlignedFree(); }
+
+        @Override
+        public long malloc(long size) {
+            return allocator.malloc(size);
+        }
+
+        @Override
+        public long calloc(long num, long size) {
+            return allocator.calloc(num, size);
+        }
+
+        @Override
+        public long realloc(long ptr, long size) {
+            Object state   = beginRealloc(ptr);
+            long   address = allocator.realloc(ptr, size);
+            endRealloc(state, address != NULL || size == 0L);
+            return address;
+        }
+
+        @Override
+        public void free(long ptr) {
+            untrack(ptr);
+            allocator.free(ptr);
+        }
+
+        @Override
+        public long aligned_alloc(long alignment, long size) {
+            return allocator.aligned_alloc(alignment, size);
+        }
+
+        @Override
+        public void aligned_free(long ptr) {
+            untrack(ptr);
+            allocator.aligned_free(ptr);
+        }
+
+    }
+
+}
@@ -159,12 +159,32 @@ public final class Library {
             return false;
         }
 
+        long t0 = System.nanoTime();
         load.accept(libFile.toAbsolutePath().toString());
         apiLog(String.format("\tLoaded from %s: %s", property, libFile));
+        logLoadTime(libName, t0);
         checkHash(context, libFile);
         return true;
     }
 
+    /**
+     * Extracts the specified shared libraries from the classpath, in parallel.
+     *
+     * <p>Libraries that are packed in JAR files are normally extracted one at a time, when they are first loaded. Calling this method early during
+     * application startup, with the names of all libraries the application is going to use, overlaps the extraction of missing or outdated libraries. It
+     * does not load the libraries. Libraries that are not found in the classpath are ignored.</p>
+     *
+     * @param context the class to use to discover the shared libraries in the classpath
+     * @param names   the library names. OS-specific prefixes and file extensions are optional.
+     */
+    public static void extract(Class<?> context, String... names) {
+        String[] libNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            libNames[i] = Platform.get().mapLibraryName(names[i]);
+        }
+        SharedLibraryLoader.extractAll(context, libNames);
+    }
+
     /** Calls {@link #loadNative(Class, String)} using {@code Library.class} as the context parameter. */
     public static SharedLibrary loadNative(String name) {
         return loadNative(Library.class, name);
@@ -326,8 +346,10 @@ public final class Library {
             return null;
         }
 
+        long          t0  = System.nanoTime();
         SharedLibrary lib = apiCreateLibrary(libFile.toString());
         apiLog(String.format("\tLoaded from %s: %s", property, libFile));
+        logLoadTime(libName, t0);
         checkHash(context, libFile);
         return lib;
     }
@@ -380,6 +402,12 @@ public final class Library {
         return null;
     }
 
+    private static void logLoadTime(String libName, long t0) {
+        if (Configuration.DEBUG_LOADER.get(false)) {
+            apiLog(String.format("\tLoad time for %s: %.3f ms", libName, (System.nanoTime() - t0) / 1e6));
+        }
+    }
+
     private static void printError(boolean bundledWithLWJGL) {
         DEBUG_STREAM.println(
             "[LWJGL] Failed to load a library. Possible solutions:\n" + (bundledWithLWJGL
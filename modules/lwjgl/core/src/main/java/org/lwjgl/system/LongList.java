@@ -0,0 +1,182 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.lwjgl.*;
+
+import java.nio.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.Pointer.*;
+
+/**
+ * An off-heap, growable list of {@code long} values.
+ *
+ * <p>The list contents can be passed to native functions without copying, using {@link #address()} or the {@link #buffer() LongBuffer} and
+ * {@link #pointerBuffer() PointerBuffer} views.</p>
+ *
+ * @see PrimitiveList
+ */
+public class LongList extends PrimitiveList {
+
+    /** Creates a new {@code LongList} with the default initial capacity. */
+    public LongList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code LongList}.
+     *
+     * @param initialCapacity the initial capacity of the list
+     */
+    public LongList(int initialCapacity) {
+        super(3, initialCapacity);
+    }
+
+    /**
+     * Appends the specified value to the end of this list.
+     *
+     * @param value the value to append
+     */
+    public void add(long value) {
+        memPutLong(nextAddress(), value);
+    }
+
+    /**
+     * Inserts the specified value at the specified index, shifting the subsequent elements.
+     *
+     * @param index the index at which the value will be inserted
+     * @param value the value to insert
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or greater than the list size
+     */
+    public void add(int index, long value) {
+        memPutLong(insertAddress(index), value);
+    }
+
+    /**
+     * Appends the elements of the specified array to the end of this list.
+     *
+     * @param values the values to append
+     */
+    public void addAll(long... values) {
+        int offset = size;
+        setSize(offset + values.length);
+        for (int i = 0; i < values.length; i++) {
+            memPutLong(address + ((long)(offset + i) << 3), values[i]);
+        }
+    }
+
+    /**
+     * Appends the remaining elements of the specified buffer to the end of this list.
+     *
+     * <p>The current {@code position} and {@code limit} of the specified {@code buffer} are not affected by this operation.</p>
+     *
+     * @param values the values to append
+     */
+    public void addAll(LongBuffer values) {
+        int offset = size;
+        setSize(offset + values.remaining());
+        memCopy(memAddress(values), address + ((long)offset << 3), Integer.toUnsignedLong(values.remaining()) << 3);
+    }
+
+    /**
+     * Returns the element at the specified index.
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public long get(int index) {
+        return memGetLong(address + ((long)checkIndex(index) << 3));
+    }
+
+    /**
+     * Replaces the element at the specified index.
+     *
+     * @return the previous element at the specified index
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public long set(int index, long value) {
+        long element = address + ((long)checkIndex(index) << 3);
+
+        long previous = memGetLong(element);
+        memPutLong(element, value);
+        return previous;
+    }
+
+    /**
+     * Removes the element at the specified index, shifting the subsequent elements.
+     *
+     * @return the removed element
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public long remove(int index) {
+        long value = get(index);
+        removeElement(index);
+        return value;
+    }
+
+    /**
+     * Removes the last element of this list.
+     *
+     * @return the removed element
+     *
+     * @throws IndexOutOfBoundsException If the list is empty
+     */
+    public long removeLast() {
+        long value = get(size - 1);
+        size--;
+        return value;
+    }
+
+    /** Returns the index of the first occurrence of the specified value in this list, or -1 if the list does not contain it. */
+    public int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (memGetLong(address + ((long)i << 3)) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns true if this list contains the specified value. */
+    public boolean contains(long value) {
+        return indexOf(value) != -1;
+    }
+
+    /**
+     * Returns a {@link LongBuffer} view of the elements of this list.
+     *
+     * <p>The buffer capacity is equal to the list size. The view is invalidated by any operation that increases the capacity of this list.</p>
+     */
+    public LongBuffer buffer() {
+        return memLongBuffer(address, size);
+    }
+
+    /**
+     * Returns a {@link PointerBuffer} view of the elements of this list.
+     *
+     * <p>The buffer capacity is equal to the list size. The view is invalidated by any operation that increases the capacity of this list.</p>
+     *
+     * @throws IllegalStateException if the pointer size is not 8 bytes
+     */
+    public PointerBuffer pointerBuffer() {
+        if (POINTER_SIZE != 8) {
+            throw new IllegalStateException("The pointer size is not 8 bytes.");
+        }
+        return memPointerBuffer(address, size);
+    }
+
+    /** Returns a new array with the elements of this list. */
+    public long[] toArray() {
+        long[] array = new long[size];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = memGetLong(address + ((long)i << 3));
+        }
+        return array;
+    }
+
+}
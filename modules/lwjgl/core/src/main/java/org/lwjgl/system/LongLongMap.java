@@ -0,0 +1,264 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * An off-heap hash map of {@code long} keys to {@code long} values.
+ *
+ * <p>This map uses open addressing with linear probing. Keys and values are stored in a single block of memory, allocated with the {@link MemoryUtil}
+ * explicit memory management API, that must be freed with {@link #free}. Removals shift the subsequent entries of a probe sequence back, so lookups never
+ * need to skip tombstones. The zero key is stored separately, it marks empty slots in the table.</p>
+ *
+ * <p>Instances of this class are not thread-safe.</p>
+ */
+public class LongLongMap implements NativeResource {
+
+    /** A callback that receives the entries of a {@code LongLongMap}. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final long defaultValue;
+
+    // Interleaved key/value pairs
+    private long table;
+    private int  mask;
+
+    private int size;
+
+    private boolean hasZeroKey;
+    private long    zeroValue;
+
+    /** Creates a new {@code LongLongMap} with the default initial capacity, that returns 0 for missing keys. */
+    public LongLongMap() {
+        this(DEFAULT_CAPACITY, 0L);
+    }
+
+    /**
+     * Creates a new {@code LongLongMap}.
+     *
+     * @param initialCapacity the number of entries the map can hold before its table is resized
+     * @param defaultValue    the value returned for missing keys
+     */
+    public LongLongMap(int initialCapacity, long defaultValue) {
+        if (initialCapacity < 0 || (1 << 29) < initialCapacity) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+
+        this.defaultValue = defaultValue;
+        allocate(MathUtil.mathRoundPoT(Math.max(initialCapacity + (initialCapacity / 3) + 1, 2)));
+    }
+
+    private void allocate(int slots) {
+        table = nmemCallocChecked(slots, 16);
+        mask = slots - 1;
+    }
+
+    private static int getSlot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+
+    private long slot(int index) {
+        return table + ((long)index << 4);
+    }
+
+    /** Returns the number of entries in this map. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if this map contains no entries. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Returns the value returned for missing keys. */
+    public long defaultValue() {
+        return defaultValue;
+    }
+
+    /** Returns true if this map contains the specified key. */
+    public boolean containsKey(long key) {
+        return key == 0L ? hasZeroKey : find(key) != -1;
+    }
+
+    /** Returns the value of the specified key, or the default value if the map does not contain the key. */
+    public long get(long key) {
+        if (key == 0L) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+
+        int index = find(key);
+        return index == -1 ? defaultValue : memGetLong(slot(index) + 8);
+    }
+
+    private int find(long key) {
+        if (table == NULL) {
+            return -1;
+        }
+        for (int i = getSlot(key, mask); ; i = (i + 1) & mask) {
+            long k = memGetLong(slot(i));
+            if (k == key) {
+                return i;
+            }
+            if (k == 0L) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @return the previous value of the key, or the default value if the map did not contain the key
+     */
+    public long put(long key, long value) {
+        if (key == 0L) {
+            long previous = hasZeroKey ? zeroValue : defaultValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+
+        if (table == NULL) {
+            allocate(DEFAULT_CAPACITY);
+        }
+        for (int i = getSlot(key, mask); ; i = (i + 1) & mask) {
+            long slot = slot(i);
+            long k    = memGetLong(slot);
+            if (k == key) {
+                long previous = memGetLong(slot + 8);
+                memPutLong(slot + 8, value);
+                return previous;
+            }
+            if (k == 0L) {
+                memPutLong(slot, key);
+                memPutLong(slot + 8, value);
+                if (++size * 4 > (mask + 1) * 3) {
+                    rehash((mask + 1) * 2);
+                }
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * Removes the specified key from this map.
+     *
+     * @return the value of the removed key, or the default value if the map did not contain the key
+     */
+    public long remove(long key) {
+        if (key == 0L) {
+            if (!hasZeroKey) {
+                return defaultValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+
+        int index = find(key);
+        if (index == -1) {
+            return defaultValue;
+        }
+
+        long value = memGetLong(slot(index) + 8);
+        shiftBack(index);
+        size--;
+        return value;
+    }
+
+    private void shiftBack(int hole) {
+        for (int i = (hole + 1) & mask; ; i = (i + 1) & mask) {
+            long slot = slot(i);
+            long key  = memGetLong(slot);
+            if (key == 0L) {
+                break;
+            }
+
+            // Move the entry to the hole, unless its home slot is cyclically in (hole, i]
+            int home = getSlot(key, mask);
+            if (hole <= i ? (home <= hole || i < home) : (home <= hole && i < home)) {
+                long dst = slot(hole);
+                memPutLong(dst, key);
+                memPutLong(dst + 8, memGetLong(slot + 8));
+                hole = i;
+            }
+        }
+        memPutLong(slot(hole), 0L);
+    }
+
+    private void rehash(int slots) {
+        long oldTable = table;
+        int  oldSlots = mask + 1;
+
+        allocate(slots);
+        for (int i = 0; i < oldSlots; i++) {
+            long slot = oldTable + ((long)i << 4);
+            long key  = memGetLong(slot);
+            if (key != 0L) {
+                int j = getSlot(key, mask);
+                while (memGetLong(slot(j)) != 0L) {
+                    j = (j + 1) & mask;
+                }
+                memPutLong(slot(j), key);
+                memPutLong(slot(j) + 8, memGetLong(slot + 8));
+            }
+        }
+
+        nmemFree(oldTable);
+    }
+
+    /** Performs the given action for each entry of this map, in no particular order. The map must not be modified by the action. */
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0L, zeroValue);
+        }
+        if (table == NULL) {
+            return;
+        }
+        for (int i = 0; i <= mask; i++) {
+            long slot = slot(i);
+            long key  = memGetLong(slot);
+            if (key != 0L) {
+                action.accept(key, memGetLong(slot + 8));
+            }
+        }
+    }
+
+    /** Removes all entries from this map. */
+    public void clear() {
+        if (table != NULL) {
+            memSet(table, 0, (long)(mask + 1) << 4);
+        }
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /** Frees the memory block of this map. The map is empty and can still be used after this method returns, a new block is allocated on demand. */
+    @Override
+    public void free() {
+        nmemFree(table);
+        table = NULL;
+        mask = 0;
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongMap[size=" + size + ", slots=" + (table == NULL ? 0 : mask + 1) + "]";
+    }
+
+}
@@ -26,6 +26,10 @@ final class MemoryAccess {
     }
 
     static MemoryAccessor getInstance() {
+        if ("jni".equals(Configuration.MEMORY_ACCESSOR.get())) {
+            return new MemoryAccessorJNI();
+        }
+
         MemoryAccessor accessor;
         try {
             // Depends on sun.misc.Unsafe
@@ -115,6 +119,13 @@ final class MemoryAccess {
         private static final long ADDRESS;
         private static final long CAPACITY;
 
+        // True if unaligned long access is supported by the architecture and is fast
+        private static final boolean UNALIGNED;
+
+        private static final long MEMSET_NATIVE_THRESHOLD  = Configuration.MEMSET_NATIVE_THRESHOLD.get(192);
+        private static final long MEMCOPY_JAVA_THRESHOLD   = Configuration.MEMCOPY_JAVA_THRESHOLD.get(64);
+        private static final long MEMCOPY_NATIVE_THRESHOLD = Configuration.MEMCOPY_NATIVE_THRESHOLD.get(384);
+
         static {
             ByteBuffer bb = ByteBuffer.allocateDirect(0).order(ByteOrder.nativeOrder());
 
@@ -126,6 +137,9 @@ final class MemoryAccess {
             FLOAT_BUFFER = bb.asFloatBuffer().getClass();
             DOUBLE_BUFFER = bb.asDoubleBuffer().getClass();
 
+            String arch = System.getProperty("os.arch");
+            UNALIGNED = "x86".equals(arch) || "i386".equals(arch) || "amd64".equals(arch) || "x86_64".equals(arch) || "aarch64".equals(arch);
+
             try {
                 UNSAFE = getUnsafeInstance();
 
@@ -232,31 +246,54 @@ final class MemoryAccess {
 
         // Returns a long where each byte is equal to value.
         private static long fill(byte value) {
-            long fill = value;
+            return (value & 0xFFL) * 0x0101010101010101L;
+        }
 
-            if (value != 0) {
-                fill |= fill << 8;
-                fill |= fill << 16;
-                fill |= fill << 32;
-            }
+        /*
+        The thresholds between the Java loops, Unsafe.copyMemory and the native functions can be tuned with the Configuration.MEMSET_NATIVE_THRESHOLD,
+        Configuration.MEMCOPY_JAVA_THRESHOLD and Configuration.MEMCOPY_NATIVE_THRESHOLD options. The defaults have been measured on x64 with the
+        org.lwjgl.benchmarks.MemCopyMatrixBench benchmark:
 
-            return fill;
-        }
+        - Unsafe.setMemory is very slow.
+        - A custom Java loop is fastest at small sizes, approximately up to 192 bytes for memSet and 64 bytes for memCopy.
+        - Unsafe.copyMemory is fastest at moderate sizes, approximately up to 384 bytes.
+        - The native functions become fastest at bigger sizes, when the JNI overhead becomes negligible.
+
+        On architectures that support unaligned access, the Java loops handle any alignment. The sizes up to 16 bytes are handled with two (possibly
+        overlapping) reads/writes, bigger sizes with a loop of 8-byte reads/writes and an overlapping write at the end. Otherwise, the Java loops are only used for 8-byte
+        aligned memCopy, and memSet uses read-modify-write for the unaligned head and tail.
+         */
 
         @Override
         public void memSet(long dst, int value, long bytes) {
-            /*
-            - Unsafe.setMemory is very slow.
-            - A custom Java loop is fastest at small sizes, approximately up to 192 bytes.
-            - The native memset becomes fastest at bigger sizes, when the JNI overhead becomes negligible.
-             */
-
             //UNSAFE.setMemory(dst, bytes, (byte)(value & 0xFF));
-            if (bytes < 192) {
-                memSetLoop(dst, (byte)(value & 0xFF), (int)bytes);
-            } else {
+            if (MEMSET_NATIVE_THRESHOLD <= bytes) {
                 nmemset(dst, value, bytes);
+            } else if (UNALIGNED) {
+                memSetUnaligned(dst, fill((byte)value), (int)bytes);
+            } else {
+                memSetLoop(dst, (byte)(value & 0xFF), (int)bytes);
+            }
+        }
+
+        private static void memSetUnaligned(long dst, long fill, int bytes) {
+            if (bytes < 8) {
+                if (4 <= bytes) {
+                    UNSAFE.putInt(dst, (int)fill);
+                    UNSAFE.putInt(dst + bytes - 4, (int)fill);
+                } else if (2 <= bytes) {
+                    UNSAFE.putShort(dst, (short)fill);
+                    UNSAFE.putShort(dst + bytes - 2, (short)fill);
+                } else if (bytes == 1) {
+                    UNSAFE.putByte(dst, (byte)fill);
+                }
+                return;
             }
+
+            for (int i = 0; i < bytes - 8; i += 8) {
+                UNSAFE.putLong(dst + i, fill);
+            }
+            UNSAFE.putLong(dst + bytes - 8, fill);
         }
 
         private void memSetLoop(long dst, byte value, int bytes) {
@@ -300,21 +337,65 @@ final class MemoryAccess {
 
         @Override
         public void memCopy(long src, long dst, long bytes) {
-            /*
-            - A custom Java loop is fastest at small sizes, approximately up to 64 bytes.
-            - Unsafe.copyMemory is fastest at moderate sizes, approximately up to 384 bytes.
-            - The native memcpy becomes fastest at bigger sizes, when the JNI overhead becomes negligible.
-             */
-
-            if (bytes < 64 && ((int)src & 7) == 0 && ((int)dst & 7) == 0) { // both src and dst must be aligned to 8 bytes
-                memCopyAligned(src, dst, (int)bytes);
-            } else if (bytes < 384) {
+            if (bytes < MEMCOPY_JAVA_THRESHOLD) {
+                if (UNALIGNED) {
+                    memCopyUnaligned(src, dst, (int)bytes);
+                    return;
+                }
+                if ((((int)src | (int)dst) & 7) == 0) { // both src and dst must be aligned to 8 bytes
+                    memCopyAligned(src, dst, (int)bytes);
+                    return;
+                }
+            }
+
+            if (bytes < MEMCOPY_NATIVE_THRESHOLD) {
                 UNSAFE.copyMemory(src, dst, bytes);
             } else {
                 nmemcpy(dst, src, bytes);
             }
         }
 
+        private static void memCopyUnaligned(long src, long dst, int bytes) {
+            // Up to 16 bytes, all reads happen before the writes, so overlapping ranges are copied correctly
+            if (bytes <= 16) {
+                if (8 <= bytes) {
+                    long head = UNSAFE.getLong(src);
+                    long tail = UNSAFE.getLong(src + bytes - 8);
+                    UNSAFE.putLong(dst, head);
+                    UNSAFE.putLong(dst + bytes - 8, tail);
+                } else if (4 <= bytes) {
+                    int head = UNSAFE.getInt(src);
+                    int tail = UNSAFE.getInt(src + bytes - 4);
+                    UNSAFE.putInt(dst, head);
+                    UNSAFE.putInt(dst + bytes - 4, tail);
+                } else if (2 <= bytes) {
+                    short head = UNSAFE.getShort(src);
+                    short tail = UNSAFE.getShort(src + bytes - 2);
+                    UNSAFE.putShort(dst, head);
+                    UNSAFE.putShort(dst + bytes - 2, tail);
+                } else if (bytes == 1) {
+                    UNSAFE.putByte(dst, UNSAFE.getByte(src));
+                }
+                return;
+            }
+
+            // Bigger sizes, the loop direction is chosen so that no source bytes are overwritten before they are read
+            if (Long.compareUnsigned(dst - src, bytes) < 0) {
+                // dst overlaps the end of src, copy backward
+                long head = UNSAFE.getLong(src);
+                for (int i = bytes - 8; 0 < i; i -= 8) {
+                    UNSAFE.putLong(dst + i, UNSAFE.getLong(src + i));
+                }
+                UNSAFE.putLong(dst, head);
+            } else {
+                long tail = UNSAFE.getLong(src + bytes - 8);
+                for (int i = 0; i < bytes - 8; i += 8) {
+                    UNSAFE.putLong(dst + i, UNSAFE.getLong(src + i));
+                }
+                UNSAFE.putLong(dst + bytes - 8, tail);
+            }
+        }
+
         private void memCopyAligned(long src, long dst, int bytes) {
             int i = 0;
 
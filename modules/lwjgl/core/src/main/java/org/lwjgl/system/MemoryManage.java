@@ -5,6 +5,8 @@
 package org.lwjgl.system;
 
 import javax.annotation.*;
+import javax.management.*;
+import java.lang.management.*;
 import java.util.*;
 import java.util.Map.*;
 import java.util.concurrent.*;
@@ -21,8 +23,20 @@ final class MemoryManage {
     private MemoryManage() {
     }
 
+    /** Returns the allocator that native code can use. For the <em>cached</em> option, the default allocator that backs the cache. */
     static MemoryAllocator getInstance() {
         Object allocator = Configuration.MEMORY_ALLOCATOR.get();
+        return getInstance("cached".equals(allocator) ? null : allocator);
+    }
+
+    /** Returns a {@link CachingAllocator} on top of the specified allocator, if the <em>cached</em> option is enabled. */
+    static MemoryAllocator getCached(MemoryAllocator allocator) {
+        return "cached".equals(Configuration.MEMORY_ALLOCATOR.get())
+            ? new CachingAllocator(allocator, Configuration.MEMORY_ALLOCATOR_CACHE_SIZE.get(256) * 1024L)
+            : allocator;
+    }
+
+    private static MemoryAllocator getInstance(@Nullable Object allocator) {
         if (allocator instanceof MemoryAllocator) {
             return (MemoryAllocator)allocator;
         }
@@ -70,11 +84,432 @@ final class MemoryManage {
 
     }
 
+    static class Allocation {
+
+        private final Object[] stackTrace;
+
+        @Nullable
+        private StackTraceElement[] elements; // lazy init
+
+        final long size;
+        final long threadId;
+
+        Allocation(Object[] stackTrace, long size) {
+            this.stackTrace = stackTrace;
+            this.size = size;
+            this.threadId = Thread.currentThread().getId();
+        }
+
+        Allocation(StackTraceElement[] elements, long size, long threadId) {
+            this.stackTrace = elements;
+            this.elements = elements;
+            this.size = size;
+            this.threadId = threadId;
+        }
+
+        private StackTraceElement[] getElements() {
+            if (elements == null) {
+                elements = stackWalkArray(stackTrace);
+            }
+
+            return elements;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Allocation that = (Allocation)o;
+
+            return Arrays.equals(this.getElements(), that.getElements());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(getElements());
+        }
+
+    }
+
+    static void report(Collection<? extends Allocation> allocations, Map<Long, String> threads, MemoryAllocationReport report) {
+        for (Allocation allocation : allocations) {
+            report.invoke(allocation.size, allocation.threadId, threads.get(allocation.threadId), allocation.getElements());
+        }
+    }
+
+    private static <T> void aggregate(T t, long size, Map<T, AtomicLong> map) {
+        AtomicLong node = map.computeIfAbsent(t, k -> new AtomicLong());
+        node.set(node.get() + size);
+    }
+
+    static void report(
+        Collection<? extends Allocation> allocations,
+        Map<Long, String> threads,
+        MemoryAllocationReport report,
+        MemoryAllocationReport.Aggregate groupByStackTrace,
+        boolean groupByThread
+    ) {
+        // Using atomic long for the mutability, no concurrency here
+        switch (groupByStackTrace) {
+            case ALL:
+                if (groupByThread) {
+                    Map<Long, AtomicLong> mapThread = new HashMap<>();
+                    for (Allocation allocation : allocations) {
+                        aggregate(allocation.threadId, allocation.size, mapThread);
+                    }
+                    for (Entry<Long, AtomicLong> entry : mapThread.entrySet()) {
+                        report.invoke(entry.getValue().get(), entry.getKey(), threads.get(entry.getKey()), (StackTraceElement[])null);
+                    }
+                } else {
+                    long total = 0L;
+                    for (Allocation allocation : allocations) {
+                        total += allocation.size;
+                    }
+                    report.invoke(total, NULL, null, (StackTraceElement[])null);
+                }
+                break;
+            case GROUP_BY_METHOD:
+                // Group by stackTrace[0]
+                if (groupByThread) {
+                    Map<Long, Map<StackTraceElement, AtomicLong>> mapThreadMethod = new HashMap<>();
+                    for (Allocation allocation : allocations) {
+                        Map<StackTraceElement, AtomicLong> mapMethod = mapThreadMethod.computeIfAbsent(allocation.threadId, k -> new HashMap<>());
+                        aggregate(allocation.getElements()[0], allocation.size, mapMethod);
+                    }
+
+                    for (Entry<Long, Map<StackTraceElement, AtomicLong>> tms : mapThreadMethod.entrySet()) {
+                        long                               threadId     = tms.getKey();
+                        Map<StackTraceElement, AtomicLong> mapmapMethod = tms.getValue();
+
+                        for (Entry<StackTraceElement, AtomicLong> ms : mapmapMethod.entrySet()) {
+                            report.invoke(ms.getValue().get(), threadId, threads.get(threadId), ms.getKey());
+                        }
+                    }
+                } else {
+                    Map<StackTraceElement, AtomicLong> mapMethod = new HashMap<>();
+                    for (Allocation allocation : allocations) {
+                        aggregate(allocation.getElements()[0], allocation.size, mapMethod);
+                    }
+                    for (Entry<StackTraceElement, AtomicLong> ms : mapMethod.entrySet()) {
+                        report.invoke(ms.getValue().get(), NULL, null, ms.getKey());
+                    }
+                }
+                break;
+            case GROUP_BY_STACKTRACE:
+                // Group by stackTrace[]
+                if (groupByThread) {
+                    Map<Long, Map<Allocation, AtomicLong>> mapThreadStackTrace = new HashMap<>();
+                    for (Allocation allocation : allocations) {
+                        Map<Allocation, AtomicLong> mapStackTrace = mapThreadStackTrace.computeIfAbsent(allocation.threadId, k -> new HashMap<>());
+                        aggregate(allocation, allocation.size, mapStackTrace);
+                    }
+
+                    for (Entry<Long, Map<Allocation, AtomicLong>> tss : mapThreadStackTrace.entrySet()) {
+                        long                        threadId      = tss.getKey();
+                        Map<Allocation, AtomicLong> mapStackTrace = tss.getValue();
+
+                        for (Entry<Allocation, AtomicLong> ss : mapStackTrace.entrySet()) {
+                            report.invoke(ss.getValue().get(), threadId, threads.get(threadId), ss.getKey().getElements());
+                        }
+                    }
+                } else {
+                    Map<Allocation, AtomicLong> mapStackTrace = new HashMap<>();
+                    for (Allocation allocation : allocations) {
+                        aggregate(allocation, allocation.size, mapStackTrace);
+                    }
+                    for (Entry<Allocation, AtomicLong> ss : mapStackTrace.entrySet()) {
+                        report.invoke(ss.getValue().get(), NULL, null, ss.getKey().getElements());
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * A hash table of live allocations, keyed by address.
+     *
+     * <p>The table is split into independently locked stripes. Each stripe is an open-addressing table with linear probing, stored in primitive arrays, so
+     * tracking an allocation does not allocate on the Java heap.</p>
+     */
+    static final class AllocationTable {
+
+        private static final int STRIPE_BITS = 6;
+
+        private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+        AllocationTable() {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        private static long hash(long address) {
+            return address * 0x9E3779B97F4A7C15L;
+        }
+
+        private Stripe getStripe(long address) {
+            // The high bits select the stripe, the next bits select the slot in the stripe
+            return stripes[(int)(hash(address) >>> (64 - STRIPE_BITS))];
+        }
+
+        /**
+         * Adds an allocation to the table.
+         *
+         * @return false if the address is already in the table
+         */
+        boolean put(long address, long size, long threadId, int traceId) {
+            Stripe stripe = getStripe(address);
+            synchronized (stripe) {
+                return stripe.put(address, size, threadId, traceId);
+            }
+        }
+
+        /**
+         * Removes an allocation from the table.
+         *
+         * @return the allocation size, or -1 if the address is not in the table
+         */
+        long remove(long address) {
+            Stripe stripe = getStripe(address);
+            synchronized (stripe) {
+                return stripe.remove(address);
+            }
+        }
+
+        boolean isEmpty() {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    if (stripe.count != 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Visits all allocations. Each stripe is locked while its allocations are visited. */
+        void forEach(Visitor visitor) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (int i = 0; i < stripe.keys.length; i++) {
+                        long address = stripe.keys[i];
+                        if (address != NULL) {
+                            visitor.visit(address, stripe.sizes[i], stripe.threads[i], stripe.traces[i]);
+                        }
+                    }
+                }
+            }
+        }
+
+        interface Visitor {
+            void visit(long address, long size, long threadId, int traceId);
+        }
+
+        private static final class Stripe {
+
+            private static final int INITIAL_CAPACITY = 64;
+
+            // NULL is the empty key
+            long[] keys    = new long[INITIAL_CAPACITY];
+            long[] sizes   = new long[INITIAL_CAPACITY];
+            long[] threads = new long[INITIAL_CAPACITY];
+            int[]  traces  = new int[INITIAL_CAPACITY];
+
+            int count;
+
+            private static int getSlot(long address, int mask) {
+                return (int)(hash(address) >>> (32 - STRIPE_BITS)) & mask;
+            }
+
+            boolean put(long address, long size, long threadId, int traceId) {
+                if (keys.length * 3 / 4 <= count) {
+                    resize();
+                }
+
+                int mask = keys.length - 1;
+                int i    = getSlot(address, mask);
+                for (long key; (key = keys[i]) != NULL; i = (i + 1) & mask) {
+                    if (key == address) {
+                        return false;
+                    }
+                }
+
+                keys[i] = address;
+                sizes[i] = size;
+                threads[i] = threadId;
+                traces[i] = traceId;
+                count++;
+
+                return true;
+            }
+
+            long remove(long address) {
+                int mask = keys.length - 1;
+                int i    = getSlot(address, mask);
+                for (long key; (key = keys[i]) != address; i = (i + 1) & mask) {
+                    if (key == NULL) {
+                        return -1L;
+                    }
+                }
+
+                long size = sizes[i];
+
+                // Backward shift deletion
+                for (int j = (i + 1) & mask; ; j = (j + 1) & mask) {
+                    long key = keys[j];
+                    if (key == NULL) {
+                        break;
+                    }
+
+                    int home = getSlot(key, mask);
+                    if (((j - home) & mask) < ((j - i) & mask)) {
+                        continue;
+                    }
+
+                    keys[i] = key;
+                    sizes[i] = sizes[j];
+                    threads[i] = threads[j];
+                    traces[i] = traces[j];
+                    i = j;
+                }
+
+                keys[i] = NULL;
+                count--;
+
+                return size;
+            }
+
+            private void resize() {
+                long[] oldKeys    = keys;
+                long[] oldSizes   = sizes;
+                long[] oldThreads = threads;
+                int[]  oldTraces  = traces;
+
+                int capacity = oldKeys.length << 1;
+
+                keys = new long[capacity];
+                sizes = new long[capacity];
+                threads = new long[capacity];
+                traces = new int[capacity];
+                count = 0;
+
+                for (int i = 0; i < oldKeys.length; i++) {
+                    long key = oldKeys[i];
+                    if (key != NULL) {
+                        put(key, oldSizes[i], oldThreads[i], oldTraces[i]);
+                    }
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * Deduplicates allocation stacktraces. Each distinct stacktrace is stored once and identified by an integer id.
+     *
+     * <p>Stacktraces are interned in the raw form returned by the stack walker, compared by class, method and bytecode index. The conversion to
+     * {@link StackTraceElement}, which is much more expensive, happens once per distinct stacktrace and only when it is reported.</p>
+     */
+    static final class StackTraceTable {
+
+        private final ConcurrentMap<Trace, Integer> ids = new ConcurrentHashMap<>();
+
+        private volatile Trace[] traces = new Trace[256];
+
+        private int count;
+
+        int intern(Object[] stackTrace) {
+            Trace key = new Trace(stackTrace);
+
+            Integer id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+
+            synchronized (this) {
+                id = ids.get(key);
+                if (id == null) {
+                    Trace[] traces = this.traces;
+                    if (count == traces.length) {
+                        traces = Arrays.copyOf(traces, count * 3 / 2);
+                    }
+                    traces[count] = key;
+                    this.traces = traces;
+
+                    id = count++;
+                    ids.put(key, id);
+                }
+                return id;
+            }
+        }
+
+        StackTraceElement[] get(int id) {
+            return traces[id].getElements();
+        }
+
+        private static final class Trace {
+
+            private final Object[] stackTrace;
+            private final int      hash;
+
+            @Nullable
+            private StackTraceElement[] elements; // lazy init
+
+            Trace(Object[] stackTrace) {
+                this.stackTrace = stackTrace;
+                this.hash = stackWalkHashCode(stackTrace);
+            }
+
+            StackTraceElement[] getElements() {
+                if (elements == null) {
+                    elements = stackWalkArray(stackTrace);
+                }
+
+                return elements;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) {
+                    return true;
+                }
+                if (!(o instanceof Trace)) {
+                    return false;
+                }
+
+                Trace that = (Trace)o;
+
+                return hash == that.hash && stackWalkEquals(stackTrace, that.stackTrace);
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+        }
+
+    }
+
     /** Wraps a MemoryAllocator to track allocations and detect memory leaks. */
     static class DebugAllocator implements MemoryAllocator {
 
-        private static final ConcurrentMap<Long, Allocation> ALLOCATIONS = new ConcurrentHashMap<>();
-        private static final ConcurrentMap<Long, String>     THREADS     = new ConcurrentHashMap<>();
+        private static final AllocationTable            ALLOCATIONS = new AllocationTable();
+        private static final StackTraceTable            TRACES      = new StackTraceTable();
+        private static final ConcurrentMap<Long, String> THREADS    = new ConcurrentHashMap<>();
+
+        // Registers the name of each thread, on its first allocation.
+        private static final ThreadLocal<Thread> THREAD = ThreadLocal.withInitial(() -> {
+            Thread t = Thread.currentThread();
+            THREADS.put(t.getId(), t.getName());
+            return t;
+        });
 
         private final MemoryAllocator allocator;
 
@@ -86,21 +521,18 @@ final class MemoryManage {
                     return;
                 }
 
-                for (Entry<Long, Allocation> entry : ALLOCATIONS.entrySet()) {
-                    Long       address    = entry.getKey();
-                    Allocation allocation = entry.getValue();
-
+                ALLOCATIONS.forEach((address, size, threadId, traceId) -> {
                     DEBUG_STREAM.format(
                         "[LWJGL] %d bytes leaked, thread %d (%s), address: 0x%s\n",
-                        allocation.size,
-                        allocation.threadId,
-                        THREADS.get(allocation.threadId),
+                        size,
+                        threadId,
+                        THREADS.get(threadId),
                         Long.toHexString(address).toUpperCase()
                     );
-                    for (Object el : allocation.stackTrace) {
+                    for (StackTraceElement el : TRACES.get(traceId)) {
                         DEBUG_STREAM.format("\tat %s\n", el.toString());
                     }
-                }
+                });
             }));
         }
 
@@ -167,14 +599,10 @@ final class MemoryManage {
 
         static long track(long address, long size) {
             if (address != NULL) {
-                Thread t        = Thread.currentThread();
-                Long   threadId = t.getId();
-                if (!THREADS.containsKey(threadId)) {
-                    THREADS.put(threadId, t.getName());
-                }
+                long threadId = THREAD.get().getId();
+                int  traceId  = TRACES.intern(stackWalkGetTrace());
 
-                Allocation allocation = ALLOCATIONS.put(address, new Allocation(stackWalkGetTrace(), size));
-                if (allocation != null) {
+                if (!ALLOCATIONS.put(address, size, threadId, traceId)) {
                     throw new IllegalStateException("The memory address specified is already being tracked");
                 }
             }
@@ -187,151 +615,834 @@ final class MemoryManage {
                 return 0L;
             }
 
-            Allocation allocation = ALLOCATIONS.remove(address);
-            if (allocation == null) {
+            long size = ALLOCATIONS.remove(address);
+            if (size < 0L) {
                 throw new IllegalStateException("The memory address specified is not being tracked");
             }
 
-            return allocation.size;
+            return size;
         }
 
-        private static class Allocation {
+        private static List<Allocation> getAllocations() {
+            List<Allocation> allocations = new ArrayList<>();
+            ALLOCATIONS.forEach((address, size, threadId, traceId) -> allocations.add(new Allocation(TRACES.get(traceId), size, threadId)));
+            return allocations;
+        }
 
-            private final Object[] stackTrace;
+        static void report(MemoryAllocationReport report) {
+            MemoryManage.report(getAllocations(), THREADS, report);
+        }
 
-            @Nullable
-            private StackTraceElement[] elements; // lazy init
+        static void report(
+            MemoryAllocationReport report,
+            MemoryAllocationReport.Aggregate groupByStackTrace,
+            boolean groupByThread
+        ) {
+            MemoryManage.report(getAllocations(), THREADS, report, groupByStackTrace, groupByThread);
+        }
 
-            final long size;
-            final long threadId;
+    }
 
-            Allocation(Object[] stackTrace, long size) {
-                this.stackTrace = stackTrace;
-                this.size = size;
-                this.threadId = Thread.currentThread().getId();
-            }
+    /**
+     * Wraps a MemoryAllocator to profile allocations with low overhead.
+     *
+     * <p>Allocation counts and sizes are always counted, per thread and per size class. Live memory is estimated by sampling allocations as a Poisson process
+     * over allocated bytes, with a mean interval of {@code interval} bytes. Only sampled allocations are tracked and generate a stacktrace, each one weighted
+     * by the number of bytes it represents.</p>
+     */
+    static class SamplingAllocator implements MemoryAllocator, SamplingAllocatorMXBean {
 
-            private StackTraceElement[] getElements() {
-                if (elements == null) {
-                    elements = stackWalkArray(stackTrace);
-                }
+        static final int SIZE_CLASSES = 24;
 
-                return elements;
-            }
+        // Must be a power-of-two
+        private static final int FILTER_SIZE = 1 << 16;
 
-            @Override
-            public boolean equals(Object o) {
-                if (this == o) {
-                    return true;
-                }
-                if (o == null || getClass() != o.getClass()) {
-                    return false;
-                }
+        private final MemoryAllocator allocator;
 
-                Allocation that = (Allocation)o;
+        private final long interval;
 
-                return Arrays.equals(this.getElements(), that.getElements());
-            }
+        private final ThreadLocal<ThreadStats> threadStats = ThreadLocal.withInitial(this::createThreadStats);
 
-            @Override
-            public int hashCode() {
-                return Arrays.hashCode(getElements());
-            }
+        private final Queue<ThreadStats> threads = new ConcurrentLinkedQueue<>();
 
-        }
+        private final ConcurrentMap<Long, Sample> samples = new ConcurrentHashMap<>();
 
-        static void report(MemoryAllocationReport report) {
-            for (Allocation allocation : ALLOCATIONS.values()) {
-                report.invoke(allocation.size, allocation.threadId, THREADS.get(allocation.threadId), allocation.getElements());
+        // Counting filter over the addresses of live samples. Used to avoid the sample lookup on most frees.
+        private final AtomicIntegerArray samplesFilter = new AtomicIntegerArray(FILTER_SIZE);
+
+        private final AtomicLongArray sizeClassLive = new AtomicLongArray(SIZE_CLASSES);
+
+        private final AtomicLong sampleCount = new AtomicLong();
+
+        // Counters of terminated threads
+        private final AtomicLongArray retiredAllocCount = new AtomicLongArray(SIZE_CLASSES);
+        private final AtomicLongArray retiredAllocBytes = new AtomicLongArray(SIZE_CLASSES);
+        private final AtomicLong      retiredFreeCount  = new AtomicLong();
+
+        SamplingAllocator(MemoryAllocator allocator, long interval) {
+            if (interval <= 0L) {
+                throw new IllegalArgumentException("Invalid sampling interval: " + interval);
             }
+
+            this.allocator = allocator;
+            this.interval = interval;
         }
 
-        private static <T> void aggregate(T t, long size, Map<T, AtomicLong> map) {
-            AtomicLong node = map.computeIfAbsent(t, k -> new AtomicLong());
-            node.set(node.get() + size);
+        private ThreadStats createThreadStats() {
+            reclaim();
+
+            ThreadStats stats = new ThreadStats(Thread.currentThread(), nextSample());
+            threads.add(stats);
+            return stats;
         }
 
-        static void report(
-            MemoryAllocationReport report,
-            MemoryAllocationReport.Aggregate groupByStackTrace,
-            boolean groupByThread
-        ) {
-            // Using atomic long for the mutability, no concurrency here
-            switch (groupByStackTrace) {
-                case ALL:
-                    if (groupByThread) {
-                        Map<Long, AtomicLong> mapThread = new HashMap<>();
-                        for (Allocation allocation : ALLOCATIONS.values()) {
-                            aggregate(allocation.threadId, allocation.size, mapThread);
-                        }
-                        for (Entry<Long, AtomicLong> entry : mapThread.entrySet()) {
-                            report.invoke(entry.getValue().get(), entry.getKey(), THREADS.get(entry.getKey()), (StackTraceElement[])null);
-                        }
-                    } else {
-                        long total = 0L;
-                        for (Allocation allocation : ALLOCATIONS.values()) {
-                            total += allocation.size;
-                        }
-                        report.invoke(total, NULL, null, (StackTraceElement[])null);
+        /** Folds the counters of terminated threads into the retired totals. */
+        private void reclaim() {
+            for (ThreadStats stats : threads) {
+                // The counters of a terminated thread are final, remove succeeds for a single caller
+                if (!stats.thread.isAlive() && threads.remove(stats)) {
+                    for (int i = 0; i < SIZE_CLASSES; i++) {
+                        retiredAllocCount.addAndGet(i, stats.allocCount[i]);
+                        retiredAllocBytes.addAndGet(i, stats.allocBytes[i]);
                     }
-                    break;
-                case GROUP_BY_METHOD:
-                    // Group by stackTrace[0]
-                    if (groupByThread) {
-                        Map<Long, Map<StackTraceElement, AtomicLong>> mapThreadMethod = new HashMap<>();
-                        for (Allocation allocation : ALLOCATIONS.values()) {
-                            Map<StackTraceElement, AtomicLong> mapMethod = mapThreadMethod.computeIfAbsent(allocation.threadId, k -> new HashMap<>());
-                            aggregate(allocation.getElements()[0], allocation.size, mapMethod);
-                        }
+                    retiredFreeCount.addAndGet(stats.freeCount);
+                }
+            }
+        }
 
-                        for (Entry<Long, Map<StackTraceElement, AtomicLong>> tms : mapThreadMethod.entrySet()) {
-                            long                               threadId     = tms.getKey();
-                            Map<StackTraceElement, AtomicLong> mapmapMethod = tms.getValue();
+        @Override public long getMalloc()       { return allocator.getMalloc(); }
+        @Override public long getCalloc()       { return allocator.getCalloc(); }
+        @Override public long getRealloc()      { return allocator.getRealloc(); }
+        @Override public long getFree()         { return allocator.getFree(); }
+        @Override public long getAlignedAlloc() { return allocator.getAlignedAlloc(); }
+        @Override public long getAlignedFree()  { return allocator.getAlignedFree(); }
 
-                            for (Entry<StackTraceElement, AtomicLong> ms : mapmapMethod.entrySet()) {
-                                report.invoke(ms.getValue().get(), threadId, THREADS.get(threadId), ms.getKey());
-                            }
-                        }
-                    } else {
-                        Map<StackTraceElement, AtomicLong> mapMethod = new HashMap<>();
-                        for (Allocation allocation : ALLOCATIONS.values()) {
-                            aggregate(allocation.getElements()[0], allocation.size, mapMethod);
-                        }
-                        for (Entry<StackTraceElement, AtomicLong> ms : mapMethod.entrySet()) {
-                            report.invoke(ms.getValue().get(), NULL, null, ms.getKey());
-                        }
-                    }
-                    break;
-                case GROUP_BY_STACKTRACE:
-                    // Group by stackTrace[]
-                    if (groupByThread) {
-                        Map<Long, Map<Allocation, AtomicLong>> mapThreadStackTrace = new HashMap<>();
-                        for (Allocation allocation : ALLOCATIONS.values()) {
-                            Map<Allocation, AtomicLong> mapStackTrace = mapThreadStackTrace.computeIfAbsent(allocation.threadId, k -> new HashMap<>());
-                            aggregate(allocation, allocation.size, mapStackTrace);
-                        }
+        @Override public long malloc(long size) {
+            return track(allocator.malloc(size), size);
+        }
 
-                        for (Entry<Long, Map<Allocation, AtomicLong>> tss : mapThreadStackTrace.entrySet()) {
-                            long                        threadId      = tss.getKey();
-                            Map<Allocation, AtomicLong> mapStackTrace = tss.getValue();
+        @Override
+        public long calloc(long num, long size) {
+            return track(allocator.calloc(num, size), num * size);
+        }
 
-                            for (Entry<Allocation, AtomicLong> ss : mapStackTrace.entrySet()) {
-                                report.invoke(ss.getValue().get(), threadId, THREADS.get(threadId), ss.getKey().getElements());
-                            }
-                        }
-                    } else {
-                        Map<Allocation, AtomicLong> mapStackTrace = new HashMap<>();
-                        for (Allocation allocation : ALLOCATIONS.values()) {
-                            aggregate(allocation, allocation.size, mapStackTrace);
-                        }
-                        for (Entry<Allocation, AtomicLong> ss : mapStackTrace.entrySet()) {
-                            report.invoke(ss.getValue().get(), NULL, null, ss.getKey().getElements());
-                        }
+        @Override
+        public long realloc(long ptr, long size) {
+            long address = allocator.realloc(ptr, size);
+
+            if (address != NULL) {
+                untrack(ptr);
+                track(address, size);
+            } else if (size == 0L) {
+                untrack(ptr);
+            }
+
+            return address;
+        }
+
+        @Override
+        public void free(long ptr) {
+            untrack(ptr);
+            allocator.free(ptr);
+        }
+
+        @Override
+        public long aligned_alloc(long alignment, long size) {
+            return track(allocator.aligned_alloc(alignment, size), size);
+        }
+
+        @Override
+        public void aligned_free(long ptr) {
+            untrack(ptr);
+            allocator.aligned_free(ptr);
+        }
+
+        static int getSizeClass(long size) {
+            // [0, 16], (16, 32], (32, 64], ...
+            return Math.min(Math.max(0, 64 - Long.numberOfLeadingZeros(size - 1) - 4), SIZE_CLASSES - 1);
+        }
+
+        private static int getFilterIndex(long address) {
+            return (int)((address * 0x9E3779B97F4A7C15L) >>> (64 - 16));
+        }
+
+        private long nextSample() {
+            return (long)(-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * interval);
+        }
+
+        private long track(long address, long size) {
+            if (address != NULL) {
+                ThreadStats stats = threadStats.get();
+
+                int sizeClass = getSizeClass(size);
+                stats.allocCount[sizeClass]++;
+                stats.allocBytes[sizeClass] += size;
+
+                if ((stats.bytesUntilSample -= size) < 0L) {
+                    sample(stats, address, size, sizeClass);
+                }
+            }
+
+            return address;
+        }
+
+        private void sample(ThreadStats stats, long address, long size, int sizeClass) {
+            stats.bytesUntilSample = nextSample();
+
+            // An allocation of size s is sampled with probability 1 - exp(-s / interval).
+            long weight = (long)(size / -Math.expm1(-(double)size / interval));
+
+            Sample sample = new Sample(stackWalkGetTrace(), weight, sizeClass, stats);
+            if (samples.put(address, sample) != null) {
+                throw new IllegalStateException("The memory address specified is already being tracked");
+            }
+            samplesFilter.incrementAndGet(getFilterIndex(address));
+
+            sizeClassLive.addAndGet(sizeClass, weight);
+            sampleCount.incrementAndGet();
+        }
+
+        private void untrack(long address) {
+            if (address == NULL) {
+                return;
+            }
+
+            threadStats.get().freeCount++;
+
+            int filterIndex = getFilterIndex(address);
+            if (samplesFilter.get(filterIndex) == 0) {
+                return;
+            }
+
+            Sample sample = samples.remove(address);
+            if (sample != null) {
+                samplesFilter.decrementAndGet(filterIndex);
+
+                sizeClassLive.addAndGet(sample.sizeClass, -sample.size);
+            }
+        }
+
+        void register() {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("org.lwjgl:type=SamplingAllocator"));
+            } catch (Throwable t) {
+                if (Checks.DEBUG) {
+                    t.printStackTrace(DEBUG_STREAM);
+                }
+                apiLog("Warning: Failed to register the SamplingAllocator MBean.");
+            }
+        }
+
+        private Map<Long, String> getThreadNames() {
+            Map<Long, String> names = new HashMap<>();
+            for (Sample sample : samples.values()) {
+                names.put(sample.stats.threadId, sample.stats.threadName);
+            }
+            return names;
+        }
+
+        void report(MemoryAllocationReport report) {
+            MemoryManage.report(samples.values(), getThreadNames(), report);
+        }
+
+        void report(
+            MemoryAllocationReport report,
+            MemoryAllocationReport.Aggregate groupByStackTrace,
+            boolean groupByThread
+        ) {
+            MemoryManage.report(samples.values(), getThreadNames(), report, groupByStackTrace, groupByThread);
+        }
+
+        @Override
+        public long getSamplingInterval() {
+            return interval;
+        }
+
+        @Override
+        public long getSampleCount() {
+            return sampleCount.get();
+        }
+
+        @Override
+        public long getAllocationCount() {
+            reclaim();
+
+            long count = 0L;
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                count += retiredAllocCount.get(i);
+            }
+            for (ThreadStats stats : threads) {
+                for (int i = 0; i < SIZE_CLASSES; i++) {
+                    count += stats.allocCount[i];
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            reclaim();
+
+            long bytes = 0L;
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                bytes += retiredAllocBytes.get(i);
+            }
+            for (ThreadStats stats : threads) {
+                for (int i = 0; i < SIZE_CLASSES; i++) {
+                    bytes += stats.allocBytes[i];
+                }
+            }
+            return bytes;
+        }
+
+        @Override
+        public long getFreeCount() {
+            reclaim();
+
+            long count = retiredFreeCount.get();
+            for (ThreadStats stats : threads) {
+                count += stats.freeCount;
+            }
+            return count;
+        }
+
+        @Override
+        public long getLiveBytes() {
+            long bytes = 0L;
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                bytes += sizeClassLive.get(i);
+            }
+            return bytes;
+        }
+
+        @Override
+        public long[] getSizeClassLimits() {
+            long[] limits = new long[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES - 1; i++) {
+                limits[i] = 16L << i;
+            }
+            limits[SIZE_CLASSES - 1] = Long.MAX_VALUE;
+            return limits;
+        }
+
+        @Override
+        public long[] getSizeClassAllocationCounts() {
+            reclaim();
+
+            long[] counts = new long[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                counts[i] = retiredAllocCount.get(i);
+            }
+            for (ThreadStats stats : threads) {
+                for (int i = 0; i < SIZE_CLASSES; i++) {
+                    counts[i] += stats.allocCount[i];
+                }
+            }
+            return counts;
+        }
+
+        @Override
+        public long[] getSizeClassAllocatedBytes() {
+            reclaim();
+
+            long[] bytes = new long[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                bytes[i] = retiredAllocBytes.get(i);
+            }
+            for (ThreadStats stats : threads) {
+                for (int i = 0; i < SIZE_CLASSES; i++) {
+                    bytes[i] += stats.allocBytes[i];
+                }
+            }
+            return bytes;
+        }
+
+        @Override
+        public long[] getSizeClassLiveBytes() {
+            long[] bytes = new long[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                bytes[i] = sizeClassLive.get(i);
+            }
+            return bytes;
+        }
+
+        @Override
+        public Map<String, Long> getThreadAllocatedBytes() {
+            reclaim();
+
+            Map<String, Long> map = new HashMap<>();
+            for (ThreadStats stats : threads) {
+                long bytes = 0L;
+                for (int i = 0; i < SIZE_CLASSES; i++) {
+                    bytes += stats.allocBytes[i];
+                }
+                map.merge(stats.threadName + " (" + stats.threadId + ")", bytes, Long::sum);
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Long> getThreadLiveBytes() {
+            Map<String, Long> map = new HashMap<>();
+            for (Sample sample : samples.values()) {
+                map.merge(sample.stats.threadName + " (" + sample.stats.threadId + ")", sample.size, Long::sum);
+            }
+            return map;
+        }
+
+        /** Allocation counters of a single thread. Only the owner thread updates the non-atomic counters. */
+        private static class ThreadStats {
+
+            final Thread thread;
+            final long   threadId;
+            final String threadName;
+
+            final long[] allocCount = new long[SIZE_CLASSES];
+            final long[] allocBytes = new long[SIZE_CLASSES];
+
+            long freeCount;
+
+            long bytesUntilSample;
+
+            ThreadStats(Thread thread, long bytesUntilSample) {
+                this.thread = thread;
+                this.threadId = thread.getId();
+                this.threadName = thread.getName();
+                this.bytesUntilSample = bytesUntilSample;
+            }
+
+        }
+
+        private static class Sample extends Allocation {
+
+            final int         sizeClass;
+            final ThreadStats stats;
+
+            Sample(Object[] stackTrace, long weight, int sizeClass, ThreadStats stats) {
+                super(stackTrace, weight);
+                this.sizeClass = sizeClass;
+                this.stats = stats;
+            }
+
+        }
+
+    }
+
+    /**
+     * A memory allocator that caches small blocks per thread.
+     *
+     * <p>Small allocations are rounded up to a power-of-two size class. Freed blocks are kept in a magazine owned by the freeing thread and are reused by the
+     * next allocation of the same class, without calling the backing allocator. When a magazine fills up, half of it is moved to a global depot that other
+     * threads refill from. Retention is bounded by the magazine and depot capacities, blocks beyond that are returned to the backing allocator.</p>
+     *
+     * <p>The size class of each block owned by the cache is stored in a {@link BlockTable}, addresses that are not in the table are passed through to the
+     * backing allocator. The table cannot observe blocks that are freed without going through this allocator, a stale entry would make a later block at the
+     * same address cached under the wrong size class. Blocks must be freed with this allocator, its functions are not exposed to native code.</p>
+     */
+    static class CachingAllocator implements MemoryAllocator {
+
+        // Limited to 8, the size class is packed in the low bits of the (8-byte aligned) block address
+        static final int SIZE_CLASSES = 8;
+
+        private static final int MIN_CLASS_SHIFT = 4;
+
+        static final long MAX_CACHED_SIZE = 1L << (MIN_CLASS_SHIFT + SIZE_CLASSES - 1);
+
+        // Maximum number of magazine batches per size class in the depot
+        private static final int DEPOT_CAPACITY = 8;
+
+        private final MemoryAllocator allocator;
+
+        private final int[] magazineCapacity = new int[SIZE_CLASSES];
+
+        private final BlockTable blocks = new BlockTable();
+
+        private final ThreadLocal<ThreadCache> threadCache = ThreadLocal.withInitial(this::createThreadCache);
+
+        private final Queue<ThreadCache> threads = new ConcurrentLinkedQueue<>();
+
+        private final Depot[] depots = new Depot[SIZE_CLASSES];
+
+        CachingAllocator(MemoryAllocator allocator, long cacheSize) {
+            if (cacheSize <= 0L) {
+                throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+            }
+
+            this.allocator = allocator;
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                // Each size class gets an equal share of the thread cache
+                magazineCapacity[i] = (int)Math.min(Math.max(cacheSize / SIZE_CLASSES / getClassSize(i), 2L), 64L);
+                depots[i] = new Depot();
+            }
+        }
+
+        private ThreadCache createThreadCache() {
+            reclaim();
+
+            ThreadCache cache = new ThreadCache(Thread.currentThread(), magazineCapacity);
+            threads.add(cache);
+            return cache;
+        }
+
+        @Override public long getMalloc()       { throw nativeAccess(); }
+        @Override public long getCalloc()       { throw nativeAccess(); }
+        @Override public long getRealloc()      { throw nativeAccess(); }
+        @Override public long getFree()         { throw nativeAccess(); }
+        @Override public long getAlignedAlloc() { throw nativeAccess(); }
+        @Override public long getAlignedFree()  { throw nativeAccess(); }
+
+        private static UnsupportedOperationException nativeAccess() {
+            return new UnsupportedOperationException("The caching allocator cannot be used by native code.");
+        }
+
+        @Override
+        public long malloc(long size) {
+            if (size < 0L || MAX_CACHED_SIZE < size) {
+                return allocator.malloc(size);
+            }
+
+            int sizeClass = getSizeClass(size);
+
+            ThreadCache cache = threadCache.get();
+
+            int count = cache.counts[sizeClass];
+            if (count == 0) {
+                count = refill(cache, sizeClass);
+                if (count == 0) {
+                    long address = allocator.malloc(getClassSize(sizeClass));
+                    if (address != NULL && (address & BlockTable.CLASS_MASK) == 0L) {
+                        blocks.put(address, sizeClass);
                     }
-                    break;
+                    return address;
+                }
+            }
+
+            cache.counts[sizeClass] = --count;
+            return cache.magazines[sizeClass][count];
+        }
+
+        @Override
+        public long calloc(long num, long size) {
+            long bytes = num * size;
+            if (num < 0L || size < 0L || (num != 0L && bytes / num != size) || MAX_CACHED_SIZE < bytes) {
+                return allocator.calloc(num, size);
+            }
+
+            long address = malloc(bytes);
+            if (address != NULL) {
+                memSet(address, 0, bytes);
+            }
+            return address;
+        }
+
+        @Override
+        public long realloc(long ptr, long size) {
+            if (ptr == NULL) {
+                return malloc(size);
+            }
+            if (size == 0L) {
+                free(ptr);
+                return NULL;
+            }
+
+            int sizeClass = blocks.get(ptr);
+            if (sizeClass == -1) {
+                return allocator.realloc(ptr, size);
+            }
+
+            if (size < 0L || MAX_CACHED_SIZE < size) {
+                // The block was allocated by the backing allocator, it may grow in-place
+                blocks.remove(ptr);
+                return allocator.realloc(ptr, size);
             }
+
+            if (getSizeClass(size) == sizeClass) {
+                return ptr;
+            }
+
+            long address = malloc(size);
+            if (address != NULL) {
+                memCopy(ptr, address, Math.min(size, getClassSize(sizeClass)));
+                cache(ptr, sizeClass);
+            }
+            return address;
+        }
+
+        @Override
+        public void free(long ptr) {
+            if (ptr == NULL) {
+                return;
+            }
+
+            int sizeClass = blocks.get(ptr);
+            if (sizeClass == -1) {
+                allocator.free(ptr);
+            } else {
+                cache(ptr, sizeClass);
+            }
+        }
+
+        @Override
+        public long aligned_alloc(long alignment, long size) {
+            return allocator.aligned_alloc(alignment, size);
+        }
+
+        @Override
+        public void aligned_free(long ptr) {
+            allocator.aligned_free(ptr);
+        }
+
+        static int getSizeClass(long size) {
+            // [0, 16], (16, 32], (32, 64], ...
+            return size <= (1L << MIN_CLASS_SHIFT) ? 0 : 64 - Long.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+        }
+
+        static long getClassSize(int sizeClass) {
+            return 1L << (MIN_CLASS_SHIFT + sizeClass);
+        }
+
+        private void cache(long address, int sizeClass) {
+            ThreadCache cache = threadCache.get();
+
+            long[] magazine = cache.magazines[sizeClass];
+
+            int count = cache.counts[sizeClass];
+            if (count == magazine.length) {
+                // Move the older half to the depot
+                int    batchSize = magazine.length >> 1;
+                long[] batch     = Arrays.copyOf(magazine, batchSize);
+                if (!depots[sizeClass].push(batch)) {
+                    freeBatch(batch);
+                }
+
+                count -= batchSize;
+                System.arraycopy(magazine, batchSize, magazine, 0, count);
+            }
+
+            magazine[count] = address;
+            cache.counts[sizeClass] = count + 1;
+        }
+
+        private int refill(ThreadCache cache, int sizeClass) {
+            long[] batch = depots[sizeClass].pop();
+            if (batch == null) {
+                return 0;
+            }
+
+            System.arraycopy(batch, 0, cache.magazines[sizeClass], 0, batch.length);
+            return cache.counts[sizeClass] = batch.length;
+        }
+
+        /** Returns cached blocks to the backing allocator. */
+        private void freeBatch(long[] batch) {
+            for (long block : batch) {
+                blocks.remove(block);
+                allocator.free(block);
+            }
+        }
+
+        /** Moves the blocks cached by terminated threads to the depot. */
+        private void reclaim() {
+            for (Iterator<ThreadCache> it = threads.iterator(); it.hasNext(); ) {
+                ThreadCache cache = it.next();
+                if (!cache.thread.isAlive()) {
+                    it.remove();
+                    release(cache, false);
+                }
+            }
+        }
+
+        private void release(ThreadCache cache, boolean free) {
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                long[] batch = Arrays.copyOf(cache.magazines[i], cache.counts[i]);
+                cache.counts[i] = 0;
+
+                if (batch.length != 0 && (free || !depots[i].push(batch))) {
+                    freeBatch(batch);
+                }
+            }
+        }
+
+        /**
+         * Returns the blocks cached by the current thread, by terminated threads and by the depot to the backing allocator. Blocks cached by other live threads
+         * are not affected.
+         */
+        void trim() {
+            reclaim();
+            release(threadCache.get(), true);
+
+            for (Depot depot : depots) {
+                long[] batch;
+                while ((batch = depot.pop()) != null) {
+                    freeBatch(batch);
+                }
+            }
+        }
+
+        /** The blocks cached by a single thread. Only the owner thread accesses the magazines, until it terminates. */
+        private static class ThreadCache {
+
+            final Thread thread;
+
+            final long[][] magazines;
+            final int[]    counts;
+
+            ThreadCache(Thread thread, int[] capacity) {
+                this.thread = thread;
+
+                this.magazines = new long[capacity.length][];
+                for (int i = 0; i < capacity.length; i++) {
+                    magazines[i] = new long[capacity[i]];
+                }
+                this.counts = new int[capacity.length];
+            }
+
+        }
+
+        /** A bounded stack of block batches, shared by all threads. */
+        private static class Depot {
+
+            private final long[][] batches = new long[DEPOT_CAPACITY][];
+
+            private int count;
+
+            synchronized boolean push(long[] batch) {
+                if (count == batches.length) {
+                    return false;
+                }
+                batches[count++] = batch;
+                return true;
+            }
+
+            @Nullable
+            synchronized long[] pop() {
+                if (count == 0) {
+                    return null;
+                }
+                long[] batch = batches[--count];
+                batches[count] = null;
+                return batch;
+            }
+
+        }
+
+    }
+
+    /**
+     * Maps the blocks owned by a {@link CachingAllocator} to their size class.
+     *
+     * <p>Blocks stay in the table while they are cached, so only blocks that are allocated from, or returned to, the backing allocator update it. Each slot
+     * packs the block address and its size class in a single long, which lets lookups run without locking. Updates are synchronized, removed entries are
+     * replaced with tombstones that are dropped when the table is rehashed.</p>
+     *
+     * <p>A lookup can race with updates to other entries, but never with an update of the block being looked up: blocks are only added before being handed
+     * out and only removed while they are cached.</p>
+     */
+    static final class BlockTable {
+
+        static final long CLASS_MASK = 7L;
+
+        private static final long EMPTY     = NULL;
+        private static final long TOMBSTONE = 1L;
+
+        private volatile long[] slots = new long[256];
+
+        private int count;
+        private int tombstones;
+
+        private static int getSlot(long address, int mask) {
+            return (int)((address * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+
+        /** Returns the size class of the specified block, or -1 if the block is not in the table. */
+        int get(long address) {
+            long[] slots = this.slots;
+
+            int mask = slots.length - 1;
+            for (int i = getSlot(address, mask); ; i = (i + 1) & mask) {
+                long slot = slots[i];
+                if ((slot & ~CLASS_MASK) == address) {
+                    return (int)(slot & CLASS_MASK);
+                }
+                if (slot == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        /** Adds a block to the table, replacing a stale entry of the same address. */
+        synchronized void put(long address, int sizeClass) {
+            if ((count + tombstones + 1) * 4 > slots.length * 3) {
+                rehash();
+            }
+
+            long[] slots = this.slots;
+
+            int mask = slots.length - 1;
+            int free = -1;
+            for (int i = getSlot(address, mask); ; i = (i + 1) & mask) {
+                long slot = slots[i];
+                if ((slot & ~CLASS_MASK) == address) {
+                    slots[i] = address | sizeClass;
+                    return;
+                }
+                if (slot == TOMBSTONE && free == -1) {
+                    free = i;
+                } else if (slot == EMPTY) {
+                    if (free == -1) {
+                        free = i;
+                    } else {
+                        tombstones--;
+                    }
+                    slots[free] = address | sizeClass;
+                    count++;
+                    return;
+                }
+            }
+        }
+
+        synchronized void remove(long address) {
+            long[] slots = this.slots;
+
+            int mask = slots.length - 1;
+            for (int i = getSlot(address, mask); ; i = (i + 1) & mask) {
+                long slot = slots[i];
+                if ((slot & ~CLASS_MASK) == address) {
+                    slots[i] = TOMBSTONE;
+                    count--;
+                    tombstones++;
+                    return;
+                }
+                if (slot == EMPTY) {
+                    return;
+                }
+            }
+        }
+
+        int size() {
+            return count;
+        }
+
+        private void rehash() {
+            // Readers may still use the old array, it is not modified after the new one is published
+            long[] old      = slots;
+            long[] rehashed = new long[count * 2 < old.length / 2 ? old.length : old.length * 2];
+
+            int mask = rehashed.length - 1;
+            for (long slot : old) {
+                if (slot != EMPTY && slot != TOMBSTONE) {
+                    int i = getSlot(slot & ~CLASS_MASK, mask);
+                    while (rehashed[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    rehashed[i] = slot;
+                }
+            }
+
+            tombstones = 0;
+            slots = rehashed;
         }
 
     }
 
-}
\ No newline at end of file
+}
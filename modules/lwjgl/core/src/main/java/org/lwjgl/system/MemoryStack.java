@@ -22,7 +22,12 @@ import static org.lwjgl.system.StackWalkUtil.*;
  *
  * <p>This class should be used in a thread-local manner for stack allocations.</p>
  *
+ * <p>A stack may optionally be growable. A growable stack chains additional off-heap chunks when an allocation does not fit in the remaining space. The
+ * stack pointer of such a stack becomes negative while spilled chunks are in use; it is still restored normally by {@link #pop} and {@link #setPointer}.
+ * </p>
+ *
  * @see Configuration#STACK_SIZE
+ * @see Configuration#STACK_GROWABLE
  * @see Configuration#DEBUG_STACK
  */
 public class MemoryStack implements AutoCloseable {
@@ -30,6 +35,10 @@ public class MemoryStack implements AutoCloseable {
     private static final int DEFAULT_STACK_SIZE   = Configuration.STACK_SIZE.get(64) * 1024;
     private static final int DEFAULT_STACK_FRAMES = 8;
 
+    private static final boolean DEFAULT_STACK_GROWABLE = Configuration.STACK_GROWABLE.get(false);
+
+    private static final int DEFAULT_SPILL_CHUNKS = 4;
+
     private static final boolean DEBUG_STACK = Configuration.DEBUG_STACK.get(false);
 
     private static final ThreadLocal<MemoryStack> TLS = ThreadLocal.withInitial(MemoryStack::create);
@@ -51,12 +60,40 @@ public class MemoryStack implements AutoCloseable {
     private   int[] frames;
     protected int   frameIndex;
 
+    private final boolean growable;
+
+    // Spilled chunks in use, the top chunk is last. Chunk i spans [chunkBases[i], chunkBases[i] + chunks[i].capacity()) in stack pointer space.
+    @Nullable private ByteBuffer[] chunks;
+    @Nullable private long[]       chunkAddresses;
+    @Nullable private int[]        chunkBases;
+
+    private int chunkCount;
+
+    // Spilled chunks not in use, available for reuse.
+    @Nullable private ByteBuffer[] freeChunks;
+
+    private int freeChunkCount;
+
+    private long spillCount;
+    private long spillAllocCount;
+    private int  spillPeak;
+
     /**
      * Creates a new {@link MemoryStack} with the specified size.
      *
      * @param size the maximum number of bytes that may be allocated on the stack
      */
     protected MemoryStack(int size) {
+        this(size, false);
+    }
+
+    /**
+     * Creates a new {@link MemoryStack} with the specified size.
+     *
+     * @param size     the number of bytes that may be allocated on the stack before spilling to additional chunks
+     * @param growable if true, additional chunks are allocated when the stack runs out of space, instead of throwing an {@link OutOfMemoryError}
+     */
+    protected MemoryStack(int size, boolean growable) {
         this.buffer = BufferUtils.createByteBuffer(size);
         this.address = memAddress(buffer);
 
@@ -64,6 +101,8 @@ public class MemoryStack implements AutoCloseable {
         this.pointer = size;
 
         this.frames = new int[DEFAULT_STACK_FRAMES];
+
+        this.growable = growable;
     }
 
     /** Creates a new {@link MemoryStack} with the default size. */
@@ -77,9 +116,19 @@ public class MemoryStack implements AutoCloseable {
      * @param size the maximum number of bytes that may be allocated on the stack
      */
     public static MemoryStack create(int size) {
+        return create(size, DEFAULT_STACK_GROWABLE);
+    }
+
+    /**
+     * Creates a new {@link MemoryStack} with the specified size.
+     *
+     * @param size     the number of bytes that may be allocated on the stack before spilling to additional chunks
+     * @param growable if true, additional chunks are allocated when the stack runs out of space, instead of throwing an {@link OutOfMemoryError}
+     */
+    public static MemoryStack create(int size, boolean growable) {
         return DEBUG_STACK
-            ? new DebugMemoryStack(size)
-            : new MemoryStack(size);
+            ? new DebugMemoryStack(size, growable)
+            : new MemoryStack(size, growable);
     }
 
     /**
@@ -120,6 +169,9 @@ public class MemoryStack implements AutoCloseable {
      */
     public MemoryStack pop() {
         pointer = frames[--frameIndex];
+        if (chunkCount != 0) {
+            releaseChunks();
+        }
         return this;
     }
 
@@ -140,8 +192,8 @@ public class MemoryStack implements AutoCloseable {
 
         private Object[] debugFrames;
 
-        DebugMemoryStack(int size) {
-            super(size);
+        DebugMemoryStack(int size, boolean growable) {
+            super(size, growable);
             debugFrames = new Object[DEFAULT_STACK_FRAMES];
         }
 
@@ -196,12 +248,45 @@ public class MemoryStack implements AutoCloseable {
     /**
      * Returns the size of the backing off-heap memory.
      *
-     * <p>This is the maximum number of bytes that may be allocated on the stack.</p>
+     * <p>This is the maximum number of bytes that may be allocated on the stack. For growable stacks, this is the number of bytes that may be allocated
+     * before spilling to additional chunks.</p>
      */
     public int getSize() {
         return size;
     }
 
+    /** Returns true if this stack chains additional off-heap chunks when it runs out of space. */
+    public boolean isGrowable() {
+        return growable;
+    }
+
+    /**
+     * Returns the number of allocations that did not fit in the current chunk (initially, the backing off-heap memory) and had to spill to another chunk.
+     *
+     * <p>This is always zero for stacks that are not growable.</p>
+     */
+    public long getSpillCount() {
+        return spillCount;
+    }
+
+    /**
+     * Returns the number of spilled chunks that had to be allocated, because no chunk could be reused from the free list.
+     *
+     * <p>This is always zero for stacks that are not growable.</p>
+     */
+    public long getSpillAllocCount() {
+        return spillAllocCount;
+    }
+
+    /**
+     * Returns the maximum number of bytes that were in use in spilled chunks at the same time.
+     *
+     * <p>This is always zero for stacks that are not growable.</p>
+     */
+    public int getSpillPeak() {
+        return spillPeak;
+    }
+
     /**
      * Returns the current frame index.
      *
@@ -218,6 +303,9 @@ public class MemoryStack implements AutoCloseable {
      * the allocated size (after alignment) and {@code address + pointers} points to the last byte of the last allocation.</p>
      *
      * <p>Effectively, this methods returns how many more bytes may be allocated on the stack.</p>
+     *
+     * <p>For growable stacks, the pointer becomes negative when allocations spill to additional chunks. It may still be stored and restored with
+     * {@link #setPointer}.</p>
      */
     public int getPointer() {
         return pointer;
@@ -235,10 +323,13 @@ public class MemoryStack implements AutoCloseable {
         }
 
         this.pointer = pointer;
+        if (chunkCount != 0) {
+            releaseChunks();
+        }
     }
 
     private void checkPointer(int pointer) {
-        if (pointer < 0 || size < pointer) {
+        if (pointer < (chunkCount == 0 ? 0 : chunkBases[chunkCount - 1]) || size < pointer) {
             throw new IndexOutOfBoundsException("Invalid stack pointer");
         }
     }
@@ -281,8 +372,8 @@ public class MemoryStack implements AutoCloseable {
         if (DEBUG) {
             checkAlignment(alignment);
         }
-        if (CHECKS) {
-            checkPush(newPointer);
+        if (pointer < size && (growable || CHECKS)) {
+            return nmallocSpill(alignment, size);
         }
 
         // Align pointer to the specified alignment
@@ -293,6 +384,102 @@ public class MemoryStack implements AutoCloseable {
         return this.address + newPointer;
     }
 
+    private long nmallocSpill(int alignment, int size) {
+        if (!growable) {
+            checkPush(pointer - size);
+        }
+
+        if (chunkCount != 0) {
+            // Try the current chunk first
+            int  top          = chunkCount - 1;
+            long chunkAddress = chunkAddresses[top];
+
+            int offset = pointer - chunkBases[top] - size;
+            if (0 <= offset) {
+                long address = (chunkAddress + offset) & ~(alignment - 1L);
+                if (chunkAddress <= address) {
+                    pointer = chunkBases[top] + (int)(address - chunkAddress);
+                    return address;
+                }
+            }
+        }
+
+        ByteBuffer chunk = acquireChunk(size + alignment - 1);
+
+        int  capacity     = chunk.capacity();
+        long chunkAddress = memAddress(chunk);
+
+        long base = (long)(chunkCount == 0 ? 0 : chunkBases[chunkCount - 1]) - capacity;
+        if (base < Integer.MIN_VALUE) {
+            releaseChunk(chunk);
+            throw new OutOfMemoryError("Out of stack space.");
+        }
+
+        if (chunks == null || chunkCount == chunks.length) {
+            int capacityNew = chunks == null ? DEFAULT_SPILL_CHUNKS : chunkCount * 3 / 2;
+
+            chunks = chunks == null ? new ByteBuffer[capacityNew] : Arrays.copyOf(chunks, capacityNew);
+            chunkAddresses = chunkAddresses == null ? new long[capacityNew] : Arrays.copyOf(chunkAddresses, capacityNew);
+            chunkBases = chunkBases == null ? new int[capacityNew] : Arrays.copyOf(chunkBases, capacityNew);
+        }
+
+        chunks[chunkCount] = chunk;
+        chunkAddresses[chunkCount] = chunkAddress;
+        chunkBases[chunkCount] = (int)base;
+        chunkCount++;
+
+        spillCount++;
+        if (spillPeak < -base) {
+            spillPeak = (int)-base;
+        }
+
+        long address = (chunkAddress + capacity - size) & ~(alignment - 1L);
+        pointer = (int)base + (int)(address - chunkAddress);
+        return address;
+    }
+
+    private ByteBuffer acquireChunk(int size) {
+        // First fit
+        for (int i = 0; i < freeChunkCount; i++) {
+            ByteBuffer chunk = freeChunks[i];
+            if (size <= chunk.capacity()) {
+                freeChunks[i] = freeChunks[--freeChunkCount];
+                freeChunks[freeChunkCount] = null;
+                return chunk;
+            }
+        }
+
+        if (DEBUG) {
+            apiLog("[WARNING] Out of stack space (" + this.size + "), allocating a new chunk in thread: " + Thread.currentThread());
+        }
+
+        spillAllocCount++;
+        return BufferUtils.createByteBuffer(Math.max(this.size, size));
+    }
+
+    private void releaseChunks() {
+        // Release all chunks above the stack pointer
+        do {
+            int top = chunkCount - 1;
+            if (pointer < chunkBases[top] + chunks[top].capacity()) {
+                break;
+            }
+
+            releaseChunk(chunks[top]);
+            chunks[top] = null;
+            chunkCount = top;
+        } while (chunkCount != 0);
+    }
+
+    private void releaseChunk(ByteBuffer chunk) {
+        if (freeChunks == null) {
+            freeChunks = new ByteBuffer[DEFAULT_SPILL_CHUNKS];
+        }
+        if (freeChunkCount < freeChunks.length) {
+            freeChunks[freeChunkCount++] = chunk;
+        }
+    }
+
     /**
      * Allocates a block of memory on the stack for an array of {@code num} elements, each of them {@code size} bytes long, and initializes all its bits to
      * zero.
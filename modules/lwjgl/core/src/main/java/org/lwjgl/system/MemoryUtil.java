@@ -78,10 +78,26 @@ public final class MemoryUtil {
         static final MemoryAllocator ALLOCATOR;
 
         static {
-            ALLOCATOR_IMPL = MemoryManage.getInstance();
-            ALLOCATOR = Configuration.DEBUG_MEMORY_ALLOCATOR.get(false)
-                ? new DebugAllocator(ALLOCATOR_IMPL)
-                : ALLOCATOR_IMPL;
+            MemoryAllocator allocator = MemoryManage.getInstance();
+
+            // The leak detector wrapper is included in the public allocator, memory freed through getAllocator() must be untracked too
+            ALLOCATOR_IMPL = LeakDetector.ENABLED ? new LeakDetector.Allocator(allocator) : allocator;
+
+            // The block cache is internal, getAllocator() returns the allocator that backs it
+            allocator = MemoryManage.getCached(allocator);
+            if (allocator != ALLOCATOR_IMPL && LeakDetector.ENABLED) {
+                allocator = new LeakDetector.Allocator(allocator);
+            }
+
+            if (Configuration.DEBUG_MEMORY_ALLOCATOR.get(false)) {
+                ALLOCATOR = new DebugAllocator(allocator);
+            } else if (Configuration.SAMPLING_MEMORY_ALLOCATOR.get(false)) {
+                SamplingAllocator sampling = new SamplingAllocator(allocator, Configuration.SAMPLING_MEMORY_ALLOCATOR_INTERVAL.get(512 * 1024));
+                sampling.register();
+                ALLOCATOR = sampling;
+            } else {
+                ALLOCATOR = allocator;
+            }
 
             apiLog("MemoryUtil allocator: " + ALLOCATOR.getClass().getSimpleName());
         }
@@ -133,7 +149,9 @@ public final class MemoryUtil {
      *
      * <p>Allocations made through the returned instance will not be tracked for memory leaks, even if {@link Configuration#DEBUG_MEMORY_ALLOCATOR} is enabled.
      * This can be useful for {@code static final} allocations that live throughout the application's lifetime and will never be freed until the process is
-     * terminated. Normally such allocations would be reported as memory leaks by the debug allocator.</p>
+     * terminated. Normally such allocations would be reported as memory leaks by the debug allocator. Memory allocated with the explicit memory management
+     * API may be freed with the returned instance, it stops being tracked by the {@link LeakDetector}, unless the <em>cached</em>
+     * {@link Configuration#MEMORY_ALLOCATOR} is used. The returned instance is the allocator that backs the cache in that case.</p>
      *
      * <p>The expectation is that this method will rarely be used, so it does not have the {@code mem} prefix to avoid pollution of auto-complete lists.</p>
      *
@@ -186,7 +204,21 @@ public final class MemoryUtil {
      * @throws OutOfMemoryError if the function failed to allocate the requested block of memory
      */
     public static ByteBuffer memAlloc(int size) {
-        return ACCESSOR.memByteBuffer(nmemAllocChecked(size), size);
+        return track(ACCESSOR.memByteBuffer(nmemAllocChecked(size), size), 0);
+    }
+
+    private static <T extends Buffer> T track(T buffer, int elementShift) {
+        if (LeakDetector.ENABLED) {
+            LeakDetector.track(buffer, memAddress0(buffer), Integer.toUnsignedLong(buffer.capacity()) << elementShift, LeakDetector.Type.MEMORY);
+        }
+        return buffer;
+    }
+
+    private static PointerBuffer track(PointerBuffer buffer) {
+        if (LeakDetector.ENABLED) {
+            LeakDetector.track(buffer, buffer.address0(), Integer.toUnsignedLong(buffer.capacity()) << POINTER_SHIFT, LeakDetector.Type.MEMORY);
+        }
+        return buffer;
     }
 
     private static long getAllocationSize(int elements, int elementShift) {
@@ -201,7 +233,7 @@ public final class MemoryUtil {
      * @param size the number of short values to allocate.
      */
     public static ShortBuffer memAllocShort(int size) {
-        return ACCESSOR.memShortBuffer(nmemAllocChecked(getAllocationSize(size, 1)), size);
+        return track(ACCESSOR.memShortBuffer(nmemAllocChecked(getAllocationSize(size, 1)), size), 1);
     }
 
     /**
@@ -210,7 +242,7 @@ public final class MemoryUtil {
      * @param size the number of int values to allocate.
      */
     public static IntBuffer memAllocInt(int size) {
-        return ACCESSOR.memIntBuffer(nmemAllocChecked(getAllocationSize(size, 2)), size);
+        return track(ACCESSOR.memIntBuffer(nmemAllocChecked(getAllocationSize(size, 2)), size), 2);
     }
 
     /**
@@ -219,7 +251,7 @@ public final class MemoryUtil {
      * @param size the number of float values to allocate.
      */
     public static FloatBuffer memAllocFloat(int size) {
-        return ACCESSOR.memFloatBuffer(nmemAllocChecked(getAllocationSize(size, 2)), size);
+        return track(ACCESSOR.memFloatBuffer(nmemAllocChecked(getAllocationSize(size, 2)), size), 2);
     }
 
     /**
@@ -228,7 +260,7 @@ public final class MemoryUtil {
      * @param size the number of long values to allocate.
      */
     public static LongBuffer memAllocLong(int size) {
-        return ACCESSOR.memLongBuffer(nmemAllocChecked(getAllocationSize(size, 3)), size);
+        return track(ACCESSOR.memLongBuffer(nmemAllocChecked(getAllocationSize(size, 3)), size), 3);
     }
 
     /**
@@ -237,7 +269,7 @@ public final class MemoryUtil {
      * @param size the number of double values to allocate.
      */
     public static DoubleBuffer memAllocDouble(int size) {
-        return ACCESSOR.memDoubleBuffer(nmemAllocChecked(getAllocationSize(size, 3)), size);
+        return track(ACCESSOR.memDoubleBuffer(nmemAllocChecked(getAllocationSize(size, 3)), size), 3);
     }
 
     /**
@@ -246,7 +278,7 @@ public final class MemoryUtil {
      * @param size the number of pointer values to allocate.
      */
     public static PointerBuffer memAllocPointer(int size) {
-        return PointerBuffer.create(nmemAllocChecked(getAllocationSize(size, POINTER_SHIFT)), size);
+        return track(PointerBuffer.create(nmemAllocChecked(getAllocationSize(size, POINTER_SHIFT)), size));
     }
 
     /** Unsafe version of {@link #memFree}. */
@@ -317,7 +349,7 @@ public final class MemoryUtil {
      * @throws OutOfMemoryError if the function failed to allocate the requested block of memory
      */
     public static ByteBuffer memCalloc(int num, int size) {
-        return ACCESSOR.memByteBuffer(nmemCallocChecked(num, size), num * size);
+        return track(ACCESSOR.memByteBuffer(nmemCallocChecked(num, size), num * size), 0);
     }
 
     /**
@@ -326,7 +358,7 @@ public final class MemoryUtil {
      * @param num the number of bytes to allocate.
      */
     public static ByteBuffer memCalloc(int num) {
-        return ACCESSOR.memByteBuffer(nmemCallocChecked(num, 1), num);
+        return track(ACCESSOR.memByteBuffer(nmemCallocChecked(num, 1), num), 0);
     }
 
     /**
@@ -335,7 +367,7 @@ public final class MemoryUtil {
      * @param num the number of short values to allocate.
      */
     public static ShortBuffer memCallocShort(int num) {
-        return ACCESSOR.memShortBuffer(nmemCallocChecked(num, 2), num);
+        return track(ACCESSOR.memShortBuffer(nmemCallocChecked(num, 2), num), 1);
     }
 
     /**
@@ -344,7 +376,7 @@ public final class MemoryUtil {
      * @param num the number of int values to allocate.
      */
     public static IntBuffer memCallocInt(int num) {
-        return ACCESSOR.memIntBuffer(nmemCallocChecked(num, 4), num);
+        return track(ACCESSOR.memIntBuffer(nmemCallocChecked(num, 4), num), 2);
     }
 
     /**
@@ -353,7 +385,7 @@ public final class MemoryUtil {
      * @param num the number of float values to allocate.
      */
     public static FloatBuffer memCallocFloat(int num) {
-        return ACCESSOR.memFloatBuffer(nmemCallocChecked(num, 4), num);
+        return track(ACCESSOR.memFloatBuffer(nmemCallocChecked(num, 4), num), 2);
     }
 
     /**
@@ -362,7 +394,7 @@ public final class MemoryUtil {
      * @param num the number of long values to allocate.
      */
     public static LongBuffer memCallocLong(int num) {
-        return ACCESSOR.memLongBuffer(nmemCallocChecked(num, 8), num);
+        return track(ACCESSOR.memLongBuffer(nmemCallocChecked(num, 8), num), 3);
     }
 
     /**
@@ -371,7 +403,7 @@ public final class MemoryUtil {
      * @param num the number of double values to allocate.
      */
     public static DoubleBuffer memCallocDouble(int num) {
-        return ACCESSOR.memDoubleBuffer(nmemCallocChecked(num, 8), num);
+        return track(ACCESSOR.memDoubleBuffer(nmemCallocChecked(num, 8), num), 3);
     }
 
     /**
@@ -380,7 +412,7 @@ public final class MemoryUtil {
      * @param num the number of pointer values to allocate.
      */
     public static PointerBuffer memCallocPointer(int num) {
-        return PointerBuffer.create(nmemCallocChecked(num, POINTER_SIZE), num);
+        return track(PointerBuffer.create(nmemCallocChecked(num, POINTER_SIZE), num));
     }
 
     // --- [ memRealloc] ---
@@ -392,12 +424,30 @@ public final class MemoryUtil {
 
     @Nullable
     private static <T extends Buffer> T realloc(@Nullable T old_p, @Nullable T new_p, int size) {
-        if (old_p != null && new_p != null) {
-            new_p.position(min(old_p.position(), size));
+        if (new_p != null) {
+            if (old_p != null) {
+                new_p.position(min(old_p.position(), size));
+            }
+            if (LeakDetector.ENABLED) {
+                LeakDetector.track(new_p, memAddress0(new_p), apiGetBytes(new_p.capacity(), getElementShift(new_p)), LeakDetector.Type.MEMORY);
+            }
         }
         return new_p;
     }
 
+    private static int getElementShift(Buffer buffer) {
+        if (buffer instanceof ByteBuffer) {
+            return 0;
+        }
+        if (buffer instanceof ShortBuffer || buffer instanceof CharBuffer) {
+            return 1;
+        }
+        if (buffer instanceof IntBuffer || buffer instanceof FloatBuffer) {
+            return 2;
+        }
+        return 3;
+    }
+
     /**
      * The standard C realloc function.
      *
@@ -480,8 +530,11 @@ public final class MemoryUtil {
     @Nullable
     public static PointerBuffer memRealloc(@Nullable PointerBuffer ptr, int size) {
         PointerBuffer buffer = memPointerBufferSafe(nmemRealloc(memAddress0Safe(ptr), getAllocationSize(size, POINTER_SHIFT)), size);
-        if (ptr != null && buffer != null) {
-            buffer.position(min(ptr.position(), size));
+        if (buffer != null) {
+            if (ptr != null) {
+                buffer.position(min(ptr.position(), size));
+            }
+            track(buffer);
         }
         return buffer;
     }
@@ -523,7 +576,11 @@ public final class MemoryUtil {
      * @param size      the number of bytes to allocate. Must be a multiple of {@code alignment}.
      */
     public static ByteBuffer memAlignedAlloc(int alignment, int size) {
-        return ACCESSOR.memByteBuffer(nmemAlignedAllocChecked(alignment, size), size);
+        ByteBuffer buffer = ACCESSOR.memByteBuffer(nmemAlignedAllocChecked(alignment, size), size);
+        if (LeakDetector.ENABLED) {
+            LeakDetector.track(buffer, memAddress0(buffer), size, LeakDetector.Type.ALIGNED_MEMORY);
+        }
+        return buffer;
     }
 
     // --- [ memAlignedFree ] ---
@@ -574,25 +631,89 @@ public final class MemoryUtil {
     /**
      * Reports all live allocations.
      *
-     * <p>This method can only be used if the {@link Configuration#DEBUG_MEMORY_ALLOCATOR} option has been set to true.</p>
+     * <p>This method can only be used if the {@link Configuration#DEBUG_MEMORY_ALLOCATOR} or the {@link Configuration#SAMPLING_MEMORY_ALLOCATOR} option has
+     * been set to true. With the sampling allocator, only sampled allocations are reported and the reported memory is the estimated number of bytes each
+     * sample represents.</p>
      *
      * @param report the report callback
      */
     public static void memReport(MemoryAllocationReport report) {
-        DebugAllocator.report(report);
+        if (ALLOCATOR instanceof SamplingAllocator) {
+            ((SamplingAllocator)ALLOCATOR).report(report);
+        } else {
+            DebugAllocator.report(report);
+        }
     }
 
     /**
      * Reports aggregates for the live allocations.
      *
-     * <p>This method can only be used if the {@link Configuration#DEBUG_MEMORY_ALLOCATOR} option has been set to true.</p>
+     * <p>This method can only be used if the {@link Configuration#DEBUG_MEMORY_ALLOCATOR} or the {@link Configuration#SAMPLING_MEMORY_ALLOCATOR} option has
+     * been set to true. With the sampling allocator, the reported aggregates are estimates.</p>
      *
      * @param report            the report callback
      * @param groupByStackTrace how to aggregate the reported allocations
      * @param groupByThread     if the reported allocations should be grouped by thread
      */
     public static void memReport(MemoryAllocationReport report, Aggregate groupByStackTrace, boolean groupByThread) {
-        DebugAllocator.report(report, groupByStackTrace, groupByThread);
+        if (ALLOCATOR instanceof SamplingAllocator) {
+            ((SamplingAllocator)ALLOCATOR).report(report, groupByStackTrace, groupByThread);
+        } else {
+            DebugAllocator.report(report, groupByStackTrace, groupByThread);
+        }
+    }
+
+    // --- [ SamplingAllocator ] ---
+
+    /**
+     * The statistics collected by the sampling allocator.
+     *
+     * <p>When the {@link Configuration#SAMPLING_MEMORY_ALLOCATOR} option is enabled, the allocator is also registered with the platform MBean server, as
+     * {@code org.lwjgl:type=SamplingAllocator}.</p>
+     *
+     * <p>Allocation and free counts are exact. Live memory is estimated from the sampled allocations. All counters are cumulative; allocation rates can be
+     * derived by reading them periodically.</p>
+     */
+    public interface SamplingAllocatorMXBean {
+
+        /** Returns the mean number of allocated bytes between two samples. */
+        long getSamplingInterval();
+        /** Returns the number of sampled allocations. */
+        long getSampleCount();
+
+        /** Returns the number of allocations. */
+        long getAllocationCount();
+        /** Returns the number of allocated bytes. */
+        long getAllocatedBytes();
+        /** Returns the number of frees. */
+        long getFreeCount();
+        /** Returns the estimated number of live bytes. */
+        long getLiveBytes();
+
+        /** Returns the inclusive upper bound, in bytes, of each size class. */
+        long[] getSizeClassLimits();
+        /** Returns the number of allocations, per size class. */
+        long[] getSizeClassAllocationCounts();
+        /** Returns the number of allocated bytes, per size class. */
+        long[] getSizeClassAllocatedBytes();
+        /** Returns the estimated number of live bytes, per size class. */
+        long[] getSizeClassLiveBytes();
+
+        /** Returns the number of allocated bytes, per live thread. The allocations of terminated threads are only included in the totals. */
+        Map<String, Long> getThreadAllocatedBytes();
+        /** Returns the estimated number of live bytes, per allocating thread. */
+        Map<String, Long> getThreadLiveBytes();
+
+    }
+
+    /**
+     * Returns the statistics of the sampling allocator.
+     *
+     * @return the {@link SamplingAllocatorMXBean} instance, or {@code null} if the {@link Configuration#SAMPLING_MEMORY_ALLOCATOR} option is not enabled
+     */
+    @Nullable
+    public static SamplingAllocatorMXBean memSamplingAllocator() {
+        return ALLOCATOR instanceof SamplingAllocator ? (SamplingAllocator)ALLOCATOR : null;
     }
 
     /*  -------------------------------------
@@ -1602,7 +1723,7 @@ public final class MemoryUtil {
         -------------------------------------
         ------------------------------------- */
 
-    private static int memLengthNT1(long address, int maxLength) {
+    static int memLengthNT1(long address, int maxLength) {
         if (CHECKS) {
             check(address);
         }
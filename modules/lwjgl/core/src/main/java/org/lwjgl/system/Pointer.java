@@ -59,6 +59,11 @@ public interface Pointer {
             return address;
         }
 
+        /** Re-points this instance. Used by {@link StructBuffer} flyweights. */
+        void setAddress(long address) {
+            this.address = address;
+        }
+
         public boolean equals(@Nullable Object o) {
             if (this == o) {
                 return true;
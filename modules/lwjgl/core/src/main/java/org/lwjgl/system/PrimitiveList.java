@@ -0,0 +1,193 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import static org.lwjgl.system.APIUtil.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.libc.LibCString.*;
+
+/**
+ * Base class of off-heap, growable, primitive lists.
+ *
+ * <p>The list elements are stored contiguously in a single block of memory, allocated with the {@link MemoryUtil} explicit memory management API. The
+ * block may be reallocated when elements are added, addresses and buffer views returned by the list are invalidated by any operation that increases its
+ * capacity. The memory block must be explicitly freed with {@link #free}.</p>
+ *
+ * <p>Instances of this class are not thread-safe.</p>
+ */
+public abstract class PrimitiveList implements NativeResource {
+
+    static final int DEFAULT_CAPACITY = 16;
+
+    private final int elementShift;
+
+    long address;
+
+    int size;
+    int capacity;
+
+    PrimitiveList(int elementShift, int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+
+        this.elementShift = elementShift;
+        this.address = initialCapacity == 0 ? NULL : nmemAllocChecked(getBytes(initialCapacity));
+        this.capacity = initialCapacity;
+    }
+
+    private long getBytes(int elements) {
+        return apiGetBytes(elements, elementShift);
+    }
+
+    /** Returns the number of elements in this list. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if this list contains no elements. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Returns the number of elements this list can hold without reallocating its memory block. */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the address of the first element of this list.
+     *
+     * <p>The address is {@link MemoryUtil#NULL NULL} if the capacity of this list is zero, and is invalidated by any operation that increases its capacity.</p>
+     */
+    public long address() {
+        return address;
+    }
+
+    /**
+     * Returns the address of the element at the specified index.
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the list size
+     */
+    public long address(int index) {
+        return address + ((long)checkIndex(index) << elementShift);
+    }
+
+    /** Removes all elements from this list. The memory block is not freed. */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sets the size of this list. If the list grows, the values of the new elements are undefined.
+     *
+     * @param size the new list size
+     */
+    public void setSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to hold at least the specified number of elements.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (capacity < minCapacity) {
+            // Grow by 50%, like ArrayList
+            int newCapacity = capacity + (capacity >> 1);
+            if (newCapacity - minCapacity < 0) {
+                newCapacity = minCapacity;
+            }
+            if (newCapacity < 0) {
+                newCapacity = Integer.MAX_VALUE;
+            }
+            resize(newCapacity);
+        }
+    }
+
+    /** Reduces the capacity of this list to its current size. */
+    public void trimToSize() {
+        if (size < capacity) {
+            resize(size);
+        }
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity == 0) {
+            nmemFree(address);
+            address = NULL;
+        } else {
+            long newAddress = nmemRealloc(address, getBytes(newCapacity));
+            if (newAddress == NULL) {
+                throw new OutOfMemoryError();
+            }
+            address = newAddress;
+        }
+        capacity = newCapacity;
+    }
+
+    /** Frees the memory block of this list. The list is empty and can still be used after this method returns. */
+    @Override
+    public void free() {
+        nmemFree(address);
+        address = NULL;
+        size = 0;
+        capacity = 0;
+    }
+
+    int checkIndex(int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+
+    /** Increments the list size and returns the address of the new last element. */
+    long nextAddress() {
+        if (size == capacity) {
+            ensureCapacity(size + 1);
+        }
+        return address + ((long)size++ << elementShift);
+    }
+
+    /** Inserts an undefined element at the specified index and returns its address. */
+    long insertAddress(int index) {
+        if (index < 0 || size < index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        nextAddress();
+
+        long element = address + ((long)index << elementShift);
+        move(element, element + (1 << elementShift), size - 1 - index);
+        return element;
+    }
+
+    /** Removes the element at the specified index. */
+    void removeElement(int index) {
+        checkIndex(index);
+
+        long element = address + ((long)index << elementShift);
+        move(element + (1 << elementShift), element, size - 1 - index);
+        size--;
+    }
+
+    // memCopy does not support overlapping ranges
+    private void move(long src, long dst, int count) {
+        if (count != 0) {
+            nmemmove(dst, src, (long)count << elementShift);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size=" + size + ", capacity=" + capacity + "]";
+    }
+
+}
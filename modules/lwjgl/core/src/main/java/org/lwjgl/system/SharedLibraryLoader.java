@@ -11,6 +11,10 @@ import java.io.*;
 import java.net.*;
 import java.nio.channels.*;
 import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.*;
 import java.util.zip.*;
 
 import static org.lwjgl.system.APIUtil.*;
@@ -19,6 +23,11 @@ import static org.lwjgl.system.APIUtil.*;
  * Loads shared libraries from the classpath. The libraries may be packed in JAR files, in which case they will be extracted to a temporary directory and that
  * directory will be prepended to {@link Configuration#LIBRARY_PATH}.
  *
+ * <p>Each extracted library is accompanied by a manifest file, that records the LWJGL version, the identity of the classpath resource (the CRC and size
+ * stored in the JAR entry, or the size and modification time of a plain file) and the size, modification time and CRC of the extracted file. A library
+ * with a matching manifest is reused without reading either file. Libraries extracted without a manifest (e.g. by an older LWJGL version) are verified by
+ * comparing the CRC of both files, as before.</p>
+ *
  * @author Mario Zechner (https://github.com/badlogic)
  * @author Nathan Sweet (https://github.com/NathanSweet)
  * @see Configuration#SHARED_LIBRARY_EXTRACT_DIRECTORY
@@ -26,16 +35,26 @@ import static org.lwjgl.system.APIUtil.*;
  */
 final class SharedLibraryLoader {
 
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
     @Nullable
     private static Path extractPath;
 
+    // The extractions in progress, by library file name
+    private static final Map<String, CompletableFuture<Path>> EXTRACTING = new ConcurrentHashMap<>();
+
     private SharedLibraryLoader() {
     }
 
     /** Extracts the specified shared library from the classpath to a temporary directory. */
     static FileChannel load(String name, String libName, URL libURL) {
         try {
-            Path extractedFile = extractFile(libName, libURL);
+            long t0 = System.nanoTime();
+
+            Path extractedFile = extract(libName, libURL);
+            if (Configuration.DEBUG_LOADER.get(false)) {
+                apiLog(String.format("\tExtraction check for %s: %.3f ms", libName, (System.nanoTime() - t0) / 1e6));
+            }
 
             // Wait for other processes (usually antivirus software) to unlock the extracted file
             // before attempting to load it.
@@ -63,13 +82,90 @@ final class SharedLibraryLoader {
     }
 
     /**
-     * Extracts the specified file into the temp directory if it does not already exist or the CRC does not match.
+     * Extracts the specified shared libraries from the classpath in parallel. Libraries that are not found in the classpath are ignored.
+     *
+     * @param context  the class to use to discover the shared libraries in the classpath
+     * @param libNames the library file names
+     */
+    static void extractAll(Class<?> context, String... libNames) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(libNames.length);
+        for (String libName : libNames) {
+            URL libURL = context.getClassLoader().getResource(libName);
+            if (libURL == null) {
+                continue;
+            }
+
+            tasks.add(CompletableFuture.runAsync(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    extract(libName, libURL);
+                    if (Configuration.DEBUG_LOADER.get(false)) {
+                        apiLog(String.format("\tExtraction check for %s: %.3f ms", libName, (System.nanoTime() - t0) / 1e6));
+                    }
+                } catch (Exception e) {
+                    // The error will be reported again when the library is loaded
+                    if (Configuration.DEBUG_LOADER.get(false)) {
+                        apiLog(String.format("\tFailed to extract %s", libName));
+                        e.printStackTrace(DEBUG_STREAM);
+                    }
+                }
+            }));
+        }
+
+        for (CompletableFuture<Void> task : tasks) {
+            task.join();
+        }
+    }
+
+    /** Extracts the specified file, or waits for a concurrent extraction of the same file to complete. */
+    private static Path extract(String libraryFile, URL libURL) throws IOException {
+        CompletableFuture<Path> extraction = EXTRACTING.get(libraryFile);
+        if (extraction == null) {
+            CompletableFuture<Path> task = new CompletableFuture<>();
+
+            extraction = EXTRACTING.putIfAbsent(libraryFile, task);
+            if (extraction == null) {
+                try {
+                    task.complete(extractFile(libraryFile, libURL));
+                } catch (Throwable t) {
+                    task.completeExceptionally(t);
+                } finally {
+                    EXTRACTING.remove(libraryFile, task);
+                }
+                extraction = task;
+            }
+        }
+
+        try {
+            return extraction.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Extracts the specified file into the temp directory if it does not already exist or is not up to date.
      *
      * @param libraryFile the file to extract from the classpath.
      *
      * @return The extracted file.
      */
     private static Path extractFile(String libraryFile, URL libURL) throws IOException {
+        Path extractedFile = getExtractedFile(libraryFile);
+
+        extractFile(libURL, extractedFile);
+
+        return extractedFile;
+    }
+
+    private static synchronized Path getExtractedFile(String libraryFile) {
         Path extractedFile = getExtractedFile(extractPath, libraryFile);
 
         if (extractPath == null) {
@@ -87,8 +183,6 @@ final class SharedLibraryLoader {
             Configuration.LIBRARY_PATH.set(newLibPath);
         }
 
-        extractFile(libURL, extractedFile);
-
         return extractedFile;
     }
 
@@ -155,25 +249,114 @@ final class SharedLibraryLoader {
      *
      * @throws IOException if an IO error occurs
      */
-    private static void extractFile(URL libURL, Path extractedFile) throws IOException {
+    static void extractFile(URL libURL, Path extractedFile) throws IOException {
+        Path manifest = extractedFile.resolveSibling(extractedFile.getFileName() + MANIFEST_SUFFIX);
+
+        String source = getSourceID(libURL);
         if (Files.exists(extractedFile)) {
+            if (source != null && isUpToDate(manifest, source, extractedFile)) {
+                apiLog(String.format("\tFound at: %s", extractedFile));
+                return;
+            }
+
             try (
                 InputStream input = libURL.openStream();
                 InputStream target = Files.newInputStream(extractedFile);
             ) {
-                if (crc(input) == crc(target)) {
+                long crc = crc(target);
+                if (crc(input) == crc) {
                     apiLog(String.format("\tFound at: %s", extractedFile));
+                    writeManifest(manifest, source, extractedFile, crc);
                     return;
                 }
             }
         }
 
-        // If file doesn't exist or the CRC doesn't match, extract it to the temp dir.
+        // If file doesn't exist or is not up to date, extract it to the temp dir.
         apiLog(String.format("\tExtracting: %s", libURL.getPath()));
 
         Files.createDirectories(extractedFile.getParent());
-        try (InputStream input = libURL.openStream()) {
+        Files.deleteIfExists(manifest);
+
+        long crc;
+        try (CheckedInputStream input = new CheckedInputStream(libURL.openStream(), new CRC32())) {
             Files.copy(input, extractedFile, StandardCopyOption.REPLACE_EXISTING);
+            crc = input.getChecksum().getValue();
+        }
+        writeManifest(manifest, source, extractedFile, crc);
+    }
+
+    /**
+     * Returns a string that identifies the contents of a classpath resource, without reading it. Returns {@code null} if the resource type is not
+     * supported.
+     */
+    @Nullable
+    private static String getSourceID(URL libURL) {
+        try {
+            URLConnection connection = libURL.openConnection();
+            if (connection instanceof JarURLConnection) {
+                JarEntry entry = ((JarURLConnection)connection).getJarEntry();
+                if (entry != null && entry.getCrc() != -1L && entry.getSize() != -1L) {
+                    return String.format("jar:%d:%08x", entry.getSize(), entry.getCrc());
+                }
+            } else if ("file".equals(libURL.getProtocol())) {
+                BasicFileAttributes attributes = Files.readAttributes(Paths.get(libURL.toURI()), BasicFileAttributes.class);
+                return String.format("file:%d:%d", attributes.size(), attributes.lastModifiedTime().toMillis());
+            }
+        } catch (Exception ignored) {
+        }
+        return null;
+    }
+
+    private static boolean isUpToDate(Path manifest, String source, Path extractedFile) {
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(manifest)) {
+            properties.load(input);
+
+            BasicFileAttributes attributes = Files.readAttributes(extractedFile, BasicFileAttributes.class);
+            return Version.getVersion().equals(properties.getProperty("version")) &&
+                   source.equals(properties.getProperty("source")) &&
+                   Long.toString(attributes.size()).equals(properties.getProperty("size")) &&
+                   Long.toString(attributes.lastModifiedTime().toMillis()).equals(properties.getProperty("modified"));
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void writeManifest(Path manifest, @Nullable String source, Path extractedFile, long crc) {
+        if (source == null) {
+            return;
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(extractedFile, BasicFileAttributes.class);
+
+            Properties properties = new Properties();
+            properties.setProperty("version", Version.getVersion());
+            properties.setProperty("source", source);
+            properties.setProperty("size", Long.toString(attributes.size()));
+            properties.setProperty("modified", Long.toString(attributes.lastModifiedTime().toMillis()));
+            properties.setProperty("crc", String.format("%08x", crc));
+
+            // Write to a temporary file first, so that concurrent loaders never read a partially written manifest
+            Path temp = Files.createTempFile(manifest.getParent(), manifest.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    properties.store(output, "LWJGL shared library manifest");
+                }
+                try {
+                    Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // Not fatal, the library will be verified with a CRC check next time
+            if (Configuration.DEBUG_LOADER.get(false)) {
+                apiLog(String.format("\tFailed to write manifest: %s", manifest));
+            }
         }
     }
 
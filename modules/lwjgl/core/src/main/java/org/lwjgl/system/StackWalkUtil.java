@@ -19,6 +19,14 @@ final class StackWalkUtil {
         return (StackTraceElement[])a;
     }
 
+    static int stackWalkHashCode(Object[] a) {
+        return Arrays.hashCode(a);
+    }
+
+    static boolean stackWalkEquals(Object[] a, Object[] b) {
+        return Arrays.equals(a, b);
+    }
+
     static Object stackWalkGetMethod(Class<?> after) {
         StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
 
@@ -88,6 +88,14 @@ public abstract class Struct extends Pointer.Default {
         return nmemAllocChecked(bytes);
     }
 
+    /** Tracks a struct or struct buffer allocated with {@link MemoryUtil#memAlloc memAlloc}, if the {@link LeakDetector} is enabled. */
+    protected static <T extends Pointer> T __track(T value, int elements, int elementSize) {
+        if (LeakDetector.ENABLED) {
+            LeakDetector.track(value, value.address(), getBytes(elements, elementSize), LeakDetector.Type.MEMORY);
+        }
+        return value;
+    }
+
     protected static ByteBuffer __create(int elements, int elementSize) {
         apiCheckAllocation(elements, getBytes(elements, elementSize), 0x7FFFFFFFL);
         return BufferUtils.createByteBuffer(elements * elementSize);
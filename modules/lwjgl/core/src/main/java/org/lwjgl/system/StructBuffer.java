@@ -114,6 +114,437 @@ public abstract class StructBuffer<T extends Struct, SELF extends StructBuffer<T
         return self();
     }
 
+    /**
+     * Returns a flyweight struct instance that points to the struct at this buffer's current position.
+     *
+     * <p>The flyweight can be moved to other structs of this buffer with {@link #flyweight(Struct, int)}. Reusing a single instance keeps loops over large
+     * buffers allocation-free, without relying on escape analysis.</p>
+     *
+     * @return the flyweight struct instance
+     *
+     * @throws java.nio.BufferUnderflowException If the buffer's current position is not smaller than its limit
+     */
+    public T flyweight() {
+        if (limit <= position) {
+            throw new BufferUnderflowException();
+        }
+        return newInstance(address + position * sizeof());
+    }
+
+    /**
+     * Moves the specified flyweight to the struct at the specified index.
+     *
+     * <p>The flyweight must not be used as a key in hash-based collections, its {@code equals} and {@code hashCode} depend on the struct address.</p>
+     *
+     * @param flyweight a struct instance returned by {@link #flyweight()}
+     * @param index     the index of the struct
+     *
+     * @return the flyweight struct instance
+     *
+     * @throws IndexOutOfBoundsException If <tt>index</tt> is negative or not smaller than the buffer's limit
+     */
+    public T flyweight(T flyweight, int index) {
+        flyweight.setAddress(address + checkIndex(index) * sizeof());
+        return flyweight;
+    }
+
+    /**
+     * Performs the given action for each remaining struct of this buffer, using a single flyweight instance.
+     *
+     * <p>Unlike {@link #forEach}, this method does not allocate a struct instance per element. The instance passed to the action is only valid during the
+     * call and must not be retained.</p>
+     *
+     * @param action the action to be performed for each struct
+     */
+    public void forEachFlyweight(Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        if (limit <= position) {
+            return;
+        }
+
+        T    flyweight = flyweight();
+        long sizeof    = sizeof();
+        for (int i = position; i < limit; i++) {
+            flyweight.setAddress(address + i * sizeof);
+            action.accept(flyweight);
+        }
+    }
+
+    /**
+     * Performs the given action for the address of each remaining struct of this buffer.
+     *
+     * <p>The address can be used with the static, unsafe, member accessors of the struct class (e.g. {@code nmember(address)}), which do not require a
+     * struct instance.</p>
+     *
+     * @param action the action to be performed for each struct address
+     */
+    public void forEachAddress(LongConsumer action) {
+        Objects.requireNonNull(action);
+
+        long sizeof = sizeof();
+        for (int i = position; i < limit; i++) {
+            action.accept(address + i * sizeof);
+        }
+    }
+
+    /**
+     * Performs the given action for the address of each remaining struct of this buffer, in parallel.
+     *
+     * <p>This is the parallel version of {@link #forEachAddress}. The action may be invoked concurrently and must only access the struct at the specified
+     * address.</p>
+     *
+     * @param action the action to be performed for each struct address
+     *
+     * @see #parallelForEachRange
+     */
+    public void parallelForEachAddress(LongConsumer action) {
+        Objects.requireNonNull(action);
+
+        long sizeof = sizeof();
+        parallelForEachRange((address, count) -> {
+            for (int i = 0; i < count; i++) {
+                action.accept(address + i * sizeof);
+            }
+        });
+    }
+
+    /**
+     * Copies the specified struct to each remaining struct of this buffer, in parallel.
+     *
+     * @param value the struct to copy
+     *
+     * @return This buffer
+     *
+     * @see #parallelForEachRange
+     */
+    public SELF parallelFill(T value) {
+        long src    = value.address();
+        long sizeof = sizeof();
+        parallelForEachRange((address, count) -> {
+            // Copy the value once, then double the initialized part of the range
+            memCopy(src, address, sizeof);
+            for (long n = 1; n < count; n <<= 1) {
+                memCopy(address, address + n * sizeof, Math.min(n, count - n) * sizeof);
+            }
+        });
+        return self();
+    }
+
+    // --------------------------------------
+
+    // Bulk field access: a primitive field of each remaining struct is copied to or from a packed array or buffer, in a single strided loop. The field is
+    // identified by its offset (e.g. VkExtent2D.WIDTH) and struct buffer classes have generated, type-safe versions of these methods (e.g. gatherWidth).
+    // The positions of this buffer and of the array or buffer argument are not modified.
+
+    /**
+     * Copies a {@code byte} field of each remaining struct of this buffer to the specified array.
+     *
+     * @param offset the field offset
+     * @param dst    the destination array. Its first {@link #remaining} elements are written.
+     *
+     * @return This buffer
+     *
+     * @throws IllegalArgumentException If the field is not contained in the struct
+     * @throws BufferOverflowException  If the array is smaller than the number of remaining structs
+     */
+    public SELF gather(int offset, byte[] dst) {
+        long src    = fieldAddress(offset, 1);
+        long stride = sizeof();
+        for (int i = 0, n = checkGather(dst.length); i < n; i++) {
+            dst[i] = memGetByte(src + i * stride);
+        }
+        return self();
+    }
+
+    /**
+     * Copies a {@code byte} field of each remaining struct of this buffer to the specified buffer, starting at its current position.
+     *
+     * @param offset the field offset
+     * @param dst    the destination buffer
+     *
+     * @return This buffer
+     *
+     * @throws IllegalArgumentException If the field is not contained in the struct
+     * @throws BufferOverflowException  If the destination buffer has less remaining elements than this buffer
+     */
+    public SELF gather(int offset, ByteBuffer dst) {
+        gather(offset, 1, memAddress(dst), dst.remaining());
+        return self();
+    }
+
+    /**
+     * Copies the elements of the specified array to a {@code byte} field of each remaining struct of this buffer.
+     *
+     * @param offset the field offset
+     * @param src    the source array. Its first {@link #remaining} elements are read.
+     *
+     * @return This buffer
+     *
+     * @throws IllegalArgumentException If the field is not contained in the struct
+     * @throws BufferUnderflowException If the array is smaller than the number of remaining structs
+     */
+    public SELF scatter(int offset, byte[] src) {
+        long dst    = fieldAddress(offset, 1);
+        long stride = sizeof();
+        for (int i = 0, n = checkScatter(src.length); i < n; i++) {
+            memPutByte(dst + i * stride, src[i]);
+        }
+        return self();
+    }
+
+    /**
+     * Copies the remaining elements of the specified buffer to a {@code byte} field of each remaining struct of this buffer.
+     *
+     * @param offset the field offset
+     * @param src    the source buffer
+     *
+     * @return This buffer
+     *
+     * @throws IllegalArgumentException If the field is not contained in the struct
+     * @throws BufferUnderflowException If the source buffer has less remaining elements than this buffer
+     */
+    public SELF scatter(int offset, ByteBuffer src) {
+        scatter(offset, 1, memAddress(src), src.remaining());
+        return self();
+    }
+
+    /** {@code short} version of {@link #gather(int, byte[])}. */
+    public SELF gather(int offset, short[] dst) {
+        long src    = fieldAddress(offset, 2);
+        long stride = sizeof();
+        for (int i = 0, n = checkGather(dst.length); i < n; i++) {
+            dst[i] = memGetShort(src + i * stride);
+        }
+        return self();
+    }
+
+    /** {@code short} version of {@link #gather(int, ByteBuffer)}. */
+    public SELF gather(int offset, ShortBuffer dst) {
+        gather(offset, 2, memAddress(dst), dst.remaining());
+        return self();
+    }
+
+    /** {@code short} version of {@link #scatter(int, byte[])}. */
+    public SELF scatter(int offset, short[] src) {
+        long dst    = fieldAddress(offset, 2);
+        long stride = sizeof();
+        for (int i = 0, n = checkScatter(src.length); i < n; i++) {
+            memPutShort(dst + i * stride, src[i]);
+        }
+        return self();
+    }
+
+    /** {@code short} version of {@link #scatter(int, ByteBuffer)}. */
+    public SELF scatter(int offset, ShortBuffer src) {
+        scatter(offset, 2, memAddress(src), src.remaining());
+        return self();
+    }
+
+    /** {@code int} version of {@link #gather(int, byte[])}. */
+    public SELF gather(int offset, int[] dst) {
+        long src    = fieldAddress(offset, 4);
+        long stride = sizeof();
+        for (int i = 0, n = checkGather(dst.length); i < n; i++) {
+            dst[i] = memGetInt(src + i * stride);
+        }
+        return self();
+    }
+
+    /** {@code int} version of {@link #gather(int, ByteBuffer)}. */
+    public SELF gather(int offset, IntBuffer dst) {
+        gather(offset, 4, memAddress(dst), dst.remaining());
+        return self();
+    }
+
+    /** {@code int} version of {@link #scatter(int, byte[])}. */
+    public SELF scatter(int offset, int[] src) {
+        long dst    = fieldAddress(offset, 4);
+        long stride = sizeof();
+        for (int i = 0, n = checkScatter(src.length); i < n; i++) {
+            memPutInt(dst + i * stride, src[i]);
+        }
+        return self();
+    }
+
+    /** {@code int} version of {@link #scatter(int, ByteBuffer)}. */
+    public SELF scatter(int offset, IntBuffer src) {
+        scatter(offset, 4, memAddress(src), src.remaining());
+        return self();
+    }
+
+    /** {@code long} version of {@link #gather(int, byte[])}. */
+    public SELF gather(int offset, long[] dst) {
+        long src    = fieldAddress(offset, 8);
+        long stride = sizeof();
+        for (int i = 0, n = checkGather(dst.length); i < n; i++) {
+            dst[i] = memGetLong(src + i * stride);
+        }
+        return self();
+    }
+
+    /** {@code long} version of {@link #gather(int, ByteBuffer)}. */
+    public SELF gather(int offset, LongBuffer dst) {
+        gather(offset, 8, memAddress(dst), dst.remaining());
+        return self();
+    }
+
+    /** {@code long} version of {@link #scatter(int, byte[])}. */
+    public SELF scatter(int offset, long[] src) {
+        long dst    = fieldAddress(offset, 8);
+        long stride = sizeof();
+        for (int i = 0, n = checkScatter(src.length); i < n; i++) {
+            memPutLong(dst + i * stride, src[i]);
+        }
+        return self();
+    }
+
+    /** {@code long} version of {@link #scatter(int, ByteBuffer)}. */
+    public SELF scatter(int offset, LongBuffer src) {
+        scatter(offset, 8, memAddress(src), src.remaining());
+        return self();
+    }
+
+    /** {@code float} version of {@link #gather(int, byte[])}. */
+    public SELF gather(int offset, float[] dst) {
+        long src    = fieldAddress(offset, 4);
+        long stride = sizeof();
+        for (int i = 0, n = checkGather(dst.length); i < n; i++) {
+            dst[i] = memGetFloat(src + i * stride);
+        }
+        return self();
+    }
+
+    /** {@code float} version of {@link #gather(int, ByteBuffer)}. */
+    public SELF gather(int offset, FloatBuffer dst) {
+        gather(offset, 4, memAddress(dst), dst.remaining());
+        return self();
+    }
+
+    /** {@code float} version of {@link #scatter(int, byte[])}. */
+    public SELF scatter(int offset, float[] src) {
+        long dst    = fieldAddress(offset, 4);
+        long stride = sizeof();
+        for (int i = 0, n = checkScatter(src.length); i < n; i++) {
+            memPutFloat(dst + i * stride, src[i]);
+        }
+        return self();
+    }
+
+    /** {@code float} version of {@link #scatter(int, ByteBuffer)}. */
+    public SELF scatter(int offset, FloatBuffer src) {
+        scatter(offset, 4, memAddress(src), src.remaining());
+        return self();
+    }
+
+    /** {@code double} version of {@link #gather(int, byte[])}. */
+    public SELF gather(int offset, double[] dst) {
+        long src    = fieldAddress(offset, 8);
+        long stride = sizeof();
+        for (int i = 0, n = checkGather(dst.length); i < n; i++) {
+            dst[i] = memGetDouble(src + i * stride);
+        }
+        return self();
+    }
+
+    /** {@code double} version of {@link #gather(int, ByteBuffer)}. */
+    public SELF gather(int offset, DoubleBuffer dst) {
+        gather(offset, 8, memAddress(dst), dst.remaining());
+        return self();
+    }
+
+    /** {@code double} version of {@link #scatter(int, byte[])}. */
+    public SELF scatter(int offset, double[] src) {
+        long dst    = fieldAddress(offset, 8);
+        long stride = sizeof();
+        for (int i = 0, n = checkScatter(src.length); i < n; i++) {
+            memPutDouble(dst + i * stride, src[i]);
+        }
+        return self();
+    }
+
+    /** {@code double} version of {@link #scatter(int, ByteBuffer)}. */
+    public SELF scatter(int offset, DoubleBuffer src) {
+        scatter(offset, 8, memAddress(src), src.remaining());
+        return self();
+    }
+
+    private long fieldAddress(int offset, int size) {
+        if (offset < 0 || sizeof() - size < offset) {
+            throw new IllegalArgumentException("Invalid field offset: " + offset);
+        }
+        return address + (long)position * sizeof() + offset;
+    }
+
+    private int checkGather(int capacity) {
+        int n = remaining();
+        if (capacity < n) {
+            throw new BufferOverflowException();
+        }
+        return n;
+    }
+
+    private int checkScatter(int capacity) {
+        int n = remaining();
+        if (capacity < n) {
+            throw new BufferUnderflowException();
+        }
+        return n;
+    }
+
+    private void gather(int offset, int size, long dst, int capacity) {
+        long src    = fieldAddress(offset, size);
+        long stride = sizeof();
+        int  n      = checkGather(capacity);
+        switch (size) {
+            case 1:
+                for (int i = 0; i < n; i++) {
+                    memPutByte(dst + i, memGetByte(src + i * stride));
+                }
+                break;
+            case 2:
+                for (int i = 0; i < n; i++) {
+                    memPutShort(dst + ((long)i << 1), memGetShort(src + i * stride));
+                }
+                break;
+            case 4:
+                for (int i = 0; i < n; i++) {
+                    memPutInt(dst + ((long)i << 2), memGetInt(src + i * stride));
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    memPutLong(dst + ((long)i << 3), memGetLong(src + i * stride));
+                }
+        }
+    }
+
+    private void scatter(int offset, int size, long src, int capacity) {
+        long dst    = fieldAddress(offset, size);
+        long stride = sizeof();
+        int  n      = checkScatter(capacity);
+        switch (size) {
+            case 1:
+                for (int i = 0; i < n; i++) {
+                    memPutByte(dst + i * stride, memGetByte(src + i));
+                }
+                break;
+            case 2:
+                for (int i = 0; i < n; i++) {
+                    memPutShort(dst + i * stride, memGetShort(src + ((long)i << 1)));
+                }
+                break;
+            case 4:
+                for (int i = 0; i < n; i++) {
+                    memPutInt(dst + i * stride, memGetInt(src + ((long)i << 2)));
+                }
+                break;
+            default:
+                for (int i = 0; i < n; i++) {
+                    memPutLong(dst + i * stride, memGetLong(src + ((long)i << 3)));
+                }
+        }
+    }
+
     // --------------------------------------
 
     @Override
@@ -182,10 +613,10 @@ public abstract class StructBuffer<T extends Struct, SELF extends StructBuffer<T
         @Override
         @Nullable
         public Spliterator<T> trySplit() {
-            int lo = index,
-                mid = (lo + fence) >>> 1;
+            int lo  = index,
+                mid = getSplitIndex(address, sizeof(), lo, fence);
 
-            return lo < mid
+            return mid != -1
                 ? new StructSpliterator(lo, index = mid)
                 : null;
         }
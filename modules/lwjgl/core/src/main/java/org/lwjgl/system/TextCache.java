@@ -0,0 +1,295 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import java.nio.*;
+import java.util.*;
+
+import static org.lwjgl.system.MathUtil.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A cache of encoded and decoded strings, for applications that pass the same strings to, or receive the same strings from, native code repeatedly.
+ *
+ * <p>The encoder cache maps strings to null-terminated native buffers. The first request of a string encodes it into a buffer allocated with
+ * {@link MemoryUtil#memAlloc memAlloc}, subsequent requests return the same buffer. The number of cached buffers is bounded: when the capacity is exceeded,
+ * the least recently used buffer is freed. A buffer returned by this class is valid until it is evicted, until its string is {@link #release released} or
+ * until the cache is {@link #free freed}. The capacity should be larger than the working set of strings, or the buffers must not be retained across
+ * requests of other strings.</p>
+ *
+ * <p>The decoder cache maps null-terminated native strings to {@link String} instances. Entries are keyed by a hash of the string contents, not by address,
+ * so native strings that are modified or reallocated are decoded again. Cache hits verify the contents and do not allocate.</p>
+ *
+ * <p>Instances of this class are not thread-safe.</p>
+ */
+public class TextCache implements NativeResource {
+
+    private final int capacity;
+
+    private final Map<String, ByteBuffer> ascii;
+    private final Map<String, ByteBuffer> utf8;
+
+    private final DecodeEntry[] decoded;
+
+    /**
+     * Creates a new {@code TextCache} instance.
+     *
+     * @param capacity the maximum number of cached buffers per encoding and of cached decoded strings
+     */
+    public TextCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        this.capacity = capacity;
+
+        this.ascii = new EncodeMap();
+        this.utf8 = new EncodeMap();
+
+        this.decoded = new DecodeEntry[mathRoundPoT(capacity)];
+    }
+
+    /** Returns the maximum number of cached buffers per encoding. */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns a null-terminated ASCII encoded buffer with the contents of the specified string.
+     *
+     * <p>The returned buffer is shared, its position and limit must not be modified.</p>
+     *
+     * @param text the string to encode
+     *
+     * @return the cached buffer
+     */
+    public ByteBuffer ASCII(CharSequence text) {
+        String key = text.toString();
+
+        ByteBuffer buffer = ascii.get(key);
+        if (buffer == null) {
+            ascii.put(key, buffer = memASCII(key, true));
+        }
+        return buffer;
+    }
+
+    /** Returns the address of the buffer returned by {@link #ASCII(CharSequence) ASCII}. */
+    public long nASCII(CharSequence text) {
+        return memAddress(ASCII(text));
+    }
+
+    /**
+     * Returns a null-terminated UTF-8 encoded buffer with the contents of the specified string.
+     *
+     * <p>The returned buffer is shared, its position and limit must not be modified.</p>
+     *
+     * @param text the string to encode
+     *
+     * @return the cached buffer
+     */
+    public ByteBuffer UTF8(CharSequence text) {
+        String key = text.toString();
+
+        ByteBuffer buffer = utf8.get(key);
+        if (buffer == null) {
+            utf8.put(key, buffer = memUTF8(key, true));
+        }
+        return buffer;
+    }
+
+    /** Returns the address of the buffer returned by {@link #UTF8(CharSequence) UTF8}. */
+    public long nUTF8(CharSequence text) {
+        return memAddress(UTF8(text));
+    }
+
+    /**
+     * Frees the cached buffers of the specified string.
+     *
+     * @param text the string to release
+     *
+     * @return true if a cached buffer was freed
+     */
+    public boolean release(CharSequence text) {
+        String key = text.toString();
+
+        ByteBuffer a = ascii.remove(key);
+        ByteBuffer u = utf8.remove(key);
+
+        memFree(a);
+        memFree(u);
+
+        return a != null || u != null;
+    }
+
+    /**
+     * Converts the null-terminated ASCII encoded string at the specified memory address to a {@link String}.
+     *
+     * <p>Returns a cached instance if the same string has been decoded before.</p>
+     *
+     * @param address the string memory address
+     *
+     * @return the decoded {@link String}
+     */
+    public String decodeASCII(long address) {
+        return decode(address, memLengthNT1(address, Integer.MAX_VALUE), false);
+    }
+
+    /**
+     * Converts the null-terminated UTF-8 encoded string at the specified memory address to a {@link String}.
+     *
+     * <p>Returns a cached instance if the same string has been decoded before.</p>
+     *
+     * @param address the string memory address
+     *
+     * @return the decoded {@link String}
+     */
+    public String decodeUTF8(long address) {
+        return decode(address, memLengthNT1(address, Integer.MAX_VALUE), true);
+    }
+
+    /**
+     * Decodes the bytes with index {@code [position(), position()+remaining()}) in {@code buffer}, as a UTF-8 string.
+     *
+     * <p>Returns a cached instance if the same string has been decoded before. The current {@code position} and {@code limit} of the specified
+     * {@code buffer} are not affected by this operation.</p>
+     *
+     * @param buffer the direct {@link ByteBuffer} to decode
+     *
+     * @return the decoded {@link String}
+     */
+    public String decodeUTF8(ByteBuffer buffer) {
+        return decode(memAddress(buffer), buffer.remaining(), true);
+    }
+
+    private String decode(long address, int length, boolean isUTF8) {
+        int hash = hash(address, length, isUTF8);
+
+        int         index = hash & (decoded.length - 1);
+        DecodeEntry entry = decoded[index];
+        if (entry != null && entry.hash == hash && entry.isUTF8 == isUTF8 && entry.equals(address, length)) {
+            return entry.value;
+        }
+
+        ByteBuffer buffer = memByteBuffer(address, length);
+        String value = isUTF8
+            ? MemoryTextUtil.decodeUTF8(buffer, length, 0)
+            : MemoryTextUtil.decodeASCII(buffer, length, 0);
+
+        if (entry == null) {
+            decoded[index] = entry = new DecodeEntry();
+        }
+        entry.set(hash, isUTF8, address, length, value);
+
+        return value;
+    }
+
+    // The bytes are hashed and compared 8 at a time, in native byte order
+    private static int hash(long address, int length, boolean isUTF8) {
+        long h = isUTF8 ? 1L : 0L;
+
+        int i = 0;
+        for (; i <= length - 8; i += 8) {
+            h = h * 0x9E3779B97F4A7C15L + memGetLong(address + i);
+        }
+        for (; i < length; i++) {
+            h = h * 31L + memGetByte(address + i);
+        }
+        h = (h + length) * 0x9E3779B97F4A7C15L;
+
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /** Frees all cached buffers and clears the decoder cache. */
+    public void clear() {
+        for (ByteBuffer buffer : ascii.values()) {
+            memFree(buffer);
+        }
+        ascii.clear();
+
+        for (ByteBuffer buffer : utf8.values()) {
+            memFree(buffer);
+        }
+        utf8.clear();
+
+        Arrays.fill(decoded, null);
+    }
+
+    /** Returns the number of cached buffers, of both encodings. */
+    public int size() {
+        return ascii.size() + utf8.size();
+    }
+
+    /** Frees all cached buffers. */
+    @Override
+    public void free() {
+        clear();
+    }
+
+    private class EncodeMap extends LinkedHashMap<String, ByteBuffer> {
+
+        private static final long serialVersionUID = 1L;
+
+        EncodeMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ByteBuffer> eldest) {
+            if (capacity < size()) {
+                memFree(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    private static class DecodeEntry {
+
+        int     hash;
+        boolean isUTF8;
+
+        ByteBuffer bytes = ByteBuffer.allocate(0);
+        int        length;
+
+        String value = "";
+
+        boolean equals(long address, int length) {
+            if (this.length != length) {
+                return false;
+            }
+
+            int i = 0;
+            for (; i <= length - 8; i += 8) {
+                if (bytes.getLong(i) != memGetLong(address + i)) {
+                    return false;
+                }
+            }
+            for (; i < length; i++) {
+                if (bytes.get(i) != memGetByte(address + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void set(int hash, boolean isUTF8, long address, int length, String value) {
+            this.hash = hash;
+            this.isUTF8 = isUTF8;
+
+            if (bytes.capacity() < length) {
+                bytes = ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+            }
+            for (int i = 0; i < length; i++) {
+                bytes.put(i, memGetByte(address + i));
+            }
+            this.length = length;
+
+            this.value = value;
+        }
+
+    }
+
+}
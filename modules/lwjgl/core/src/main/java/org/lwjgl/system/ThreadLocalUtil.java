@@ -7,7 +7,6 @@ package org.lwjgl.system;
 import org.lwjgl.*;
 
 import java.lang.reflect.*;
-import java.util.*;
 import java.util.stream.*;
 
 import static org.lwjgl.system.Checks.*;
@@ -130,16 +129,24 @@ public final class ThreadLocalUtil {
         }
     }
 
+    /** The function address fields of each capabilities class, in declaration order. Cached because each context creates a capabilities instance. */
+    private static final ClassValue<Field[]> FUNCTION_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return Stream.of(type.getFields())
+                .filter(f -> f.getType() == long.class)
+                .toArray(Field[]::new);
+        }
+    };
+
     public static PointerBuffer getAddressesFromCapabilities(Object caps) {
-        List<Field> functions = Stream.of(caps.getClass().getFields())
-            .filter(f -> f.getType() == long.class)
-            .collect(Collectors.toList());
+        Field[] functions = FUNCTION_FIELDS.get(caps.getClass());
 
-        PointerBuffer addresses = BufferUtils.createPointerBuffer(functions.size());
+        PointerBuffer addresses = BufferUtils.createPointerBuffer(functions.length);
 
         try {
-            for (int i = 0; i < functions.size(); i++) {
-                long a = functions.get(i).getLong(caps);
+            for (int i = 0; i < functions.length; i++) {
+                long a = functions[i].getLong(caps);
                 addresses.put(i, a != NULL ? a : FUNCTION_MISSING_ABORT);
             }
         } catch (IllegalAccessException e) {
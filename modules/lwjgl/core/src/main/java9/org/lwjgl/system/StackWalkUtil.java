@@ -20,6 +20,38 @@ final class StackWalkUtil {
             .toArray(StackTraceElement[]::new);
     }
 
+    static int stackWalkHashCode(Object[] a) {
+        // Does not use toStackTraceElement, which resolves the source file and line number
+        int hash = 1;
+        for (Object o : a) {
+            StackWalker.StackFrame f = (StackWalker.StackFrame)o;
+
+            hash = 31 * hash + f.getClassName().hashCode();
+            hash = 31 * hash + f.getMethodName().hashCode();
+            hash = 31 * hash + f.getByteCodeIndex();
+        }
+        return hash;
+    }
+
+    static boolean stackWalkEquals(Object[] a, Object[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+
+        for (int i = 0; i < a.length; i++) {
+            StackWalker.StackFrame x = (StackWalker.StackFrame)a[i];
+            StackWalker.StackFrame y = (StackWalker.StackFrame)b[i];
+
+            if (x.getByteCodeIndex() != y.getByteCodeIndex() ||
+                !x.getMethodName().equals(y.getMethodName()) ||
+                !x.getClassName().equals(y.getClassName())
+            ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     static Object stackWalkGetMethod(Class<?> after) {
         return StackWalker.getInstance()
             .walk(s -> s
@@ -51,7 +51,21 @@ val stdlib = "LibCStdlib".nativeClass(Module.CORE_LIBC) {
         AutoSizeResult..size_t.IN("size", "the number of bytes to allocate per element")
     )
 
-    void_p(
+    // Memory allocated with the explicit memory management API may be freed or reallocated with these functions
+    val untrack = statement(
+        """$t${t}if (LeakDetector.ENABLED) {
+$t$t${t}LeakDetector.untrack(memAddressSafe(ptr));
+$t$t}"""
+    )
+    val retrack = statement(
+        """$t${t}if (LeakDetector.ENABLED) {
+$t$t${t}LeakDetector.realloc(memAddressSafe(ptr), $RESULT, size);
+$t$t}"""
+    )
+
+    Code(
+        javaAfterNative = retrack
+    )..void_p(
         "realloc",
         """
         Changes the size of the memory block pointed to by {@code ptr} to {@code size} bytes  The contents will be unchanged in the range from the start of the
@@ -65,7 +79,9 @@ val stdlib = "LibCStdlib".nativeClass(Module.CORE_LIBC) {
         AutoSizeResult..size_t.IN("size", "the new memory block size, in bytes")
     )
 
-    OffHeapOnly..void(
+    Code(
+        javaInit = untrack
+    )..OffHeapOnly..void(
         "free",
         """
         Frees the memory space pointed to by {@code ptr}, which must have been returned by a previous call to #malloc(), #calloc(), or #realloc(). Otherwise,
@@ -89,6 +105,7 @@ val stdlib = "LibCStdlib".nativeClass(Module.CORE_LIBC) {
     )
 
     Code(
+        javaInit = untrack,
         nativeCall = "${t}__aligned_free(ptr);"
     )..OffHeapOnly..void(
         "aligned_free",
@@ -92,4 +92,46 @@ val string = "LibCString".nativeClass(Module.CORE_LIBC) {
         }
         return nmemcpy(memAddress(dest), memAddress(src), (long)src.remaining() * src.sizeof());
     }""")
+
+    opaque_p(
+        "memmove",
+        "Copies characters between buffers. The buffers may overlap, the characters are copied as if through an intermediate buffer.",
+
+        MultiType(
+            PointerMapping.DATA_SHORT,
+            PointerMapping.DATA_INT,
+            PointerMapping.DATA_LONG,
+            PointerMapping.DATA_FLOAT,
+            PointerMapping.DATA_DOUBLE,
+            byteArray = true
+        )..void_p.IN("dest", "new buffer"),
+        MultiType(
+            PointerMapping.DATA_SHORT,
+            PointerMapping.DATA_INT,
+            PointerMapping.DATA_LONG,
+            PointerMapping.DATA_FLOAT,
+            PointerMapping.DATA_DOUBLE,
+            byteArray = true
+        )..const..void_p.IN("src", "buffer to copy from"),
+        AutoSize("dest", "src")..size_t.IN("count", "number of characters to copy"),
+
+        returnDoc = "the value of {@code dest}"
+    )
+
+    customMethod("""
+    /**
+     * Copies characters between buffers. The buffers may overlap, the characters are copied as if through an intermediate buffer.
+     *
+     * @param dest new buffer
+     * @param src  buffer to copy from
+     *
+     * @return the value of {@code dest}
+     */
+    @NativeType("void *")
+    public static <T extends CustomBuffer<T>> long memmove(@NativeType("void *") T dest, @NativeType("const void *") T src) {
+        if (CHECKS) {
+            check(src, dest.remaining());
+        }
+        return nmemmove(memAddress(dest), memAddress(src), (long)src.remaining() * src.sizeof());
+    }""")
 }
\ No newline at end of file
@@ -3,6 +3,7 @@
  * License terms: https://www.lwjgl.org/license
  */
 module org.lwjgl {
+    requires static java.management;
     requires jdk.unsupported;
 
     exports org.lwjgl;
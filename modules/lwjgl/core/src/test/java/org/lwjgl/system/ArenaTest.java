@@ -0,0 +1,167 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.lwjgl.system.windows.*;
+import org.testng.annotations.*;
+
+import java.lang.ref.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class ArenaTest {
+
+    public void testAllocation() {
+        Arena arena = Arena.create(256);
+        try {
+            long a = arena.nmalloc(1, 3);
+            long b = arena.nmalloc(8, 8);
+            assertEquals(b & 7L, 0L);
+            assertTrue(a + 3 <= b);
+
+            IntBuffer ints = arena.callocInt(4);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(ints.get(i), 0);
+            }
+
+            // Does not fit in the first chunk
+            long large = arena.nmalloc(16, 1000);
+            assertEquals(large & 15L, 0L);
+            memSet(large, 0xFF, 1000);
+            assertEquals(arena.getCapacity(), 256L + 1015L);
+        } finally {
+            arena.free();
+        }
+    }
+
+    public void testReset() {
+        Arena arena = Arena.create(1024);
+        try {
+            long first = arena.nmalloc(8, 100);
+            arena.nmalloc(8, 900);
+            assertTrue(900 + 100 <= arena.getUsed());
+
+            long highWaterMark = arena.getHighWaterMark();
+            assertEquals(highWaterMark, arena.getUsed());
+
+            int epoch = arena.getEpoch();
+            arena.reset();
+            assertEquals(arena.getEpoch(), epoch + 1);
+            assertEquals(arena.getUsed(), 0L);
+            assertEquals(arena.getHighWaterMark(), highWaterMark);
+
+            // The chunks are reused
+            long capacity = arena.getCapacity();
+            assertEquals(arena.nmalloc(8, 100), first);
+            arena.nmalloc(8, 900);
+            assertEquals(arena.getCapacity(), capacity);
+
+            arena.reset();
+            arena.resetHighWaterMark();
+            arena.nmalloc(1, 10);
+            assertEquals(arena.getHighWaterMark(), 10L);
+        } finally {
+            arena.free();
+        }
+    }
+
+    public void testStruct() {
+        Arena arena = Arena.create();
+        try {
+            RECT rect = RECT.calloc(arena);
+            assertEquals(rect.right(), 0);
+            assertEquals(rect.address() % RECT.ALIGNOF, 0L);
+
+            RECT.Buffer rects = RECT.malloc(10, arena);
+            assertEquals(rects.capacity(), 10);
+            assertTrue(rect.address() + RECT.SIZEOF <= rects.address());
+        } finally {
+            arena.free();
+        }
+    }
+
+    public void testLocal() throws Exception {
+        Arena arena = Arena.create(4096);
+        try {
+            int threads = 4;
+            int count   = 1000;
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<long[]>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int value = t;
+                    futures.add(executor.submit(() -> {
+                        Arena local = arena.local(256);
+                        assertTrue(local.isLocal());
+                        assertSame(arena.local(), local);
+
+                        long[] addresses = new long[count];
+                        for (int i = 0; i < count; i++) {
+                            addresses[i] = local.nmalloc(4, 4);
+                            memPutInt(addresses[i], value);
+                        }
+                        assertEquals(local.getUsed(), count * 4L);
+                        return addresses;
+                    }));
+                }
+
+                Set<Long> unique = new HashSet<>();
+                for (int t = 0; t < threads; t++) {
+                    for (long address : futures.get(t).get()) {
+                        assertEquals(memGetInt(address), t);
+                        assertTrue(unique.add(address));
+                    }
+                }
+                assertTrue(threads * count * 4L <= arena.getUsed());
+
+                // The sub-arenas are reset with the parent
+                arena.reset();
+                executor.submit(() -> {
+                    Arena local = arena.local();
+                    assertEquals(local.getUsed(), 0L);
+                    assertEquals(local.getHighWaterMark(), count * 4L);
+                    local.nmalloc(4, 4);
+                    assertEquals(local.getUsed(), 4L);
+                }).get();
+
+                expectThrows(IllegalStateException.class, () -> arena.local().reset());
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            arena.free();
+        }
+    }
+
+    private static WeakReference<Arena> createAndFree() {
+        Arena arena = Arena.create(4096);
+
+        Arena local = arena.local();
+        local.nmalloc(4, 4);
+
+        arena.free();
+        assertNotSame(arena.local(), local);
+        arena.free();
+
+        return new WeakReference<>(arena);
+    }
+
+    public void testLocalDoesNotRetainParent() throws InterruptedException {
+        // The sub-arena of the current thread stays in its ThreadLocalMap, it must not keep the arena reachable
+        WeakReference<Arena> arena = createAndFree();
+        for (int i = 0; i < 10 && arena.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(arena.get());
+    }
+
+}
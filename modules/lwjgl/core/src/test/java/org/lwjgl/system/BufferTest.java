@@ -86,4 +86,74 @@ public class BufferTest {
         buffer.free();
     }
 
+    public void testStructBufferFlyweight() {
+        JNINativeMethod.Buffer buffer = JNINativeMethod.malloc(10);
+
+        long expected = fillBuffer(buffer);
+
+        long[] actual = new long[1];
+        buffer.forEachFlyweight(struct -> actual[0] += struct.fnPtr());
+        assertEquals(actual[0], expected);
+
+        actual[0] = 0L;
+        buffer.forEachAddress(address -> actual[0] += JNINativeMethod.nfnPtr(address));
+        assertEquals(actual[0], expected);
+
+        JNINativeMethod flyweight = buffer.flyweight();
+        assertEquals(flyweight.fnPtr(), 1L);
+        assertSame(buffer.flyweight(flyweight, 9), flyweight);
+        assertEquals(flyweight.fnPtr(), 10L);
+        assertEquals(flyweight.address(), buffer.get(9).address());
+
+        expectThrows(IndexOutOfBoundsException.class, () -> buffer.flyweight(flyweight, -1));
+
+        buffer.position(buffer.limit());
+        expectThrows(BufferUnderflowException.class, buffer::flyweight);
+
+        buffer.free();
+    }
+
+    public void testStructBufferParallelBulk() {
+        JNINativeMethod.Buffer buffer = JNINativeMethod.malloc(100_000);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            JNINativeMethod value = JNINativeMethod.callocStack(stack).fnPtr(7L);
+            buffer.parallelFill(value);
+        }
+        buffer.parallelForEachAddress(address -> JNINativeMethod.nfnPtr(address, JNINativeMethod.nfnPtr(address) + 1L));
+        assertEquals(buffer.stream().mapToLong(JNINativeMethod::fnPtr).sum(), 8L * buffer.remaining());
+
+        JNINativeMethod.Buffer copy = JNINativeMethod.calloc(100_000);
+        copy.parallelPut(buffer);
+        assertEquals(copy.position(), copy.capacity());
+        copy.flip();
+        assertEquals(copy.parallelStream().mapToLong(JNINativeMethod::fnPtr).sum(), 8L * buffer.remaining());
+
+        copy.parallelFill((byte)0);
+        copy.forEach(struct -> assertEquals(struct.fnPtr(), 0L));
+
+        // Overlapping views of the same memory
+        JNINativeMethod.Buffer shifted = JNINativeMethod.create(copy.address(1), copy.capacity() - 1);
+        copy.clear();
+        expectThrows(IllegalArgumentException.class, () -> copy.parallelPut(shifted));
+        expectThrows(IllegalArgumentException.class, () -> shifted.parallelPut(copy.limit(copy.capacity() - 1)));
+        assertEquals(copy.position(), 0);
+
+        copy.free();
+        buffer.free();
+    }
+
+    public void testSplitIndex() {
+        // Too small to split
+        assertEquals(CustomBuffer.getSplitIndex(0x10000L, 16, 0, 100), -1);
+
+        // Large ranges split at page boundaries
+        int split = CustomBuffer.getSplitIndex(0x10008L, 8, 0, 1_000_000);
+        assertEquals((0x10008L + split * 8L) & (PAGE_SIZE - 1), 0L);
+        assertTrue(Math.abs(split - 500_000) < PAGE_SIZE / 8);
+
+        // Falls back to the middle if no element starts at a cache line boundary
+        assertEquals(CustomBuffer.getSplitIndex(0x10001L, 24, 0, 2048), 1024);
+    }
+
 }
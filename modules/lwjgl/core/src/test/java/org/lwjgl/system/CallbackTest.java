@@ -0,0 +1,332 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.testng.*;
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.JNI.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.dyncall.DynCall.*;
+import static org.lwjgl.system.dyncall.DynCallback.*;
+import static org.testng.Assert.*;
+
+@Test
+public class CallbackTest {
+
+    private static class Recorder implements CallbackI.V {
+
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        final CountDownLatch latch;
+
+        Recorder(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public String getSignature() {
+            return "(ii)v";
+        }
+
+        @Override
+        public boolean usePackedArguments() {
+            return true;
+        }
+
+        @Override
+        public void callback(long args) {
+            calls.add(memGetInt(args) + ":" + memGetInt(args + 8) + ":" + Thread.currentThread().getName());
+            latch.countDown();
+        }
+
+    }
+
+    public void testAsyncDispatch() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "dispatcher"));
+        try (AsyncCallbackDispatcher dispatcher = new AsyncCallbackDispatcher(executor, 64, 2, AsyncCallbackDispatcher.Overflow.BLOCK)) {
+            Recorder recorder = new Recorder(100);
+
+            long fp = dispatcher.create(recorder);
+            try {
+                for (int i = 0; i < 100; i++) {
+                    invokeV(fp, i, -i);
+                }
+                assertTrue(recorder.latch.await(10, TimeUnit.SECONDS));
+            } finally {
+                Callback.free(fp);
+            }
+
+            // In order, on the executor thread
+            for (int i = 0; i < 100; i++) {
+                assertEquals(recorder.calls.get(i), i + ":" + -i + ":dispatcher");
+            }
+            assertEquals(dispatcher.getDispatchedCount(), 100L);
+            assertEquals(dispatcher.getDroppedCount(), 0L);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testAsyncDispatchOverflow() throws InterruptedException {
+        // Nothing is dispatched until the executor is released
+        CountDownLatch  gate     = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        try (AsyncCallbackDispatcher dispatcher = new AsyncCallbackDispatcher(executor, 4, 2, AsyncCallbackDispatcher.Overflow.DROP)) {
+            Recorder recorder = new Recorder(4);
+
+            long fp = dispatcher.create(recorder);
+            try {
+                for (int i = 0; i < 10; i++) {
+                    invokeV(fp, i, i);
+                }
+                assertEquals(dispatcher.getDroppedCount(), 6L);
+                assertEquals(dispatcher.getPendingCount(), 4);
+
+                gate.countDown();
+                assertTrue(recorder.latch.await(10, TimeUnit.SECONDS));
+            } finally {
+                Callback.free(fp);
+            }
+            assertEquals(recorder.calls.size(), 4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testAsyncDispatchRejected() throws InterruptedException {
+        Executor executor = command -> {
+            throw new RejectedExecutionException();
+        };
+        try (AsyncCallbackDispatcher dispatcher = new AsyncCallbackDispatcher(executor, 4, 2, AsyncCallbackDispatcher.Overflow.DROP)) {
+            Recorder recorder = new Recorder(10);
+
+            long fp = dispatcher.create(recorder);
+            try {
+                for (int i = 0; i < 10; i++) {
+                    invokeV(fp, i, i);
+                }
+            } finally {
+                Callback.free(fp);
+            }
+
+            // Delivered on the calling thread, nothing left in the queue
+            assertTrue(recorder.latch.await(0, TimeUnit.SECONDS));
+            assertEquals(recorder.calls.get(9), "9:9:" + Thread.currentThread().getName());
+            assertEquals(dispatcher.getDispatchedCount(), 10L);
+            assertEquals(dispatcher.getDroppedCount(), 0L);
+            assertEquals(dispatcher.getPendingCount(), 0);
+        }
+    }
+
+    public void testAsyncDispatchBlockOnExecutorThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "dispatcher"));
+        try (AsyncCallbackDispatcher dispatcher = new AsyncCallbackDispatcher(executor, 4, 2, AsyncCallbackDispatcher.Overflow.BLOCK)) {
+            Recorder recorder = new Recorder(10);
+
+            long fp = dispatcher.create(recorder);
+            try {
+                // The dispatch task is queued behind the producer, which must not wait for it
+                executor.submit(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        invokeV(fp, i, i);
+                    }
+                }).get(10, TimeUnit.SECONDS);
+                assertTrue(recorder.latch.await(10, TimeUnit.SECONDS));
+            } finally {
+                Callback.free(fp);
+            }
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals(recorder.calls.get(i), i + ":" + i + ":dispatcher");
+            }
+            assertEquals(dispatcher.getDroppedCount(), 0L);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testAsyncDispatchFreeAfterShutdown() throws InterruptedException {
+        CountDownLatch  gate     = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        Recorder recorder = new Recorder(2);
+        try (AsyncCallbackDispatcher dispatcher = new AsyncCallbackDispatcher(executor, 4, 2, AsyncCallbackDispatcher.Overflow.DROP)) {
+            long fp = dispatcher.create(recorder);
+            try {
+                invokeV(fp, 1, 1);
+                invokeV(fp, 2, 2);
+            } finally {
+                Callback.free(fp);
+            }
+
+            // The dispatch task is discarded, free() must not wait for it
+            executor.shutdownNow();
+        }
+
+        // Delivered on the thread that freed the dispatcher
+        assertTrue(recorder.latch.await(0, TimeUnit.SECONDS));
+        assertEquals(recorder.calls.get(1), "2:2:" + Thread.currentThread().getName());
+    }
+
+    public void testAsyncDispatchRequiresPackedArguments() {
+        try (AsyncCallbackDispatcher dispatcher = new AsyncCallbackDispatcher(Runnable::run, 4, 2, AsyncCallbackDispatcher.Overflow.DROP)) {
+            expectThrows(IllegalArgumentException.class, () -> dispatcher.create(new CallbackI.V() {
+                @Override
+                public String getSignature() {
+                    return "(ii)v";
+                }
+
+                @Override
+                public void callback(long args) {
+                }
+            }));
+        }
+    }
+
+    private static long createIncrement(int delta) {
+        return new CallbackI.I() {
+            @Override
+            public String getSignature() {
+                return "(i)i";
+            }
+
+            @Override
+            public int callback(long args) {
+                return dcbArgInt(args) + delta;
+            }
+        }.address();
+    }
+
+    public void testTrampolinePool() {
+        Configuration.CALLBACK_POOL_SIZE.set(2);
+        try {
+            Callback.trimPool();
+
+            long hits   = Callback.getPoolHitCount();
+            long misses = Callback.getPoolMissCount();
+
+            long a = createIncrement(1);
+            long b = createIncrement(2);
+            long c = createIncrement(3);
+            assertEquals(Callback.getPoolMissCount() - misses, 3L);
+
+            Callback.free(a);
+            Callback.free(b);
+            Callback.free(c);
+            assertEquals(Callback.getPoolSize(), 2);
+
+            long d = createIncrement(10);
+            assertEquals(Callback.getPoolHitCount() - hits, 1L);
+            assertTrue(d == a || d == b);
+            assertEquals(invokeI(d, 5), 15);
+
+            Callback.free(d);
+            Callback.trimPool();
+            assertEquals(Callback.getPoolSize(), 0);
+        } finally {
+            Configuration.CALLBACK_POOL_SIZE.set(null);
+        }
+    }
+
+    private static CallbackI.V createPacked(String signature) {
+        return new CallbackI.V() {
+            @Override
+            public String getSignature() {
+                return signature;
+            }
+
+            @Override
+            public boolean usePackedArguments() {
+                return true;
+            }
+
+            @Override
+            public void callback(long args) {
+            }
+        };
+    }
+
+    public void testPackedSignature() {
+        expectThrows(IllegalArgumentException.class, () -> createPacked("(iZ)v").address());
+        expectThrows(IllegalArgumentException.class, () -> createPacked("(" + String.join("", Collections.nCopies(33, "i")) + ")v").address());
+    }
+
+    public void testPackedArguments() {
+        if (!Callback.isPackedSupported()) {
+            throw new SkipException("The LWJGL native library does not support packed callback arguments.");
+        }
+
+        // 15 integer and 10 floating-point arguments, more than are passed in registers on any supported ABI
+        int    groups    = 5;
+        String signature = "(" + String.join("", Collections.nCopies(groups, "ilfdp")) + ")d";
+
+        List<String> received = new ArrayList<>();
+
+        long fp = new CallbackI.D() {
+            @Override
+            public String getSignature() {
+                return signature;
+            }
+
+            @Override
+            public boolean usePackedArguments() {
+                return true;
+            }
+
+            @Override
+            public double callback(long args) {
+                double sum = 0.0;
+                for (int i = 0; i < groups; i++, args += 5 * 8) {
+                    received.add(memGetInt(args) + ":" + memGetLong(args + 8) + ":" + memGetFloat(args + 16) + ":" + memGetDouble(args + 24) + ":" +
+                                 Long.toHexString(memGetAddress(args + 32)));
+                    sum += memGetDouble(args + 24);
+                }
+                return sum;
+            }
+        }.address();
+
+        long vm = dcNewCallVM(1024);
+        try {
+            dcMode(vm, DC_CALL_C_DEFAULT);
+            dcReset(vm);
+            for (int i = 0; i < groups; i++) {
+                dcArgInt(vm, -1 - i);
+                dcArgLongLong(vm, 0x1234_5678_9ABCL << i);
+                dcArgFloat(vm, 0.5f + i);
+                dcArgDouble(vm, 1e10 + i);
+                dcArgPointer(vm, 0xCAFE_0000L + i);
+            }
+            assertEquals(dcCallDouble(vm, fp), groups * 1e10 + 10.0);
+        } finally {
+            dcFree(vm);
+            Callback.free(fp);
+        }
+
+        assertEquals(received.size(), groups);
+        for (int i = 0; i < groups; i++) {
+            assertEquals(received.get(i), (-1 - i) + ":" + (0x1234_5678_9ABCL << i) + ":" + (0.5f + i) + ":" + (1e10 + i) + ":" +
+                                          Long.toHexString(0xCAFE_0000L + i));
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import static org.lwjgl.system.dyncall.DynCallback.*;
+import static org.testng.Assert.*;
+
+@Test
+public class CommandListTest {
+
+    public void testArguments() {
+        List<Object> values = new ArrayList<>();
+
+        long function = new CallbackI.V() {
+            @Override
+            public String getSignature() {
+                return "(Bcsilfdp)v";
+            }
+
+            @Override
+            public void callback(long args) {
+                values.add(dcbArgBool(args));
+                values.add(dcbArgChar(args));
+                values.add(dcbArgShort(args));
+                values.add(dcbArgInt(args));
+                values.add(dcbArgLongLong(args));
+                values.add(dcbArgFloat(args));
+                values.add(dcbArgDouble(args));
+                values.add(dcbArgPointer(args));
+            }
+        }.address();
+
+        CommandList commands = new CommandList(16);
+        try {
+            commands.invoke(function, 8)
+                .argBool(true)
+                .argByte((byte)-2)
+                .argShort((short)-3)
+                .argInt(4)
+                .argLong(Long.MAX_VALUE)
+                .argFloat(6.5f)
+                .argDouble(7.25)
+                .argPointer(0xCAFEL);
+
+            assertEquals(commands.getCommandCount(), 1);
+            assertTrue(16 < commands.getSize());
+
+            commands.execute();
+            commands.execute();
+        } finally {
+            commands.free();
+            Callback.free(function);
+        }
+
+        List<Object> expected = Arrays.asList(true, (byte)-2, (short)-3, 4, Long.MAX_VALUE, 6.5f, 7.25, 0xCAFEL);
+        assertEquals(values.subList(0, 8), expected);
+        assertEquals(values.subList(8, 16), expected);
+    }
+
+    public void testOrder() {
+        List<Integer> values = new ArrayList<>();
+
+        long function = new CallbackI.V() {
+            @Override
+            public String getSignature() {
+                return "(i)v";
+            }
+
+            @Override
+            public void callback(long args) {
+                values.add(dcbArgInt(args));
+            }
+        }.address();
+
+        CommandList commands = new CommandList(0);
+        try {
+            for (int i = 0; i < 100; i++) {
+                commands.call(function, 1).argInt(i);
+            }
+            commands.execute();
+
+            commands.reset();
+            assertEquals(commands.getCommandCount(), 0);
+            commands.execute();
+        } finally {
+            commands.free();
+            Callback.free(function);
+        }
+
+        assertEquals(values.size(), 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(values.get(i).intValue(), i);
+        }
+    }
+
+    public void testIncompleteCommand() {
+        CommandList commands = new CommandList();
+        try {
+            commands.invoke(1L, 2).argInt(1);
+            expectThrows(IllegalStateException.class, commands::execute);
+
+            commands.argInt(2);
+            expectThrows(IllegalStateException.class, () -> commands.argInt(3));
+        } finally {
+            commands.free();
+        }
+    }
+
+    public void testThreadAffinity() throws InterruptedException {
+        CommandList commands = new CommandList();
+        try {
+            AtomicReference<Throwable> error = new AtomicReference<>();
+
+            Thread thread = new Thread(() -> {
+                try {
+                    commands.execute();
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            });
+            thread.start();
+            thread.join();
+
+            assertTrue(error.get() instanceof IllegalStateException);
+        } finally {
+            commands.free();
+        }
+    }
+
+}
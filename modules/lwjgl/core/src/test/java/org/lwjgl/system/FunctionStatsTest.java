@@ -0,0 +1,83 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.stream.*;
+
+import static org.testng.Assert.*;
+
+@Test
+public class FunctionStatsTest {
+
+    static {
+        // Must be set before FunctionStats is initialized
+        Configuration.FUNCTION_STATS.set(true);
+    }
+
+    private static List<FunctionStats.Entry> getEntries(String className) {
+        return FunctionStats.getSnapshot().stream()
+            .filter(it -> it.getClassName().equals(className))
+            .collect(Collectors.toList());
+    }
+
+    public void testRecord() {
+        assertTrue(FunctionStats.ENABLED);
+
+        int base = FunctionStats.register("FunctionStatsTest", "fast", "slow", "unused");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(FunctionStats.end(base, FunctionStats.begin(), i), i);
+        }
+
+        long start = FunctionStats.begin();
+        LockSupport.parkNanos(2_000_000L);
+        FunctionStats.end(base + 1, start);
+
+        List<FunctionStats.Entry> entries = getEntries("FunctionStatsTest");
+        assertEquals(entries.size(), 2);
+
+        // Sorted by total latency
+        FunctionStats.Entry slow = entries.get(0);
+        FunctionStats.Entry fast = entries.get(1);
+
+        assertEquals(slow.getFunctionName(), "slow");
+        assertEquals(slow.getCallCount(), 1L);
+        assertTrue(2_000_000L <= slow.getTotalNanos());
+        assertTrue(2_000_000L < slow.getPercentile(50.0));
+
+        assertEquals(fast.getFunctionName(), "fast");
+        assertEquals(fast.getCallCount(), 10L);
+        assertEquals(LongStream.of(fast.getHistogram()).sum(), 10L);
+
+        FunctionStats.reset();
+        assertTrue(getEntries("FunctionStatsTest").isEmpty());
+    }
+
+    public void testConcurrentRecord() throws InterruptedException {
+        int function = FunctionStats.register("FunctionStatsConcurrentTest", "f");
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    FunctionStats.end(function, FunctionStats.begin());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<FunctionStats.Entry> entries = getEntries("FunctionStatsConcurrentTest");
+        assertEquals(entries.size(), 1);
+        assertEquals(entries.get(0).getCallCount(), 40_000L);
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class LeakDetectorTest {
+
+    private static boolean awaitLeaks(long count) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            System.gc();
+            if (count <= LeakDetector.getMetrics().getLeakCount()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static void trackUnreachable(long address, long size) {
+        LeakDetector.track(new Object(), address, size, LeakDetector.Type.MEMORY, true);
+    }
+
+    public void testLeak() throws InterruptedException {
+        LeakDetector.LeakDetectorMXBean metrics = LeakDetector.getMetrics();
+
+        long leaks = metrics.getLeakCount();
+        long bytes = metrics.getLeakedBytes();
+
+        long address = nmemAllocChecked(24);
+        try {
+            trackUnreachable(address, 24);
+            assertTrue(awaitLeaks(leaks + 1));
+
+            assertEquals(metrics.getLeakedBytes(), bytes + 24);
+
+            Map<String, Long> sites = metrics.getLeakSites();
+            assertFalse(sites.isEmpty());
+            assertFalse(sites.containsKey(LeakDetector.UNKNOWN_SITE));
+        } finally {
+            nmemFree(address);
+        }
+    }
+
+    public void testFreed() throws InterruptedException {
+        LeakDetector.LeakDetectorMXBean metrics = LeakDetector.getMetrics();
+
+        long address = nmemAllocChecked(8);
+        trackUnreachable(address, 8);
+        assertEquals(metrics.getTrackedBytes(), 8L);
+
+        LeakDetector.untrack(address);
+        nmemFree(address);
+        assertEquals(metrics.getTrackedBytes(), 0L);
+
+        // A leak after the free is detected, the freed allocation is not
+        long leaks = metrics.getLeakCount();
+
+        address = nmemAllocChecked(8);
+        try {
+            trackUnreachable(address, 8);
+            assertTrue(awaitLeaks(leaks + 1));
+            Thread.sleep(100);
+            assertEquals(metrics.getLeakCount(), leaks + 1);
+        } finally {
+            nmemFree(address);
+        }
+    }
+
+    public void testCallback() {
+        LeakDetector.LeakDetectorMXBean metrics = LeakDetector.getMetrics();
+
+        long count = metrics.getLiveCallbackCount();
+
+        LeakDetector.track(null, 0x1000L, 0L, LeakDetector.Type.CALLBACK);
+        assertEquals(metrics.getLiveCallbackCount(), count + 1);
+
+        LeakDetector.untrack(0x1000L);
+        assertEquals(metrics.getLiveCallbackCount(), count);
+    }
+
+    public void testAllocatorFree() {
+        LeakDetector.LeakDetectorMXBean metrics = LeakDetector.getMetrics();
+
+        // Memory freed through the public allocator must stop being tracked
+        MemoryAllocator allocator = new LeakDetector.Allocator(getAllocator());
+
+        Object owner = new Object();
+        long   count = metrics.getTrackedCount();
+        long   bytes = metrics.getTrackedBytes();
+
+        long address = allocator.malloc(16);
+        LeakDetector.track(owner, address, 16, LeakDetector.Type.MEMORY, false);
+        assertEquals(metrics.getTrackedCount(), count + 1);
+        assertEquals(metrics.getTrackedBytes(), bytes + 16);
+
+        address = allocator.realloc(address, 32);
+        assertEquals(metrics.getTrackedCount(), count);
+        assertEquals(metrics.getTrackedBytes(), bytes);
+
+        LeakDetector.track(owner, address, 32, LeakDetector.Type.MEMORY, false);
+        allocator.free(address);
+        assertEquals(metrics.getTrackedCount(), count);
+        assertEquals(metrics.getTrackedBytes(), bytes);
+
+        address = allocator.aligned_alloc(64, 64);
+        LeakDetector.track(owner, address, 64, LeakDetector.Type.ALIGNED_MEMORY, false);
+        allocator.aligned_free(address);
+        assertEquals(metrics.getTrackedCount(), count);
+        assertEquals(metrics.getTrackedBytes(), bytes);
+    }
+
+    public void testBindingRealloc() {
+        LeakDetector.LeakDetectorMXBean metrics = LeakDetector.getMetrics();
+
+        long count = metrics.getTrackedCount();
+        long bytes = metrics.getTrackedBytes();
+
+        // Memory reallocated by a binding is tracked at the new address, with the new size
+        LeakDetector.track(new Object(), 0x1000L, 16, LeakDetector.Type.MEMORY, false);
+        LeakDetector.realloc(0x1000L, 0x2000L, 64);
+        assertEquals(metrics.getTrackedCount(), count + 1);
+        assertEquals(metrics.getTrackedBytes(), bytes + 64);
+
+        // A failed reallocation keeps the original memory tracked
+        LeakDetector.realloc(0x2000L, NULL, 128);
+        assertEquals(metrics.getTrackedBytes(), bytes + 64);
+
+        // Untracked memory does not start being tracked
+        LeakDetector.realloc(0x3000L, 0x4000L, 32);
+        assertEquals(metrics.getTrackedCount(), count + 1);
+
+        // Reallocating to zero bytes frees the memory
+        LeakDetector.realloc(0x2000L, NULL, 0);
+        assertEquals(metrics.getTrackedCount(), count);
+        assertEquals(metrics.getTrackedBytes(), bytes);
+    }
+
+    public void testTrackReplaced() {
+        LeakDetector.LeakDetectorMXBean metrics = LeakDetector.getMetrics();
+
+        long count = metrics.getTrackedCount();
+        long bytes = metrics.getTrackedBytes();
+
+        // Memory freed without being untracked, then allocated again at the same address
+        Object owner = new Object();
+        LeakDetector.track(owner, 0x1000L, 16, LeakDetector.Type.MEMORY, false);
+        LeakDetector.track(owner, 0x1000L, 48, LeakDetector.Type.MEMORY, false);
+        assertEquals(metrics.getTrackedCount(), count + 1);
+        assertEquals(metrics.getTrackedBytes(), bytes + 48);
+
+        LeakDetector.untrack(0x1000L);
+        assertEquals(metrics.getTrackedCount(), count);
+        assertEquals(metrics.getTrackedBytes(), bytes);
+    }
+
+}
@@ -97,6 +97,422 @@ public class MemoryUtilTest {
         }
     }
 
+    public void testMemSetSizes() {
+        // Covers the Java loop size classes and the native threshold, with guard bytes on both sides
+        for (int value : new int[] { 0x00, 0x7F, 0x80, 0xA5, 0xFF }) {
+            for (int i = 0; i < 8; i++) {
+                for (int j = 0; j <= 256; j++) {
+                    long ref = nmemAlloc(8 + 256 + 8);
+                    long mem = nmemAlloc(8 + 256 + 8);
+
+                    memSetReference(ref, (byte)0x5A, 8 + 256 + 8);
+                    memSetReference(mem, (byte)0x5A, 8 + 256 + 8);
+
+                    memSetReference(ref + i, (byte)value, j);
+                    memSet(mem + i, value, j);
+
+                    for (int k = 0; k < 8 + 256 + 8; k++) {
+                        assertEquals(memGetByte(mem + k), memGetByte(ref + k));
+                    }
+
+                    nmemFree(mem);
+                    nmemFree(ref);
+                }
+            }
+        }
+    }
+
+    public void testMemCopySizes() {
+        // Covers the Java loop size classes, Unsafe.copyMemory and the native threshold, with guard bytes on both sides
+        long src = nmemAlloc(8 + 512);
+        for (int i = 0; i < 8 + 512; i++) {
+            memPutByte(src + i, (byte)i);
+        }
+
+        long dst = nmemAlloc(8 + 512 + 8);
+        for (int s = 0; s < 8; s++) {
+            for (int d = 0; d < 8; d++) {
+                for (int j = 0; j <= 512; j = j < 64 ? j + 1 : j + 7) {
+                    memSetReference(dst, (byte)0x5A, 8 + 512 + 8);
+
+                    memCopy(src + s, dst + d, j);
+
+                    for (int k = 0; k < 8 + 512 + 8; k++) {
+                        assertEquals(memGetByte(dst + k), d <= k && k < d + j ? memGetByte(src + s + (k - d)) : (byte)0x5A);
+                    }
+                }
+            }
+        }
+        nmemFree(dst);
+        nmemFree(src);
+    }
+
+    public void testMemCopyOverlapping() {
+        // Buffer.compact-style copies, to a lower address within the same block
+        for (int offset = 1; offset <= 16; offset++) {
+            for (int j = 0; j <= 128; j++) {
+                long mem = nmemAlloc(16 + 128);
+                for (int i = 0; i < 16 + 128; i++) {
+                    memPutByte(mem + i, (byte)i);
+                }
+
+                memCopy(mem + offset, mem, j);
+
+                for (int k = 0; k < j; k++) {
+                    assertEquals(memGetByte(mem + k), (byte)(k + offset));
+                }
+
+                nmemFree(mem);
+            }
+        }
+
+        // Buffer.put(Buffer) with a shifted view, to a higher address within the same block
+        for (int offset = 1; offset <= 16; offset++) {
+            for (int j = 0; j <= 128; j++) {
+                long mem = nmemAlloc(16 + 128);
+                for (int i = 0; i < 16 + 128; i++) {
+                    memPutByte(mem + i, (byte)i);
+                }
+
+                memCopy(mem, mem + offset, j);
+
+                for (int k = 0; k < j; k++) {
+                    assertEquals(memGetByte(mem + offset + k), (byte)k);
+                }
+
+                nmemFree(mem);
+            }
+        }
+    }
+
+    public void testSamplingAllocator() {
+        MemoryManage.SamplingAllocator allocator = new MemoryManage.SamplingAllocator(getAllocator(), 1L);
+
+        long[] addresses = new long[100];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = allocator.malloc(64);
+        }
+
+        int sizeClass = MemoryManage.SamplingAllocator.getSizeClass(64);
+        assertEquals(allocator.getSizeClassLimits()[sizeClass], 64L);
+
+        assertEquals(allocator.getAllocationCount(), 100L);
+        assertEquals(allocator.getAllocatedBytes(), 100L * 64L);
+        assertEquals(allocator.getSizeClassAllocationCounts()[sizeClass], 100L);
+        assertEquals(allocator.getSizeClassAllocatedBytes()[sizeClass], 100L * 64L);
+
+        // With an interval of 1 byte, every allocation is sampled
+        assertEquals(allocator.getSampleCount(), 100L);
+        assertEquals(allocator.getLiveBytes(), 100L * 64L);
+        assertEquals(allocator.getSizeClassLiveBytes()[sizeClass], 100L * 64L);
+
+        long[] reported = new long[1];
+        allocator.report((memory, threadId, threadName, stacktrace) -> reported[0] += memory);
+        assertEquals(reported[0], 100L * 64L);
+
+        for (long address : addresses) {
+            allocator.free(address);
+        }
+
+        assertEquals(allocator.getFreeCount(), 100L);
+        assertEquals(allocator.getLiveBytes(), 0L);
+    }
+
+    public void testSamplingAllocatorTerminatedThreads() throws InterruptedException {
+        MemoryManage.SamplingAllocator allocator = new MemoryManage.SamplingAllocator(getAllocator(), 1L);
+
+        long[] addresses = new long[10];
+        for (int i = 0; i < addresses.length; i++) {
+            int index = i;
+
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 9; j++) {
+                    allocator.free(allocator.malloc(32));
+                }
+                addresses[index] = allocator.malloc(32);
+            });
+            thread.start();
+            thread.join();
+        }
+
+        // The counters of the terminated threads are retired
+        assertEquals(allocator.getAllocationCount(), 100L);
+        assertEquals(allocator.getAllocatedBytes(), 100L * 32L);
+        assertEquals(allocator.getFreeCount(), 90L);
+        assertTrue(allocator.getThreadAllocatedBytes().isEmpty());
+
+        // Their live allocations are still reported
+        assertEquals(allocator.getThreadLiveBytes().size(), 10);
+        assertEquals(allocator.getLiveBytes(), 10L * 32L);
+
+        for (long address : addresses) {
+            allocator.free(address);
+        }
+        assertEquals(allocator.getFreeCount(), 100L);
+        assertTrue(allocator.getThreadLiveBytes().isEmpty());
+        assertEquals(allocator.getThreadAllocatedBytes().size(), 1);
+    }
+
+    public void testAllocationTable() {
+        MemoryManage.AllocationTable table = new MemoryManage.AllocationTable();
+
+        // Aligned addresses, enough to resize the stripes
+        long[] addresses = new long[10_000];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = 0x10000L + i * 16L;
+            assertTrue(table.put(addresses[i], i, 1L, i & 7));
+        }
+        assertFalse(table.put(addresses[0], 0L, 1L, 0));
+
+        // Remove every other address, so that backward shift deletion is exercised
+        for (int i = 0; i < addresses.length; i += 2) {
+            assertEquals(table.remove(addresses[i]), i);
+        }
+        assertEquals(table.remove(addresses[0]), -1L);
+
+        long[] count = new long[1];
+        table.forEach((address, size, threadId, traceId) -> {
+            assertEquals(address, 0x10000L + size * 16L);
+            assertEquals(traceId, size & 7);
+            count[0]++;
+        });
+        assertEquals(count[0], addresses.length / 2);
+
+        for (int i = 1; i < addresses.length; i += 2) {
+            assertEquals(table.remove(addresses[i]), i);
+        }
+        assertTrue(table.isEmpty());
+    }
+
+    public void testCachingAllocator() {
+        MemoryManage.CachingAllocator allocator = new MemoryManage.CachingAllocator(getAllocator(), 64 * 1024);
+
+        long a = allocator.malloc(24);
+        memSet(a, 0xFF, 32);
+        allocator.free(a);
+
+        // Same size class, the cached block is reused
+        assertEquals(allocator.malloc(32), a);
+
+        // calloc must clear the cached block
+        allocator.free(a);
+        long b = allocator.calloc(4, 8);
+        assertEquals(b, a);
+        for (int i = 0; i < 32; i++) {
+            assertEquals(memGetByte(b + i), 0);
+        }
+
+        // Moving to another size class preserves the contents
+        memPutLong(b, 0x0123456789ABCDEFL);
+        long c = allocator.realloc(b, 100);
+        assertEquals(memGetLong(c), 0x0123456789ABCDEFL);
+        assertEquals(allocator.malloc(32), b);
+        allocator.free(b);
+
+        // Large blocks and blocks from the backing allocator bypass the cache
+        long d = allocator.realloc(c, 64 * 1024);
+        assertEquals(memGetLong(d), 0x0123456789ABCDEFL);
+        allocator.free(d);
+        allocator.free(getAllocator().malloc(16));
+
+        // Overflow a magazine, so that blocks go through the depot
+        long[] blocks = new long[1000];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = allocator.malloc(64);
+        }
+        for (long block : blocks) {
+            allocator.free(block);
+        }
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = allocator.malloc(64);
+        }
+        assertEquals(Arrays.stream(blocks).distinct().count(), blocks.length);
+        for (long block : blocks) {
+            allocator.free(block);
+        }
+
+        // realloc to zero frees the block
+        long e = allocator.malloc(48);
+        assertEquals(allocator.realloc(e, 0), NULL);
+        assertEquals(allocator.malloc(48), e);
+        allocator.free(e);
+
+        // Cached blocks must not be freed by native code
+        expectThrows(UnsupportedOperationException.class, allocator::getFree);
+
+        allocator.trim();
+    }
+
+    public void testBlockTable() {
+        MemoryManage.BlockTable table = new MemoryManage.BlockTable();
+
+        // Enough to rehash, with tombstones from the removed blocks
+        for (int i = 0; i < 10_000; i++) {
+            table.put(0x10000L + i * 16L, i & 7);
+            if ((i & 1) != 0) {
+                table.remove(0x10000L + (i - 1) * 16L);
+            }
+        }
+        assertEquals(table.size(), 5_000);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(table.get(0x10000L + i * 16L), (i & 1) == 0 ? -1 : i & 7);
+        }
+
+        // Stale entries are replaced
+        table.put(0x10010L, 3);
+        assertEquals(table.get(0x10010L), 3);
+        assertEquals(table.size(), 5_000);
+    }
+
+    public void testTextCache() {
+        try (TextCache cache = new TextCache(2)) {
+            ByteBuffer a = cache.UTF8("a");
+            assertEquals(memUTF8(a), "a\u0000");
+            assertSame(cache.UTF8(new StringBuilder("a")), a);
+            assertEquals(cache.nASCII("a"), memAddress(cache.ASCII("a")));
+            assertEquals(cache.size(), 2);
+
+            // LRU eviction, "a" was used more recently than "b"
+            cache.UTF8("b");
+            cache.UTF8("a");
+            cache.UTF8("c");
+            assertSame(cache.UTF8("a"), a);
+            assertEquals(cache.size(), 3);
+
+            assertTrue(cache.release("a"));
+            assertFalse(cache.release("a"));
+            assertEquals(cache.size(), 1);
+
+            // Decoding
+            ByteBuffer text = memUTF8("\u00E9t\u00E9");
+            try {
+                String s = cache.decodeUTF8(memAddress(text));
+                assertEquals(s, "\u00E9t\u00E9");
+                assertSame(cache.decodeUTF8(memAddress(text)), s);
+                assertEquals(cache.decodeASCII(memAddress(text)), memASCII(memAddress(text)));
+
+                // Modified contents are decoded again
+                text.put(2, (byte)'x');
+                assertEquals(cache.decodeUTF8(memAddress(text)), "\u00E9x\u00E9");
+            } finally {
+                memFree(text);
+            }
+        }
+    }
+
+    public void testTextCacheByteOrder() {
+        try (TextCache cache = new TextCache(2)) {
+            ByteBuffer forward = ByteBuffer.allocateDirect(8).order(ByteOrder.nativeOrder());
+            forward.put("ABCDEFGH".getBytes(StandardCharsets.US_ASCII)).flip();
+
+            String s = cache.decodeUTF8(forward);
+            assertEquals(s, "ABCDEFGH");
+
+            // Same bytes, the cached instance is returned
+            ByteBuffer bigEndian = ByteBuffer.allocateDirect(8).order(ByteOrder.BIG_ENDIAN);
+            bigEndian.put("ABCDEFGH".getBytes(StandardCharsets.US_ASCII)).flip();
+            assertSame(cache.decodeUTF8(bigEndian), s);
+            assertEquals(bigEndian.order(), ByteOrder.BIG_ENDIAN);
+
+            // Byte-reversed bytes, read in the opposite byte order, must not match
+            ByteOrder  opposite = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            ByteBuffer reversed = ByteBuffer.allocateDirect(8).order(opposite);
+            reversed.put("HGFEDCBA".getBytes(StandardCharsets.US_ASCII)).flip();
+            assertEquals(cache.decodeUTF8(reversed), "HGFEDCBA");
+        }
+    }
+
+    public void testPrimitiveLists() {
+        try (IntList list = new IntList(0)) {
+            assertEquals(list.address(), NULL);
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            assertEquals(list.size(), 100);
+            assertTrue(100 <= list.capacity());
+
+            list.add(0, -1);
+            assertEquals(list.get(0), -1);
+            assertEquals(list.get(100), 99);
+            assertEquals(list.remove(0), -1);
+            assertEquals(list.set(50, 500), 50);
+            assertEquals(list.indexOf(500), 50);
+            assertEquals(list.removeLast(), 99);
+
+            IntBuffer view = list.buffer();
+            assertEquals(view.capacity(), 99);
+            assertEquals(memAddress(view), list.address());
+            assertEquals(view.get(50), 500);
+
+            list.addAll(view);
+            assertEquals(list.size(), 198);
+            assertEquals(list.get(149), 500);
+
+            list.trimToSize();
+            assertEquals(list.capacity(), 198);
+
+            expectThrows(IndexOutOfBoundsException.class, () -> list.get(198));
+        }
+
+        try (LongList list = new LongList()) {
+            list.addAll(1L, 2L, 3L);
+            assertEquals(list.toArray(), new long[] { 1L, 2L, 3L });
+            assertEquals(list.address(1), list.address() + 8);
+            if (Pointer.POINTER_SIZE == 8) {
+                assertEquals(list.pointerBuffer().get(2), 3L);
+            }
+        }
+
+        try (FloatList list = new FloatList()) {
+            list.addAll(1.0f, Float.NaN);
+            assertTrue(list.contains(Float.NaN));
+            assertEquals(list.buffer().get(0), 1.0f);
+        }
+    }
+
+    public void testLongLongMap() {
+        Map<Long, Long> reference = new HashMap<>();
+        Random          random    = new Random(0);
+
+        try (LongLongMap map = new LongLongMap(0, -1L)) {
+            assertEquals(map.get(0L), -1L);
+            for (int i = 0; i < 10000; i++) {
+                // Small key range to exercise collisions and removals
+                long key   = random.nextInt(512) - 16;
+                long value = random.nextLong();
+                switch (random.nextInt(3)) {
+                    case 0:
+                    case 1:
+                        assertEquals(map.put(key, value), (long)reference.getOrDefault(key, -1L));
+                        reference.put(key, value);
+                        break;
+                    default:
+                        assertEquals(map.remove(key), (long)reference.getOrDefault(key, -1L));
+                        reference.remove(key);
+                }
+                assertEquals(map.size(), reference.size());
+            }
+
+            for (long key = -16; key < 512; key++) {
+                assertEquals(map.containsKey(key), reference.containsKey(key));
+                assertEquals(map.get(key), (long)reference.getOrDefault(key, -1L));
+            }
+
+            Map<Long, Long> entries = new HashMap<>();
+            map.forEach(entries::put);
+            assertEquals(entries, reference);
+
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertFalse(map.containsKey(reference.keySet().iterator().next()));
+
+            map.free();
+            map.put(1L, 2L);
+            assertEquals(map.get(1L), 2L);
+        }
+    }
+
     public void testJNINewBuffer() {
         ByteBuffer buffer = BufferUtils.createByteBuffer(32);
         for (int i = 0; i < buffer.capacity(); i++) {
@@ -0,0 +1,79 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.system;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.jar.*;
+
+import static org.testng.Assert.*;
+
+@Test
+public class SharedLibraryLoaderTest {
+
+    private static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    public void testManifest() throws IOException {
+        byte[] contents = new byte[4096];
+        new Random(42).nextBytes(contents);
+
+        Path directory = Files.createTempDirectory("lwjgl-test");
+        try {
+            Path jar = directory.resolve("natives.jar");
+            try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+                output.putNextEntry(new JarEntry("libtest.so"));
+                output.write(contents);
+                output.closeEntry();
+            }
+
+            URL  libURL        = new URL("jar:" + jar.toUri() + "!/libtest.so");
+            Path extractedFile = directory.resolve("libtest.so");
+            Path manifest      = directory.resolve("libtest.so.manifest");
+
+            SharedLibraryLoader.extractFile(libURL, extractedFile);
+            assertEquals(Files.readAllBytes(extractedFile), contents);
+            assertTrue(Files.exists(manifest));
+
+            // Same size and modification time: validated by the manifest, without reading the contents
+            FileTime modified = Files.getLastModifiedTime(extractedFile);
+            byte[]   tampered = contents.clone();
+            tampered[0]++;
+            Files.write(extractedFile, tampered);
+            Files.setLastModifiedTime(extractedFile, modified);
+
+            SharedLibraryLoader.extractFile(libURL, extractedFile);
+            assertEquals(Files.readAllBytes(extractedFile), tampered);
+
+            // Different modification time: verified with a CRC check and extracted again
+            Files.setLastModifiedTime(extractedFile, FileTime.fromMillis(modified.toMillis() - 10_000L));
+
+            SharedLibraryLoader.extractFile(libURL, extractedFile);
+            assertEquals(Files.readAllBytes(extractedFile), contents);
+
+            // Missing manifest: the existing file is verified with a CRC check and the manifest is recreated
+            Files.delete(manifest);
+            modified = Files.getLastModifiedTime(extractedFile);
+
+            SharedLibraryLoader.extractFile(libURL, extractedFile);
+            assertEquals(Files.getLastModifiedTime(extractedFile), modified);
+            assertTrue(Files.exists(manifest));
+        } finally {
+            delete(directory);
+        }
+    }
+
+}
@@ -78,6 +78,68 @@ public class StackTest {
         });
     }
 
+    public void testGrowable() {
+        MemoryStack stack = MemoryStack.create(64, true);
+
+        try (MemoryStack frame = stack.push()) {
+            long a = frame.nmalloc(8, 48);
+            assertEquals(frame.getPointer(), 16);
+            assertEquals(frame.getSpillCount(), 0L);
+
+            long b = frame.nmalloc(8, 1024);
+            assertEquals(b & 7L, 0L);
+            assertTrue(frame.getPointer() < 0);
+            assertEquals(frame.getSpillCount(), 1L);
+            assertEquals(frame.getSpillAllocCount(), 1L);
+
+            MemoryUtil.memSet(a, 0x11, 48);
+            MemoryUtil.memSet(b, 0x22, 1024);
+
+            int pointer = frame.getPointer();
+            try (MemoryStack inner = frame.push()) {
+                inner.nmalloc(16, 4096);
+                assertEquals(inner.getSpillCount(), 2L);
+                assertEquals(inner.getSpillAllocCount(), 2L);
+            }
+            assertEquals(frame.getPointer(), pointer);
+
+            for (int i = 0; i < 48; i++) {
+                assertEquals(MemoryUtil.memGetByte(a + i), 0x11);
+            }
+            for (int i = 0; i < 1024; i++) {
+                assertEquals(MemoryUtil.memGetByte(b + i), 0x22);
+            }
+        }
+
+        assertEquals(stack.getPointer(), 64);
+
+        // Released chunks are reused
+        try (MemoryStack frame = stack.push()) {
+            frame.nmalloc(8, 4096);
+            frame.nmalloc(8, 512);
+            assertEquals(frame.getSpillCount(), 4L);
+            assertEquals(frame.getSpillAllocCount(), 2L);
+        }
+
+        assertEquals(stack.getPointer(), 64);
+        assertTrue(4096 <= stack.getSpillPeak());
+    }
+
+    public void testGrowableSetPointer() {
+        MemoryStack stack = MemoryStack.create(64, true);
+
+        int pointer = stack.getPointer();
+        stack.nmalloc(1, 256);
+        int spilled = stack.getPointer();
+        stack.nmalloc(1, 256);
+        stack.setPointer(spilled);
+        stack.nmalloc(1, 256);
+        stack.setPointer(pointer);
+
+        assertEquals(stack.getPointer(), 64);
+        assertEquals(stack.getSpillAllocCount(), 2L);
+    }
+
     public void testSOE() {
         expectThrows(StackOverflowError.class, () -> {
             MemoryStack stack = MemoryStack.create();
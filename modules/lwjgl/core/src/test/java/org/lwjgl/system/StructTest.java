@@ -6,8 +6,11 @@ package org.lwjgl.system;
 
 import org.lwjgl.*;
 import org.lwjgl.system.jni.*;
+import org.lwjgl.system.windows.*;
 import org.testng.annotations.*;
 
+import java.nio.*;
+
 import static org.lwjgl.system.MemoryStack.*;
 import static org.testng.Assert.*;
 
@@ -61,4 +64,41 @@ public class StructTest {
         }
     }
 
+    public void testBulkAccessors() {
+        try (MemoryStack stack = stackPush()) {
+            RECT.Buffer rects = RECT.callocStack(8, stack);
+
+            int[] values = new int[8];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i * 10;
+            }
+            rects.scatterRight(values);
+            for (int i = 0; i < rects.capacity(); i++) {
+                assertEquals(rects.get(i).right(), i * 10);
+                assertEquals(rects.get(i).left(), 0);
+                assertEquals(rects.get(i).bottom(), 0);
+            }
+
+            IntBuffer right = stack.mallocInt(6);
+            rects.position(2);
+            rects.gatherRight(right);
+            for (int i = 0; i < right.capacity(); i++) {
+                assertEquals(right.get(i), (i + 2) * 10);
+            }
+
+            right.put(0, -1);
+            rects.scatterTop(right);
+            assertEquals(rects.get(2).top(), -1);
+            assertEquals(rects.get(7).top(), 70);
+            assertEquals(rects.get(1).top(), 0);
+
+            assertEquals(rects.position(), 2);
+            assertEquals(right.position(), 0);
+
+            expectThrows(BufferOverflowException.class, () -> rects.gatherRight(new int[5]));
+            expectThrows(BufferUnderflowException.class, () -> rects.scatterRight(stack.mallocInt(5)));
+            expectThrows(IllegalArgumentException.class, () -> rects.gather(RECT.SIZEOF - 2, new int[6]));
+        }
+    }
+
 }
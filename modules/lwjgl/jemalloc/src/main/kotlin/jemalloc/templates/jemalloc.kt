@@ -195,7 +195,21 @@ val jemalloc = "JEmalloc".nativeClass(Module.JEMALLOC, prefixMethod = "je_", bin
         AutoSizeResult..size_t.IN("size", "the number of bytes to allocate")
     )
 
-    void_p(
+    // Memory allocated with the explicit memory management API may be freed or reallocated with these functions
+    val untrack = statement(
+        """$t${t}if (LeakDetector.ENABLED) {
+$t$t${t}LeakDetector.untrack(memAddressSafe(ptr));
+$t$t}"""
+    )
+    val retrack = statement(
+        """$t${t}if (LeakDetector.ENABLED) {
+$t$t${t}LeakDetector.realloc(memAddressSafe(ptr), $RESULT, size);
+$t$t}"""
+    )
+
+    Code(
+        javaAfterNative = retrack
+    )..void_p(
         "realloc",
         """
         Changes the size of the previously allocated memory referenced by {@code ptr} to {@code size} bytes. The contents of the memory are unchanged up to the
@@ -209,7 +223,9 @@ val jemalloc = "JEmalloc".nativeClass(Module.JEMALLOC, prefixMethod = "je_", bin
         AutoSizeResult..size_t.IN("size", "the number of bytes to allocate")
     )
 
-    OffHeapOnly..void(
+    Code(
+        javaInit = untrack
+    )..OffHeapOnly..void(
         "free",
         "Causes the allocated memory referenced by {@code ptr} to be made available for future allocations. If {@code ptr} is #NULL, no action occurs.",
 
@@ -231,7 +247,9 @@ val jemalloc = "JEmalloc".nativeClass(Module.JEMALLOC, prefixMethod = "je_", bin
         flags
     )
 
-    void_p(
+    Code(
+        javaAfterNative = retrack
+    )..void_p(
         "rallocx",
         """
         Resizes the allocation at {@code ptr} to be at least {@code size} bytes, and returns a pointer to the base address of the resulting allocation, which
@@ -266,7 +284,9 @@ val jemalloc = "JEmalloc".nativeClass(Module.JEMALLOC, prefixMethod = "je_", bin
         flags
     )
 
-    OffHeapOnly..void(
+    Code(
+        javaInit = untrack
+    )..OffHeapOnly..void(
         "dallocx",
         "Causes the memory referenced by {@code ptr} to be made available for future allocations.",
 
@@ -274,7 +294,9 @@ val jemalloc = "JEmalloc".nativeClass(Module.JEMALLOC, prefixMethod = "je_", bin
         flags
     )
 
-    OffHeapOnly..void(
+    Code(
+        javaInit = untrack
+    )..OffHeapOnly..void(
         "sdallocx",
         "Sized version of #dallocx(). The primary optimization over {@code dallocx()} is the removal of a metadata read, which often suffers an L1 cache miss.",
 
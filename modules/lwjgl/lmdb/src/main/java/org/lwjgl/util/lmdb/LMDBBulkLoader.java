@@ -0,0 +1,556 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+
+import javax.annotation.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static java.nio.file.StandardOpenOption.*;
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+
+/**
+ * Loads unsorted key/data pairs into an LMDB database, using an external merge sort and {@link LMDB#MDB_APPEND APPEND} writes.
+ *
+ * <p>Writing keys in sorted order with {@code MDB_APPEND} fills the pages of the database sequentially, without page splits or searches, and is much faster
+ * than writing random keys. The pairs added to a bulk loader are buffered off-heap, in runs of {@code runSize} bytes. Full runs are sorted and spilled to
+ * memory-mapped temporary files. {@link #load} merges the sorted runs and writes them to the database, in transactions of up to
+ * {@code transactionSize} pairs. If the map size of the environment is reached, it is grown and the failed transaction is retried.</p>
+ *
+ * <p>The pairs are sorted according to the flags of the database: the default lexicographic order, {@link LMDB#MDB_REVERSEKEY REVERSEKEY} and
+ * {@link LMDB#MDB_INTEGERKEY INTEGERKEY} are supported, as well as the corresponding data orders of {@link LMDB#MDB_DUPSORT DUPSORT} databases. Custom
+ * comparison functions are not supported. If the database does not support duplicates, the last pair added for a key is written. Otherwise, identical
+ * pairs are written once.</p>
+ *
+ * <p>The database should be empty, or its existing keys should sort before the loaded keys. Keys that cannot be appended are written with a regular put,
+ * which is slower. The map size can only be changed when the environment has no active transactions, the loader should be the only user of the
+ * environment while {@link #load} runs. The progress of the load can be monitored from other threads.</p>
+ */
+public class LMDBBulkLoader implements NativeResource {
+
+    private static final int
+        LEXICOGRAPHIC = 0,
+        REVERSE       = 1,
+        INTEGER       = 2;
+
+    /** Record header: key size, data size. */
+    private static final int HEADER = 8;
+
+    private final long env;
+    private final int  dbi;
+
+    private final Path tempDirectory;
+
+    private final int runSize;
+    private final int transactionSize;
+
+    private final boolean dupsort;
+    private final int     keyOrder;
+    private final int     dataOrder;
+    private final int     maxKeySize;
+
+    /** The current, unsorted, run. */
+    private final long run;
+    private       int  runUsed;
+    private long[]     offsets = new long[1024];
+    private int        records;
+
+    /** The sorted runs. */
+    private final List<Run> runs = new ArrayList<>();
+
+    private boolean loaded;
+
+    private volatile long added;
+    private volatile int  spilledRuns;
+    private volatile long spilledBytes;
+    private volatile long written;
+    private volatile long skipped;
+    private volatile long transactions;
+    private volatile long mapResizes;
+
+    /**
+     * Creates a new {@code LMDBBulkLoader}.
+     *
+     * @param env             the LMDB environment
+     * @param dbi             the database handle
+     * @param tempDirectory   the directory of the temporary run files
+     * @param runSize         the size, in bytes, of the in-memory run buffer. Larger runs produce fewer temporary files.
+     * @param transactionSize the maximum number of pairs written per transaction
+     */
+    public LMDBBulkLoader(@NativeType("MDB_env *") long env, @NativeType("MDB_dbi") int dbi, Path tempDirectory, int runSize, int transactionSize) {
+        if (runSize <= HEADER) {
+            throw new IllegalArgumentException("Invalid run size: " + runSize);
+        }
+        if (transactionSize <= 0) {
+            throw new IllegalArgumentException("Invalid transaction size: " + transactionSize);
+        }
+
+        int flags;
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            IntBuffer     ip = stack.mallocInt(1);
+
+            check(mdb_txn_begin(env, NULL, MDB_RDONLY, pp));
+            long txn = pp.get(0);
+            try {
+                check(mdb_dbi_flags(txn, dbi, ip));
+            } finally {
+                mdb_txn_abort(txn);
+            }
+            flags = ip.get(0);
+        }
+
+        this.env = env;
+        this.dbi = dbi;
+        this.tempDirectory = tempDirectory;
+        this.runSize = runSize;
+        this.transactionSize = transactionSize;
+
+        this.dupsort = (flags & MDB_DUPSORT) != 0;
+        this.keyOrder = (flags & MDB_INTEGERKEY) != 0 ? INTEGER : (flags & MDB_REVERSEKEY) != 0 ? REVERSE : LEXICOGRAPHIC;
+        this.dataOrder = (flags & MDB_INTEGERDUP) != 0 ? INTEGER : (flags & MDB_REVERSEDUP) != 0 ? REVERSE : LEXICOGRAPHIC;
+        this.maxKeySize = mdb_env_get_maxkeysize(env);
+
+        this.run = nmemAllocChecked(runSize);
+    }
+
+    /**
+     * Adds a key/data pair.
+     *
+     * <p>The remaining bytes of {@code key} and {@code data} are copied, the buffers may be reused when this method returns.</p>
+     *
+     * @param key  the key
+     * @param data the data
+     */
+    public void add(ByteBuffer key, ByteBuffer data) {
+        if (loaded) {
+            throw new IllegalStateException("The pairs have already been loaded.");
+        }
+
+        int keySize  = key.remaining();
+        int dataSize = data.remaining();
+        if (keySize == 0 || maxKeySize < keySize) {
+            throw new IllegalArgumentException("Invalid key size: " + keySize);
+        }
+        if (dupsort && maxKeySize < dataSize) {
+            throw new IllegalArgumentException("Invalid data size: " + dataSize);
+        }
+
+        long size = recordSize(keySize, dataSize);
+        if (runSize < size) {
+            throw new IllegalArgumentException("The key/data pair does not fit in the run buffer: " + size);
+        }
+        if (runSize - runUsed < size) {
+            spill();
+        }
+
+        long record = run + runUsed;
+        memPutInt(record, keySize);
+        memPutInt(record + 4, dataSize);
+        memCopy(memAddress(key), record + HEADER, keySize);
+        memCopy(memAddress(data), record + HEADER + keySize, dataSize);
+
+        if (records == offsets.length) {
+            offsets = Arrays.copyOf(offsets, records * 2);
+        }
+        offsets[records++] = runUsed;
+        runUsed += (int)size;
+
+        added++;
+    }
+
+    /** Returns the size of a record, aligned to 4 bytes. */
+    private static long recordSize(int keySize, int dataSize) {
+        return (HEADER + (long)keySize + dataSize + 3L) & ~3L;
+    }
+
+    private static long recordSize(long record) {
+        return recordSize(memGetInt(record), memGetInt(record + 4));
+    }
+
+    /** Sorts the current run and writes it to a temporary file. */
+    private void spill() {
+        if (records == 0) {
+            return;
+        }
+
+        sortRun();
+        try {
+            Path file = Files.createTempFile(tempDirectory, "lwjgl-lmdb-run", ".tmp");
+            // The file is deleted when the channel is closed, the mapping remains valid until it is collected
+            FileChannel channel = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE);
+            try {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, runUsed);
+                copySorted(memAddress(map));
+                runs.add(new Run(runs.size(), memAddress(map), runUsed, channel, map));
+            } catch (Throwable t) {
+                channel.close();
+                throw t;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        spilledRuns++;
+        spilledBytes += runUsed;
+
+        runUsed = 0;
+        records = 0;
+    }
+
+    private void copySorted(long target) {
+        long position = 0L;
+        for (int i = 0; i < records; i++) {
+            long record = run + offsets[i];
+            long size   = recordSize(record);
+            memCopy(record, target + position, size);
+            position += size;
+        }
+    }
+
+    /** Stable merge sort of the record offsets. */
+    private void sortRun() {
+        long[] tmp = new long[records];
+        mergeSort(offsets, tmp, 0, records);
+    }
+
+    private void mergeSort(long[] a, long[] tmp, int from, int to) {
+        int n = to - from;
+        if (n < 16) {
+            // Insertion sort
+            for (int i = from + 1; i < to; i++) {
+                long x = a[i];
+                int  j = i - 1;
+                while (from <= j && 0 < compareRecords(run + a[j], run + x)) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = x;
+            }
+            return;
+        }
+
+        int mid = from + (n >>> 1);
+        mergeSort(a, tmp, from, mid);
+        mergeSort(a, tmp, mid, to);
+        if (compareRecords(run + a[mid - 1], run + a[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(a, from, tmp, from, n);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (mid <= i || (j < to && compareRecords(run + tmp[j], run + tmp[i]) < 0)) {
+                a[k] = tmp[j++];
+            } else {
+                a[k] = tmp[i++];
+            }
+        }
+    }
+
+    private int compareRecords(long a, long b) {
+        int ka = memGetInt(a);
+        int kb = memGetInt(b);
+
+        int c = compare(keyOrder, a + HEADER, ka, b + HEADER, kb);
+        if (c == 0 && dupsort) {
+            c = compare(dataOrder, a + HEADER + ka, memGetInt(a + 4), b + HEADER + kb, memGetInt(b + 4));
+        }
+        return c;
+    }
+
+    private boolean keyEquals(long a, long b) {
+        int ka = memGetInt(a);
+        return ka == memGetInt(b) && compare(keyOrder, a + HEADER, ka, b + HEADER, ka) == 0;
+    }
+
+    /** Compares two keys or data items, like the corresponding LMDB comparison function. */
+    private static int compare(int order, long a, int sizeA, long b, int sizeB) {
+        switch (order) {
+            case INTEGER:
+                if (sizeA == 4 && sizeB == 4) {
+                    return Integer.compareUnsigned(memGetInt(a), memGetInt(b));
+                }
+                if (sizeA == 8 && sizeB == 8) {
+                    return Long.compareUnsigned(memGetLong(a), memGetLong(b));
+                }
+                throw new IllegalArgumentException("Invalid integer key size: " + sizeA + ", " + sizeB);
+            case REVERSE: {
+                int n = Math.min(sizeA, sizeB);
+                for (int i = 1; i <= n; i++) {
+                    int c = Integer.compare(memGetByte(a + sizeA - i) & 0xFF, memGetByte(b + sizeB - i) & 0xFF);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return Integer.compare(sizeA, sizeB);
+            }
+            default: {
+                int n = Math.min(sizeA, sizeB);
+                int i = 0;
+                for (; i <= n - 8; i += 8) {
+                    long x = memGetLong(a + i);
+                    long y = memGetLong(b + i);
+                    if (x != y) {
+                        if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+                            x = Long.reverseBytes(x);
+                            y = Long.reverseBytes(y);
+                        }
+                        return Long.compareUnsigned(x, y);
+                    }
+                }
+                for (; i < n; i++) {
+                    int c = Integer.compare(memGetByte(a + i) & 0xFF, memGetByte(b + i) & 0xFF);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return Integer.compare(sizeA, sizeB);
+            }
+        }
+    }
+
+    /**
+     * Sorts the added pairs and writes them to the database.
+     *
+     * <p>This method may be called once.</p>
+     *
+     * @return the number of pairs written
+     *
+     * @throws LMDBException if a write fails
+     */
+    public long load() {
+        if (loaded) {
+            throw new IllegalStateException("The pairs have already been loaded.");
+        }
+        loaded = true;
+
+        if (records != 0) {
+            // The last run is merged from memory
+            sortRun();
+            long sorted = nmemAllocChecked(runUsed);
+            copySorted(sorted);
+            runs.add(new Run(runs.size(), sorted, runUsed, null, null));
+        }
+
+        PriorityQueue<Run> queue = new PriorityQueue<>(Math.max(runs.size(), 1), (x, y) -> {
+            int c = compareRecords(x.address + x.position, y.address + y.position);
+            return c != 0 ? c : Integer.compare(x.index, y.index);
+        });
+        for (Run r : runs) {
+            if (r.position < r.size) {
+                queue.add(r);
+            }
+        }
+
+        long[] checkpoint = new long[runs.size()];
+        long   prev       = NULL;
+
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp   = stack.mallocPointer(1);
+            MDBVal        key  = MDBVal.callocStack(stack);
+            MDBVal        data = MDBVal.callocStack(stack);
+
+            while (!queue.isEmpty()) {
+                for (Run r : runs) {
+                    checkpoint[r.index] = r.position;
+                }
+                long checkpointPrev    = prev;
+                long checkpointSkipped = skipped;
+
+                check(mdb_txn_begin(env, NULL, 0, pp));
+                long txn = pp.get(0);
+
+                int rc = mdb_cursor_open(txn, dbi, pp);
+                if (rc != MDB_SUCCESS) {
+                    mdb_txn_abort(txn);
+                    throw new LMDBException(rc);
+                }
+                long cursor = pp.get(0);
+
+                int count = 0;
+                while (count < transactionSize && !queue.isEmpty()) {
+                    Run  r      = queue.poll();
+                    long record = r.address + r.position;
+
+                    r.position += recordSize(record);
+                    if (r.position < r.size) {
+                        queue.add(r);
+                    }
+
+                    if (dupsort) {
+                        // Identical pairs are adjacent
+                        if (prev != NULL && compareRecords(prev, record) == 0) {
+                            skipped++;
+                            continue;
+                        }
+                    } else {
+                        // The last pair of a key wins
+                        Run next = queue.peek();
+                        if (next != null && keyEquals(record, next.address + next.position)) {
+                            skipped++;
+                            continue;
+                        }
+                    }
+
+                    int keySize = memGetInt(record);
+                    memPutAddress(key.address() + MDBVal.MV_DATA, record + HEADER);
+                    MDBVal.nmv_size(key.address(), keySize);
+                    memPutAddress(data.address() + MDBVal.MV_DATA, record + HEADER + keySize);
+                    MDBVal.nmv_size(data.address(), memGetInt(record + 4));
+
+                    int flags = dupsort && prev != NULL && keyEquals(prev, record) ? MDB_APPENDDUP : MDB_APPEND;
+
+                    rc = nmdb_cursor_put(cursor, key.address(), data.address(), flags);
+                    if (rc == MDB_KEYEXIST) {
+                        // Not ordered after the existing keys
+                        rc = nmdb_cursor_put(cursor, key.address(), data.address(), 0);
+                    }
+                    if (rc != MDB_SUCCESS) {
+                        break;
+                    }
+
+                    prev = record;
+                    count++;
+                }
+
+                if (rc == MDB_SUCCESS) {
+                    rc = mdb_txn_commit(txn);
+                } else {
+                    mdb_txn_abort(txn);
+                }
+
+                if (rc == MDB_SUCCESS) {
+                    written += count;
+                    transactions++;
+                } else if (rc == MDB_MAP_FULL) {
+                    growMap(stack);
+
+                    // Retry the transaction
+                    queue.clear();
+                    for (Run r : runs) {
+                        r.position = checkpoint[r.index];
+                        if (r.position < r.size) {
+                            queue.add(r);
+                        }
+                    }
+                    prev = checkpointPrev;
+                    skipped = checkpointSkipped;
+                } else {
+                    throw new LMDBException(rc);
+                }
+            }
+        }
+
+        return written;
+    }
+
+    private void growMap(MemoryStack stack) {
+        MDBEnvInfo info = MDBEnvInfo.mallocStack(stack);
+        check(mdb_env_info(env, info));
+        check(mdb_env_set_mapsize(env, info.me_mapsize() * 2));
+        mapResizes++;
+    }
+
+    /** Returns the number of pairs added. */
+    public long getAddedCount() {
+        return added;
+    }
+
+    /** Returns the number of sorted runs spilled to temporary files. */
+    public int getSpilledRunCount() {
+        return spilledRuns;
+    }
+
+    /** Returns the number of bytes spilled to temporary files. */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /** Returns the number of pairs written to the database. */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /** Returns the number of pairs that were not written, because a later pair had the same key or because the pair was a duplicate. */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /** Returns the number of committed transactions. */
+    public long getTransactionCount() {
+        return transactions;
+    }
+
+    /** Returns the number of times the map size was increased. */
+    public long getMapResizeCount() {
+        return mapResizes;
+    }
+
+    /** Returns the fraction of added pairs that have been written or skipped, between 0.0 and 1.0. */
+    public double getProgress() {
+        long added = this.added;
+        return added == 0L ? 0.0 : Math.min((double)(written + skipped) / added, 1.0);
+    }
+
+    /** Frees the run buffers and deletes the temporary files. */
+    @Override
+    public void free() {
+        nmemFree(run);
+
+        IOException exception = null;
+        for (Run r : runs) {
+            if (r.channel == null) {
+                nmemFree(r.address);
+            } else {
+                try {
+                    r.channel.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+        }
+        runs.clear();
+
+        if (exception != null) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /** A sorted run, in memory or in a memory-mapped temporary file. */
+    private static final class Run {
+
+        final int  index;
+        final long address;
+        final long size;
+
+        @Nullable
+        final FileChannel      channel;
+        /** Keeps the mapping alive. */
+        @Nullable
+        final MappedByteBuffer map;
+
+        long position;
+
+        Run(int index, long address, long size, @Nullable FileChannel channel, @Nullable MappedByteBuffer map) {
+            this.index = index;
+            this.address = address;
+            this.size = size;
+            this.channel = channel;
+            this.map = map;
+        }
+
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import static org.lwjgl.util.lmdb.LMDB.*;
+
+/** Thrown when an LMDB function returns an error code. */
+public class LMDBException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int error;
+
+    /**
+     * Creates a new {@code LMDBException}.
+     *
+     * @param error the LMDB error code
+     */
+    public LMDBException(int error) {
+        super(mdb_strerror(error));
+        this.error = error;
+    }
+
+    /** Returns the LMDB error code, e.g. {@link LMDB#MDB_MAP_FULL MDB_MAP_FULL}. */
+    public int getError() {
+        return error;
+    }
+
+    /**
+     * Throws an {@code LMDBException} if the specified return code is not {@link LMDB#MDB_SUCCESS MDB_SUCCESS}.
+     *
+     * @param rc the return code of an LMDB function
+     */
+    public static void check(int rc) {
+        if (rc != MDB_SUCCESS) {
+            throw new LMDBException(rc);
+        }
+    }
+
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+
+/**
+ * An LMDB environment that grows its map size automatically.
+ *
+ * <p>Write transactions fail with {@link LMDB#MDB_MAP_FULL MAP_FULL} when the environment reaches its map size. The map size can be increased with
+ * {@link LMDB#mdb_env_set_mapsize mdb_env_set_mapsize}, but only while no transactions are active in the process, because the memory map is replaced. This
+ * class runs transactions through an epoch gate: each transaction enters the gate before it begins and exits after it ends. When a write transaction fails
+ * with {@code MAP_FULL}, new transactions are blocked at the gate, the active transactions are allowed to finish, the map size is multiplied by the growth
+ * factor and the failed transaction is retried. The gate costs an atomic increment and decrement per transaction while no resize is pending.</p>
+ *
+ * <p>The same mechanism handles {@link LMDB#MDB_MAP_RESIZED MAP_RESIZED}, which is returned when another process has grown the map.</p>
+ *
+ * <p>All transactions of the environment must go through {@link #read}, {@link #write}, or be bracketed by {@link #enter} and {@link #exit}. A transaction
+ * function may be run multiple times and must not have side effects outside the transaction. It must signal errors of the LMDB functions it calls by
+ * throwing an {@link LMDBException}, e.g. with {@link LMDBException#check}. A thread cannot grow the map while it is inside the gate, e.g. when a write
+ * transaction is nested in a read transaction, the {@code MAP_FULL} error is propagated in that case.</p>
+ */
+public class LMDBManagedEnv implements NativeResource {
+
+    /** A function that runs in a transaction. */
+    @FunctionalInterface
+    public interface Transaction<T> {
+        /**
+         * Runs in the specified transaction.
+         *
+         * @param stack a memory stack frame, popped when the transaction ends
+         * @param txn   the transaction handle
+         */
+        T run(MemoryStack stack, @NativeType("MDB_txn *") long txn);
+    }
+
+    private final long env;
+
+    private final double growthFactor;
+    private final long   maxMapSize;
+
+    /** The number of threads inside the gate. */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /** The gate depth of the current thread. */
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Object lock = new Object();
+
+    private volatile boolean resizing;
+    private volatile int     epoch;
+
+    private volatile long resizes;
+
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Creates a new {@code LMDBManagedEnv}.
+     *
+     * @param env          an open LMDB environment. It is closed when this object is freed.
+     * @param growthFactor the factor applied to the map size when it is full, greater than 1.0
+     * @param maxMapSize   the maximum map size, in bytes
+     */
+    public LMDBManagedEnv(@NativeType("MDB_env *") long env, double growthFactor, long maxMapSize) {
+        if (!(1.0 < growthFactor)) {
+            throw new IllegalArgumentException("Invalid growth factor: " + growthFactor);
+        }
+
+        this.env = env;
+        this.growthFactor = growthFactor;
+        this.maxMapSize = maxMapSize;
+    }
+
+    /** Returns the LMDB environment. */
+    @NativeType("MDB_env *")
+    public long getEnvironment() {
+        return env;
+    }
+
+    /**
+     * Runs a function in a read-only transaction.
+     *
+     * <p>Pointers to the memory map are only valid while the function runs.</p>
+     *
+     * @param transaction the function
+     *
+     * @return the value returned by the function
+     */
+    public <T> T read(Transaction<T> transaction) {
+        return run(MDB_RDONLY, transaction);
+    }
+
+    /**
+     * Runs a function in a write transaction and commits it.
+     *
+     * <p>If the transaction fails with {@link LMDB#MDB_MAP_FULL MAP_FULL}, the map is grown and the function is run again, in a new transaction.</p>
+     *
+     * @param transaction the function
+     *
+     * @return the value returned by the function
+     *
+     * @throws LMDBException if the transaction fails, or if the map is full and cannot grow beyond the maximum map size
+     */
+    public <T> T write(Transaction<T> transaction) {
+        return run(0, transaction);
+    }
+
+    private <T> T run(int flags, Transaction<T> transaction) {
+        boolean readOnly = (flags & MDB_RDONLY) != 0;
+        while (true) {
+            enter();
+            int epoch = this.epoch;
+
+            T   result = null;
+            int rc;
+            try (MemoryStack stack = stackPush()) {
+                PointerBuffer pp = stack.mallocPointer(1);
+
+                rc = nmdb_txn_begin(env, NULL, flags, memAddress(pp));
+                if (rc == MDB_SUCCESS) {
+                    long txn = pp.get(0);
+                    try {
+                        result = transaction.run(stack, txn);
+                    } catch (LMDBException e) {
+                        mdb_txn_abort(txn);
+                        if (readOnly || e.getError() != MDB_MAP_FULL) {
+                            throw e;
+                        }
+                        txn = NULL;
+                        rc = MDB_MAP_FULL;
+                    } catch (Throwable t) {
+                        mdb_txn_abort(txn);
+                        throw t;
+                    }
+
+                    if (txn != NULL) {
+                        if (readOnly) {
+                            mdb_txn_abort(txn);
+                        } else {
+                            rc = mdb_txn_commit(txn);
+                        }
+                    }
+                }
+            } finally {
+                exit();
+            }
+
+            switch (rc) {
+                case MDB_SUCCESS:
+                    return result;
+                case MDB_MAP_FULL:
+                    if (readOnly) {
+                        throw new LMDBException(rc);
+                    }
+                    resize(epoch, rc);
+                    retries.increment();
+                    break;
+                case MDB_MAP_RESIZED:
+                    resize(epoch, rc);
+                    break;
+                default:
+                    throw new LMDBException(rc);
+            }
+        }
+    }
+
+    /**
+     * Enters the gate.
+     *
+     * <p>Must be called before a transaction that is not started by this class begins, and must be followed by a call to {@link #exit} after the
+     * transaction ends. Blocks while the map is being resized. The gate is reentrant.</p>
+     */
+    public void enter() {
+        int[] depth = this.depth.get();
+        if (depth[0]++ != 0) {
+            return;
+        }
+
+        while (true) {
+            active.incrementAndGet();
+            if (!resizing) {
+                return;
+            }
+
+            // Back off until the resize completes
+            active.decrementAndGet();
+            awaitResize();
+        }
+    }
+
+    /** Exits the gate. */
+    public void exit() {
+        int[] depth = this.depth.get();
+        if (depth[0] == 0) {
+            throw new IllegalStateException("The current thread has not entered the gate.");
+        }
+        if (--depth[0] == 0) {
+            active.decrementAndGet();
+        }
+    }
+
+    private void awaitResize() {
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (resizing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Grows the map, or adopts the map size set by another process.
+     *
+     * @param failedEpoch the epoch of the failed transaction
+     * @param error       {@link LMDB#MDB_MAP_FULL MAP_FULL} or {@link LMDB#MDB_MAP_RESIZED MAP_RESIZED}
+     */
+    private void resize(int failedEpoch, int error) {
+        if (depth.get()[0] != 0) {
+            // The transactions of the current thread cannot be quiesced
+            throw new LMDBException(error);
+        }
+
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (resizing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (epoch != failedEpoch) {
+                // Another thread resized the map after the transaction failed
+                return;
+            }
+            resizing = true;
+        }
+
+        try {
+            while (active.get() != 0) {
+                LockSupport.parkNanos(50_000L);
+            }
+
+            if (error == MDB_MAP_RESIZED) {
+                check(mdb_env_set_mapsize(env, 0L));
+            } else {
+                long size    = getMapSize();
+                long newSize = Math.min((long)(size * growthFactor), maxMapSize);
+
+                int pageSize = getPageSize();
+                newSize = (newSize + pageSize - 1) / pageSize * pageSize;
+
+                if (newSize <= size) {
+                    throw new LMDBException(MDB_MAP_FULL);
+                }
+                check(mdb_env_set_mapsize(env, newSize));
+                resizes++;
+            }
+        } finally {
+            synchronized (lock) {
+                epoch++;
+                resizing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /** Returns the current epoch of the gate, incremented after each resize. */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /** Returns the number of times the map was grown by this object. */
+    public long getResizeCount() {
+        return resizes;
+    }
+
+    /** Returns the number of write transactions that were retried after the map was grown. */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /** Returns the maximum map size, in bytes. */
+    public long getMaxMapSize() {
+        return maxMapSize;
+    }
+
+    /** Returns the current map size, in bytes, from {@link LMDB#mdb_env_info mdb_env_info}. */
+    public long getMapSize() {
+        try (MemoryStack stack = stackPush()) {
+            MDBEnvInfo info = MDBEnvInfo.mallocStack(stack);
+            check(mdb_env_info(env, info));
+            return info.me_mapsize();
+        }
+    }
+
+    /** Returns the database page size, in bytes, from {@link LMDB#mdb_env_stat mdb_env_stat}. */
+    public int getPageSize() {
+        try (MemoryStack stack = stackPush()) {
+            MDBStat stat = MDBStat.mallocStack(stack);
+            check(mdb_env_stat(env, stat));
+            return stat.ms_psize();
+        }
+    }
+
+    /** Returns the number of bytes used by the environment, i.e. the size of the pages up to the last used page. */
+    public long getUsedSize() {
+        try (MemoryStack stack = stackPush()) {
+            MDBEnvInfo info = MDBEnvInfo.mallocStack(stack);
+            MDBStat    stat = MDBStat.mallocStack(stack);
+            check(mdb_env_info(env, info));
+            check(mdb_env_stat(env, stat));
+            return (info.me_last_pgno() + 1) * stat.ms_psize();
+        }
+    }
+
+    /** Returns the fraction of the map that is used, between 0.0 and 1.0. */
+    public double getUsage() {
+        try (MemoryStack stack = stackPush()) {
+            MDBEnvInfo info = MDBEnvInfo.mallocStack(stack);
+            MDBStat    stat = MDBStat.mallocStack(stack);
+            check(mdb_env_info(env, info));
+            check(mdb_env_stat(env, stat));
+            return Math.min((double)((info.me_last_pgno() + 1) * stat.ms_psize()) / info.me_mapsize(), 1.0);
+        }
+    }
+
+    /** Returns the number of entries in the main database, from {@link LMDB#mdb_env_stat mdb_env_stat}. */
+    public long getEntryCount() {
+        try (MemoryStack stack = stackPush()) {
+            MDBStat stat = MDBStat.mallocStack(stack);
+            check(mdb_env_stat(env, stat));
+            return stat.ms_entries();
+        }
+    }
+
+    /** Closes the LMDB environment. All transactions must have ended. */
+    @Override
+    public void free() {
+        mdb_env_close(env);
+    }
+
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+
+import java.lang.ref.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+
+/**
+ * A pool of renewable read-only transactions and cursors.
+ *
+ * <p>Beginning a read-only transaction acquires a slot in the reader lock table and allocates the transaction. A transaction that is reset with
+ * {@link LMDB#mdb_txn_reset mdb_txn_reset} keeps its memory, and its slot if the environment uses {@link LMDB#MDB_NOTLS NOTLS}, and can be reused with
+ * {@link LMDB#mdb_txn_renew mdb_txn_renew}. Similarly, the cursors of a reset transaction can be reused with {@link LMDB#mdb_cursor_renew mdb_cursor_renew}.
+ * This class manages this reuse:</p>
+ *
+ * <ul>
+ * <li>If the environment was opened without {@code NOTLS}, reader slots are bound to threads and a thread may have a single read-only transaction. Each
+ * thread reuses its own {@link Reader}.</li>
+ * <li>If the environment was opened with {@code NOTLS}, reader slots are bound to transactions. Readers are shared by all threads, via a lock-free pool,
+ * and a thread may acquire multiple readers. This mode must be used when the threads that read are not bound to native threads, e.g. with a thread pool
+ * that does not guarantee affinity or with virtual threads.</li>
+ * </ul>
+ *
+ * <p>A reader must be closed, on the thread that acquired it, as soon as possible. A reader that stays active prevents LMDB from reusing the pages that
+ * were freed after its snapshot. {@link #getOldestReaderAge} can be used to detect such readers. {@link #checkReaders} clears the reader slots of dead
+ * processes and releases the readers of threads that have terminated.</p>
+ */
+public class LMDBReadPool implements NativeResource {
+
+    private final long env;
+
+    private final boolean notls;
+    private final int     maxIdle;
+
+    private final ThreadLocal<Reader>           local;
+    private final ConcurrentLinkedDeque<Reader> idle;
+    private final AtomicInteger                 idleCount = new AtomicInteger();
+
+    /** All readers, for {@link #checkReaders} and {@link #free}. */
+    private final Set<Reader> readers = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    private final LongAdder acquired      = new LongAdder();
+    private final LongAdder created       = new LongAdder();
+    private final LongAdder cursorsOpened = new LongAdder();
+    private final LongAdder cursorsReused = new LongAdder();
+    private final AtomicLong deadReaders  = new AtomicLong();
+
+    /**
+     * Creates a new {@code LMDBReadPool}.
+     *
+     * @param env     the LMDB environment
+     * @param maxIdle the maximum number of idle readers kept by the pool, if the environment uses {@link LMDB#MDB_NOTLS NOTLS}. Each idle reader occupies a
+     *                slot in the reader lock table.
+     */
+    public LMDBReadPool(@NativeType("MDB_env *") long env, int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("Invalid maximum idle count: " + maxIdle);
+        }
+
+        int flags;
+        try (MemoryStack stack = stackPush()) {
+            IntBuffer ip = stack.mallocInt(1);
+            check(mdb_env_get_flags(env, ip));
+            flags = ip.get(0);
+        }
+
+        this.env = env;
+        this.notls = (flags & MDB_NOTLS) != 0;
+        this.maxIdle = maxIdle;
+
+        if (notls) {
+            this.local = null;
+            this.idle = new ConcurrentLinkedDeque<>();
+        } else {
+            this.local = new ThreadLocal<>();
+            this.idle = null;
+        }
+    }
+
+    /** Returns the LMDB environment. */
+    @NativeType("MDB_env *")
+    public long getEnvironment() {
+        return env;
+    }
+
+    /** Returns true if readers are shared by all threads, i.e. if the environment uses {@link LMDB#MDB_NOTLS NOTLS}. */
+    public boolean isShared() {
+        return notls;
+    }
+
+    /**
+     * Acquires a reader with an active read-only transaction.
+     *
+     * <p>The returned reader must be closed by the current thread. If the environment does not use {@link LMDB#MDB_NOTLS NOTLS}, the current thread must
+     * close its reader before it acquires another.</p>
+     *
+     * @return the reader
+     *
+     * @throws LMDBException if the transaction could not be started, e.g. because the reader lock table is full
+     */
+    public Reader acquire() {
+        if (closed) {
+            throw new IllegalStateException("The pool has been freed.");
+        }
+
+        Reader reader;
+        if (notls) {
+            reader = idle.pollFirst();
+            if (reader != null) {
+                idleCount.decrementAndGet();
+            }
+        } else {
+            reader = local.get();
+            if (reader != null && reader.active) {
+                throw new IllegalStateException("The current thread already has an active reader.");
+            }
+        }
+
+        if (reader == null) {
+            reader = new Reader(notls ? null : Thread.currentThread());
+            if (!notls) {
+                local.set(reader);
+            }
+        } else {
+            int rc = nmdb_txn_renew(reader.txn);
+            if (rc != MDB_SUCCESS) {
+                if (!notls) {
+                    local.remove();
+                }
+                reader.dispose();
+                throw new LMDBException(rc);
+            }
+            reader.renewed = 0;
+        }
+
+        reader.active = true;
+        reader.acquireTime = System.nanoTime();
+        acquired.increment();
+        return reader;
+    }
+
+    private void release(Reader reader) {
+        reader.active = false;
+        nmdb_txn_reset(reader.txn);
+
+        if (notls) {
+            if (!closed && idleCount.get() < maxIdle) {
+                idleCount.incrementAndGet();
+                idle.offerFirst(reader);
+                // Raced with free
+                if (closed && idle.remove(reader)) {
+                    reader.dispose();
+                }
+            } else {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Clears stale entries from the reader lock table and releases the idle readers of terminated threads.
+     *
+     * <p>Calls {@link LMDB#mdb_reader_check mdb_reader_check}, which clears the slots of processes that have terminated without closing the environment. If
+     * the environment does not use {@link LMDB#MDB_NOTLS NOTLS}, the idle readers of terminated threads are freed. A reader that was still active when its
+     * thread terminated cannot be freed safely and is left in place.</p>
+     *
+     * @return the number of reader lock table slots that were cleared
+     */
+    public int checkReaders() {
+        int dead;
+        try (MemoryStack stack = stackPush()) {
+            IntBuffer ip = stack.mallocInt(1);
+            check(mdb_reader_check(env, ip));
+            dead = ip.get(0);
+        }
+        deadReaders.addAndGet(dead);
+
+        if (!notls) {
+            for (Reader reader : readers) {
+                if (!reader.active && !reader.isOwnerAlive()) {
+                    reader.dispose();
+                }
+            }
+        }
+
+        return dead;
+    }
+
+    /** Returns the number of readers acquired. */
+    public long getAcquireCount() {
+        return acquired.sum();
+    }
+
+    /** Returns the number of read-only transactions started with {@link LMDB#mdb_txn_begin mdb_txn_begin}. The other acquisitions renewed a transaction. */
+    public long getCreateCount() {
+        return created.sum();
+    }
+
+    /** Returns the number of cursors opened with {@link LMDB#mdb_cursor_open mdb_cursor_open}. */
+    public long getCursorOpenCount() {
+        return cursorsOpened.sum();
+    }
+
+    /** Returns the number of cursors reused with {@link LMDB#mdb_cursor_renew mdb_cursor_renew}. */
+    public long getCursorRenewCount() {
+        return cursorsReused.sum();
+    }
+
+    /** Returns the number of stale reader lock table slots cleared by {@link #checkReaders}. */
+    public long getDeadReaderCount() {
+        return deadReaders.get();
+    }
+
+    /** Returns the number of readers that are currently acquired. */
+    public int getActiveCount() {
+        int count = 0;
+        for (Reader reader : readers) {
+            if (reader.active) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns the number of readers that are not acquired. */
+    public int getIdleCount() {
+        return readers.size() - getActiveCount();
+    }
+
+    /** Returns the time, in nanoseconds, since the oldest active reader was acquired, or zero if there are no active readers. */
+    public long getOldestReaderAge() {
+        long now = System.nanoTime();
+        long age = 0L;
+        for (Reader reader : readers) {
+            if (reader.active) {
+                age = Math.max(age, now - reader.acquireTime);
+            }
+        }
+        return age;
+    }
+
+    /**
+     * Frees the pooled readers.
+     *
+     * <p>All readers must have been closed. The LMDB environment is not closed.</p>
+     */
+    @Override
+    public void free() {
+        closed = true;
+
+        for (Reader reader : readers) {
+            if (reader.active) {
+                throw new IllegalStateException("A reader is still active.");
+            }
+        }
+        for (Reader reader : readers) {
+            reader.dispose();
+        }
+        if (idle != null) {
+            idle.clear();
+        }
+    }
+
+    /**
+     * A read-only transaction acquired from an {@link LMDBReadPool}, with its cursors.
+     *
+     * <p>Closing the reader resets the transaction and returns it to the pool. The cursors opened with {@link #cursor} are renewed when the reader is
+     * acquired again, they must not be closed.</p>
+     */
+    public final class Reader implements AutoCloseable {
+
+        final long txn;
+
+        /** The owner thread, if the environment does not use NOTLS. */
+        private final WeakReference<Thread> owner;
+
+        private int[]  dbis    = new int[4];
+        private long[] cursors = new long[4];
+        private int    cursorCount;
+
+        /** Cursors with an index lower than this have been renewed since the reader was acquired. */
+        int renewed;
+
+        volatile boolean active;
+        volatile long    acquireTime;
+
+        private boolean disposed;
+
+        Reader(Thread owner) {
+            try (MemoryStack stack = stackPush()) {
+                PointerBuffer pp = stack.mallocPointer(1);
+                check(mdb_txn_begin(env, NULL, MDB_RDONLY, pp));
+                this.txn = pp.get(0);
+            }
+            this.owner = owner == null ? null : new WeakReference<>(owner);
+
+            created.increment();
+            readers.add(this);
+        }
+
+        /** Returns the read-only transaction. */
+        @NativeType("MDB_txn *")
+        public long txn() {
+            return txn;
+        }
+
+        /**
+         * Returns a cursor for the specified database, bound to the transaction of this reader.
+         *
+         * <p>The cursor is opened the first time it is requested and reused afterwards.</p>
+         *
+         * @param dbi a database handle
+         *
+         * @return the cursor
+         */
+        @NativeType("MDB_cursor *")
+        public long cursor(@NativeType("MDB_dbi") int dbi) {
+            for (int i = 0; i < cursorCount; i++) {
+                if (dbis[i] == dbi) {
+                    long cursor = cursors[i];
+                    if (renewed <= i) {
+                        check(nmdb_cursor_renew(txn, cursor));
+                        cursorsReused.increment();
+
+                        // Move to the renewed prefix
+                        swap(i, renewed++);
+                    }
+                    return cursor;
+                }
+            }
+
+            long cursor;
+            try (MemoryStack stack = stackPush()) {
+                PointerBuffer pp = stack.mallocPointer(1);
+                check(mdb_cursor_open(txn, dbi, pp));
+                cursor = pp.get(0);
+            }
+            cursorsOpened.increment();
+
+            if (cursorCount == cursors.length) {
+                dbis = Arrays.copyOf(dbis, cursorCount * 2);
+                cursors = Arrays.copyOf(cursors, cursorCount * 2);
+            }
+            dbis[cursorCount] = dbi;
+            cursors[cursorCount] = cursor;
+            swap(cursorCount++, renewed++);
+
+            return cursor;
+        }
+
+        private void swap(int i, int j) {
+            int  dbi    = dbis[i];
+            long cursor = cursors[i];
+
+            dbis[i] = dbis[j];
+            cursors[i] = cursors[j];
+
+            dbis[j] = dbi;
+            cursors[j] = cursor;
+        }
+
+        boolean isOwnerAlive() {
+            Thread thread = owner == null ? null : owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        synchronized void dispose() {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+
+            readers.remove(this);
+            for (int i = 0; i < cursorCount; i++) {
+                nmdb_cursor_close(cursors[i]);
+            }
+            nmdb_txn_abort(txn);
+        }
+
+        /** Resets the transaction and returns this reader to the pool. */
+        @Override
+        public void close() {
+            if (!active) {
+                throw new IllegalStateException("The reader is not active.");
+            }
+            release(this);
+        }
+
+    }
+
+}
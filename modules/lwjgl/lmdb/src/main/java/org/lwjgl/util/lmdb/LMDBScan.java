@@ -0,0 +1,601 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+
+import javax.annotation.*;
+import java.math.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+
+/**
+ * Scans a range of an LMDB database with a cursor, as a {@link Spliterator} or {@link Stream} of key/data pairs.
+ *
+ * <p>The scanned entries are flyweights: a single {@link Entry} instance is reused for all key/data pairs visited by a spliterator, and its {@link MDBVal}
+ * structs point directly to the memory map. No memory is copied or allocated per entry. An entry is only valid until the next entry is visited and while
+ * the transaction is active. The key and data must be copied if they are used afterwards.</p>
+ *
+ * <p>A scan is configured with optional bounds ({@link #from}, {@link #to}, {@link #prefix}), the iteration direction ({@link #reverse}) and, for
+ * {@link LMDB#MDB_DUPFIXED DUPFIXED} databases, bulk reads of duplicate data items ({@link #multiple}). The bounds are compared with
+ * {@link LMDB#mdb_cmp mdb_cmp}, so they respect the comparison function of the database.</p>
+ *
+ * <p>A scan over an explicit transaction must be traversed by the thread that owns the transaction. A scan over an {@link LMDBReadPool} acquires a reader
+ * for each spliterator, on the thread that traverses it. Such scans can be split into key ranges, for parallel traversal. Splitting requires a shared pool
+ * (i.e. an environment with {@link LMDB#MDB_NOTLS NOTLS}). The split keys are interpolated between the first and last key of a range, the parts are
+ * balanced if the database uses the default key comparison or {@link LMDB#MDB_INTEGERKEY INTEGERKEY} and the keys are evenly distributed. Each part of a
+ * parallel scan reads its own snapshot, all parts see the same data only if no write transaction is committed during the scan.</p>
+ *
+ * <p>The cursors, and readers, of a spliterator are released when it is exhausted. Streams that are not fully consumed must be closed, before the
+ * transaction ends, to release them. A {@code try}-with-resources statement is recommended:</p>
+ *
+ * <pre><code>
+ * try (Stream&lt;LMDBScan.Entry&gt; entries = LMDBScan.of(txn, dbi).prefix(prefix).stream()) {
+ *     entries.forEach(e -&gt; process(e.key(), e.data()));
+ * }</code></pre>
+ */
+public final class LMDBScan {
+
+    private final long txn;
+    @Nullable
+    private final LMDBReadPool pool;
+    private final int dbi;
+
+    @Nullable
+    private ByteBuffer from;
+    @Nullable
+    private ByteBuffer to;
+
+    private boolean reverse;
+    private boolean multiple;
+
+    private LMDBScan(long txn, @Nullable LMDBReadPool pool, int dbi) {
+        this.txn = txn;
+        this.pool = pool;
+        this.dbi = dbi;
+    }
+
+    /**
+     * Returns a scan over the specified database, in an existing transaction.
+     *
+     * @param txn a transaction handle
+     * @param dbi a database handle
+     */
+    public static LMDBScan of(@NativeType("MDB_txn *") long txn, @NativeType("MDB_dbi") int dbi) {
+        return new LMDBScan(txn, null, dbi);
+    }
+
+    /**
+     * Returns a scan over the specified database, in transactions acquired from a reader pool.
+     *
+     * @param pool the reader pool
+     * @param dbi  a database handle
+     */
+    public static LMDBScan of(LMDBReadPool pool, @NativeType("MDB_dbi") int dbi) {
+        return new LMDBScan(NULL, pool, dbi);
+    }
+
+    /**
+     * Sets the lower bound of the scan.
+     *
+     * @param key the first key to scan, inclusive. The remaining bytes are copied.
+     */
+    public LMDBScan from(ByteBuffer key) {
+        this.from = copy(key);
+        return this;
+    }
+
+    /**
+     * Sets the upper bound of the scan.
+     *
+     * @param key the key after the last key to scan, exclusive. The remaining bytes are copied.
+     */
+    public LMDBScan to(ByteBuffer key) {
+        this.to = copy(key);
+        return this;
+    }
+
+    /**
+     * Restricts the scan to the keys that start with the specified bytes.
+     *
+     * <p>Prefix scans require the default key comparison, i.e. a lexicographic comparison of the key bytes.</p>
+     *
+     * @param prefix the key prefix. The remaining bytes are copied.
+     */
+    public LMDBScan prefix(ByteBuffer prefix) {
+        this.from = copy(prefix);
+
+        // The first key after all keys with the prefix: drop trailing 0xFF bytes and increment the last byte
+        int n = prefix.remaining();
+        while (0 < n && prefix.get(prefix.position() + n - 1) == (byte)0xFF) {
+            n--;
+        }
+        if (n == 0) {
+            this.to = null;
+        } else {
+            ByteBuffer to = BufferUtils.createByteBuffer(n);
+            memCopy(memAddress(prefix), memAddress(to), n);
+            to.put(n - 1, (byte)(to.get(n - 1) + 1));
+            this.to = to;
+        }
+        return this;
+    }
+
+    /** Scans the keys in descending order. */
+    public LMDBScan reverse() {
+        if (multiple) {
+            throw new IllegalStateException("Bulk reads of duplicate data items are only supported in ascending order.");
+        }
+        this.reverse = true;
+        return this;
+    }
+
+    /**
+     * Reads duplicate data items in bulk, with {@link LMDB#MDB_GET_MULTIPLE GET_MULTIPLE} and {@link LMDB#MDB_NEXT_MULTIPLE NEXT_MULTIPLE}.
+     *
+     * <p>Only supported for {@link LMDB#MDB_DUPFIXED DUPFIXED} databases, in ascending order. Each entry contains a key and up to a page of its data items,
+     * packed contiguously. A key with more data items than fit in a page is visited multiple times.</p>
+     */
+    public LMDBScan multiple() {
+        if (reverse) {
+            throw new IllegalStateException("Bulk reads of duplicate data items are only supported in ascending order.");
+        }
+        this.multiple = true;
+        return this;
+    }
+
+    private static ByteBuffer copy(ByteBuffer key) {
+        ByteBuffer copy = BufferUtils.createByteBuffer(key.remaining());
+        memCopy(memAddress(key), memAddress(copy), key.remaining());
+        return copy;
+    }
+
+    /**
+     * Returns a spliterator over the configured range.
+     *
+     * <p>The spliterator releases its cursor when it is exhausted. The returned spliterator does not support splitting.</p>
+     */
+    public Spliterator<Entry> spliterator() {
+        return new Scanner(this, null, from, to, Long.MAX_VALUE);
+    }
+
+    /** Returns a sequential stream over the configured range. The stream must be closed if it is not fully consumed. */
+    public Stream<Entry> stream() {
+        return stream(false);
+    }
+
+    /**
+     * Returns a parallel stream over the configured range. The stream must be closed if it is not fully consumed.
+     *
+     * @throws IllegalStateException if the scan does not use a shared reader pool
+     */
+    public Stream<Entry> parallelStream() {
+        if (pool == null || !pool.isShared()) {
+            throw new IllegalStateException("Parallel scans require a reader pool over an environment with MDB_NOTLS.");
+        }
+        return stream(true);
+    }
+
+    private Stream<Entry> stream(boolean parallel) {
+        Set<Scanner> open = ConcurrentHashMap.newKeySet();
+
+        Scanner root = new Scanner(this, open, from, to, Long.MAX_VALUE);
+        return StreamSupport
+            .stream(root, parallel)
+            .onClose(() -> {
+                for (Scanner scanner : open) {
+                    scanner.finish();
+                }
+            });
+    }
+
+    /** A key/data pair visited by a scan. The same instance is reused for all pairs visited by a spliterator. */
+    public static final class Entry {
+
+        final MDBVal key  = MDBVal.create();
+        final MDBVal data = MDBVal.create();
+
+        Entry() {
+        }
+
+        /** Returns the key. The returned struct points to the memory map. */
+        public MDBVal key() {
+            return key;
+        }
+
+        /** Returns the data. The returned struct points to the memory map. */
+        public MDBVal data() {
+            return data;
+        }
+
+        /** Returns the address of the key bytes. */
+        public long keyAddress() {
+            return memGetAddress(key.address() + MDBVal.MV_DATA);
+        }
+
+        /** Returns the size of the key, in bytes. */
+        public int keySize() {
+            return (int)key.mv_size();
+        }
+
+        /** Returns the address of the data bytes. */
+        public long dataAddress() {
+            return memGetAddress(data.address() + MDBVal.MV_DATA);
+        }
+
+        /** Returns the size of the data, in bytes. */
+        public long dataSize() {
+            return data.mv_size();
+        }
+
+    }
+
+    private static final class Scanner implements Spliterator<Entry> {
+
+        private static final int
+            NEW      = 0,
+            RUNNING  = 1,
+            FINISHED = 2;
+
+        private final LMDBScan scan;
+
+        @Nullable
+        private final Set<Scanner> open;
+
+        @Nullable
+        private ByteBuffer from;
+        @Nullable
+        private ByteBuffer to;
+
+        private long estimate;
+
+        private int state;
+
+        @Nullable
+        private LMDBReadPool.Reader reader;
+
+        private long txn;
+        private long cursor;
+
+        @Nullable
+        private Entry  entry;
+        @Nullable
+        private MDBVal bound;
+
+        Scanner(LMDBScan scan, @Nullable Set<Scanner> open, @Nullable ByteBuffer from, @Nullable ByteBuffer to, long estimate) {
+            this.scan = scan;
+            this.open = open;
+            this.from = from;
+            this.to = to;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry> action) {
+            int rc;
+            switch (state) {
+                case NEW:
+                    start();
+                    rc = first();
+                    break;
+                case RUNNING:
+                    rc = next();
+                    break;
+                default:
+                    return false;
+            }
+
+            if (rc == MDB_NOTFOUND || !inRange()) {
+                finish();
+                return false;
+            }
+            if (rc != MDB_SUCCESS) {
+                finish();
+                throw new LMDBException(rc);
+            }
+
+            action.accept(entry);
+            return true;
+        }
+
+        private void start() {
+            if (open != null) {
+                open.add(this);
+            }
+            state = RUNNING;
+
+            LMDBReadPool pool = scan.pool;
+            if (pool == null) {
+                txn = scan.txn;
+            } else {
+                reader = pool.acquire();
+                txn = reader.txn();
+            }
+
+            try (MemoryStack stack = stackPush()) {
+                PointerBuffer pp = stack.mallocPointer(1);
+                check(mdb_cursor_open(txn, scan.dbi, pp));
+                cursor = pp.get(0);
+            } catch (Throwable t) {
+                finish();
+                throw t;
+            }
+
+            entry = new Entry();
+            bound = MDBVal.create();
+        }
+
+        synchronized void finish() {
+            if (state == FINISHED) {
+                return;
+            }
+            state = FINISHED;
+
+            if (cursor != NULL) {
+                nmdb_cursor_close(cursor);
+                cursor = NULL;
+            }
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+            if (open != null) {
+                open.remove(this);
+            }
+        }
+
+        private int get(int op) {
+            Entry entry = this.entry;
+            return nmdb_cursor_get(cursor, entry.key.address(), entry.data.address(), op);
+        }
+
+        private int first() {
+            Entry entry = this.entry;
+
+            int rc;
+            if (scan.reverse) {
+                rc = seekLast(to);
+            } else if (from == null) {
+                rc = get(MDB_FIRST);
+            } else {
+                entry.key.mv_data(from);
+                rc = get(MDB_SET_RANGE);
+            }
+
+            if (rc == MDB_SUCCESS && scan.multiple) {
+                rc = get(MDB_GET_MULTIPLE);
+            }
+            return rc;
+        }
+
+        /** Positions the cursor at the last key before {@code to}, or at the last key if {@code to} is null. */
+        private int seekLast(@Nullable ByteBuffer to) {
+            if (to == null) {
+                return get(MDB_LAST);
+            }
+
+            entry.key.mv_data(to);
+            int rc = get(MDB_SET_RANGE);
+            if (rc == MDB_SUCCESS) {
+                return get(MDB_PREV);
+            }
+            return rc == MDB_NOTFOUND ? get(MDB_LAST) : rc;
+        }
+
+        private int next() {
+            if (scan.reverse) {
+                return get(MDB_PREV);
+            }
+            if (!scan.multiple) {
+                return get(MDB_NEXT);
+            }
+
+            int rc = get(MDB_NEXT_MULTIPLE);
+            if (rc == MDB_NOTFOUND) {
+                rc = get(MDB_NEXT_NODUP);
+                if (rc == MDB_SUCCESS) {
+                    rc = get(MDB_GET_MULTIPLE);
+                }
+            }
+            return rc;
+        }
+
+        private boolean inRange() {
+            if (scan.reverse) {
+                return from == null || 0 <= compare(from);
+            } else {
+                return to == null || compare(to) < 0;
+            }
+        }
+
+        /** Compares the current key with the specified bound. */
+        private int compare(ByteBuffer bound) {
+            MDBVal b = this.bound;
+            b.mv_data(bound);
+            return nmdb_cmp(txn, scan.dbi, entry.key.address(), b.address());
+        }
+
+        @Nullable
+        @Override
+        public Spliterator<Entry> trySplit() {
+            LMDBReadPool pool = scan.pool;
+            if (state != NEW || open == null || pool == null || !pool.isShared()) {
+                return null;
+            }
+
+            ByteBuffer split;
+            try (LMDBReadPool.Reader reader = pool.acquire()) {
+                split = findSplit(reader);
+            }
+            if (split == null) {
+                return null;
+            }
+
+            estimate >>>= 1;
+            if (scan.reverse) {
+                // The upper half is traversed first
+                Scanner prefix = new Scanner(scan, open, split, to, estimate);
+                this.to = split;
+                return prefix;
+            } else {
+                Scanner prefix = new Scanner(scan, open, from, split, estimate);
+                this.from = split;
+                return prefix;
+            }
+        }
+
+        /** Returns a key that splits the range of this scanner in two non-empty ranges, or null if the range cannot be split. */
+        @Nullable
+        private ByteBuffer findSplit(LMDBReadPool.Reader reader) {
+            long txn    = reader.txn();
+            long cursor = reader.cursor(scan.dbi);
+
+            try (MemoryStack stack = stackPush()) {
+                IntBuffer ip = stack.mallocInt(1);
+                check(nmdb_dbi_flags(txn, scan.dbi, memAddress(ip)));
+                int flags = ip.get(0);
+
+                MDBVal lo = MDBVal.callocStack(stack);
+                MDBVal hi = MDBVal.callocStack(stack);
+                MDBVal bv = MDBVal.callocStack(stack);
+
+                // First key of the range
+                int rc;
+                if (from == null) {
+                    rc = nmdb_cursor_get(cursor, lo.address(), NULL, MDB_FIRST);
+                } else {
+                    lo.mv_data(from);
+                    rc = nmdb_cursor_get(cursor, lo.address(), NULL, MDB_SET_RANGE);
+                }
+                if (rc == MDB_NOTFOUND) {
+                    return null;
+                }
+                check(rc);
+
+                // Last key of the range
+                if (to == null) {
+                    rc = nmdb_cursor_get(cursor, hi.address(), NULL, MDB_LAST);
+                } else {
+                    hi.mv_data(to);
+                    rc = nmdb_cursor_get(cursor, hi.address(), NULL, MDB_SET_RANGE);
+                    if (rc == MDB_SUCCESS) {
+                        rc = nmdb_cursor_get(cursor, hi.address(), NULL, MDB_PREV_NODUP);
+                    } else if (rc == MDB_NOTFOUND) {
+                        rc = nmdb_cursor_get(cursor, hi.address(), NULL, MDB_LAST);
+                    }
+                }
+                if (rc == MDB_NOTFOUND) {
+                    return null;
+                }
+                check(rc);
+
+                if (nmdb_cmp(txn, scan.dbi, lo.address(), hi.address()) >= 0) {
+                    return null;
+                }
+
+                ByteBuffer mid = (flags & MDB_INTEGERKEY) != 0
+                    ? midpointInteger(lo, hi)
+                    : midpointLexicographic(lo, hi);
+                if (mid == null) {
+                    return null;
+                }
+
+                // The first key at or after the midpoint, it must be after the first key of the range
+                bv.mv_data(mid);
+                rc = nmdb_cursor_get(cursor, bv.address(), NULL, MDB_SET_RANGE);
+                if (rc == MDB_NOTFOUND) {
+                    return null;
+                }
+                check(rc);
+                if (nmdb_cmp(txn, scan.dbi, bv.address(), lo.address()) <= 0 || nmdb_cmp(txn, scan.dbi, bv.address(), hi.address()) > 0) {
+                    return null;
+                }
+
+                return copy(Objects.requireNonNull(bv.mv_data()));
+            }
+        }
+
+        @Nullable
+        private static ByteBuffer midpointInteger(MDBVal lo, MDBVal hi) {
+            int size = (int)lo.mv_size();
+            if (size != hi.mv_size()) {
+                return null;
+            }
+
+            long a = memGetAddress(lo.address() + MDBVal.MV_DATA);
+            long b = memGetAddress(hi.address() + MDBVal.MV_DATA);
+
+            ByteBuffer mid = BufferUtils.createByteBuffer(size);
+            if (size == 4) {
+                long x = memGetInt(a) & 0xFFFF_FFFFL;
+                long y = memGetInt(b) & 0xFFFF_FFFFL;
+                mid.putInt(0, (int)(x + ((y - x) >>> 1)));
+            } else if (size == 8) {
+                long x = memGetLong(a);
+                long y = memGetLong(b);
+                mid.putLong(0, x + ((y - x) >>> 1));
+            } else {
+                return null;
+            }
+            return mid;
+        }
+
+        @Nullable
+        private static ByteBuffer midpointLexicographic(MDBVal lo, MDBVal hi) {
+            // The keys as unsigned big-endian fractions, with one extra byte of precision
+            int size = (int)Math.max(lo.mv_size(), hi.mv_size()) + 1;
+
+            BigInteger a = toInteger(lo, size);
+            BigInteger b = toInteger(hi, size);
+
+            byte[] mid = a.add(b).shiftRight(1).toByteArray();
+
+            ByteBuffer key = BufferUtils.createByteBuffer(size);
+            // toByteArray may add a sign byte, or return fewer bytes than the key size
+            int length = Math.min(mid.length, size);
+            key.position(size - length);
+            key.put(mid, mid.length - length, length);
+            key.clear();
+
+            // Trailing zeros do not affect the position of the midpoint
+            int n = size;
+            while (1 < n && key.get(n - 1) == 0) {
+                n--;
+            }
+            key.limit(n);
+            return key;
+        }
+
+        private static BigInteger toInteger(MDBVal key, int size) {
+            byte[] bytes = new byte[size + 1]; // leading zero byte, positive
+            ByteBuffer data = key.mv_data();
+            if (data != null) {
+                data.get(bytes, 1, data.remaining());
+            }
+            return new BigInteger(bytes);
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+
+    }
+
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+
+import javax.annotation.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+
+/**
+ * Applies writes from multiple threads to an LMDB environment, in batched transactions.
+ *
+ * <p>LMDB supports a single write transaction at a time. Threads that write with their own transactions are serialized and each write pays the cost of a
+ * commit, including a disk sync if the environment was not opened with {@link LMDB#MDB_NOSYNC NOSYNC}. The writes submitted to this class are copied to a
+ * lock-free queue and applied by a dedicated writer thread. The writer thread applies all queued writes, up to {@code maxBatchSize}, in a single transaction.
+ * Optionally, it waits up to {@code maxBatchDelay} for more writes before committing a batch.</p>
+ *
+ * <p>Each write returns a {@link CompletableFuture} that is completed after the transaction that contains the write is committed. The futures are completed
+ * on the writer thread, dependent actions that block should use the asynchronous {@code CompletableFuture} methods. A failed write fails its own future,
+ * unless the error invalidates the transaction (e.g. {@link LMDB#MDB_MAP_FULL MAP_FULL}), in which case the transaction is aborted and the futures of all
+ * writes in the batch are failed with an {@link LMDBException}. If applying or committing a batch throws an exception, the transaction is aborted and the
+ * futures of all writes in the batch are failed with that exception. The writer thread keeps running in both cases.</p>
+ *
+ * <p>Other threads may still use write transactions on the same environment, but they will be serialized with the batches of the writer thread.</p>
+ */
+public class LMDBWriter implements NativeResource {
+
+    private static final int
+        PUT    = 0,
+        DELETE = 1,
+        FLUSH  = 2;
+
+    private final long env;
+
+    private final int  maxBatchSize;
+    private final long maxBatchDelay;
+
+    private final ConcurrentLinkedQueue<Operation> queue = new ConcurrentLinkedQueue<>();
+
+    private final Thread thread;
+
+    private volatile boolean parked;
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    private final LongAdder pending    = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder failed     = new LongAdder();
+
+    // Written by the writer thread only
+    private volatile long batches;
+    private volatile long batchSizeMax;
+    private volatile long commitTime;
+    private volatile long commitTimeMax;
+
+    /**
+     * Creates a new {@code LMDBWriter} and starts its writer thread.
+     *
+     * @param env           the LMDB environment
+     * @param maxBatchSize  the maximum number of writes per transaction
+     * @param maxBatchDelay the maximum time to wait for more writes before a batch is committed. If zero, batches are committed as soon as the queue is
+     *                      empty.
+     * @param unit          the time unit of {@code maxBatchDelay}
+     */
+    public LMDBWriter(@NativeType("MDB_env *") long env, int maxBatchSize, long maxBatchDelay, TimeUnit unit) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid maximum batch size: " + maxBatchSize);
+        }
+        if (maxBatchDelay < 0L) {
+            throw new IllegalArgumentException("Invalid maximum batch delay: " + maxBatchDelay);
+        }
+
+        this.env = env;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = unit.toNanos(maxBatchDelay);
+
+        this.thread = new Thread(this::run, "LWJGL LMDB Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Returns the LMDB environment. */
+    @NativeType("MDB_env *")
+    public long getEnvironment() {
+        return env;
+    }
+
+    /**
+     * Queues a write of a key/data pair.
+     *
+     * @see #put(int, ByteBuffer, ByteBuffer, int)
+     */
+    public CompletableFuture<Boolean> put(@NativeType("MDB_dbi") int dbi, ByteBuffer key, ByteBuffer data) {
+        return put(dbi, key, data, 0);
+    }
+
+    /**
+     * Queues a write of a key/data pair.
+     *
+     * <p>The remaining bytes of {@code key} and {@code data} are copied, the buffers may be reused when this method returns.</p>
+     *
+     * @param dbi   a database handle
+     * @param key   the key to store
+     * @param data  the data to store
+     * @param flags the {@link LMDB#mdb_put mdb_put} flags. {@link LMDB#MDB_RESERVE RESERVE} and {@link LMDB#MDB_MULTIPLE MULTIPLE} are not supported.
+     *
+     * @return a future that completes with true when the write is committed, or with false if {@link LMDB#MDB_NOOVERWRITE NOOVERWRITE} or
+     *         {@link LMDB#MDB_NODUPDATA NODUPDATA} was specified and the key/data pair already exists
+     */
+    public CompletableFuture<Boolean> put(@NativeType("MDB_dbi") int dbi, ByteBuffer key, ByteBuffer data, @NativeType("unsigned int") int flags) {
+        if ((flags & (MDB_RESERVE | MDB_MULTIPLE)) != 0) {
+            throw new IllegalArgumentException("Unsupported flags: 0x" + Integer.toHexString(flags));
+        }
+        return submit(PUT, dbi, flags, key, data);
+    }
+
+    /**
+     * Queues a delete of a key and all its data items.
+     *
+     * @see #delete(int, ByteBuffer, ByteBuffer)
+     */
+    public CompletableFuture<Boolean> delete(@NativeType("MDB_dbi") int dbi, ByteBuffer key) {
+        return delete(dbi, key, null);
+    }
+
+    /**
+     * Queues a delete of a key/data pair.
+     *
+     * <p>The remaining bytes of {@code key} and {@code data} are copied, the buffers may be reused when this method returns.</p>
+     *
+     * @param dbi  a database handle
+     * @param key  the key to delete
+     * @param data the data to delete, if the database supports sorted duplicates. If null, all data items of the key are deleted.
+     *
+     * @return a future that completes with true when the delete is committed, or with false if the key/data pair does not exist
+     */
+    public CompletableFuture<Boolean> delete(@NativeType("MDB_dbi") int dbi, ByteBuffer key, @Nullable ByteBuffer data) {
+        return submit(DELETE, dbi, 0, key, data);
+    }
+
+    /** Returns a future that completes after all writes queued before this method was called have been committed or have failed. */
+    public CompletableFuture<Boolean> flush() {
+        return submit(FLUSH, 0, 0, null, null);
+    }
+
+    /** Returns the number of queued writes. */
+    public long getPendingCount() {
+        return pending.sum();
+    }
+
+    /** Returns the number of committed transactions. */
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /** Returns the number of writes that completed successfully, including writes that completed with false. */
+    public long getOperationCount() {
+        return operations.sum();
+    }
+
+    /** Returns the number of writes that failed. */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /** Returns the average number of writes per committed transaction. */
+    public double getAverageBatchSize() {
+        long batches = this.batches;
+        return batches == 0L ? 0.0 : (double)getOperationCount() / batches;
+    }
+
+    /** Returns the maximum number of writes in a committed transaction. */
+    public long getMaxBatchSize() {
+        return batchSizeMax;
+    }
+
+    /** Returns the total time, in nanoseconds, spent applying and committing transactions. */
+    public long getCommitTime() {
+        return commitTime;
+    }
+
+    /** Returns the average time, in nanoseconds, to apply and commit a transaction. */
+    public double getAverageCommitLatency() {
+        long batches = this.batches;
+        return batches == 0L ? 0.0 : (double)commitTime / batches;
+    }
+
+    /** Returns the maximum time, in nanoseconds, to apply and commit a transaction. */
+    public long getMaxCommitLatency() {
+        return commitTimeMax;
+    }
+
+    private CompletableFuture<Boolean> submit(int type, int dbi, int flags, @Nullable ByteBuffer key, @Nullable ByteBuffer data) {
+        if (closed) {
+            throw new IllegalStateException("The writer has been freed.");
+        }
+
+        Operation op = new Operation(type, dbi, flags, key, data);
+        pending.increment();
+        queue.offer(op);
+
+        if (stopped) {
+            // Raced with free, the writer thread may have exited before the operation was queued
+            if (queue.remove(op)) {
+                op.cancel();
+            }
+        } else if (parked) {
+            LockSupport.unpark(thread);
+        }
+        return op.future;
+    }
+
+    private void run() {
+        List<Operation> batch = new ArrayList<>(Math.min(maxBatchSize, 1024));
+
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp   = stack.mallocPointer(1);
+            MDBVal        key  = MDBVal.mallocStack(stack);
+            MDBVal        data = MDBVal.mallocStack(stack);
+
+            while (true) {
+                Operation op = queue.poll();
+                if (op == null) {
+                    if (closed) {
+                        break;
+                    }
+                    await(0L);
+                    continue;
+                }
+
+                batch.add(op);
+                long deadline = System.nanoTime() + maxBatchDelay;
+                while (batch.size() < maxBatchSize) {
+                    if ((op = queue.poll()) != null) {
+                        batch.add(op);
+                        continue;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (maxBatchDelay == 0L || remaining <= 0L || closed) {
+                        break;
+                    }
+                    await(remaining);
+                }
+
+                try {
+                    commit(batch, pp, key, data);
+                } finally {
+                    pending.add(-batch.size());
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    /** Parks the writer thread until a write is queued, or until the timeout expires. A zero timeout waits indefinitely. */
+    private void await(long nanos) {
+        parked = true;
+        // Re-check, a producer may have queued a write before the flag was set
+        if (queue.isEmpty() && !closed) {
+            if (nanos == 0L) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, nanos);
+            }
+        }
+        parked = false;
+    }
+
+    private void commit(List<Operation> batch, PointerBuffer pp, MDBVal key, MDBVal data) {
+        int writes = 0;
+        for (Operation op : batch) {
+            if (op.type != FLUSH) {
+                writes++;
+            }
+        }
+
+        int rc = MDB_SUCCESS;
+        if (writes != 0) {
+            long t0 = System.nanoTime();
+
+            try {
+                rc = apply(batch, pp, key, data);
+            } catch (RuntimeException e) {
+                // Fail the batch, the writer thread must keep running
+                for (Operation op : batch) {
+                    op.complete(e);
+                }
+                return;
+            }
+
+            if (rc == MDB_SUCCESS) {
+                long t = System.nanoTime() - t0;
+
+                commitTime += t;
+                if (commitTimeMax < t) {
+                    commitTimeMax = t;
+                }
+                if (batchSizeMax < writes) {
+                    batchSizeMax = writes;
+                }
+                batches++;
+            }
+        }
+
+        for (Operation op : batch) {
+            op.complete(rc);
+        }
+    }
+
+    /** Applies the batch in a new transaction and commits it. The transaction is aborted if an error or exception invalidates it. */
+    private int apply(List<Operation> batch, PointerBuffer pp, MDBVal key, MDBVal data) {
+        int rc = nmdb_txn_begin(env, NULL, 0, memAddress(pp));
+        if (rc != MDB_SUCCESS) {
+            return rc;
+        }
+
+        long txn = pp.get(0);
+        try {
+            for (Operation op : batch) {
+                rc = op.apply(txn, key, data);
+                if (rc != MDB_SUCCESS) {
+                    if (!isOperationError(rc)) {
+                        break;
+                    }
+                    op.error = rc;
+                    rc = MDB_SUCCESS;
+                }
+            }
+        } catch (RuntimeException e) {
+            nmdb_txn_abort(txn);
+            throw e;
+        }
+
+        if (rc == MDB_SUCCESS) {
+            // The transaction is freed by the commit, even if it fails
+            return nmdb_txn_commit(txn);
+        }
+
+        nmdb_txn_abort(txn);
+        return rc;
+    }
+
+    /** Returns true if the error does not invalidate the transaction. */
+    private static boolean isOperationError(int rc) {
+        switch (rc) {
+            case MDB_KEYEXIST:
+            case MDB_NOTFOUND:
+            case MDB_BAD_VALSIZE:
+            case 22: // EINVAL
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Stops the writer thread.
+     *
+     * <p>The writes queued before this method is called are committed before it returns. Writes cannot be queued afterwards. The LMDB environment is not
+     * closed.</p>
+     */
+    @Override
+    public void free() {
+        closed = true;
+        LockSupport.unpark(thread);
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        stopped = true;
+
+        Operation op;
+        while ((op = queue.poll()) != null) {
+            op.cancel();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Operation {
+
+        final int type;
+        final int dbi;
+        final int flags;
+
+        /** The key bytes, followed by the data bytes. */
+        final long address;
+        final int  keySize;
+        final int  dataSize;
+
+        final boolean hasData;
+
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        int error;
+
+        Operation(int type, int dbi, int flags, @Nullable ByteBuffer key, @Nullable ByteBuffer data) {
+            this.type = type;
+            this.dbi = dbi;
+            this.flags = flags;
+
+            this.keySize = key == null ? 0 : key.remaining();
+            this.dataSize = data == null ? 0 : data.remaining();
+            this.hasData = data != null;
+
+            if (key == null) {
+                this.address = NULL;
+            } else {
+                this.address = nmemAllocChecked(Math.max(keySize + dataSize, 1));
+                memCopy(memAddress(key), address, keySize);
+                if (data != null) {
+                    memCopy(memAddress(data), address + keySize, dataSize);
+                }
+            }
+        }
+
+        int apply(long txn, MDBVal key, MDBVal data) {
+            if (type == FLUSH) {
+                return MDB_SUCCESS;
+            }
+
+            memPutAddress(key.address() + MDBVal.MV_DATA, address);
+            MDBVal.nmv_size(key.address(), keySize);
+
+            memPutAddress(data.address() + MDBVal.MV_DATA, address + keySize);
+            MDBVal.nmv_size(data.address(), dataSize);
+
+            return type == PUT
+                ? nmdb_put(txn, dbi, key.address(), data.address(), flags)
+                : nmdb_del(txn, dbi, key.address(), hasData ? data.address() : NULL);
+        }
+
+        void complete(int rc) {
+            nmemFree(address);
+
+            if (type == FLUSH) {
+                future.complete(true);
+            } else if (rc != MDB_SUCCESS) {
+                fail(new LMDBException(rc));
+            } else if (error == MDB_SUCCESS) {
+                operations.increment();
+                future.complete(true);
+            } else if (error == MDB_KEYEXIST || error == MDB_NOTFOUND) {
+                operations.increment();
+                future.complete(false);
+            } else {
+                fail(new LMDBException(error));
+            }
+        }
+
+        void complete(Throwable t) {
+            nmemFree(address);
+            fail(t);
+        }
+
+        void cancel() {
+            nmemFree(address);
+            pending.decrement();
+            fail(new IllegalStateException("The writer has been freed."));
+        }
+
+        private void fail(Throwable t) {
+            failed.increment();
+            future.completeExceptionally(t);
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+import org.testng.annotations.*;
+
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+import static org.lwjgl.util.lmdb.LMDBTestUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class LMDBBulkLoaderTest {
+
+    private Path dir;
+    private long env;
+
+    @AfterMethod
+    void tearDown() {
+        mdb_env_close(env);
+        deleteDirectory(dir);
+    }
+
+    private interface Reads {
+        void read(MemoryStack stack, long txn);
+    }
+
+    private void read(Reads reads) {
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(mdb_txn_begin(env, NULL, MDB_RDONLY, pp));
+            long txn = pp.get(0);
+            try {
+                reads.read(stack, txn);
+            } finally {
+                mdb_txn_abort(txn);
+            }
+        }
+    }
+
+    public void testLoad() {
+        dir = createDirectory();
+        env = openEnvironment(dir, 64 << 10, 0);
+        int dbi = openDatabase(env, null, 0);
+
+        int count = 5000;
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(42));
+
+        LMDBBulkLoader loader = new LMDBBulkLoader(env, dbi, dir, 4096, 1000);
+        try {
+            ByteBuffer key  = BufferUtils.createByteBuffer(16);
+            ByteBuffer data = BufferUtils.createByteBuffer(4);
+            for (int i : order) {
+                memASCII(String.format("k%06d", i), false, key);
+                key.limit(7);
+                loader.add(key, data.putInt(0, i));
+                key.clear();
+            }
+            // Overwrites, the last pair wins
+            for (int i = 0; i < count; i += 10) {
+                memASCII(String.format("k%06d", i), false, key);
+                key.limit(7);
+                loader.add(key, data.putInt(0, -i));
+                key.clear();
+            }
+
+            assertTrue(1 < loader.getSpilledRunCount());
+            assertEquals(loader.getAddedCount(), count + count / 10);
+
+            assertEquals(loader.load(), count);
+            assertEquals(loader.getSkippedCount(), count / 10);
+            assertEquals(loader.getProgress(), 1.0);
+            assertTrue(5 <= loader.getTransactionCount());
+            assertTrue(0 < loader.getMapResizeCount());
+
+            expectThrows(IllegalStateException.class, loader::load);
+        } finally {
+            loader.free();
+        }
+
+        read((stack, txn) -> {
+            int[] i = {0};
+            LMDBScan.of(txn, dbi).spliterator().forEachRemaining(e -> {
+                assertEquals(memASCII(Objects.requireNonNull(e.key().mv_data())), String.format("k%06d", i[0]));
+                assertEquals(Objects.requireNonNull(e.data().mv_data()).getInt(0), i[0] % 10 == 0 ? -i[0] : i[0]);
+                i[0]++;
+            });
+            assertEquals(i[0], count);
+        });
+    }
+
+    public void testLoadDuplicates() {
+        dir = createDirectory();
+        env = openEnvironment(dir, 1 << 20, 0);
+        int dbi = openDatabase(env, "dups", MDB_DUPSORT | MDB_INTEGERKEY | MDB_INTEGERDUP);
+
+        int keys   = 10;
+        int values = 500;
+
+        Random random = new Random(7);
+
+        LMDBBulkLoader loader = new LMDBBulkLoader(env, dbi, dir, 1024, 300);
+        try {
+            ByteBuffer key  = BufferUtils.createByteBuffer(4);
+            ByteBuffer data = BufferUtils.createByteBuffer(4);
+            for (int i = 0; i < keys * values; i++) {
+                loader.add(key.putInt(0, random.nextInt(keys)), data.putInt(0, random.nextInt(values)));
+            }
+            loader.load();
+        } finally {
+            loader.free();
+        }
+
+        // Reference result
+        random = new Random(7);
+        List<TreeSet<Integer>> expected = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            expected.add(new TreeSet<>());
+        }
+        for (int i = 0; i < keys * values; i++) {
+            int k = random.nextInt(keys);
+            expected.get(k).add(random.nextInt(values));
+        }
+
+        read((stack, txn) -> {
+            List<List<Integer>> actual = new ArrayList<>();
+            for (int k = 0; k < keys; k++) {
+                actual.add(new ArrayList<>());
+            }
+            LMDBScan.of(txn, dbi).spliterator().forEachRemaining(e -> actual.get(memGetInt(e.keyAddress())).add(memGetInt(e.dataAddress())));
+
+            for (int k = 0; k < keys; k++) {
+                assertEquals(actual.get(k), new ArrayList<>(expected.get(k)));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.system.*;
+import org.testng.annotations.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+import static org.lwjgl.util.lmdb.LMDBTestUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class LMDBManagedEnvTest {
+
+    private static final int VALUE_SIZE = 256;
+
+    private Path           dir;
+    private LMDBManagedEnv env;
+
+    @AfterMethod
+    void tearDown() {
+        env.free();
+        deleteDirectory(dir);
+    }
+
+    private static void put(MemoryStack stack, long txn, int dbi, int key) {
+        MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4).putInt(0, key));
+        MDBVal dv = MDBVal.callocStack(stack).mv_size(VALUE_SIZE);
+
+        check(mdb_put(txn, dbi, kv, dv, MDB_RESERVE));
+        memSet(memGetAddress(dv.address() + MDBVal.MV_DATA), 0, VALUE_SIZE);
+        memPutInt(memGetAddress(dv.address() + MDBVal.MV_DATA), key);
+    }
+
+    private static int get(MemoryStack stack, long txn, int dbi, int key) {
+        MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4).putInt(0, key));
+        MDBVal dv = MDBVal.callocStack(stack);
+
+        int rc = mdb_get(txn, dbi, kv, dv);
+        if (rc == MDB_NOTFOUND) {
+            return -1;
+        }
+        check(rc);
+        return memGetInt(memGetAddress(dv.address() + MDBVal.MV_DATA));
+    }
+
+    public void testGrowth() {
+        dir = createDirectory();
+        env = new LMDBManagedEnv(openEnvironment(dir, 64 << 10, 0), 2.0, 64 << 20);
+        int dbi = openDatabase(env.getEnvironment(), null, MDB_INTEGERKEY);
+
+        long initialSize = env.getMapSize();
+
+        int count = 10000;
+        for (int i = 0; i < count; i += 500) {
+            int first = i;
+            env.write((stack, txn) -> {
+                for (int j = first; j < first + 500; j++) {
+                    put(stack, txn, dbi, j);
+                }
+                return null;
+            });
+        }
+
+        assertTrue(0 < env.getResizeCount());
+        assertTrue(0 < env.getRetryCount());
+        assertTrue(initialSize < env.getMapSize());
+        assertEquals(env.getEpoch(), env.getResizeCount());
+        assertTrue(count * (long)VALUE_SIZE < env.getUsedSize());
+        assertTrue(0.0 < env.getUsage() && env.getUsage() <= 1.0);
+
+        for (int i = 0; i < count; i += 997) {
+            int key = i;
+            assertEquals(env.read((stack, txn) -> get(stack, txn, dbi, key)).intValue(), key);
+        }
+    }
+
+    public void testConcurrent() throws Exception {
+        dir = createDirectory();
+        env = new LMDBManagedEnv(openEnvironment(dir, 64 << 10, MDB_NOTLS), 1.5, 256 << 20);
+        int dbi = openDatabase(env.getEnvironment(), null, MDB_INTEGERKEY);
+
+        int writers = 4;
+        int readers = 4;
+        int batches = 40;
+        int batch   = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        try {
+            CountDownLatch done = new CountDownLatch(writers);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    try {
+                        for (int b = 0; b < batches; b++) {
+                            int first = (writer * batches + b) * batch;
+                            env.write((stack, txn) -> {
+                                for (int j = first; j < first + batch; j++) {
+                                    put(stack, txn, dbi, j);
+                                }
+                                return null;
+                            });
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }));
+            }
+            for (int r = 0; r < readers; r++) {
+                futures.add(executor.submit(() -> {
+                    Random random = new Random();
+                    while (done.getCount() != 0) {
+                        int key   = random.nextInt(writers * batches * batch);
+                        int value = env.read((stack, txn) -> get(stack, txn, dbi, key));
+                        assertTrue(value == -1 || value == key);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(0 < env.getResizeCount());
+        assertEquals(env.getEntryCount(), writers * batches * batch);
+        for (int i = 0; i < writers * batches * batch; i += 101) {
+            int key = i;
+            assertEquals(env.read((stack, txn) -> get(stack, txn, dbi, key)).intValue(), key);
+        }
+    }
+
+    public void testMaxMapSize() {
+        dir = createDirectory();
+        env = new LMDBManagedEnv(openEnvironment(dir, 64 << 10, 0), 2.0, 256 << 10);
+        int dbi = openDatabase(env.getEnvironment(), null, MDB_INTEGERKEY);
+
+        try {
+            for (int i = 0; ; i += 100) {
+                int first = i;
+                env.write((stack, txn) -> {
+                    for (int j = first; j < first + 100; j++) {
+                        put(stack, txn, dbi, j);
+                    }
+                    return null;
+                });
+            }
+        } catch (LMDBException e) {
+            assertEquals(e.getError(), MDB_MAP_FULL);
+        }
+        assertEquals(env.getMapSize(), 256 << 10);
+    }
+
+    public void testNestedCannotGrow() {
+        dir = createDirectory();
+        env = new LMDBManagedEnv(openEnvironment(dir, 64 << 10, MDB_NOTLS), 2.0, 64 << 20);
+        int dbi = openDatabase(env.getEnvironment(), null, MDB_INTEGERKEY);
+
+        int[] failed = new int[1];
+
+        env.enter();
+        try {
+            for (int i = 0; ; i += 100) {
+                failed[0] = i;
+                env.write((stack, txn) -> {
+                    for (int j = failed[0]; j < failed[0] + 100; j++) {
+                        put(stack, txn, dbi, j);
+                    }
+                    return null;
+                });
+            }
+        } catch (LMDBException e) {
+            assertEquals(e.getError(), MDB_MAP_FULL);
+        } finally {
+            env.exit();
+        }
+        assertEquals(env.getResizeCount(), 0L);
+
+        // Grows outside the gate
+        env.write((stack, txn) -> {
+            for (int j = failed[0]; j < failed[0] + 100; j++) {
+                put(stack, txn, dbi, j);
+            }
+            return null;
+        });
+        assertEquals(env.getResizeCount(), 1L);
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.system.*;
+import org.testng.annotations.*;
+
+import java.nio.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBTestUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class LMDBReadPoolTest {
+
+    private Path dir;
+    private long env;
+
+    @AfterMethod
+    void tearDown() {
+        mdb_env_close(env);
+        deleteDirectory(dir);
+    }
+
+    private int open(int flags) {
+        dir = createDirectory();
+        env = openEnvironment(dir, 1 << 20, flags);
+        return openDatabase(env, null, MDB_INTEGERKEY);
+    }
+
+    private static ByteBuffer value(int value) {
+        return ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder()).putInt(0, value);
+    }
+
+    private void put(int dbi, int key, int value) throws Exception {
+        LMDBWriter writer = new LMDBWriter(env, 1, 0, TimeUnit.MILLISECONDS);
+        try {
+            writer.put(dbi, value(key), value(value)).get();
+        } finally {
+            writer.free();
+        }
+    }
+
+    private static int read(LMDBReadPool.Reader reader, int dbi, int key) {
+        try (MemoryStack stack = stackPush()) {
+            MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4).putInt(0, key));
+            MDBVal dv = MDBVal.callocStack(stack);
+
+            int rc = mdb_cursor_get(reader.cursor(dbi), kv, dv, MDB_SET_KEY);
+            if (rc == MDB_NOTFOUND) {
+                return -1;
+            }
+            LMDBException.check(rc);
+            return memGetInt(memGetAddress(dv.address() + MDBVal.MV_DATA));
+        }
+    }
+
+    public void testThreadLocal() throws Exception {
+        int dbi = open(0);
+        put(dbi, 1, 10);
+
+        LMDBReadPool pool = new LMDBReadPool(env, 0);
+        try {
+            assertFalse(pool.isShared());
+
+            LMDBReadPool.Reader reader = pool.acquire();
+            long                txn    = reader.txn();
+            assertEquals(read(reader, dbi, 1), 10);
+
+            // Nested read-only transactions are not supported without NOTLS
+            expectThrows(IllegalStateException.class, pool::acquire);
+
+            // The reader sees its own snapshot
+            put(dbi, 1, 20);
+            assertEquals(read(reader, dbi, 1), 10);
+            reader.close();
+
+            try (LMDBReadPool.Reader r = pool.acquire()) {
+                assertSame(r, reader);
+                assertEquals(r.txn(), txn);
+                assertEquals(read(r, dbi, 1), 20);
+            }
+
+            assertEquals(pool.getAcquireCount(), 2L);
+            assertEquals(pool.getCreateCount(), 1L);
+            assertEquals(pool.getCursorOpenCount(), 1L);
+            assertEquals(pool.getCursorRenewCount(), 1L);
+            assertEquals(pool.getActiveCount(), 0);
+
+            // The idle reader of a terminated thread is freed
+            Thread thread = new Thread(() -> pool.acquire().close());
+            thread.start();
+            thread.join();
+            assertEquals(pool.getIdleCount(), 2);
+
+            pool.checkReaders();
+            assertEquals(pool.getIdleCount(), 1);
+        } finally {
+            pool.free();
+        }
+    }
+
+    public void testShared() throws Exception {
+        int dbi = open(MDB_NOTLS);
+        put(dbi, 1, 10);
+
+        LMDBReadPool pool = new LMDBReadPool(env, 2);
+        try {
+            assertTrue(pool.isShared());
+
+            LMDBReadPool.Reader a = pool.acquire();
+            LMDBReadPool.Reader b = pool.acquire();
+            LMDBReadPool.Reader c = pool.acquire();
+            assertNotSame(a, b);
+            assertEquals(read(a, dbi, 1), 10);
+            assertEquals(read(b, dbi, 1), 10);
+            assertTrue(0L <= pool.getOldestReaderAge());
+
+            a.close();
+            b.close();
+            c.close();
+
+            // Only two readers are kept
+            assertEquals(pool.getIdleCount(), 2);
+            assertEquals(pool.getCreateCount(), 3L);
+
+            // Readers can be reused by other threads
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                assertEquals((int)executor.submit(() -> {
+                    try (LMDBReadPool.Reader reader = pool.acquire()) {
+                        return read(reader, dbi, 1);
+                    }
+                }).get(), 10);
+            } finally {
+                executor.shutdown();
+            }
+
+            assertEquals(pool.getCreateCount(), 3L);
+            assertEquals(pool.getCursorRenewCount(), 1L);
+            assertEquals(pool.checkReaders(), 0);
+        } finally {
+            pool.free();
+        }
+
+        expectThrows(IllegalStateException.class, pool::acquire);
+    }
+
+}
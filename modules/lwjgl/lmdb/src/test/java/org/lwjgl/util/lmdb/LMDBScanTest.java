@@ -0,0 +1,203 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+import org.testng.annotations.*;
+
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+import static org.lwjgl.util.lmdb.LMDBTestUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class LMDBScanTest {
+
+    private Path dir;
+    private long env;
+
+    @AfterMethod
+    void tearDown() {
+        mdb_env_close(env);
+        deleteDirectory(dir);
+    }
+
+    private interface Writes {
+        void write(MemoryStack stack, long txn);
+    }
+
+    private void write(Writes writes) {
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(mdb_txn_begin(env, NULL, 0, pp));
+            long txn = pp.get(0);
+            writes.write(stack, txn);
+            check(mdb_txn_commit(txn));
+        }
+    }
+
+    private static String key(LMDBScan.Entry e) {
+        return memASCII(Objects.requireNonNull(e.key().mv_data()));
+    }
+
+    private static List<String> keys(Stream<LMDBScan.Entry> entries) {
+        try (Stream<LMDBScan.Entry> s = entries) {
+            return s.map(LMDBScanTest::key).collect(Collectors.toList());
+        }
+    }
+
+    public void testRange() {
+        dir = createDirectory();
+        env = openEnvironment(dir, 1 << 20, 0);
+        int dbi = openDatabase(env, null, 0);
+
+        write((stack, txn) -> {
+            MDBVal kv = MDBVal.callocStack(stack);
+            MDBVal dv = MDBVal.callocStack(stack).mv_data(stack.malloc(4));
+            for (char c = 'a'; c <= 'c'; c++) {
+                for (int i = 0; i < 100; i++) {
+                    check(mdb_put(txn, dbi, kv.mv_data(stack.ASCII(String.format("%c%02d", c, i), false)), dv, 0));
+                }
+            }
+        });
+
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(mdb_txn_begin(env, NULL, MDB_RDONLY, pp));
+            long txn = pp.get(0);
+            try {
+                assertEquals(LMDBScan.of(txn, dbi).stream().count(), 300L);
+
+                List<String> keys = keys(LMDBScan.of(txn, dbi).prefix(stack.ASCII("b", false)).stream());
+                assertEquals(keys.size(), 100);
+                assertEquals(keys.get(0), "b00");
+                assertEquals(keys.get(99), "b99");
+
+                keys = keys(LMDBScan.of(txn, dbi).from(stack.ASCII("a50", false)).to(stack.ASCII("b10", false)).stream());
+                assertEquals(keys.size(), 60);
+                assertEquals(keys.get(0), "a50");
+                assertEquals(keys.get(59), "b09");
+
+                keys = keys(LMDBScan.of(txn, dbi).prefix(stack.ASCII("c", false)).reverse().stream());
+                assertEquals(keys.size(), 100);
+                assertEquals(keys.get(0), "c99");
+                assertEquals(keys.get(99), "c00");
+
+                keys = keys(LMDBScan.of(txn, dbi).from(stack.ASCII("a95", false)).to(stack.ASCII("b05", false)).reverse().stream());
+                assertEquals(keys, Arrays.asList("b04", "b03", "b02", "b01", "b00", "a99", "a98", "a97", "a96", "a95"));
+
+                assertEquals(LMDBScan.of(txn, dbi).prefix(stack.ASCII("d", false)).stream().count(), 0L);
+
+                // A single flyweight entry per spliterator
+                Set<LMDBScan.Entry> entries = Collections.newSetFromMap(new IdentityHashMap<>());
+                LMDBScan.of(txn, dbi).spliterator().forEachRemaining(entries::add);
+                assertEquals(entries.size(), 1);
+            } finally {
+                mdb_txn_abort(txn);
+            }
+        }
+    }
+
+    public void testMultiple() {
+        dir = createDirectory();
+        env = openEnvironment(dir, 4 << 20, 0);
+        int dbi = openDatabase(env, "dupfixed", MDB_DUPSORT | MDB_DUPFIXED | MDB_INTEGERKEY | MDB_INTEGERDUP);
+
+        int keys   = 3;
+        int values = 2000;
+        write((stack, txn) -> {
+            MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4));
+            MDBVal dv = MDBVal.callocStack(stack).mv_data(stack.malloc(4));
+            for (int k = 0; k < keys; k++) {
+                memPutInt(memGetAddress(kv.address() + MDBVal.MV_DATA), k);
+                for (int v = 0; v < values; v++) {
+                    memPutInt(memGetAddress(dv.address() + MDBVal.MV_DATA), v);
+                    check(mdb_put(txn, dbi, kv, dv, 0));
+                }
+            }
+        });
+
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(mdb_txn_begin(env, NULL, MDB_RDONLY, pp));
+            long txn = pp.get(0);
+            try {
+                long[] sums  = new long[keys];
+                int[]  pages = new int[1];
+                LMDBScan.of(txn, dbi).multiple().spliterator().forEachRemaining(e -> {
+                    int key = memGetInt(e.keyAddress());
+                    for (long i = 0; i < e.dataSize(); i += 4) {
+                        sums[key] += memGetInt(e.dataAddress() + i);
+                    }
+                    pages[0]++;
+                });
+
+                for (int k = 0; k < keys; k++) {
+                    assertEquals(sums[k], (long)values * (values - 1) / 2);
+                }
+                assertTrue(keys < pages[0] && pages[0] < keys * values);
+
+                assertEquals(LMDBScan.of(txn, dbi).stream().count(), (long)keys * values);
+            } finally {
+                mdb_txn_abort(txn);
+            }
+        }
+    }
+
+    public void testParallel() {
+        dir = createDirectory();
+        env = openEnvironment(dir, 4 << 20, MDB_NOTLS);
+        int dbi = openDatabase(env, null, MDB_INTEGERKEY);
+
+        int count = 20000;
+        write((stack, txn) -> {
+            MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4));
+            MDBVal dv = MDBVal.callocStack(stack).mv_data(stack.malloc(4));
+            for (int i = 0; i < count; i++) {
+                memPutInt(memGetAddress(kv.address() + MDBVal.MV_DATA), i);
+                memPutInt(memGetAddress(dv.address() + MDBVal.MV_DATA), i * 3);
+                check(mdb_put(txn, dbi, kv, dv, MDB_APPEND));
+            }
+        });
+
+        LMDBReadPool pool = new LMDBReadPool(env, 16);
+        try {
+            // The split parts are disjoint and cover the full range
+            Spliterator<LMDBScan.Entry> spliterator = LMDBScan.of(pool, dbi).parallelStream().spliterator();
+            Spliterator<LMDBScan.Entry> prefix      = spliterator.trySplit();
+            assertNotNull(prefix);
+
+            Set<Integer> seen = new HashSet<>();
+            prefix.forEachRemaining(e -> assertTrue(seen.add(memGetInt(e.keyAddress()))));
+            int half = seen.size();
+            spliterator.forEachRemaining(e -> assertTrue(seen.add(memGetInt(e.keyAddress()))));
+            assertEquals(seen.size(), count);
+            assertTrue(count / 4 < half && half < count * 3 / 4);
+
+            try (Stream<LMDBScan.Entry> entries = LMDBScan.of(pool, dbi).parallelStream()) {
+                assertEquals(entries.mapToLong(e -> memGetInt(e.dataAddress())).sum(), 3L * count * (count - 1) / 2);
+            }
+
+            // Closing a stream that was not fully consumed releases its readers
+            try (Stream<LMDBScan.Entry> entries = LMDBScan.of(pool, dbi).parallelStream()) {
+                assertTrue(entries.anyMatch(e -> memGetInt(e.keyAddress()) == 5000));
+            }
+            assertEquals(pool.getActiveCount(), 0);
+
+            expectThrows(IllegalStateException.class, () -> LMDBScan.of(NULL, dbi).parallelStream());
+        } finally {
+            pool.free();
+        }
+    }
+
+}
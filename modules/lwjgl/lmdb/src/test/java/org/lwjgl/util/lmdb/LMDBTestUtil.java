@@ -0,0 +1,98 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.lwjgl.*;
+import org.lwjgl.system.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+
+import static org.lwjgl.system.MemoryStack.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBException.*;
+
+final class LMDBTestUtil {
+
+    private LMDBTestUtil() {
+    }
+
+    static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("lwjgl-lmdb");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteDirectory(Path dir) {
+        try {
+            Files.deleteIfExists(dir.resolve("data.mdb"));
+            Files.deleteIfExists(dir.resolve("lock.mdb"));
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long openEnvironment(Path dir, long mapSize, int flags) {
+        long env;
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            check(mdb_env_create(pp));
+            env = pp.get(0);
+        }
+
+        check(mdb_env_set_mapsize(env, mapSize));
+        check(mdb_env_set_maxdbs(env, 4));
+        check(mdb_env_open(env, dir.toString(), MDB_NOSYNC | flags, 0664));
+        return env;
+    }
+
+    static int openDatabase(long env, String name, int flags) {
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+            IntBuffer     ip = stack.mallocInt(1);
+
+            check(mdb_txn_begin(env, NULL, 0, pp));
+            long txn = pp.get(0);
+            try {
+                check(mdb_dbi_open(txn, name, MDB_CREATE | flags, ip));
+            } catch (Throwable t) {
+                mdb_txn_abort(txn);
+                throw t;
+            }
+            check(mdb_txn_commit(txn));
+
+            return ip.get(0);
+        }
+    }
+
+    /** Returns the value of an int key/int data pair, or -1 if the key does not exist. */
+    static int get(long env, int dbi, int key) {
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer pp = stack.mallocPointer(1);
+
+            check(mdb_txn_begin(env, NULL, MDB_RDONLY, pp));
+            long txn = pp.get(0);
+            try {
+                MDBVal kv = MDBVal.callocStack(stack).mv_data(stack.malloc(4).putInt(0, key));
+                MDBVal dv = MDBVal.callocStack(stack);
+
+                int rc = mdb_get(txn, dbi, kv, dv);
+                if (rc == MDB_NOTFOUND) {
+                    return -1;
+                }
+                check(rc);
+                return memGetInt(memGetAddress(dv.address() + MDBVal.MV_DATA));
+            } finally {
+                mdb_txn_abort(txn);
+            }
+        }
+    }
+
+}
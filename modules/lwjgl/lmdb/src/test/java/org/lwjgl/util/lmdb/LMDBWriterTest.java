@@ -0,0 +1,139 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.util.lmdb;
+
+import org.testng.annotations.*;
+
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.lwjgl.util.lmdb.LMDB.*;
+import static org.lwjgl.util.lmdb.LMDBTestUtil.*;
+import static org.testng.Assert.*;
+
+@Test
+public class LMDBWriterTest {
+
+    private Path dir;
+    private long env;
+    private int  dbi;
+
+    @BeforeMethod
+    void setUp() {
+        dir = createDirectory();
+        env = openEnvironment(dir, 16 << 20, 0);
+        dbi = openDatabase(env, null, MDB_INTEGERKEY);
+    }
+
+    @AfterMethod
+    void tearDown() {
+        mdb_env_close(env);
+        deleteDirectory(dir);
+    }
+
+    private static ByteBuffer value(int value) {
+        return ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder()).putInt(0, value);
+    }
+
+    public void testConcurrentWrites() throws Exception {
+        LMDBWriter writer = new LMDBWriter(env, 256, 1, TimeUnit.MILLISECONDS);
+        try {
+            int threads = 4;
+            int count   = 500;
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<List<CompletableFuture<Boolean>>>> tasks = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int base = t * count;
+                    tasks.add(executor.submit(() -> {
+                        List<CompletableFuture<Boolean>> futures = new ArrayList<>(count);
+
+                        ByteBuffer key  = value(0);
+                        ByteBuffer data = value(0);
+                        for (int i = base; i < base + count; i++) {
+                            // The buffers are copied, they can be reused immediately
+                            key.putInt(0, i);
+                            data.putInt(0, i * 2);
+                            futures.add(writer.put(dbi, key, data));
+                        }
+                        return futures;
+                    }));
+                }
+
+                for (Future<List<CompletableFuture<Boolean>>> task : tasks) {
+                    for (CompletableFuture<Boolean> future : task.get()) {
+                        assertTrue(future.get(10, TimeUnit.SECONDS));
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            for (int i = 0; i < threads * count; i++) {
+                assertEquals(get(env, dbi, i), i * 2);
+            }
+
+            assertEquals(writer.getOperationCount(), threads * count);
+            assertEquals(writer.getFailedCount(), 0L);
+            assertEquals(writer.getPendingCount(), 0L);
+            assertTrue(writer.getBatchCount() < threads * count);
+            assertTrue(writer.getMaxBatchSize() <= 256);
+            assertTrue(1.0 < writer.getAverageBatchSize());
+            assertTrue(0L < writer.getMaxCommitLatency());
+        } finally {
+            writer.free();
+        }
+    }
+
+    public void testResults() throws Exception {
+        LMDBWriter writer = new LMDBWriter(env, 16, 0, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue(writer.put(dbi, value(1), value(10)).get());
+            assertFalse(writer.put(dbi, value(1), value(20), MDB_NOOVERWRITE).get());
+            assertEquals(get(env, dbi, 1), 10);
+
+            assertTrue(writer.delete(dbi, value(1)).get());
+            assertFalse(writer.delete(dbi, value(1)).get());
+            assertEquals(get(env, dbi, 1), -1);
+
+            // A failed write does not abort the other writes of its batch
+            CompletableFuture<Boolean> invalid = writer.put(dbi, ByteBuffer.allocateDirect(0), value(0));
+            CompletableFuture<Boolean> valid   = writer.put(dbi, value(2), value(20));
+            assertTrue(writer.flush().get());
+
+            ExecutionException e = expectThrows(ExecutionException.class, invalid::get);
+            assertTrue(e.getCause() instanceof LMDBException);
+            assertTrue(valid.get());
+            assertEquals(get(env, dbi, 2), 20);
+            assertEquals(writer.getFailedCount(), 1L);
+
+            expectThrows(IllegalArgumentException.class, () -> writer.put(dbi, value(3), value(3), MDB_RESERVE));
+        } finally {
+            writer.free();
+        }
+
+        expectThrows(IllegalStateException.class, () -> writer.put(dbi, value(3), value(3)));
+    }
+
+    public void testFree() throws Exception {
+        LMDBWriter writer = new LMDBWriter(env, 1000, 1, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(writer.put(dbi, value(i), value(i)));
+        }
+        // Does not wait for the batch delay, the queued writes are committed
+        writer.free();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(futures.get(i).getNow(false));
+            assertEquals(get(env, dbi, i), i);
+        }
+    }
+
+}
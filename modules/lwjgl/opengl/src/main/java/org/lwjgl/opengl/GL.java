@@ -461,7 +461,19 @@ public final class GL {
                 }
             }
 
-            return caps = new GLCapabilities(functionProvider, supportedExtensions, forwardCompatible);
+            APIFunctionCounter counter = DEBUG ? new APIFunctionCounter(functionProvider) : null;
+            if (counter != null) {
+                functionProvider = counter;
+            }
+            if (Configuration.OPENGL_SUPPORTED_FUNCTIONS_ONLY.get(false)) {
+                functionProvider = GLCapabilities.getSupportedFunctionProvider(functionProvider, supportedExtensions);
+            }
+
+            caps = new GLCapabilities(functionProvider, supportedExtensions, forwardCompatible);
+            if (counter != null) {
+                counter.log("GL");
+            }
+            return caps;
         } finally {
             setCapabilities(caps);
         }
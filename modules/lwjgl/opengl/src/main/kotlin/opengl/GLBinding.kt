@@ -63,6 +63,15 @@ val GLBinding = Generator.register(object : APIBinding(
 
     override fun getFunctionOrdinal(function: Func) = functionOrdinals[function.name]!!
 
+    // The versions and extensions that define each function, including reused functions
+    private val functionOwners: Map<String, List<String>> by lazy {
+        classes
+            .filter { it.hasNativeFunctions }
+            .flatMap { nativeClass -> nativeClass.functions.map { it.name to nativeClass.capName } }
+            .groupBy({ it.first }, { it.second })
+            .mapValues { it.value.distinct() }
+    }
+
     override fun generateAlternativeMethods(writer: PrintWriter, function: Func, transforms: MutableMap<QualifiedType, Transform>) {
         val boParams = function.getParams { it.has<BufferObject>() && it.nativeType.mapping != PrimitiveMapping.POINTER && it.nativeType !is ArrayType }
         if (boParams.any()) {
@@ -244,6 +253,58 @@ val GLBinding = Generator.register(object : APIBinding(
         return false;
     }
 
+    /**
+     * Returns a {@link FunctionProvider} that resolves only the functions of the versions and extensions in {@code ext}. Other functions are resolved to
+     * {@code NULL}.
+     *
+     * @see Configuration#OPENGL_SUPPORTED_FUNCTIONS_ONLY
+     */
+    static FunctionProvider getSupportedFunctionProvider(FunctionProvider provider, Set<String> ext) {
+        return new FunctionProvider() {
+            @Override
+            public long getFunctionAddress(CharSequence functionName) {
+                return isSupported(functionName.toString(), ext) ? provider.getFunctionAddress(functionName) : NULL;
+            }
+
+            @Override
+            public long getFunctionAddress(java.nio.ByteBuffer functionName) {
+                return isSupported(memASCII(functionName), ext) ? provider.getFunctionAddress(functionName) : NULL;
+            }
+        };
+    }
+
+    private static boolean isSupported(String functionName, Set<String> ext) {
+        String owners = FunctionOwners.MAP.get(functionName);
+        if (owners == null) {
+            return true;
+        }
+
+        for (int i = 0; ; ) {
+            int j = owners.indexOf(' ', i);
+            if (ext.contains(j == -1 ? owners.substring(i) : owners.substring(i, j))) {
+                return true;
+            }
+            if (j == -1) {
+                return false;
+            }
+            i = j + 1;
+        }
+    }
+
+    /** The space-separated versions and extensions that define each function. Initialized on first use. */
+    private static final class FunctionOwners {
+
+        static final java.util.Map<String, String> MAP = new java.util.HashMap<>(${(functions.size * 4 / 3 + 1)});
+
+        static {""")
+        functions.forEach {
+            print("\n$t$t${t}MAP.put(\"${it.name}\", \"${functionOwners.getValue(it.name).joinToString(" ")}\");")
+        }
+        print("""
+        }
+
+    }
+
 }""")
     }
 
@@ -6,6 +6,8 @@ package org.lwjgl.vulkan;
 
 import org.lwjgl.system.*;
 
+import java.util.*;
+
 import static org.lwjgl.system.APIUtil.*;
 import static org.lwjgl.system.JNI.*;
 import static org.lwjgl.system.MemoryStack.*;
@@ -37,13 +39,23 @@ public class VkDevice extends DispatchableHandleDevice {
             );
         }
 
-        return new VKCapabilitiesDevice(functionName -> {
+        Set<String> ext = VK.getEnabledExtensionSet(capsInstance.apiVersion, ci.ppEnabledExtensionNames());
+
+        FunctionProvider provider = functionName -> {
             long address = callPPP(vkGetDeviceProcAddr, handle, memAddress(functionName));
             if (address == NULL && Checks.DEBUG_FUNCTIONS) {
                 apiLog("Failed to locate address for VK device function " + memASCII(functionName));
             }
             return address;
-        }, capsInstance, VK.getEnabledExtensionSet(capsInstance.apiVersion, ci.ppEnabledExtensionNames()));
+        };
+        if (!Checks.DEBUG) {
+            return new VKCapabilitiesDevice(provider, capsInstance, ext);
+        }
+
+        APIFunctionCounter counter = new APIFunctionCounter(provider);
+        VKCapabilitiesDevice caps = new VKCapabilitiesDevice(counter, capsInstance, ext);
+        counter.log("VK");
+        return caps;
     }
 
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ package org.lwjgl.vulkan;
 
 import org.lwjgl.system.*;
 
+import java.util.*;
+
 import static org.lwjgl.system.APIUtil.*;
 import static org.lwjgl.system.JNI.*;
 import static org.lwjgl.system.MemoryUtil.*;
@@ -40,13 +42,23 @@ public class VkInstance extends DispatchableHandleInstance {
             throw new IllegalStateException("A core Vulkan function is missing. Make sure that Vulkan is available.");
         }
 
-        return new VKCapabilitiesInstance(functionName -> {
+        Set<String> ext = VK.getEnabledExtensionSet(apiVersion, ci.ppEnabledExtensionNames());
+
+        FunctionProvider provider = functionName -> {
             long address = callPPP(GetInstanceProcAddr, handle, memAddress(functionName));
             if (address == NULL && Checks.DEBUG_FUNCTIONS) {
                 apiLog("Failed to locate address for VK instance function " + memASCII(functionName));
             }
             return address;
-        }, apiVersion, VK.getEnabledExtensionSet(apiVersion, ci.ppEnabledExtensionNames()));
+        };
+        if (!Checks.DEBUG) {
+            return new VKCapabilitiesInstance(provider, apiVersion, ext);
+        }
+
+        APIFunctionCounter counter = new APIFunctionCounter(provider);
+        VKCapabilitiesInstance caps = new VKCapabilitiesInstance(counter, apiVersion, ext);
+        counter.log("VK");
+        return caps;
     }
 
 }
\ No newline at end of file
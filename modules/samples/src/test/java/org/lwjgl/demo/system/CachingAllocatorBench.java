@@ -0,0 +1,94 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.demo.system;
+
+import org.lwjgl.system.*;
+
+import java.util.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.rpmalloc.RPmalloc.*;
+
+/**
+ * Benchmarks small block malloc/free throughput of a {@link Configuration#MEMORY_ALLOCATOR}.
+ *
+ * <p>The allocator is selected with the first argument ({@code system}, {@code jemalloc}, {@code rpmalloc} or {@code cached}), the number of threads with
+ * the second argument. Run once per allocator to compare them, e.g. {@code cached} against {@code jemalloc}, which is the allocator it caches for by
+ * default.</p>
+ *
+ * <p>Each thread keeps a small window of live allocations with sizes up to {@code MAX_SIZE}, which is the typical usage pattern of short-lived buffers that
+ * do not fit in a {@link MemoryStack}.</p>
+ */
+public final class CachingAllocatorBench {
+
+    private static final int BENCH_ITERS = 10;
+    private static final int BENCH_OPS   = 2_000_000;
+
+    private static final int LIVE_WINDOW = 64;
+    private static final int MAX_SIZE    = 1024;
+
+    private CachingAllocatorBench() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String allocator = args.length == 0 ? "cached" : args[0];
+        int    threads   = args.length < 2 ? 1 : Integer.parseInt(args[1]);
+
+        Configuration.MEMORY_ALLOCATOR.set(allocator);
+
+        boolean rpmalloc = "rpmalloc".equals(allocator);
+
+        for (int i = 0; i < BENCH_ITERS; i++) {
+            long t = bench(threads, () -> {
+                if (rpmalloc) {
+                    rpmalloc_thread_initialize();
+                }
+                run();
+                if (rpmalloc) {
+                    rpmalloc_thread_finalize();
+                }
+            });
+
+            // Each op is a malloc/free pair
+            System.out.format("%s: %.3f Mops/s (%d threads)\n", allocator, threads * BENCH_OPS * 1e3 / t, threads);
+        }
+    }
+
+    private static long bench(int threads, Runnable task) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Thread(task));
+        }
+
+        long t = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - t;
+    }
+
+    private static void run() {
+        long[] live = new long[LIVE_WINDOW];
+
+        Random random = new Random(0);
+        for (int i = 0; i < BENCH_OPS; i++) {
+            int index = i & (LIVE_WINDOW - 1);
+            if (live[index] != NULL) {
+                nmemFree(live[index]);
+            }
+            live[index] = nmemAlloc(1 + random.nextInt(MAX_SIZE));
+        }
+
+        for (long address : live) {
+            if (address != NULL) {
+                nmemFree(address);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright LWJGL. All rights reserved.
+ * License terms: https://www.lwjgl.org/license
+ */
+package org.lwjgl.demo.system;
+
+import org.lwjgl.system.*;
+import org.lwjgl.system.MemoryUtil.*;
+
+import java.util.*;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Benchmarks malloc/free throughput with and without the debug allocator tracking.
+ *
+ * <p>The untracked allocator is the one returned by {@link MemoryUtil#getAllocator}, the tracked allocator is the one used by {@link MemoryUtil#nmemAlloc}
+ * and {@link MemoryUtil#nmemFree} when {@link Configuration#DEBUG_MEMORY_ALLOCATOR} is enabled. Each iteration keeps a window of live allocations, so that
+ * the tracking table does not stay empty.</p>
+ *
+ * <p>The number of threads can be specified as the first argument. The stack depth of the allocation site, which affects the stacktrace capture cost, can be
+ * specified as the second argument.</p>
+ */
+public final class DebugAllocatorBench {
+
+    private static final int BENCH_ITERS = 10;
+    private static final int BENCH_OPS   = 200_000;
+
+    private static final int LIVE_WINDOW = 4096;
+
+    private DebugAllocatorBench() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Configuration.DEBUG_MEMORY_ALLOCATOR.set(true);
+
+        int threads = args.length == 0 ? 1 : Integer.parseInt(args[0]);
+        int depth   = args.length < 2 ? 0 : Integer.parseInt(args[1]);
+
+        MemoryAllocator allocator = getAllocator();
+
+        for (int i = 0; i < BENCH_ITERS; i++) {
+            long untracked = bench(threads, () -> run(depth, allocator::malloc, allocator::free));
+            long tracked = bench(threads, () -> run(depth, MemoryUtil::nmemAlloc, MemoryUtil::nmemFree));
+
+            // Each op is a malloc/free pair
+            System.out.format(
+                "untracked: %.3f Mops/s, tracked: %.3f Mops/s (%d threads, depth %d)\n",
+                threads * BENCH_OPS * 1e3 / untracked,
+                threads * BENCH_OPS * 1e3 / tracked,
+                threads,
+                depth
+            );
+        }
+    }
+
+    private interface Malloc {
+        long malloc(long size);
+    }
+
+    private interface Free {
+        void free(long ptr);
+    }
+
+    private static long bench(int threads, Runnable task) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Thread(task));
+        }
+
+        long t = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - t;
+    }
+
+    private static void run(int depth, Malloc malloc, Free free) {
+        if (0 < depth) {
+            run(depth - 1, malloc, free);
+            return;
+        }
+
+        long[] live = new long[LIVE_WINDOW];
+
+        Random random = new Random(0);
+        for (int i = 0; i < BENCH_OPS; i++) {
+            int index = i & (LIVE_WINDOW - 1);
+            if (live[index] != NULL) {
+                free.free(live[index]);
+            }
+            live[index] = malloc.malloc(16 + random.nextInt(240));
+        }
+
+        for (long address : live) {
+            if (address != NULL) {
+                free.free(address);
+            }
+        }
+    }
+
+}